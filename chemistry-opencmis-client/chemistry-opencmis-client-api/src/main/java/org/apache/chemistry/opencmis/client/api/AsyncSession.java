@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.api;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+
+/**
+ * Asynchronous access to a {@link Session}.
+ * <p>
+ * All methods return immediately. The calls are executed on the executor of
+ * the asynchronous session and behave like the corresponding {@link Session}
+ * methods, including the use of the session object cache. Exceptions thrown
+ * by the session are reported as the cause of the
+ * {@link java.util.concurrent.ExecutionException} thrown by
+ * {@link Future#get()}.
+ * <p>
+ * Independent calls can run at the same time. Create an asynchronous session
+ * with {@code org.apache.chemistry.opencmis.client.runtime.AsyncSessionImpl}.
+ */
+public interface AsyncSession {
+
+    /**
+     * Returns the underlying session.
+     */
+    Session getSession();
+
+    /**
+     * @see Session#getObject(ObjectId)
+     */
+    Future<CmisObject> getObject(ObjectId objectId);
+
+    /**
+     * @see Session#getObject(ObjectId, OperationContext)
+     */
+    Future<CmisObject> getObject(ObjectId objectId, OperationContext context);
+
+    /**
+     * @see Session#getObject(String)
+     */
+    Future<CmisObject> getObject(String objectId);
+
+    /**
+     * @see Session#getObject(String, OperationContext)
+     */
+    Future<CmisObject> getObject(String objectId, OperationContext context);
+
+    /**
+     * @see Session#getObjectByPath(String)
+     */
+    Future<CmisObject> getObjectByPath(String path);
+
+    /**
+     * @see Session#getObjectByPath(String, OperationContext)
+     */
+    Future<CmisObject> getObjectByPath(String path, OperationContext context);
+
+    /**
+     * Sends a query. The future returns when the first page of results has
+     * been received. Further pages are fetched while iterating.
+     *
+     * @see Session#query(String, boolean)
+     */
+    Future<ItemIterable<QueryResult>> query(String statement, boolean searchAllVersions);
+
+    /**
+     * Sends a query. The future returns when the first page of results has
+     * been received. Further pages are fetched while iterating.
+     *
+     * @see Session#query(String, boolean, OperationContext)
+     */
+    Future<ItemIterable<QueryResult>> query(String statement, boolean searchAllVersions, OperationContext context);
+
+    /**
+     * @see Session#createDocument(Map, ObjectId, ContentStream,
+     *      VersioningState)
+     */
+    Future<ObjectId> createDocument(Map<String, ?> properties, ObjectId folderId, ContentStream contentStream,
+            VersioningState versioningState);
+
+    /**
+     * Retrieves the main content stream of a document. The future returns as
+     * soon as the stream can be read. The caller has to close the stream.
+     *
+     * @see Session#getContentStream(ObjectId)
+     */
+    Future<ContentStream> getContentStream(ObjectId docId);
+
+    /**
+     * Retrieves a content stream. The future returns as soon as the stream
+     * can be read. The caller has to close the stream.
+     *
+     * @see Session#getContentStream(ObjectId, String, BigInteger, BigInteger)
+     */
+    Future<ContentStream> getContentStream(ObjectId docId, String streamId, BigInteger offset, BigInteger length);
+
+    /**
+     * Downloads the main content stream of a document to the given output
+     * stream. The output stream is not closed.
+     *
+     * @return the future number of bytes copied, -1 if the document has no
+     *         content
+     */
+    Future<Long> downloadContent(ObjectId docId, OutputStream target);
+
+    /**
+     * Stops accepting new calls. Calls already submitted are still executed.
+     * Executors that have been passed in by the application are not shut
+     * down.
+     */
+    void shutdown();
+}
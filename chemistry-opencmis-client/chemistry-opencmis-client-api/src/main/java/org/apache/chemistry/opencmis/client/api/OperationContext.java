@@ -205,4 +205,24 @@ public interface OperationContext extends Serializable {
      * Returns the current max number of items per batch.
      */
     int getMaxItemsPerPage();
+
+    /**
+     * Sets the number of pages that are fetched in the background while a
+     * list is iterated.
+     * 
+     * If set to a value greater than 0, iterating over a list fetches the
+     * following pages while the current page is processed. At most
+     * <code>prefetchPages</code> pages are held in addition to the current
+     * page. Pages of lists that are accessed with
+     * {@link ItemIterable#getPage()} are never prefetched.
+     * 
+     * @param prefetchPages
+     *            number of pages (0 turns prefetching off, the default)
+     */
+    void setPrefetchPages(int prefetchPages);
+
+    /**
+     * Returns the number of pages that are fetched in the background.
+     */
+    int getPrefetchPages();
 }
@@ -20,6 +20,7 @@ package org.apache.chemistry.opencmis.client.api;
 
 import java.io.Serializable;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -281,6 +282,28 @@ public interface Session extends Serializable {
      */
     CmisObject getObject(String objectId, OperationContext context);
 
+    /**
+     * Returns the CMIS objects with the given ids. Objects found in the session
+     * cache are taken from there. The remaining objects are loaded with as few
+     * round trips as possible: with a single query per base type if the
+     * repository supports queries and the {@link OperationContext} only asks
+     * for data a query can return, or else with a bounded number of parallel
+     * <code>getObject</code> calls. Loaded objects are put into the cache.
+     * 
+     * @param objectIds
+     *            the object ids
+     * @param context
+     *            the {@link OperationContext} to use
+     * 
+     * @return the objects in the order of the given ids, <code>null</code>
+     *         for ids that don't refer to an existing object
+     * 
+     * @see #getObject(String, OperationContext)
+     * 
+     * @cmis 1.0
+     */
+    List<CmisObject> getObjects(Collection<String> objectIds, OperationContext context);
+
     /**
      * Returns a CMIS object from the session cache. If the object is not in the
      * cache or the cache is turned off per default {@link OperationContext}, it
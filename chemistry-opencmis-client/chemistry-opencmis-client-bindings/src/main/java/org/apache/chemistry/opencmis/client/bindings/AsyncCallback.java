@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings;
+
+/**
+ * Receives the outcome of an asynchronous binding call.
+ * <p>
+ * Callbacks are called by the thread that executed the call. They should
+ * return quickly and must not block on other asynchronous calls.
+ *
+ * @see AsyncCmisBinding
+ */
+public interface AsyncCallback<T> {
+
+    /**
+     * Called when the call returned successfully.
+     */
+    void completed(T result);
+
+    /**
+     * Called when the call failed or has been cancelled.
+     */
+    void failed(Throwable t);
+}
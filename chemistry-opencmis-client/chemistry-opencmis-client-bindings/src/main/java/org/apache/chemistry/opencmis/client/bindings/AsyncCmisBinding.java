@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings;
+
+import java.math.BigInteger;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Asynchronous access to the most frequently used binding calls.
+ * <p>
+ * The calls are executed on an executor and return a {@link Future}. An
+ * optional {@link AsyncCallback} is notified when the call has finished. The
+ * underlying binding is thread-safe, so the number of calls in flight is
+ * limited by the executor and the HTTP connection pool only. It is usually a
+ * good idea to size the executor like the connection pool (see
+ * {@link org.apache.chemistry.opencmis.commons.SessionParameter#HTTP_MAX_CONNECTIONS_PER_ROUTE}
+ * ).
+ * <p>
+ * Other calls can be made asynchronous with {@link #submit(Callable, AsyncCallback)}.
+ */
+public class AsyncCmisBinding {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncCmisBinding.class);
+
+    private final CmisBinding binding;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+
+    /**
+     * Creates an asynchronous binding with its own thread pool.
+     *
+     * @param binding
+     *            the binding
+     * @param threads
+     *            the number of threads
+     */
+    public AsyncCmisBinding(CmisBinding binding, int threads) {
+        this(binding, Executors.newFixedThreadPool(threads, new AsyncThreadFactory()), true);
+    }
+
+    /**
+     * Creates an asynchronous binding that uses the given executor. The
+     * executor is not shut down by {@link #shutdown()}.
+     *
+     * @param binding
+     *            the binding
+     * @param executor
+     *            the executor that runs the calls
+     */
+    public AsyncCmisBinding(CmisBinding binding, ExecutorService executor) {
+        this(binding, executor, false);
+    }
+
+    private AsyncCmisBinding(CmisBinding binding, ExecutorService executor, boolean ownExecutor) {
+        if (binding == null) {
+            throw new IllegalArgumentException("Binding must be set!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must be set!");
+        }
+
+        this.binding = binding;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    /**
+     * Returns the underlying binding.
+     */
+    public CmisBinding getBinding() {
+        return binding;
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link org.apache.chemistry.opencmis.commons.spi.ObjectService#getObject(String, String, String, Boolean, IncludeRelationships, String, Boolean, Boolean, ExtensionsData)}
+     * .
+     */
+    public Future<ObjectData> getObject(final String repositoryId, final String objectId, final String filter,
+            final Boolean includeAllowableActions, final IncludeRelationships includeRelationships,
+            final String renditionFilter, final Boolean includePolicyIds, final Boolean includeAcl,
+            final ExtensionsData extension, AsyncCallback<ObjectData> callback) {
+        return submit(new Callable<ObjectData>() {
+            public ObjectData call() {
+                return binding.getObjectService().getObject(repositoryId, objectId, filter,
+                        includeAllowableActions, includeRelationships, renditionFilter, includePolicyIds,
+                        includeAcl, extension);
+            }
+        }, callback);
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link org.apache.chemistry.opencmis.commons.spi.NavigationService#getChildren(String, String, String, String, Boolean, IncludeRelationships, String, Boolean, BigInteger, BigInteger, ExtensionsData)}
+     * .
+     */
+    public Future<ObjectInFolderList> getChildren(final String repositoryId, final String folderId,
+            final String filter, final String orderBy, final Boolean includeAllowableActions,
+            final IncludeRelationships includeRelationships, final String renditionFilter,
+            final Boolean includePathSegment, final BigInteger maxItems, final BigInteger skipCount,
+            final ExtensionsData extension, AsyncCallback<ObjectInFolderList> callback) {
+        return submit(new Callable<ObjectInFolderList>() {
+            public ObjectInFolderList call() {
+                return binding.getNavigationService().getChildren(repositoryId, folderId, filter, orderBy,
+                        includeAllowableActions, includeRelationships, renditionFilter, includePathSegment,
+                        maxItems, skipCount, extension);
+            }
+        }, callback);
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link org.apache.chemistry.opencmis.commons.spi.DiscoveryService#query(String, String, Boolean, Boolean, IncludeRelationships, String, BigInteger, BigInteger, ExtensionsData)}
+     * .
+     */
+    public Future<ObjectList> query(final String repositoryId, final String statement,
+            final Boolean searchAllVersions, final Boolean includeAllowableActions,
+            final IncludeRelationships includeRelationships, final String renditionFilter,
+            final BigInteger maxItems, final BigInteger skipCount, final ExtensionsData extension,
+            AsyncCallback<ObjectList> callback) {
+        return submit(new Callable<ObjectList>() {
+            public ObjectList call() {
+                return binding.getDiscoveryService().query(repositoryId, statement, searchAllVersions,
+                        includeAllowableActions, includeRelationships, renditionFilter, maxItems, skipCount,
+                        extension);
+            }
+        }, callback);
+    }
+
+    /**
+     * Asynchronous version of
+     * {@link org.apache.chemistry.opencmis.commons.spi.ObjectService#getContentStream(String, String, String, BigInteger, BigInteger, ExtensionsData)}
+     * .
+     * <p>
+     * The future returns as soon as the response headers have been received.
+     * The caller has to read and close the stream.
+     */
+    public Future<ContentStream> getContentStream(final String repositoryId, final String objectId,
+            final String streamId, final BigInteger offset, final BigInteger length, final ExtensionsData extension,
+            AsyncCallback<ContentStream> callback) {
+        return submit(new Callable<ContentStream>() {
+            public ContentStream call() {
+                return binding.getObjectService().getContentStream(repositoryId, objectId, streamId, offset,
+                        length, extension);
+            }
+        }, callback);
+    }
+
+    /**
+     * Executes a call asynchronously.
+     *
+     * @param call
+     *            the call
+     * @param callback
+     *            the callback or <code>null</code>
+     */
+    public <T> Future<T> submit(Callable<T> call, final AsyncCallback<T> callback) {
+        FutureTask<T> task = new FutureTask<T>(call) {
+            @Override
+            protected void done() {
+                if (callback != null) {
+                    notifyCallback(this, callback);
+                }
+            }
+        };
+
+        executor.execute(task);
+
+        return task;
+    }
+
+    /**
+     * Shuts down the thread pool if it has been created by this object. Calls
+     * that have already been submitted are still executed.
+     */
+    public void shutdown() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private static <T> void notifyCallback(Future<T> future, AsyncCallback<T> callback) {
+        try {
+            T result;
+            try {
+                result = future.get();
+            } catch (ExecutionException e) {
+                callback.failed(e.getCause());
+                return;
+            } catch (CancellationException e) {
+                callback.failed(e);
+                return;
+            }
+
+            callback.completed(result);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOG.error("Async callback failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Creates daemon threads, so that a forgotten {@link #shutdown()} doesn't
+     * keep the JVM alive.
+     */
+    private static class AsyncThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "opencmis-async-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
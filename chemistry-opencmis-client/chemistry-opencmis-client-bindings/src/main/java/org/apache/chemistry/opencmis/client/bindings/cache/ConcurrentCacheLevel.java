@@ -0,0 +1,31 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.cache;
+
+/**
+ * Marker interface for cache levels that can be read and modified by multiple
+ * threads at the same time.
+ * <p>
+ * If all levels of a cache implement this interface, the cache doesn't lock
+ * read access. Readers are then not excluded by {@link Cache#writeLock()}
+ * either, so caches that update several entries as a unit should not use
+ * concurrent levels.
+ */
+public interface ConcurrentCacheLevel extends CacheLevel {
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.cache.impl;
 
+import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.CacheLevel;
@@ -45,7 +46,11 @@ public abstract class AbstractMapCacheLevel implements CacheLevel {
 
         if ((value == null) && fSingleValueEnabled) {
             if (fMap.size() == 1) {
-                value = fMap.values().iterator().next();
+                // the map might have changed in between if it is shared
+                Iterator<Object> iterator = fMap.values().iterator();
+                if (iterator.hasNext()) {
+                    value = iterator.next();
+                }
             }
         }
 
@@ -26,6 +26,7 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.Cache;
 import org.apache.chemistry.opencmis.client.bindings.cache.CacheLevel;
+import org.apache.chemistry.opencmis.client.bindings.cache.ConcurrentCacheLevel;
 import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,7 +45,10 @@ public class CacheImpl implements Cache {
 
     private final String name;
 
-    private CacheLevel root;
+    private volatile CacheLevel root;
+
+    /** <code>true</code> if all levels are {@link ConcurrentCacheLevel}s. */
+    private volatile boolean concurrent;
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
 
@@ -86,6 +90,13 @@ public class CacheImpl implements Cache {
                 }
             }
 
+            // reads don't need a lock if all levels are thread-safe
+            boolean allConcurrent = true;
+            for (Class<?> clazz : levels) {
+                allConcurrent = allConcurrent && ConcurrentCacheLevel.class.isAssignableFrom(clazz);
+            }
+            concurrent = allConcurrent;
+
             // create root
             root = createCacheLevel(0);
         } finally {
@@ -140,7 +151,7 @@ public class CacheImpl implements Cache {
 
         Object result = null;
 
-        lock.readLock().lock();
+        boolean locked = readLock();
         try {
             CacheLevel cacheLevel = root;
 
@@ -160,7 +171,7 @@ public class CacheImpl implements Cache {
             // get the value
             result = cacheLevel.get(keys[keys.length - 1]);
         } finally {
-            lock.readLock().unlock();
+            readUnlock(locked);
         }
 
         return result;
@@ -242,7 +253,7 @@ public class CacheImpl implements Cache {
             return -1;
         }
 
-        lock.readLock().lock();
+        boolean locked = readLock();
         try {
             CacheLevel cacheLevel = root;
 
@@ -259,7 +270,7 @@ public class CacheImpl implements Cache {
                 cacheLevel = (CacheLevel) level;
             }
         } finally {
-            lock.readLock().unlock();
+            readUnlock(locked);
         }
 
         return keys.length;
@@ -275,6 +286,26 @@ public class CacheImpl implements Cache {
 
     // ---- internal ----
 
+    /**
+     * Takes the read lock unless all cache levels are thread-safe.
+     *
+     * @return <code>true</code> if the lock has been taken
+     */
+    private boolean readLock() {
+        if (concurrent) {
+            return false;
+        }
+
+        lock.readLock().lock();
+        return true;
+    }
+
+    private void readUnlock(boolean locked) {
+        if (locked) {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Creates a cache level object.
      */
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.cache.impl;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.chemistry.opencmis.client.bindings.cache.ConcurrentCacheLevel;
+
+/**
+ * LRU cache that can be used by multiple threads at the same time.
+ * <p>
+ * Reads don't block. The least recently used entries are evicted by the thread
+ * that pushes the cache over its maximum size. It evicts down to 90% of the
+ * maximum size, so that the entries are sorted once for many new keys and not
+ * for every one of them. Entries can optionally expire after a time-to-live
+ * (in milliseconds).
+ */
+public class ConcurrentLruCacheLevelImpl implements ConcurrentCacheLevel {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String MAX_ENTRIES = LruCacheLevelImpl.MAX_ENTRIES;
+    public static final String TTL = "ttl";
+
+    /** ConcurrentHashMap doesn't support <code>null</code> keys. */
+    private static final String NULL_KEY = "\u0000";
+
+    private ConcurrentMap<String, Entry> fMap;
+    private final AtomicInteger fSize = new AtomicInteger();
+    private final ReentrantLock fEvictionLock = new ReentrantLock();
+    private int fMaxEntries;
+    /** time-to-live in nanoseconds, 0 = no expiry */
+    private long fTtl;
+
+    /**
+     * Constructor.
+     */
+    public ConcurrentLruCacheLevelImpl() {
+    }
+
+    public void initialize(Map<String, String> parameters) {
+        fMaxEntries = getIntParameter(parameters, MAX_ENTRIES, 100);
+        fTtl = Math.max(0, getIntParameter(parameters, TTL, 0)) * 1000000L;
+
+        fMap = new ConcurrentHashMap<String, Entry>(fMaxEntries + 1, 0.75f);
+        fSize.set(0);
+    }
+
+    public Object get(String key) {
+        String k = (key == null ? NULL_KEY : key);
+
+        Entry entry = fMap.get(k);
+        if (entry == null) {
+            return null;
+        }
+
+        long now = System.nanoTime();
+        if (entry.isExpired(now, fTtl)) {
+            if (fMap.remove(k, entry)) {
+                fSize.decrementAndGet();
+            }
+            return null;
+        }
+
+        entry.lastAccess = now;
+        return entry.value;
+    }
+
+    public void put(Object value, String key) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+
+        if (fMap.put(key == null ? NULL_KEY : key, new Entry(value, System.nanoTime())) == null) {
+            if (fSize.incrementAndGet() > fMaxEntries) {
+                evict();
+            }
+        }
+    }
+
+    public void remove(String key) {
+        if (fMap.remove(key == null ? NULL_KEY : key) != null) {
+            fSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of entries in this cache level.
+     */
+    public int size() {
+        return fMap.size();
+    }
+
+    /**
+     * Removes expired entries and, if the cache is still too big, the least
+     * recently used entries down to the low-water mark. Only one thread evicts
+     * at a time; other threads don't wait for it.
+     */
+    private void evict() {
+        if (!fEvictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            long now = System.nanoTime();
+
+            List<Map.Entry<String, Entry>> entries = new ArrayList<Map.Entry<String, Entry>>(fMap.size());
+            for (Map.Entry<String, Entry> mapEntry : fMap.entrySet()) {
+                if (mapEntry.getValue().isExpired(now, fTtl)) {
+                    remove(mapEntry.getKey(), mapEntry.getValue());
+                } else {
+                    entries.add(mapEntry);
+                }
+            }
+
+            int excess = fSize.get() - fMaxEntries;
+            if (excess <= 0) {
+                return;
+            }
+            excess += fMaxEntries - getLowWaterMark();
+
+            // snapshot the access times, they may change while sorting
+            final Map<Entry, Long> accessTimes = new IdentityHashMap<Entry, Long>(entries.size());
+            for (Map.Entry<String, Entry> mapEntry : entries) {
+                accessTimes.put(mapEntry.getValue(), mapEntry.getValue().lastAccess);
+            }
+
+            Collections.sort(entries, new Comparator<Map.Entry<String, Entry>>() {
+                public int compare(Map.Entry<String, Entry> e1, Map.Entry<String, Entry> e2) {
+                    long t1 = accessTimes.get(e1.getValue());
+                    long t2 = accessTimes.get(e2.getValue());
+                    return (t1 < t2 ? -1 : (t1 == t2 ? 0 : 1));
+                }
+            });
+
+            for (int i = 0; i < entries.size() && excess > 0; i++) {
+                if (remove(entries.get(i).getKey(), entries.get(i).getValue())) {
+                    excess--;
+                }
+            }
+        } finally {
+            fEvictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the size the cache is reduced to when it gets too big.
+     */
+    private int getLowWaterMark() {
+        return Math.max(0, fMaxEntries - Math.max(1, fMaxEntries / 10));
+    }
+
+    private boolean remove(String key, Entry entry) {
+        if (fMap.remove(key, entry)) {
+            fSize.decrementAndGet();
+            return true;
+        }
+
+        return false;
+    }
+
+    private static int getIntParameter(Map<String, String> parameters, String name, int defValue) {
+        if (parameters == null) {
+            return defValue;
+        }
+
+        String value = parameters.get(name);
+        if ((value == null) || (value.trim().length() == 0)) {
+            return defValue;
+        }
+
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            return defValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return (fMap == null ? "[no map]" : fMap.toString());
+    }
+
+    /**
+     * Cache entry.
+     */
+    private static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final Object value;
+        final long created;
+        volatile long lastAccess;
+
+        Entry(Object value, long created) {
+            this.value = value;
+            this.created = created;
+            this.lastAccess = created;
+        }
+
+        boolean isExpired(long now, long ttl) {
+            return (ttl > 0) && (now - created >= ttl);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+}
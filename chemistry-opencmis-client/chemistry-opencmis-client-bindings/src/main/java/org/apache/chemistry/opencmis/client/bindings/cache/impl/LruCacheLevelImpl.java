@@ -18,11 +18,16 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.cache.impl;
 
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * LRU cache.
+ * <p>
+ * Lookups reorder the entries, so the map is synchronized even though the
+ * cache only takes a read lock for lookups.
+ * {@link ConcurrentLruCacheLevelImpl} doesn't lock at all.
  */
 public class LruCacheLevelImpl extends AbstractMapCacheLevel {
 
@@ -33,13 +38,13 @@ public class LruCacheLevelImpl extends AbstractMapCacheLevel {
     public void initialize(Map<String, String> parameters) {
         final int maxEntries = getIntParameter(parameters, MAX_ENTRIES, 100);
 
-        setMap(new LinkedHashMap<String, Object>(maxEntries + 1, 0.70f, true) {
+        setMap(Collections.synchronizedMap(new LinkedHashMap<String, Object>(maxEntries + 1, 0.70f, true) {
             private static final long serialVersionUID = 1L;
 
             @Override
             public boolean removeEldestEntry(Map.Entry<String, Object> eldest) {
                 return size() > maxEntries;
             }
-        });
+        }));
     }
 }
@@ -23,7 +23,7 @@ import java.io.Serializable;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.Cache;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.CacheImpl;
-import org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentMapCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
@@ -54,8 +54,8 @@ public class RepositoryInfoCache implements Serializable {
         }
 
         cache = new CacheImpl("Repository Info Cache");
-        cache.initialize(new String[] { MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "="
-                + repCount });
+        cache.initialize(new String[] { ConcurrentMapCacheLevelImpl.class.getName() + " "
+                + ConcurrentMapCacheLevelImpl.CAPACITY + "=" + repCount });
     }
 
     /**
@@ -22,8 +22,8 @@ import java.io.Serializable;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.Cache;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.CacheImpl;
-import org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl;
-import org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentMapCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
@@ -61,8 +61,10 @@ public class TypeDefinitionCache implements Serializable {
 
         cache = new CacheImpl("Type Definition Cache");
         cache.initialize(new String[] {
-                MapCacheLevelImpl.class.getName() + " " + MapCacheLevelImpl.CAPACITY + "=" + repCount, // repository
-                LruCacheLevelImpl.class.getName() + " " + LruCacheLevelImpl.MAX_ENTRIES + "=" + typeCount // type
+                ConcurrentMapCacheLevelImpl.class.getName() + " " + ConcurrentMapCacheLevelImpl.CAPACITY + "="
+                        + repCount, // repository
+                ConcurrentLruCacheLevelImpl.class.getName() + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES + "="
+                        + typeCount // type
         });
     }
 
@@ -18,6 +18,7 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.spi.browser;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
@@ -32,6 +33,9 @@ import org.apache.chemistry.opencmis.client.bindings.spi.http.HttpInvoker;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Output;
 import org.apache.chemistry.opencmis.client.bindings.spi.http.Response;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
@@ -55,12 +59,14 @@ import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.impl.JSONConstants;
 import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoBrowserBindingImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.ContainerFactory;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
 import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONPullParser;
 
 /**
  * Base class for all Browser Binding client services.
@@ -327,6 +333,80 @@ public abstract class AbstractBrowserBindingService implements LinkAccess {
         return obj;
     }
 
+    /**
+     * Parses and converts an object list from an input stream.
+     */
+    protected ObjectList parseObjectList(InputStream stream, String charset, final TypeCache typeCache,
+            final boolean isQueryResult) {
+        return parse(stream, charset, new StreamConverter<ObjectList>() {
+            public ObjectList convert(JSONPullParser parser) throws IOException, JSONParseException {
+                return JSONConverter.convertObjectList(parser, typeCache, isQueryResult);
+            }
+        });
+    }
+
+    /**
+     * Parses and converts an object in folder list from an input stream.
+     */
+    protected ObjectInFolderList parseObjectInFolderList(InputStream stream, String charset,
+            final TypeCache typeCache) {
+        return parse(stream, charset, new StreamConverter<ObjectInFolderList>() {
+            public ObjectInFolderList convert(JSONPullParser parser) throws IOException, JSONParseException {
+                return JSONConverter.convertObjectInFolderList(parser, typeCache);
+            }
+        });
+    }
+
+    /**
+     * Parses and converts a descendants tree from an input stream.
+     */
+    protected List<ObjectInFolderContainer> parseDescendants(InputStream stream, String charset,
+            final TypeCache typeCache) {
+        return parse(stream, charset, new StreamConverter<List<ObjectInFolderContainer>>() {
+            public List<ObjectInFolderContainer> convert(JSONPullParser parser) throws IOException,
+                    JSONParseException {
+                return JSONConverter.convertDescendants(parser, typeCache);
+            }
+        });
+    }
+
+    /**
+     * Converts a JSON document while it is read from the pull parser.
+     */
+    private interface StreamConverter<T> {
+        T convert(JSONPullParser parser) throws IOException, JSONParseException;
+    }
+
+    /**
+     * Parses an input stream and converts it in one pass, without building the
+     * JSON tree of the whole document.
+     */
+    private <T> T parse(InputStream stream, String charset, StreamConverter<T> converter) {
+
+        InputStreamReader reader = null;
+
+        T result = null;
+        try {
+            reader = new InputStreamReader(stream, charset);
+            JSONPullParser parser = new JSONPullParser(reader, SIMPLE_CONTAINER_FACTORY);
+            result = converter.convert(parser);
+            if (parser.next() != JSONPullParser.END_DOCUMENT) {
+                throw new CmisConnectionException("Unexpected content after JSON document!");
+            }
+        } catch (CmisBaseException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CmisConnectionException("Parsing exception!", e);
+        } finally {
+            IOUtils.consumeAndClose(reader);
+            if (reader == null) {
+                IOUtils.closeQuietly(stream);
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Performs a GET on an URL, checks the response code and returns the
      * result.
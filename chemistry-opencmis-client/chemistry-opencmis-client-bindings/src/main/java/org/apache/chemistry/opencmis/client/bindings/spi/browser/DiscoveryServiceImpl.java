@@ -75,8 +75,7 @@ public class DiscoveryServiceImpl extends AbstractBrowserBindingService implemen
 
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-        return JSONConverter.convertObjectList(json, typeCache, true);
+        return parseObjectList(resp.getStream(), resp.getCharset(), typeCache, true);
     }
 
     public ObjectList getContentChanges(String repositoryId, Holder<String> changeLogToken, Boolean includeProperties,
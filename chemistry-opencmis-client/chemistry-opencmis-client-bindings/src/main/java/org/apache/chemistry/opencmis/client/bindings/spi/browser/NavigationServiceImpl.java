@@ -66,11 +66,9 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        return JSONConverter.convertObjectInFolderList(json, typeCache);
+        return parseObjectInFolderList(resp.getStream(), resp.getCharset(), typeCache);
     }
 
     public List<ObjectInFolderContainer> getDescendants(String repositoryId, String folderId, BigInteger depth,
@@ -88,11 +86,9 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        List<Object> json = parseArray(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        return JSONConverter.convertDescendants(json, typeCache);
+        return parseDescendants(resp.getStream(), resp.getCharset(), typeCache);
     }
 
     public List<ObjectInFolderContainer> getFolderTree(String repositoryId, String folderId, BigInteger depth,
@@ -110,11 +106,9 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        List<Object> json = parseArray(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        return JSONConverter.convertDescendants(json, typeCache);
+        return parseDescendants(resp.getStream(), resp.getCharset(), typeCache);
     }
 
     public List<ObjectParentData> getObjectParents(String repositoryId, String objectId, String filter,
@@ -170,10 +164,8 @@ public class NavigationServiceImpl extends AbstractBrowserBindingService impleme
 
         // read and parse
         Response resp = read(url);
-        Map<String, Object> json = parseObject(resp.getStream(), resp.getCharset());
-
         TypeCache typeCache = new ClientTypeCacheImpl(repositoryId, this);
 
-        return JSONConverter.convertObjectList(json, typeCache, false);
+        return parseObjectList(resp.getStream(), resp.getCharset(), typeCache, false);
     }
 }
@@ -29,6 +29,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPOutputStream;
 
 import javax.net.ssl.HostnameVerifier;
@@ -53,24 +54,31 @@ import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.scheme.SchemeRegistry;
 import org.apache.http.conn.ssl.X509HostnameVerifier;
 import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.protocol.HttpContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A {@link HttpInvoker} that uses The Apache HTTP client.
  */
-public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
+public abstract class AbstractApacheClientHttpInvoker implements MeteredHttpInvoker {
 
     protected static final Logger LOG = LoggerFactory.getLogger(AbstractApacheClientHttpInvoker.class);
 
     protected static final String HTTP_CLIENT = "org.apache.chemistry.opencmis.client.bindings.spi.http.ApacheClientHttpInvoker.httpClient";
+    protected static final String HTTP_METRICS = "org.apache.chemistry.opencmis.client.bindings.spi.http.ApacheClientHttpInvoker.metrics";
     protected static final int BUFFER_SIZE = 2 * 1024 * 1024;
 
     public Response invokeGET(UrlBuilder url, BindingSession session) {
@@ -110,6 +118,10 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
                     httpclient = (DefaultHttpClient) session.get(HTTP_CLIENT);
                     if (httpclient == null) {
                         httpclient = createHttpClient(url, session);
+                        if (httpclient.getConnectionManager() instanceof ConnPoolControl<?>) {
+                            getMetricsImpl(session).setPool(
+                                    (ConnPoolControl<?>) httpclient.getConnectionManager());
+                        }
                         session.put(HTTP_CLIENT, httpclient, true);
                     }
                 } finally {
@@ -117,6 +129,8 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
                 }
             }
 
+            final HttpInvokerMetricsImpl metrics = getMetricsImpl(session);
+
             HttpRequestBase request = null;
 
             if ("GET".equals(method)) {
@@ -226,9 +240,9 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
                         OutputStream connOut = null;
 
                         if (clientCompressionFlag) {
-                            connOut = new GZIPOutputStream(outstream, 4096);
+                            connOut = new GZIPOutputStream(metrics.countSent(outstream), 4096);
                         } else {
-                            connOut = outstream;
+                            connOut = metrics.countSent(outstream);
                         }
 
                         OutputStream out = new BufferedOutputStream(connOut, BUFFER_SIZE);
@@ -250,7 +264,9 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
             }
 
             // connect
+            long start = System.nanoTime();
             HttpResponse response = httpclient.execute(request);
+            metrics.recordLatency(method, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
             HttpEntity entity = response.getEntity();
 
             // get stream, if present
@@ -260,13 +276,13 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
 
             if ((respCode == 200) || (respCode == 201) || (respCode == 203) || (respCode == 206)) {
                 if (entity != null) {
-                    inputStream = entity.getContent();
+                    inputStream = metrics.countReceived(entity.getContent());
                 } else {
                     inputStream = new ByteArrayInputStream(new byte[0]);
                 }
             } else {
                 if (entity != null) {
-                    errorStream = entity.getContent();
+                    errorStream = metrics.countReceived(entity.getContent());
                 } else {
                     errorStream = new ByteArrayInputStream(new byte[0]);
                 }
@@ -301,6 +317,90 @@ public abstract class AbstractApacheClientHttpInvoker implements HttpInvoker {
         }
     }
 
+    public HttpInvokerMetrics getMetrics(BindingSession session) {
+        return getMetricsImpl(session);
+    }
+
+    /**
+     * Returns the statistics object of the session and creates it if
+     * necessary.
+     */
+    protected HttpInvokerMetricsImpl getMetricsImpl(BindingSession session) {
+        HttpInvokerMetricsImpl metrics = (HttpInvokerMetricsImpl) session.get(HTTP_METRICS);
+        if (metrics == null) {
+            session.writeLock();
+            try {
+                metrics = (HttpInvokerMetricsImpl) session.get(HTTP_METRICS);
+                if (metrics == null) {
+                    metrics = new HttpInvokerMetricsImpl();
+                    session.put(HTTP_METRICS, metrics, true);
+                }
+            } finally {
+                session.writeUnlock();
+            }
+        }
+
+        return metrics;
+    }
+
+    /**
+     * Creates the pooling connection manager and applies the pool size and
+     * idle timeout session parameters.
+     */
+    protected PoolingClientConnectionManager createConnectionManager(SchemeRegistry registry, BindingSession session) {
+        PoolingClientConnectionManager connManager = new MeteredConnectionManager(registry,
+                getMetricsImpl(session), session.get(SessionParameter.HTTP_IDLE_TIMEOUT, 0));
+
+        // set max connections
+        int maxPerRoute = session.get(SessionParameter.HTTP_MAX_CONNECTIONS_PER_ROUTE, -1);
+        if (maxPerRoute < 1) {
+            String keepAliveStr = System.getProperty("http.keepAlive", "true");
+            if ("true".equalsIgnoreCase(keepAliveStr)) {
+                String maxConnStr = System.getProperty("http.maxConnections", "5");
+                maxPerRoute = 5;
+                try {
+                    maxPerRoute = Integer.parseInt(maxConnStr);
+                } catch (NumberFormatException nfe) {
+                    // ignore
+                }
+            }
+        }
+
+        int maxTotal = session.get(SessionParameter.HTTP_MAX_CONNECTIONS, -1);
+
+        if (maxPerRoute > 0) {
+            connManager.setDefaultMaxPerRoute(maxPerRoute);
+            if (maxTotal < 1) {
+                maxTotal = 4 * maxPerRoute;
+            }
+        }
+        if (maxTotal > 0) {
+            connManager.setMaxTotal(maxTotal);
+        }
+
+        return connManager;
+    }
+
+    /**
+     * Creates the keep-alive strategy. Keep-alive timeouts sent by the server
+     * take precedence over the {@link SessionParameter#HTTP_KEEP_ALIVE}
+     * session parameter.
+     */
+    protected ConnectionKeepAliveStrategy createKeepAliveStrategy(BindingSession session) {
+        final long keepAlive = session.get(SessionParameter.HTTP_KEEP_ALIVE, -1);
+
+        return new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                if (duration < 0 && keepAlive > 0) {
+                    return keepAlive;
+                }
+                return duration;
+            }
+        };
+    }
+
     /**
      * Creates default params for the Apache HTTP Client.
      */
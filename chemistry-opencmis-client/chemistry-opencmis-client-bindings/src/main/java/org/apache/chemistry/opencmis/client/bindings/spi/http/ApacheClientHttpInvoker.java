@@ -63,21 +63,7 @@ public class ApacheClientHttpInvoker extends AbstractApacheClientHttpInvoker {
         registry.register(new Scheme("https", 443, getSSLSocketFactory(url, session)));
 
         // set up connection manager
-        PoolingClientConnectionManager connManager = new PoolingClientConnectionManager(registry);
-
-        // set max connection a
-        String keepAliveStr = System.getProperty("http.keepAlive", "true");
-        if ("true".equalsIgnoreCase(keepAliveStr)) {
-            String maxConnStr = System.getProperty("http.maxConnections", "5");
-            int maxConn = 5;
-            try {
-                maxConn = Integer.parseInt(maxConnStr);
-            } catch (NumberFormatException nfe) {
-                // ignore
-            }
-            connManager.setDefaultMaxPerRoute(maxConn);
-            connManager.setMaxTotal(4 * maxConn);
-        }
+        PoolingClientConnectionManager connManager = createConnectionManager(registry, session);
 
         // set up proxy
         ProxySelectorRoutePlanner routePlanner = new ProxySelectorRoutePlanner(registry, null);
@@ -85,6 +71,7 @@ public class ApacheClientHttpInvoker extends AbstractApacheClientHttpInvoker {
         // set up client
         DefaultHttpClient httpclient = new DefaultHttpClient(connManager, params);
         httpclient.setRoutePlanner(routePlanner);
+        httpclient.setKeepAliveStrategy(createKeepAliveStrategy(session));
 
         return httpclient;
     }
@@ -19,12 +19,12 @@
 package org.apache.chemistry.opencmis.client.bindings.spi.http;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.math.BigInteger;
 import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
 import java.util.Map;
@@ -50,6 +50,17 @@ public class DefaultHttpInvoker implements HttpInvoker {
 
     private static final int BUFFER_SIZE = 2 * 1024 * 1024;
 
+    private static final int MAX_REDIRECTS = 10;
+
+    /** Request bodies up to this size are kept to re-send them on redirects. */
+    private static final int MAX_REPLAY_SIZE = BUFFER_SIZE;
+
+    private static final int HTTP_SEE_OTHER = 303;
+    private static final int HTTP_TEMPORARY_REDIRECT = 307;
+    private static final int HTTP_PERMANENT_REDIRECT = 308;
+
+    private final RedirectCache redirects = new RedirectCache();
+
     public DefaultHttpInvoker() {
     }
 
@@ -77,168 +88,323 @@ public class DefaultHttpInvoker implements HttpInvoker {
     private Response invoke(UrlBuilder url, String method, String contentType, Map<String, String> headers,
             Output writer, BindingSession session, BigInteger offset, BigInteger length) {
         try {
-            // log before connect
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(method + " " + url);
-            }
+            String currentUrl = redirects.resolve(url.toString());
+            int redirectCount = 0;
+            ReplayBuffer replay = null;
+
+            while (true) {
+                // log before connect
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug(method + " " + currentUrl);
+                }
 
-            // connect
-            HttpURLConnection conn = checkRedirect(url);
-            conn.setRequestMethod(method);
-            conn.setDoInput(true);
-            conn.setDoOutput(writer != null);
-            conn.setAllowUserInteraction(false);
-            conn.setUseCaches(false);
-            conn.setRequestProperty("User-Agent", ClientVersion.OPENCMIS_CLIENT);
-
-            // timeouts
-            int connectTimeout = session.get(SessionParameter.CONNECT_TIMEOUT, -1);
-            if (connectTimeout >= 0) {
-                conn.setConnectTimeout(connectTimeout);
-            }
+                // connect
+                HttpURLConnection conn = (HttpURLConnection) (new URL(currentUrl)).openConnection();
+                conn.setRequestMethod(method);
+                conn.setDoInput(true);
+                conn.setDoOutput(writer != null);
+                conn.setAllowUserInteraction(false);
+                conn.setUseCaches(false);
+                conn.setInstanceFollowRedirects(false);
+                conn.setRequestProperty("User-Agent", ClientVersion.OPENCMIS_CLIENT);
+
+                // timeouts
+                int connectTimeout = session.get(SessionParameter.CONNECT_TIMEOUT, -1);
+                if (connectTimeout >= 0) {
+                    conn.setConnectTimeout(connectTimeout);
+                }
 
-            int readTimeout = session.get(SessionParameter.READ_TIMEOUT, -1);
-            if (readTimeout >= 0) {
-                conn.setReadTimeout(readTimeout);
-            }
+                int readTimeout = session.get(SessionParameter.READ_TIMEOUT, -1);
+                if (readTimeout >= 0) {
+                    conn.setReadTimeout(readTimeout);
+                }
 
-            // set content type
-            if (contentType != null) {
-                conn.setRequestProperty("Content-Type", contentType);
-            }
-            // set other headers
-            if (headers != null) {
-                for (Map.Entry<String, String> header : headers.entrySet()) {
-                    conn.addRequestProperty(header.getKey(), header.getValue());
+                // set content type
+                if (contentType != null) {
+                    conn.setRequestProperty("Content-Type", contentType);
+                }
+                // set other headers
+                if (headers != null) {
+                    for (Map.Entry<String, String> header : headers.entrySet()) {
+                        conn.addRequestProperty(header.getKey(), header.getValue());
+                    }
                 }
-            }
 
-            // authenticate
-            AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
-            if (authProvider != null) {
-                Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(url.toString());
-                if (httpHeaders != null) {
-                    for (Map.Entry<String, List<String>> header : httpHeaders.entrySet()) {
-                        if (header.getKey() != null && header.getValue() != null && !header.getValue().isEmpty()) {
-                            String key = header.getKey();
-                            if (key.equalsIgnoreCase("user-agent")) {
-                                conn.setRequestProperty("User-Agent", header.getValue().get(0));
-                            } else {
-                                for (String value : header.getValue()) {
-                                    if (value != null) {
-                                        conn.addRequestProperty(key, value);
+                // authenticate
+                AuthenticationProvider authProvider = CmisBindingsHelper.getAuthenticationProvider(session);
+                if (authProvider != null) {
+                    Map<String, List<String>> httpHeaders = authProvider.getHTTPHeaders(currentUrl);
+                    if (httpHeaders != null) {
+                        for (Map.Entry<String, List<String>> header : httpHeaders.entrySet()) {
+                            if (header.getKey() != null && header.getValue() != null && !header.getValue().isEmpty()) {
+                                String key = header.getKey();
+                                if (key.equalsIgnoreCase("user-agent")) {
+                                    conn.setRequestProperty("User-Agent", header.getValue().get(0));
+                                } else {
+                                    for (String value : header.getValue()) {
+                                        if (value != null) {
+                                            conn.addRequestProperty(key, value);
+                                        }
                                     }
                                 }
                             }
                         }
                     }
+
+                    if (conn instanceof HttpsURLConnection) {
+                        SSLSocketFactory sf = authProvider.getSSLSocketFactory();
+                        if (sf != null) {
+                            ((HttpsURLConnection) conn).setSSLSocketFactory(sf);
+                        }
+
+                        HostnameVerifier hv = authProvider.getHostnameVerifier();
+                        if (hv != null) {
+                            ((HttpsURLConnection) conn).setHostnameVerifier(hv);
+                        }
+                    }
                 }
 
-                if (conn instanceof HttpsURLConnection) {
-                    SSLSocketFactory sf = authProvider.getSSLSocketFactory();
-                    if (sf != null) {
-                        ((HttpsURLConnection) conn).setSSLSocketFactory(sf);
+                // range
+                if ((offset != null) || (length != null)) {
+                    StringBuilder sb = new StringBuilder("bytes=");
+
+                    if ((offset == null) || (offset.signum() == -1)) {
+                        offset = BigInteger.ZERO;
                     }
 
-                    HostnameVerifier hv = authProvider.getHostnameVerifier();
-                    if (hv != null) {
-                        ((HttpsURLConnection) conn).setHostnameVerifier(hv);
+                    sb.append(offset.toString());
+                    sb.append('-');
+
+                    if ((length != null) && (length.signum() == 1)) {
+                        sb.append(offset.add(length.subtract(BigInteger.ONE)).toString());
                     }
+
+                    conn.setRequestProperty("Range", sb.toString());
                 }
-            }
 
-            // range
-            if ((offset != null) || (length != null)) {
-                StringBuilder sb = new StringBuilder("bytes=");
+                // compression
+                Object compression = session.get(SessionParameter.COMPRESSION);
+                if ((compression != null) && Boolean.parseBoolean(compression.toString())) {
+                    conn.setRequestProperty("Accept-Encoding", "gzip,deflate");
+                }
 
-                if ((offset == null) || (offset.signum() == -1)) {
-                    offset = BigInteger.ZERO;
+                // locale
+                if (session.get(CmisBindingsHelper.ACCEPT_LANGUAGE) instanceof String) {
+                    conn.setRequestProperty("Accept-Language", session.get(CmisBindingsHelper.ACCEPT_LANGUAGE)
+                            .toString());
                 }
 
-                sb.append(offset.toString());
-                sb.append('-');
+                // send data
+                if (writer != null) {
+                    conn.setChunkedStreamingMode((64 * 1024) - 1);
+
+                    OutputStream connOut = null;
+
+                    Object clientCompression = session.get(SessionParameter.CLIENT_COMPRESSION);
+                    if ((clientCompression != null) && Boolean.parseBoolean(clientCompression.toString())) {
+                        conn.setRequestProperty("Content-Encoding", "gzip");
+                        connOut = new GZIPOutputStream(conn.getOutputStream(), 4096);
+                    } else {
+                        connOut = conn.getOutputStream();
+                    }
+
+                    if (replay == null) {
+                        // keep a copy of the body in case the server redirects
+                        // the request
+                        replay = new ReplayBuffer(MAX_REPLAY_SIZE);
+                        OutputStream out = new BufferedOutputStream(new TeeOutputStream(connOut, replay), BUFFER_SIZE);
+                        writer.write(out);
+                        out.flush();
+                    } else {
+                        replay.writeTo(connOut);
+                        connOut.flush();
+                    }
 
-                if ((length != null) && (length.signum() == 1)) {
-                    sb.append(offset.add(length.subtract(BigInteger.ONE)).toString());
+                    if (connOut instanceof GZIPOutputStream) {
+                        ((GZIPOutputStream) connOut).finish();
+                    }
                 }
 
-                conn.setRequestProperty("Range", sb.toString());
-            }
+                // connect
+                conn.connect();
 
-            // compression
-            Object compression = session.get(SessionParameter.COMPRESSION);
-            if ((compression != null) && Boolean.parseBoolean(compression.toString())) {
-                conn.setRequestProperty("Accept-Encoding", "gzip,deflate");
-            }
+                // get stream, if present
+                int respCode = conn.getResponseCode();
 
-            // locale
-            if (session.get(CmisBindingsHelper.ACCEPT_LANGUAGE) instanceof String) {
-                conn.setRequestProperty("Accept-Language", session.get(CmisBindingsHelper.ACCEPT_LANGUAGE).toString());
-            }
+                // follow redirects
+                // request bodies are re-sent from the replay buffer, bodies
+                // that didn't fit into the buffer cannot be redirected
+                if (isRedirect(respCode) && redirectCount < MAX_REDIRECTS) {
+                    String location = conn.getHeaderField("Location");
+                    if (location != null) {
+                        String newUrl = new URL(new URL(currentUrl), location).toString();
 
-            // send data
-            if (writer != null) {
-                conn.setChunkedStreamingMode((64 * 1024) - 1);
+                        // only permanent redirects may be reused for later
+                        // requests
+                        if (respCode == HttpURLConnection.HTTP_MOVED_PERM || respCode == HTTP_PERMANENT_REDIRECT) {
+                            redirects.put(currentUrl, newUrl);
+                        }
+
+                        if (writer == null || respCode == HTTP_SEE_OTHER || replay.isComplete()) {
+                            if (LOG.isDebugEnabled()) {
+                                LOG.debug(method + " " + currentUrl + " > Redirect (" + respCode + "): " + newUrl);
+                            }
 
-                OutputStream connOut = null;
+                            if (respCode == HTTP_SEE_OTHER) {
+                                method = "GET";
+                                contentType = null;
+                                headers = null;
+                                writer = null;
+                            }
 
-                Object clientCompression = session.get(SessionParameter.CLIENT_COMPRESSION);
-                if ((clientCompression != null) && Boolean.parseBoolean(clientCompression.toString())) {
-                    conn.setRequestProperty("Content-Encoding", "gzip");
-                    connOut = new GZIPOutputStream(conn.getOutputStream(), 4096);
-                } else {
-                    connOut = conn.getOutputStream();
+                            discard(conn);
+                            currentUrl = newUrl;
+                            redirectCount++;
+                            continue;
+                        }
+                    }
                 }
 
-                OutputStream out = new BufferedOutputStream(connOut, BUFFER_SIZE);
-                writer.write(out);
-                out.flush();
+                InputStream inputStream = null;
+                if ((respCode == 200) || (respCode == 201) || (respCode == 203) || (respCode == 206)) {
+                    inputStream = conn.getInputStream();
+                }
 
-                if (connOut instanceof GZIPOutputStream) {
-                    ((GZIPOutputStream) connOut).finish();
+                // log after connect
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace(method + " " + currentUrl + " > Headers: " + conn.getHeaderFields());
                 }
-            }
 
-            // connect
-            conn.connect();
+                // forward response HTTP headers
+                if (authProvider != null) {
+                    authProvider.putResponseHeaders(currentUrl, respCode, conn.getHeaderFields());
+                }
 
-            // get stream, if present
-            int respCode = conn.getResponseCode();
-            InputStream inputStream = null;
-            if ((respCode == 200) || (respCode == 201) || (respCode == 203) || (respCode == 206)) {
-                inputStream = conn.getInputStream();
+                // get the response
+                return new Response(respCode, conn.getResponseMessage(), conn.getHeaderFields(), inputStream,
+                        conn.getErrorStream());
             }
+        } catch (Exception e) {
+            throw new CmisConnectionException("Cannot access " + url + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isRedirect(int respCode) {
+        return respCode == HttpURLConnection.HTTP_MOVED_PERM || respCode == HttpURLConnection.HTTP_MOVED_TEMP
+                || respCode == HTTP_SEE_OTHER || respCode == HTTP_TEMPORARY_REDIRECT
+                || respCode == HTTP_PERMANENT_REDIRECT;
+    }
+
+    /**
+     * Keeps a copy of a request body up to a maximum size.
+     */
+    private static class ReplayBuffer extends ByteArrayOutputStream {
+
+        private final int maxSize;
+        private boolean complete = true;
+
+        public ReplayBuffer(int maxSize) {
+            super(Math.min(maxSize, 4096));
+            this.maxSize = maxSize;
+        }
+
+        /**
+         * Returns whether the buffer holds the whole body.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
 
-            // log after connect
-            if (LOG.isTraceEnabled()) {
-                LOG.trace(method + " " + url + " > Headers: " + conn.getHeaderFields());
+        @Override
+        public synchronized void write(int b) {
+            if (!complete || count + 1 > maxSize) {
+                discard();
+                return;
             }
+            super.write(b);
+        }
 
-            // forward response HTTP headers
-            if (authProvider != null) {
-                authProvider.putResponseHeaders(url.toString(), respCode, conn.getHeaderFields());
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (!complete || count + len > maxSize) {
+                discard();
+                return;
             }
+            super.write(b, off, len);
+        }
 
-            // get the response
-            return new Response(respCode, conn.getResponseMessage(), conn.getHeaderFields(), inputStream,
-                    conn.getErrorStream());
-        } catch (Exception e) {
-            throw new CmisConnectionException("Cannot access " + url + ": " + e.getMessage(), e);
+        private void discard() {
+            complete = false;
+            buf = new byte[0];
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes to two streams.
+     */
+    private static class TeeOutputStream extends OutputStream {
+
+        private final OutputStream out;
+        private final OutputStream copy;
+
+        public TeeOutputStream(OutputStream out, OutputStream copy) {
+            this.out = out;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
         }
     }
 
-	private HttpURLConnection checkRedirect(UrlBuilder url)
-			throws IOException, MalformedURLException {
-		HttpURLConnection conn = (HttpURLConnection) (new URL(url.toString())).openConnection();
-		
-		int status = conn.getResponseCode();
-		if (status == HttpURLConnection.HTTP_MOVED_TEMP
-				|| status == HttpURLConnection.HTTP_MOVED_PERM
-					|| status == HttpURLConnection.HTTP_SEE_OTHER)  {
-			String newUrl = conn.getHeaderField("Location");
-			return (HttpURLConnection) (new URL(newUrl).openConnection());
-		} else {
-			return (HttpURLConnection) (new URL(url.toString())).openConnection();
-		}
-	}
+    /**
+     * Reads and closes the response body of a connection that is not used
+     * anymore, which allows the JVM to reuse the underlying socket.
+     */
+    private static void discard(HttpURLConnection conn) {
+        InputStream stream = null;
+        try {
+            stream = conn.getInputStream();
+        } catch (IOException e) {
+            stream = conn.getErrorStream();
+        }
+
+        if (stream == null) {
+            return;
+        }
+
+        try {
+            byte[] buffer = new byte[4096];
+            while (stream.read(buffer) > -1) {
+                // just drain the stream
+            }
+        } catch (IOException e) {
+            // ignore
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
 }
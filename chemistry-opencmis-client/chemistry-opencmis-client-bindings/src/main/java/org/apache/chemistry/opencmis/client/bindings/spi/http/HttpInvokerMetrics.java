@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+/**
+ * Connection pool and traffic statistics of a {@link HttpInvoker}.
+ * <p>
+ * All counters are collected per binding session, starting with the first
+ * request of the session.
+ */
+public interface HttpInvokerMetrics {
+
+    /**
+     * Returns the number of connections taken from the connection pool.
+     */
+    long getLeaseCount();
+
+    /**
+     * Returns the total time in milliseconds requests waited for a pooled
+     * connection.
+     */
+    long getLeaseWaitTime();
+
+    /**
+     * Returns the longest time in milliseconds a request waited for a pooled
+     * connection.
+     */
+    long getMaxLeaseWaitTime();
+
+    /**
+     * Returns the number of requests that gave up waiting for a pooled
+     * connection.
+     */
+    long getLeaseTimeoutCount();
+
+    /**
+     * Returns the number of leases that got an already open connection.
+     */
+    long getReusedConnectionCount();
+
+    /**
+     * Returns the fraction of leases that got an already open connection, or
+     * 0 if there hasn't been a lease yet.
+     */
+    double getConnectionReuseRatio();
+
+    /**
+     * Returns the number of connections currently in use.
+     */
+    int getLeasedConnections();
+
+    /**
+     * Returns the number of open connections currently idle in the pool.
+     */
+    int getAvailableConnections();
+
+    /**
+     * Returns the number of requests currently waiting for a connection. A
+     * value greater than 0 indicates that the pool is too small.
+     */
+    int getPendingLeases();
+
+    /**
+     * Returns the maximum number of connections in the pool.
+     */
+    int getMaxConnections();
+
+    /**
+     * Returns the number of bytes sent in request bodies.
+     */
+    long getBytesSent();
+
+    /**
+     * Returns the number of bytes received in response bodies (before
+     * decompression).
+     */
+    long getBytesReceived();
+
+    /**
+     * Returns the histogram of the time from starting a request until the
+     * response headers have been received. This includes waiting for a pooled
+     * connection and sending the request body.
+     *
+     * @param method
+     *            the HTTP method, for example "GET"
+     * @return the histogram or <code>null</code> if the method is unknown
+     */
+    LatencyHistogram getLatencyHistogram(String method);
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+/**
+ * Default {@link HttpInvokerMetrics} implementation.
+ */
+public class HttpInvokerMetricsImpl implements HttpInvokerMetrics {
+
+    private static final String[] METHODS = { "GET", "POST", "PUT", "DELETE" };
+
+    private final AtomicLong leaseCount = new AtomicLong();
+    private final AtomicLong leaseWaitTime = new AtomicLong();
+    private final AtomicLong maxLeaseWaitTime = new AtomicLong();
+    private final AtomicLong leaseTimeoutCount = new AtomicLong();
+    private final AtomicLong reusedConnectionCount = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final Map<String, LatencyHistogram> latencies;
+
+    private volatile ConnPoolControl<?> pool;
+
+    /**
+     * Constructor.
+     */
+    public HttpInvokerMetricsImpl() {
+        Map<String, LatencyHistogram> map = new HashMap<String, LatencyHistogram>();
+        for (String method : METHODS) {
+            map.put(method, new LatencyHistogram());
+        }
+        latencies = map;
+    }
+
+    /**
+     * Sets the connection pool that provides the current pool statistics.
+     */
+    public void setPool(ConnPoolControl<?> pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Records a connection lease.
+     *
+     * @param waitMillis
+     *            the time waited for the connection
+     * @param reused
+     *            whether the connection was already open
+     */
+    public void recordLease(long waitMillis, boolean reused) {
+        leaseCount.incrementAndGet();
+        if (reused) {
+            reusedConnectionCount.incrementAndGet();
+        }
+        recordLeaseWait(waitMillis);
+    }
+
+    /**
+     * Records a request that gave up waiting for a connection.
+     */
+    public void recordLeaseTimeout(long waitMillis) {
+        leaseTimeoutCount.incrementAndGet();
+        recordLeaseWait(waitMillis);
+    }
+
+    private void recordLeaseWait(long waitMillis) {
+        leaseWaitTime.addAndGet(waitMillis);
+
+        long max = maxLeaseWaitTime.get();
+        while (waitMillis > max && !maxLeaseWaitTime.compareAndSet(max, waitMillis)) {
+            max = maxLeaseWaitTime.get();
+        }
+    }
+
+    /**
+     * Records the time between sending a request and receiving the response
+     * headers.
+     */
+    public void recordLatency(String method, long millis) {
+        LatencyHistogram histogram = latencies.get(method);
+        if (histogram != null) {
+            histogram.record(millis);
+        }
+    }
+
+    /**
+     * Wraps a request body stream so that the bytes written are counted.
+     */
+    public OutputStream countSent(OutputStream stream) {
+        return new FilterOutputStream(stream) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                bytesSent.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                bytesSent.addAndGet(len);
+            }
+        };
+    }
+
+    /**
+     * Wraps a response body stream so that the bytes read are counted.
+     */
+    public InputStream countReceived(InputStream stream) {
+        if (stream == null) {
+            return null;
+        }
+
+        return new FilterInputStream(stream) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b != -1) {
+                    bytesReceived.incrementAndGet();
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = in.read(b, off, len);
+                if (n > 0) {
+                    bytesReceived.addAndGet(n);
+                }
+                return n;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = in.skip(n);
+                if (skipped > 0) {
+                    bytesReceived.addAndGet(skipped);
+                }
+                return skipped;
+            }
+        };
+    }
+
+    public long getLeaseCount() {
+        return leaseCount.get();
+    }
+
+    public long getLeaseWaitTime() {
+        return leaseWaitTime.get();
+    }
+
+    public long getMaxLeaseWaitTime() {
+        return maxLeaseWaitTime.get();
+    }
+
+    public long getLeaseTimeoutCount() {
+        return leaseTimeoutCount.get();
+    }
+
+    public long getReusedConnectionCount() {
+        return reusedConnectionCount.get();
+    }
+
+    public double getConnectionReuseRatio() {
+        long leases = leaseCount.get();
+        return (leases == 0 ? 0.0 : (double) reusedConnectionCount.get() / leases);
+    }
+
+    public int getLeasedConnections() {
+        PoolStats stats = getPoolStats();
+        return (stats == null ? 0 : stats.getLeased());
+    }
+
+    public int getAvailableConnections() {
+        PoolStats stats = getPoolStats();
+        return (stats == null ? 0 : stats.getAvailable());
+    }
+
+    public int getPendingLeases() {
+        PoolStats stats = getPoolStats();
+        return (stats == null ? 0 : stats.getPending());
+    }
+
+    public int getMaxConnections() {
+        PoolStats stats = getPoolStats();
+        return (stats == null ? 0 : stats.getMax());
+    }
+
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    public LatencyHistogram getLatencyHistogram(String method) {
+        return (method == null ? null : latencies.get(method.toUpperCase()));
+    }
+
+    private PoolStats getPoolStats() {
+        ConnPoolControl<?> p = pool;
+        return (p == null ? null : p.getTotalStats());
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("leases=").append(getLeaseCount());
+        sb.append(", reuse=").append(Math.round(getConnectionReuseRatio() * 100)).append('%');
+        sb.append(", wait=").append(getLeaseWaitTime()).append("ms");
+        sb.append(", maxWait=").append(getMaxLeaseWaitTime()).append("ms");
+        sb.append(", timeouts=").append(getLeaseTimeoutCount());
+        sb.append(", pool=[leased=").append(getLeasedConnections());
+        sb.append(", available=").append(getAvailableConnections());
+        sb.append(", pending=").append(getPendingLeases());
+        sb.append(", max=").append(getMaxConnections()).append(']');
+        sb.append(", sent=").append(getBytesSent());
+        sb.append(", received=").append(getBytesReceived());
+        for (String method : METHODS) {
+            sb.append(", ").append(method).append("=[").append(latencies.get(method)).append(']');
+        }
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency histogram with fixed, roughly exponential buckets.
+ * <p>
+ * Recording a value doesn't lock and can be done by multiple threads at the
+ * same time.
+ */
+public class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000,
+            30000, 60000 };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalTime = new AtomicLong();
+    private final AtomicLong maxTime = new AtomicLong();
+
+    /**
+     * Records a latency.
+     *
+     * @param millis
+     *            the latency in milliseconds
+     */
+    public void record(long millis) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS.length && millis > BUCKET_BOUNDS[bucket]) {
+            bucket++;
+        }
+
+        counts.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalTime.addAndGet(millis);
+
+        long max = maxTime.get();
+        while (millis > max && !maxTime.compareAndSet(max, millis)) {
+            max = maxTime.get();
+        }
+    }
+
+    /**
+     * Returns the inclusive upper bounds of the buckets in milliseconds. The
+     * last bucket returned by {@link #getCounts()} has no upper bound.
+     */
+    public long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * Returns the number of recorded values per bucket.
+     */
+    public long[] getCounts() {
+        long[] result = new long[counts.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * Returns the sum of all recorded values in milliseconds.
+     */
+    public long getTotalTime() {
+        return totalTime.get();
+    }
+
+    /**
+     * Returns the largest recorded value in milliseconds.
+     */
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket that contains the given
+     * percentile, or -1 if nothing has been recorded. If the percentile falls
+     * into the last bucket, the largest recorded value is returned.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     */
+    public long getPercentile(double percentile) {
+        long[] c = getCounts();
+        long total = 0;
+        for (long n : c) {
+            total += n;
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile / 100.0);
+        long sum = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            sum += c[i];
+            if (sum >= threshold) {
+                return BUCKET_BOUNDS[i];
+            }
+        }
+
+        return getMaxTime();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", total=" + getTotalTime() + "ms, max=" + getMaxTime() + "ms, p50="
+                + getPercentile(50) + "ms, p99=" + getPercentile(99) + "ms";
+    }
+}
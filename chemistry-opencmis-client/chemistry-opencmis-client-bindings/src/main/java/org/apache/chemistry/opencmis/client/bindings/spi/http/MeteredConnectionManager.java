@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+
+/**
+ * Pooling connection manager that records lease statistics and closes idle
+ * connections.
+ * <p>
+ * There is no background thread. Idle and expired connections are closed
+ * when a connection is requested, at most twice per idle timeout period.
+ */
+class MeteredConnectionManager extends PoolingClientConnectionManager {
+
+    private final HttpInvokerMetricsImpl metrics;
+    private final long idleTimeout;
+    private volatile long lastEviction = System.currentTimeMillis();
+
+    /**
+     * Constructor.
+     *
+     * @param idleTimeout
+     *            time in milliseconds after which idle connections are
+     *            closed, 0 to keep them
+     */
+    public MeteredConnectionManager(SchemeRegistry registry, HttpInvokerMetricsImpl metrics, long idleTimeout) {
+        super(registry);
+        this.metrics = metrics;
+        this.idleTimeout = idleTimeout;
+    }
+
+    @Override
+    public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+        evictIdleConnections();
+
+        final ClientConnectionRequest request = super.requestConnection(route, state);
+
+        return new ClientConnectionRequest() {
+            public ManagedClientConnection getConnection(long timeout, TimeUnit tunit) throws InterruptedException,
+                    ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    ManagedClientConnection conn = request.getConnection(timeout, tunit);
+                    if (metrics != null) {
+                        metrics.recordLease(elapsedMillis(start), conn.isOpen());
+                    }
+                    return conn;
+                } catch (ConnectionPoolTimeoutException e) {
+                    if (metrics != null) {
+                        metrics.recordLeaseTimeout(elapsedMillis(start));
+                    }
+                    throw e;
+                }
+            }
+
+            public void abortRequest() {
+                request.abortRequest();
+            }
+        };
+    }
+
+    private void evictIdleConnections() {
+        if (idleTimeout <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastEviction < idleTimeout / 2) {
+            return;
+        }
+        lastEviction = now;
+
+        closeExpiredConnections();
+        closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
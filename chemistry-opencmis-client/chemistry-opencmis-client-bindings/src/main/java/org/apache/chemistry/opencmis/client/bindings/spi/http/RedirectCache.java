@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers permanent HTTP redirects (301 and 308) by URL prefix.
+ * <p>
+ * If a server redirects <code>http://old/cmis/atom/repo?id=1</code> to
+ * <code>http://new/alfresco/cmis/atom/repo?id=1</code>, the cache maps the
+ * prefix <code>http://old</code> to <code>http://new/alfresco</code>. All
+ * subsequent requests starting with this prefix are sent directly to the new
+ * location.
+ */
+public class RedirectCache implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int MAX_ENTRIES = 100;
+
+    private final Map<String, String> prefixes = new ConcurrentHashMap<String, String>();
+
+    /**
+     * Records a redirect.
+     *
+     * @param url
+     *            the requested URL
+     * @param location
+     *            the absolute URL the server redirected to
+     */
+    public void put(String url, String location) {
+        if (url == null || location == null || url.equals(location)) {
+            return;
+        }
+
+        // find the longest common suffix that starts at a path or query
+        // boundary
+        int urlPos = url.length();
+        int locationPos = location.length();
+        int boundary = -1;
+        while (urlPos > 0 && locationPos > 0 && url.charAt(urlPos - 1) == location.charAt(locationPos - 1)) {
+            urlPos--;
+            locationPos--;
+
+            char c = url.charAt(urlPos);
+            if ((c == '/' || c == '?') && url.indexOf("://") + 3 < urlPos) {
+                boundary = url.length() - urlPos;
+            }
+        }
+
+        String fromPrefix = url;
+        String toPrefix = location;
+        if (boundary > 0) {
+            fromPrefix = url.substring(0, url.length() - boundary);
+            toPrefix = location.substring(0, location.length() - boundary);
+        }
+
+        if (prefixes.size() >= MAX_ENTRIES) {
+            prefixes.clear();
+        }
+
+        prefixes.put(fromPrefix, toPrefix);
+    }
+
+    /**
+     * Returns the URL the request should be sent to.
+     *
+     * @param url
+     *            the requested URL
+     * @return the redirected URL or the requested URL if no redirect is known
+     */
+    public String resolve(String url) {
+        if (url == null || prefixes.isEmpty()) {
+            return url;
+        }
+
+        String bestPrefix = null;
+        for (String prefix : prefixes.keySet()) {
+            if (url.startsWith(prefix) && (bestPrefix == null || prefix.length() > bestPrefix.length())) {
+                if (url.length() == prefix.length() || url.charAt(prefix.length()) == '/'
+                        || url.charAt(prefix.length()) == '?') {
+                    bestPrefix = prefix;
+                }
+            }
+        }
+
+        if (bestPrefix == null) {
+            return url;
+        }
+
+        String toPrefix = prefixes.get(bestPrefix);
+        if (toPrefix == null) {
+            return url;
+        }
+
+        return toPrefix + url.substring(bestPrefix.length());
+    }
+
+    /**
+     * Forgets all redirects.
+     */
+    public void clear() {
+        prefixes.clear();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.spi.CmisBinding;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+
+/**
+ * Tests the asynchronous binding calls.
+ */
+public class AsyncCmisBindingTest extends TestCase {
+
+    private static CmisBinding createBinding() {
+        final ObjectService objectService = (ObjectService) Proxy.newProxyInstance(
+                ObjectService.class.getClassLoader(), new Class<?>[] { ObjectService.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getObject".equals(method.getName())) {
+                            if ("missing".equals(args[1])) {
+                                throw new CmisObjectNotFoundException("Not found: " + args[1]);
+                            }
+                            ObjectDataImpl object = new ObjectDataImpl();
+                            object.setIsExactAcl((Boolean) args[7]);
+                            return object;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        return (CmisBinding) Proxy.newProxyInstance(CmisBinding.class.getClassLoader(),
+                new Class<?>[] { CmisBinding.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getObjectService".equals(method.getName())) {
+                            return objectService;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    public void testFuture() throws Exception {
+        AsyncCmisBinding async = new AsyncCmisBinding(createBinding(), 2);
+        try {
+            Future<ObjectData> future = async.getObject("repo", "id", null, null, null, null, null, Boolean.TRUE,
+                    null, null);
+            assertEquals(Boolean.TRUE, future.get(10, TimeUnit.SECONDS).isExactAcl());
+
+            future = async.getObject("repo", "missing", null, null, null, null, null, null, null, null);
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Exception expected!");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CmisObjectNotFoundException);
+            }
+        } finally {
+            async.shutdown();
+        }
+    }
+
+    public void testCallback() throws Exception {
+        AsyncCmisBinding async = new AsyncCmisBinding(createBinding(), 4);
+        try {
+            int calls = 50;
+            final CountDownLatch latch = new CountDownLatch(calls);
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+            AsyncCallback<ObjectData> callback = new AsyncCallback<ObjectData>() {
+                public void completed(ObjectData result) {
+                    latch.countDown();
+                }
+
+                public void failed(Throwable t) {
+                    failure.set(t);
+                    latch.countDown();
+                }
+            };
+
+            for (int i = 0; i < calls; i++) {
+                async.getObject("repo", "id" + i, null, null, null, null, null, null, null, callback);
+            }
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            assertNull(failure.get());
+
+            final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+            final CountDownLatch errorLatch = new CountDownLatch(1);
+            async.submit(new Callable<String>() {
+                public String call() {
+                    throw new IllegalStateException("test");
+                }
+            }, new AsyncCallback<String>() {
+                public void completed(String result) {
+                    errorLatch.countDown();
+                }
+
+                public void failed(Throwable t) {
+                    error.set(t);
+                    errorLatch.countDown();
+                }
+            });
+
+            assertTrue(errorLatch.await(10, TimeUnit.SECONDS));
+            assertTrue(error.get() instanceof IllegalStateException);
+        } finally {
+            async.shutdown();
+        }
+    }
+}
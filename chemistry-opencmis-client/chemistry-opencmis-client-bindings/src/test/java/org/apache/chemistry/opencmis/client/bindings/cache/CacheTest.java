@@ -18,9 +18,13 @@
  */
 package org.apache.chemistry.opencmis.client.bindings.cache;
 
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
 import junit.framework.TestCase;
 
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.CacheImpl;
+import org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.ContentTypeCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl;
 import org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl;
@@ -32,6 +36,8 @@ public class CacheTest extends TestCase {
 
     public static final String MAP_CACHE_LEVEL = "org.apache.chemistry.opencmis.client.bindings.cache.impl.MapCacheLevelImpl";
     public static final String LRU_CACHE_LEVEL = "org.apache.chemistry.opencmis.client.bindings.cache.impl.LruCacheLevelImpl";
+    public static final String CONCURRENT_MAP_CACHE_LEVEL = "org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentMapCacheLevelImpl";
+    public static final String CONCURRENT_LRU_CACHE_LEVEL = "org.apache.chemistry.opencmis.client.bindings.cache.impl.ConcurrentLruCacheLevelImpl";
 
     public void testCache() {
         Cache cache;
@@ -206,4 +212,160 @@ public class CacheTest extends TestCase {
         assertNull(cl.get("text/plain; param1=blah; charset=UTF-8"));
         assertNull(cl.get("text/plain; param1=test; charset=us-ascii"));
     }
+
+    public void testConcurrentCache() {
+        Cache cache;
+
+        cache = new CacheImpl();
+        cache.initialize(new String[] { CONCURRENT_MAP_CACHE_LEVEL, CONCURRENT_LRU_CACHE_LEVEL,
+                CONCURRENT_MAP_CACHE_LEVEL });
+
+        cache.put("value1", "l1", "l2a", "l3");
+        cache.put("value2", "l1", "l2b", "l3");
+        cache.put("value3", null, "l2a", "l3");
+
+        assertEquals("value1", cache.get("l1", "l2a", "l3"));
+        assertEquals("value2", cache.get("l1", "l2b", "l3"));
+        assertEquals("value3", cache.get(null, "l2a", "l3"));
+        assertEquals(3, cache.check("l1", "l2a", "l3"));
+        assertEquals(1, cache.check("l1", "l2c", "l3"));
+
+        // null values remove entries
+        cache.put(null, "l1", "l2a", "l3");
+        assertNull(cache.get("l1", "l2a", "l3"));
+
+        // remove branch
+        cache.remove("l1");
+        assertNull(cache.get("l1", "l2b", "l3"));
+        assertEquals(0, cache.check("l1", "l2b", "l3"));
+        assertEquals("value3", cache.get(null, "l2a", "l3"));
+    }
+
+    public void testConcurrentLruCache() {
+        ConcurrentLruCacheLevelImpl cl = new ConcurrentLruCacheLevelImpl();
+        cl.initialize(Collections.singletonMap(ConcurrentLruCacheLevelImpl.MAX_ENTRIES, "10"));
+
+        for (int i = 0; i < 10; i++) {
+            cl.put("value" + i, "key" + i);
+        }
+
+        // touch the oldest entry, the next oldest are evicted instead, down
+        // to the low-water mark of 9 entries
+        assertEquals("value0", cl.get("key0"));
+        cl.put("value10", "key10");
+
+        assertEquals(9, cl.size());
+        assertEquals("value0", cl.get("key0"));
+        assertNull(cl.get("key1"));
+        assertNull(cl.get("key2"));
+        assertEquals("value10", cl.get("key10"));
+
+        // replacing an entry doesn't evict anything
+        cl.put("value3a", "key3");
+        assertEquals(9, cl.size());
+        assertEquals("value3a", cl.get("key3"));
+
+        for (int i = 100; i < 200; i++) {
+            cl.put("value" + i, "key" + i);
+        }
+        assertTrue(cl.size() <= 10);
+        for (int i = 191; i < 200; i++) {
+            assertEquals("value" + i, cl.get("key" + i));
+        }
+    }
+
+    public void testConcurrentLruCacheBatchEviction() {
+        ConcurrentLruCacheLevelImpl cl = new ConcurrentLruCacheLevelImpl();
+        cl.initialize(Collections.singletonMap(ConcurrentLruCacheLevelImpl.MAX_ENTRIES, "100"));
+
+        for (int i = 0; i < 100; i++) {
+            cl.put("value" + i, "key" + i);
+        }
+        assertEquals(100, cl.size());
+
+        // the first key too many evicts the oldest entries down to 90
+        cl.put("value100", "key100");
+        assertEquals(90, cl.size());
+        for (int i = 0; i < 11; i++) {
+            assertNull(cl.get("key" + i));
+        }
+        assertEquals("value11", cl.get("key11"));
+        assertEquals("value100", cl.get("key100"));
+
+        // the next keys fill the cache up again without evicting
+        for (int i = 101; i < 111; i++) {
+            cl.put("value" + i, "key" + i);
+        }
+        assertEquals(100, cl.size());
+        assertEquals("value12", cl.get("key12"));
+    }
+
+    public void testConcurrentLruCacheTtl() throws Exception {
+        ConcurrentLruCacheLevelImpl cl = new ConcurrentLruCacheLevelImpl();
+        cl.initialize(Collections.singletonMap(ConcurrentLruCacheLevelImpl.TTL, "50"));
+
+        cl.put("value", "key");
+        assertEquals("value", cl.get("key"));
+
+        Thread.sleep(100);
+
+        assertNull(cl.get("key"));
+        assertEquals(0, cl.size());
+    }
+
+    public void testConcurrentAccess() throws Exception {
+        final Cache cache = new CacheImpl();
+        cache.initialize(new String[] { CONCURRENT_MAP_CACHE_LEVEL,
+                CONCURRENT_LRU_CACHE_LEVEL + " " + ConcurrentLruCacheLevelImpl.MAX_ENTRIES + "=50" });
+
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final String repositoryId = "repo" + (t % 2);
+            final int offset = t * 1000;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 2000; i++) {
+                            String key = "key" + (offset + (i % 100));
+                            cache.put(key, repositoryId, key);
+                            Object value = cache.get(repositoryId, key);
+                            if (value != null && !key.equals(value)) {
+                                throw new AssertionError("Wrong value: " + value);
+                            }
+                            if (i % 10 == 0) {
+                                cache.remove(repositoryId, key);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+        }
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(String.valueOf(failure.get()), failure.get());
+
+        // the LRU levels must have been trimmed
+        for (int i = 0; i < 10; i++) {
+            cache.put("x", "repo0", "extra" + i);
+        }
+        int count = 0;
+        for (int t = 0; t < threads.length; t += 2) {
+            for (int i = 0; i < 100; i++) {
+                if (cache.get("repo0", "key" + (t * 1000 + i)) != null) {
+                    count++;
+                }
+            }
+        }
+        assertTrue("Too many entries: " + count, count <= 50);
+    }
 }
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the redirect handling of the default HTTP invoker.
+ */
+public class DefaultHttpInvokerTest extends TestCase {
+
+    private static final int[] REDIRECT_CODES = { 301, 302, 307, 308 };
+
+    private HttpServer server;
+    private String url;
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<String, AtomicInteger>();
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+
+        // "/r<code>/<path>" redirects with the given code to "/new/<path>"
+        server.createContext("/r", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String path = exchange.getRequestURI().getPath();
+                int slash = path.indexOf('/', 1);
+                String prefix = path.substring(0, slash);
+                hits.putIfAbsent(prefix, new AtomicInteger());
+                hits.get(prefix).incrementAndGet();
+
+                read(exchange.getRequestBody());
+                exchange.getResponseHeaders().add("Location", "/new" + path.substring(slash));
+                exchange.sendResponseHeaders(Integer.parseInt(prefix.substring(2)), -1);
+                exchange.close();
+            }
+        });
+
+        // "/new/<path>" returns the method, the path and the request body
+        server.createContext("/new", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                String body = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath() + " "
+                        + read(exchange.getRequestBody());
+                byte[] bytes = body.getBytes("UTF-8");
+
+                exchange.sendResponseHeaders(200, bytes.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(bytes);
+                out.close();
+            }
+        });
+        server.start();
+
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int b;
+        while ((b = stream.read(buffer)) > -1) {
+            out.write(buffer, 0, b);
+        }
+        stream.close();
+        return out.toString("UTF-8");
+    }
+
+    private int getHits(int code) {
+        AtomicInteger count = hits.get("/r" + code);
+        return count == null ? 0 : count.get();
+    }
+
+    private static Output createOutput(final byte[] body) {
+        return new Output() {
+            public void write(OutputStream out) throws Exception {
+                out.write(body);
+            }
+        };
+    }
+
+    public void testRedirectGET() throws Exception {
+        for (int code : REDIRECT_CODES) {
+            Response response = new DefaultHttpInvoker().invokeGET(new UrlBuilder(url + "/r" + code + "/a"),
+                    new SessionImpl());
+
+            assertEquals(200, response.getResponseCode());
+            assertEquals("GET /new/a ", read(response.getStream()));
+        }
+    }
+
+    public void testRedirectPOST() throws Exception {
+        for (int code : REDIRECT_CODES) {
+            Response response = new DefaultHttpInvoker().invokePOST(new UrlBuilder(url + "/r" + code + "/a"),
+                    "text/plain", createOutput("hello".getBytes("UTF-8")), new SessionImpl());
+
+            assertEquals(200, response.getResponseCode());
+            assertEquals("POST /new/a hello", read(response.getStream()));
+        }
+    }
+
+    public void testRedirectCache() throws Exception {
+        SessionImpl session = new SessionImpl();
+        DefaultHttpInvoker invoker = new DefaultHttpInvoker();
+
+        for (int code : REDIRECT_CODES) {
+            read(invoker.invokeGET(new UrlBuilder(url + "/r" + code + "/a"), session).getStream());
+            Response response = invoker.invokePOST(new UrlBuilder(url + "/r" + code + "/b"), "text/plain",
+                    createOutput("hello".getBytes("UTF-8")), session);
+            assertEquals("POST /new/b hello", read(response.getStream()));
+
+            // only permanent redirects are remembered, by prefix
+            boolean permanent = code == 301 || code == 308;
+            assertEquals(permanent ? 1 : 2, getHits(code));
+        }
+    }
+
+    public void testLargeBody() throws Exception {
+        // the body is too large to be kept for a redirect
+        Response response = new DefaultHttpInvoker().invokePOST(new UrlBuilder(url + "/r307/a"), "text/plain",
+                createOutput(new byte[3 * 1024 * 1024]), new SessionImpl());
+
+        assertEquals(307, response.getResponseCode());
+        assertEquals(1, getHits(307));
+    }
+}
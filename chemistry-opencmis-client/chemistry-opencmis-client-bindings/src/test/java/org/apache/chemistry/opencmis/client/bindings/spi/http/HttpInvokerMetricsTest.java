@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+
+import junit.framework.TestCase;
+
+import org.apache.chemistry.opencmis.client.bindings.impl.CmisBindingsHelper;
+import org.apache.chemistry.opencmis.client.bindings.impl.SessionImpl;
+import org.apache.chemistry.opencmis.client.bindings.spi.StandardAuthenticationProvider;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the connection pool settings and statistics of the Apache HTTP client
+ * invoker.
+ */
+public class HttpInvokerMetricsTest extends TestCase {
+
+    private static final byte[] BODY = "Hello CMIS".getBytes();
+
+    private HttpServer server;
+    private String url;
+
+    @Override
+    protected void setUp() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            public void handle(HttpExchange exchange) throws IOException {
+                InputStream in = exchange.getRequestBody();
+                byte[] buffer = new byte[4096];
+                while (in.read(buffer) > -1) {
+                    // consume the request
+                }
+                in.close();
+
+                exchange.sendResponseHeaders(200, BODY.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(BODY);
+                out.close();
+            }
+        });
+        server.start();
+
+        url = "http://localhost:" + server.getAddress().getPort() + "/cmis";
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.stop(0);
+    }
+
+    private SessionImpl createSession() {
+        SessionImpl session = new SessionImpl();
+        session.put(SessionParameter.HTTP_MAX_CONNECTIONS_PER_ROUTE, "3");
+        session.put(SessionParameter.HTTP_MAX_CONNECTIONS, "7");
+        session.put(SessionParameter.HTTP_IDLE_TIMEOUT, "60000");
+        session.put(SessionParameter.HTTP_KEEP_ALIVE, "60000");
+
+        StandardAuthenticationProvider authProvider = new StandardAuthenticationProvider();
+        authProvider.setSession(session);
+        session.put(CmisBindingsHelper.AUTHENTICATION_PROVIDER_OBJECT, authProvider, true);
+
+        return session;
+    }
+
+    private static void consume(Response response) throws IOException {
+        assertEquals(200, response.getResponseCode());
+        InputStream stream = response.getStream();
+        while (stream.read() > -1) {
+            // read the response
+        }
+        stream.close();
+    }
+
+    public void testMetrics() throws Exception {
+        SessionImpl session = createSession();
+        ApacheClientHttpInvoker invoker = new ApacheClientHttpInvoker();
+
+        for (int i = 0; i < 5; i++) {
+            consume(invoker.invokeGET(new UrlBuilder(url), session));
+        }
+        consume(invoker.invokePOST(new UrlBuilder(url), "text/plain", new Output() {
+            public void write(OutputStream out) throws Exception {
+                out.write(new byte[1000]);
+            }
+        }, session));
+
+        HttpInvokerMetrics metrics = invoker.getMetrics(session);
+
+        assertEquals(6, metrics.getLeaseCount());
+        // the connection is kept alive and reused
+        assertEquals(5, metrics.getReusedConnectionCount());
+        assertTrue(metrics.getConnectionReuseRatio() > 0.8);
+        assertEquals(0, metrics.getLeaseTimeoutCount());
+
+        assertEquals(7, metrics.getMaxConnections());
+        assertEquals(0, metrics.getLeasedConnections());
+        assertEquals(1, metrics.getAvailableConnections());
+        assertEquals(0, metrics.getPendingLeases());
+
+        assertEquals(1000, metrics.getBytesSent());
+        assertEquals(6 * BODY.length, metrics.getBytesReceived());
+
+        assertEquals(5, metrics.getLatencyHistogram("GET").getCount());
+        assertEquals(1, metrics.getLatencyHistogram("post").getCount());
+        assertEquals(0, metrics.getLatencyHistogram("DELETE").getCount());
+        assertNull(metrics.getLatencyHistogram("PATCH"));
+    }
+
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(-1, histogram.getPercentile(50));
+
+        for (int i = 0; i < 98; i++) {
+            histogram.record(3);
+        }
+        histogram.record(150);
+        histogram.record(120000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(98 * 3 + 150 + 120000, histogram.getTotalTime());
+        assertEquals(120000, histogram.getMaxTime());
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(200, histogram.getPercentile(99));
+        assertEquals(120000, histogram.getPercentile(100));
+
+        long[] counts = histogram.getCounts();
+        assertEquals(histogram.getBucketBounds().length + 1, counts.length);
+        assertEquals(98, counts[2]);
+        assertEquals(1, counts[counts.length - 1]);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.bindings.spi.http;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the redirect cache.
+ */
+public class RedirectCacheTest extends TestCase {
+
+    public void testMovedService() {
+        RedirectCache cache = new RedirectCache();
+        cache.put("http://old/cmis/atom/repo?id=1", "http://new/alfresco/cmis/atom/repo?id=1");
+
+        assertEquals("http://new/alfresco/cmis/atom/repo?id=2", cache.resolve("http://old/cmis/atom/repo?id=2"));
+        assertEquals("http://new/alfresco/cmis/browser", cache.resolve("http://old/cmis/browser"));
+        assertEquals("http://older/cmis/browser", cache.resolve("http://older/cmis/browser"));
+        assertEquals("http://other/cmis/atom", cache.resolve("http://other/cmis/atom"));
+    }
+
+    public void testPathRedirect() {
+        RedirectCache cache = new RedirectCache();
+        cache.put("https://host/a/cmis/atom/children?id=1", "https://host/b/cmis/atom/children?id=1");
+
+        assertEquals("https://host/b/cmis/atom/entry?id=3", cache.resolve("https://host/a/cmis/atom/entry?id=3"));
+        assertEquals("https://host/ab/cmis", cache.resolve("https://host/ab/cmis"));
+    }
+
+    public void testExactRedirect() {
+        RedirectCache cache = new RedirectCache();
+        cache.put("http://host/cmis", "http://host/cmis/");
+
+        assertEquals("http://host/cmis/", cache.resolve("http://host/cmis"));
+        assertEquals("http://host/cmisx", cache.resolve("http://host/cmisx"));
+
+        cache.clear();
+        assertEquals("http://host/cmis", cache.resolve("http://host/cmis"));
+    }
+}
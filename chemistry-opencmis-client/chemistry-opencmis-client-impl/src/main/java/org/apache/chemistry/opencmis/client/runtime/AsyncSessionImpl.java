@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.AsyncSession;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.api.QueryResult;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.enums.VersioningState;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link AsyncSession} implementation that executes the calls of a
+ * {@link Session} on an {@link ExecutorService}.
+ */
+public class AsyncSessionImpl implements AsyncSession {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncSessionImpl.class);
+
+    /** Number of threads if the JVM doesn't support virtual threads. */
+    public static final int DEFAULT_THREADS = 8;
+
+    private final Session session;
+    private final ExecutorService executor;
+    private final boolean ownExecutor;
+
+    /**
+     * Creates an asynchronous session with a default executor. It uses virtual
+     * threads if the JVM supports them and a pool of {@link #DEFAULT_THREADS}
+     * threads otherwise.
+     */
+    public AsyncSessionImpl(Session session) {
+        this(session, createDefaultExecutor(DEFAULT_THREADS), true);
+    }
+
+    /**
+     * Creates an asynchronous session with its own pool of platform threads.
+     *
+     * @param threads
+     *            the number of threads
+     */
+    public AsyncSessionImpl(Session session, int threads) {
+        this(session, Executors.newFixedThreadPool(threads, new AsyncThreadFactory()), true);
+    }
+
+    /**
+     * Creates an asynchronous session that uses the given executor. The
+     * executor is not shut down by {@link #shutdown()}.
+     */
+    public AsyncSessionImpl(Session session, ExecutorService executor) {
+        this(session, executor, false);
+    }
+
+    private AsyncSessionImpl(Session session, ExecutorService executor, boolean ownExecutor) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor must be set!");
+        }
+
+        this.session = session;
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Future<CmisObject> getObject(final ObjectId objectId) {
+        return executor.submit(new Callable<CmisObject>() {
+            public CmisObject call() {
+                return session.getObject(objectId);
+            }
+        });
+    }
+
+    public Future<CmisObject> getObject(final ObjectId objectId, final OperationContext context) {
+        return executor.submit(new Callable<CmisObject>() {
+            public CmisObject call() {
+                return session.getObject(objectId, context);
+            }
+        });
+    }
+
+    public Future<CmisObject> getObject(final String objectId) {
+        return executor.submit(new Callable<CmisObject>() {
+            public CmisObject call() {
+                return session.getObject(objectId);
+            }
+        });
+    }
+
+    public Future<CmisObject> getObject(final String objectId, final OperationContext context) {
+        return executor.submit(new Callable<CmisObject>() {
+            public CmisObject call() {
+                return session.getObject(objectId, context);
+            }
+        });
+    }
+
+    public Future<CmisObject> getObjectByPath(final String path) {
+        return executor.submit(new Callable<CmisObject>() {
+            public CmisObject call() {
+                return session.getObjectByPath(path);
+            }
+        });
+    }
+
+    public Future<CmisObject> getObjectByPath(final String path, final OperationContext context) {
+        return executor.submit(new Callable<CmisObject>() {
+            public CmisObject call() {
+                return session.getObjectByPath(path, context);
+            }
+        });
+    }
+
+    public Future<ItemIterable<QueryResult>> query(final String statement, final boolean searchAllVersions) {
+        return executor.submit(new Callable<ItemIterable<QueryResult>>() {
+            public ItemIterable<QueryResult> call() {
+                return fetchFirstPage(session.query(statement, searchAllVersions));
+            }
+        });
+    }
+
+    public Future<ItemIterable<QueryResult>> query(final String statement, final boolean searchAllVersions,
+            final OperationContext context) {
+        return executor.submit(new Callable<ItemIterable<QueryResult>>() {
+            public ItemIterable<QueryResult> call() {
+                return fetchFirstPage(session.query(statement, searchAllVersions, context));
+            }
+        });
+    }
+
+    public Future<ObjectId> createDocument(final Map<String, ?> properties, final ObjectId folderId,
+            final ContentStream contentStream, final VersioningState versioningState) {
+        return executor.submit(new Callable<ObjectId>() {
+            public ObjectId call() {
+                return session.createDocument(properties, folderId, contentStream, versioningState);
+            }
+        });
+    }
+
+    public Future<ContentStream> getContentStream(final ObjectId docId) {
+        return executor.submit(new Callable<ContentStream>() {
+            public ContentStream call() {
+                return session.getContentStream(docId);
+            }
+        });
+    }
+
+    public Future<ContentStream> getContentStream(final ObjectId docId, final String streamId,
+            final BigInteger offset, final BigInteger length) {
+        return executor.submit(new Callable<ContentStream>() {
+            public ContentStream call() {
+                return session.getContentStream(docId, streamId, offset, length);
+            }
+        });
+    }
+
+    public Future<Long> downloadContent(final ObjectId docId, final OutputStream target) {
+        if (target == null) {
+            throw new IllegalArgumentException("Target stream must be set!");
+        }
+
+        return executor.submit(new Callable<Long>() {
+            public Long call() throws Exception {
+                ContentStream contentStream = session.getContentStream(docId);
+                if (contentStream == null || contentStream.getStream() == null) {
+                    return Long.valueOf(-1);
+                }
+
+                InputStream stream = contentStream.getStream();
+                try {
+                    byte[] buffer = new byte[64 * 1024];
+                    long total = 0;
+                    int b;
+                    while ((b = stream.read(buffer)) > -1) {
+                        target.write(buffer, 0, b);
+                        total += b;
+                    }
+                    return Long.valueOf(total);
+                } finally {
+                    IOUtils.closeQuietly(stream);
+                }
+            }
+        });
+    }
+
+    public void shutdown() {
+        if (ownExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Query results are loaded lazily. Touching the iterable makes sure the
+     * first page is loaded by the executor and not by the caller.
+     */
+    private static <T> ItemIterable<T> fetchFirstPage(ItemIterable<T> iterable) {
+        iterable.getHasMoreItems();
+        return iterable;
+    }
+
+    /**
+     * Creates an executor with one virtual thread per task if the JVM
+     * supports it (Java 21 and later) and a fixed thread pool otherwise.
+     */
+    private static ExecutorService createDefaultExecutor(int threads) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            // older JVM
+        } catch (Exception e) {
+            LOG.debug("Virtual threads are not available: " + e.getMessage(), e);
+        }
+
+        return Executors.newFixedThreadPool(threads, new AsyncThreadFactory());
+    }
+
+    /**
+     * Creates daemon threads, so that a forgotten {@link #shutdown()} doesn't
+     * keep the JVM alive.
+     */
+    private static class AsyncThreadFactory implements ThreadFactory {
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final int poolNumber = POOL_NUMBER.incrementAndGet();
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "opencmis-session-" + poolNumber + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
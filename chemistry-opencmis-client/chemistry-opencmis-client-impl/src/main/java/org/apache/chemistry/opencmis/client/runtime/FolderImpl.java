@@ -215,7 +215,8 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
         final ObjectFactory objectFactory = getSession().getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<Document> fetchPage(long skipCount) {
@@ -256,7 +257,8 @@ public class FolderImpl extends AbstractFilableCmisObject implements Folder {
         final ObjectFactory objectFactory = getSession().getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<CmisObject> fetchPage(long skipCount) {
@@ -49,6 +49,7 @@ public class OperationContextImpl implements OperationContext, Serializable {
     private boolean cacheEnabled;
     private String cacheKey;
     private int maxItemsPerPage;
+    private int prefetchPages;
 
     /**
      * Default constructor.
@@ -67,6 +68,7 @@ public class OperationContextImpl implements OperationContext, Serializable {
         generateCacheKey();
 
         setMaxItemsPerPage(100); // default
+        setPrefetchPages(0);
     }
 
     /**
@@ -86,6 +88,7 @@ public class OperationContextImpl implements OperationContext, Serializable {
         generateCacheKey();
 
         setMaxItemsPerPage(source.getMaxItemsPerPage());
+        setPrefetchPages(source.getPrefetchPages());
     }
 
     /**
@@ -377,4 +380,16 @@ public class OperationContextImpl implements OperationContext, Serializable {
 
         this.maxItemsPerPage = maxItemsPerPage;
     }
+
+    public int getPrefetchPages() {
+        return this.prefetchPages;
+    }
+
+    public void setPrefetchPages(int prefetchPages) {
+        if (prefetchPages < 0) {
+            throw new IllegalArgumentException("prefetchPages must be >= 0!");
+        }
+
+        this.prefetchPages = prefetchPages;
+    }
 }
@@ -20,13 +20,24 @@ package org.apache.chemistry.opencmis.client.runtime;
 
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.client.api.ChangeEvents;
@@ -52,6 +63,7 @@ import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher;
 import org.apache.chemistry.opencmis.client.runtime.util.CollectionIterable;
 import org.apache.chemistry.opencmis.client.runtime.util.TreeImpl;
 import org.apache.chemistry.opencmis.client.util.OperationContextUtils;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
 import org.apache.chemistry.opencmis.commons.SessionParameter;
 import org.apache.chemistry.opencmis.commons.data.Ace;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -60,11 +72,13 @@ import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
 import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
 import org.apache.chemistry.opencmis.commons.enums.AclPropagation;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
 import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
 import org.apache.chemistry.opencmis.commons.enums.RelationshipDirection;
@@ -72,6 +86,7 @@ import org.apache.chemistry.opencmis.commons.enums.Updatability;
 import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.BulkUpdateObjectIdAndChangeTokenImpl;
@@ -104,6 +119,14 @@ public class SessionImpl implements Session {
         CREATE_AND_CHECKOUT_UPDATABILITY.add(Updatability.WHENCHECKEDOUT);
     }
 
+    /** Maximum number of ids in the IN clause of a {@link #getObjects} query. */
+    private static final int MAX_QUERY_IDS = 100;
+
+    /** Maximum number of parallel getObject calls of {@link #getObjects}. */
+    private static final int GET_OBJECTS_THREADS = 4;
+
+    private static ExecutorService objectsExecutor;
+
     // private static Logger log = LoggerFactory.getLogger(SessionImpl.class);
 
     private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
@@ -279,7 +302,8 @@ public class SessionImpl implements Session {
         final ObjectFactory objectFactory = getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Document>(new AbstractPageFetcher<Document>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<Document> fetchPage(long skipCount) {
@@ -422,6 +446,264 @@ public class SessionImpl implements Session {
         return result;
     }
 
+    public List<CmisObject> getObjects(Collection<String> objectIds, OperationContext context) {
+        if (objectIds == null) {
+            throw new IllegalArgumentException("Object Ids must be set!");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("Operation context must be set!");
+        }
+
+        Map<String, CmisObject> objects = Collections.synchronizedMap(new HashMap<String, CmisObject>());
+        Set<String> missing = new LinkedHashSet<String>();
+
+        // ask the cache first
+        for (String objectId : objectIds) {
+            if (objectId == null) {
+                throw new IllegalArgumentException("Object Ids must not contain null!");
+            }
+            if (objects.containsKey(objectId) || missing.contains(objectId)) {
+                continue;
+            }
+
+            CmisObject object = null;
+            if (context.isCacheEnabled()) {
+                object = this.cache.getById(objectId, context.getCacheKey());
+            }
+
+            if (object != null) {
+                objects.put(objectId, object);
+            } else {
+                missing.add(objectId);
+            }
+        }
+
+        // query the objects, one query per base type
+        if (!missing.isEmpty() && isQueryByIdSupported(context)) {
+            queryObjectsById(BaseTypeId.CMIS_DOCUMENT, missing, context, objects);
+            queryObjectsById(BaseTypeId.CMIS_FOLDER, missing, context, objects);
+        }
+
+        // get the rest one by one
+        if (!missing.isEmpty()) {
+            getObjectsById(missing, context, objects);
+        }
+
+        List<CmisObject> result = new ArrayList<CmisObject>(objectIds.size());
+        for (String objectId : objectIds) {
+            result.add(objects.get(objectId));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns whether a query returns the same data as
+     * <code>getObject</code> for the given operation context. A query on a
+     * base type only returns the properties of the base type and never
+     * returns ACLs, policies or secondary type properties.
+     */
+    private boolean isQueryByIdSupported(OperationContext context) {
+        CapabilityQuery capability = (getRepositoryInfo().getCapabilities() == null ? null : getRepositoryInfo()
+                .getCapabilities().getQueryCapability());
+        if (capability != CapabilityQuery.METADATAONLY && capability != CapabilityQuery.BOTHSEPARATE
+                && capability != CapabilityQuery.BOTHCOMBINED) {
+            return false;
+        }
+
+        if (context.isIncludeAcls() || context.isIncludePolicies() || context.loadSecondaryTypeProperties()) {
+            return false;
+        }
+
+        Set<String> filter = context.getFilter();
+        if (filter == null || filter.isEmpty()) {
+            return false;
+        }
+
+        for (String propertyId : filter) {
+            if (!propertyId.startsWith("cmis:")) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Queries the objects of the given base type and removes the found ids
+     * from the set of missing ids.
+     */
+    private void queryObjectsById(BaseTypeId baseTypeId, Set<String> missing, OperationContext context,
+            Map<String, CmisObject> objects) {
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        TypeDefinition type = getTypeDefinition(baseTypeId.value());
+        if (!Boolean.TRUE.equals(type.isQueryable())) {
+            return;
+        }
+
+        DiscoveryService discoveryService = getBinding().getDiscoveryService();
+        boolean searchAllVersions = baseTypeId == BaseTypeId.CMIS_DOCUMENT
+                && Boolean.TRUE.equals(getRepositoryInfo().getCapabilities().isAllVersionsSearchableSupported());
+
+        List<String> ids = new ArrayList<String>(missing);
+        for (int start = 0; start < ids.size(); start += MAX_QUERY_IDS) {
+            List<String> batch = ids.subList(start, Math.min(ids.size(), start + MAX_QUERY_IDS));
+
+            StringBuilder statement = new StringBuilder("SELECT ");
+            statement.append(getSelectList(type, context));
+            statement.append(" FROM ");
+            statement.append(baseTypeId.value());
+            statement.append(" WHERE ");
+            statement.append(PropertyIds.OBJECT_ID);
+            statement.append(" IN (");
+            for (int i = 0; i < batch.size(); i++) {
+                if (i > 0) {
+                    statement.append(',');
+                }
+                statement.append('\'');
+                statement.append(batch.get(i).replace("\\", "\\\\").replace("'", "\\'"));
+                statement.append('\'');
+            }
+            statement.append(')');
+
+            long skipCount = 0;
+            ObjectList resultList;
+            do {
+                resultList = discoveryService.query(getRepositoryId(), statement.toString(), searchAllVersions,
+                        context.isIncludeAllowableActions(), context.getIncludeRelationships(),
+                        context.getRenditionFilterString(), BigInteger.valueOf(batch.size()),
+                        BigInteger.valueOf(skipCount), null);
+
+                if (resultList.getObjects() == null || resultList.getObjects().isEmpty()) {
+                    break;
+                }
+
+                for (ObjectData objectData : resultList.getObjects()) {
+                    if (objectData == null || objectData.getId() == null || !missing.remove(objectData.getId())) {
+                        continue;
+                    }
+
+                    CmisObject object = getObjectFactory().convertObject(objectData, context);
+                    objects.put(object.getId(), object);
+
+                    if (context.isCacheEnabled()) {
+                        this.cache.put(object, context.getCacheKey());
+                    }
+                }
+
+                skipCount += resultList.getObjects().size();
+            } while (Boolean.TRUE.equals(resultList.hasMoreItems()));
+        }
+    }
+
+    /**
+     * Returns the properties of the operation context filter that are defined
+     * by the given type. <code>getObject</code> ignores the other properties,
+     * but a query rejects them.
+     */
+    private static String getSelectList(TypeDefinition type, OperationContext context) {
+        String filter = context.getFilterString();
+        Map<String, PropertyDefinition<?>> propertyDefinitions = type.getPropertyDefinitions();
+        if (propertyDefinitions == null) {
+            return filter;
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (String propertyId : filter.split(",")) {
+            PropertyDefinition<?> propertyDefinition = propertyDefinitions.get(propertyId.trim());
+            if (propertyDefinition == null) {
+                continue;
+            }
+
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(propertyDefinition.getQueryName());
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Gets the objects with a bounded number of parallel
+     * <code>getObject</code> calls. The calling thread takes part in the work.
+     */
+    private void getObjectsById(Set<String> missing, final OperationContext context,
+            final Map<String, CmisObject> objects) {
+        final Queue<String> queue = new ConcurrentLinkedQueue<String>(missing);
+
+        class Worker implements Callable<Void> {
+            public Void call() {
+                String objectId;
+                while ((objectId = queue.poll()) != null) {
+                    CmisObject object = null;
+                    try {
+                        object = getObject(objectId, context);
+                    } catch (CmisObjectNotFoundException e) {
+                        // return null for this id
+                    }
+                    objects.put(objectId, object);
+                }
+                return null;
+            }
+        }
+
+        Worker worker = new Worker();
+        int threads = Math.min(missing.size(), GET_OBJECTS_THREADS);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for (int i = 1; i < threads; i++) {
+            futures.add(getObjectsExecutor().submit(worker));
+        }
+
+        RuntimeException exception = null;
+        try {
+            worker.call();
+        } catch (RuntimeException e) {
+            exception = e;
+            queue.clear();
+        }
+
+        for (Future<Void> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (exception == null) {
+                    exception = (e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                            : new CmisRuntimeException(e.getCause().getMessage(), e.getCause()));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.clear();
+                if (exception == null) {
+                    exception = new CmisRuntimeException("Interrupted while getting objects!", e);
+                }
+            }
+        }
+
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private static synchronized ExecutorService getObjectsExecutor() {
+        if (objectsExecutor == null) {
+            objectsExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "opencmis-get-objects-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+
+        return objectsExecutor;
+    }
+
     public CmisObject getObjectByPath(String path) {
         return getObjectByPath(path, getDefaultContext());
     }
@@ -592,7 +874,8 @@ public class SessionImpl implements Session {
         final ObjectFactory of = this.getObjectFactory();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<QueryResult>(new AbstractPageFetcher<QueryResult>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<QueryResult> fetchPage(long skipCount) {
@@ -658,7 +941,8 @@ public class SessionImpl implements Session {
             statement.append(orderBy);
         }
 
-        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<CmisObject>(new AbstractPageFetcher<CmisObject>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<CmisObject> fetchPage(long skipCount) {
@@ -920,7 +1204,8 @@ public class SessionImpl implements Session {
         final RelationshipService relationshipService = getBinding().getRelationshipService();
         final OperationContext ctxt = new OperationContextImpl(context);
 
-        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage()) {
+        return new CollectionIterable<Relationship>(new AbstractPageFetcher<Relationship>(ctxt.getMaxItemsPerPage(),
+                ctxt.getPrefetchPages()) {
 
             @Override
             protected AbstractPageFetcher.Page<Relationship> fetchPage(long skipCount) {
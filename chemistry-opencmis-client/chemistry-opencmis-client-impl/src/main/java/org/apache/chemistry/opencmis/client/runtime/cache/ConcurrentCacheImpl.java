@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.cache;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+
+/**
+ * Concurrent cache implementation. The cache is limited to a specific size of
+ * entries and evicts entries in an approximated LRU mode (second chance/clock).
+ * <p>
+ * In contrast to {@link CacheImpl}, lookups never acquire a lock. Lookups only
+ * mark an entry as recently used, which makes this implementation a good fit
+ * for sessions that are shared by many threads.
+ * <p>
+ * To use this implementation, set the session parameter
+ * {@link SessionParameter#CACHE_CLASS} to
+ * <code>org.apache.chemistry.opencmis.client.runtime.cache.ConcurrentCacheImpl</code>
+ * .
+ */
+public class ConcurrentCacheImpl implements Cache {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int CONCURRENCY_LEVEL = 32;
+
+    private int cacheSize;
+    private int cacheTtl;
+    private int pathToIdSize;
+    private int pathToIdTtl;
+
+    private transient volatile BoundedMap<String, Map<String, CmisObject>> objectMap;
+    private transient volatile BoundedMap<String, String> pathToIdMap;
+
+    /**
+     * Default constructor.
+     */
+    public ConcurrentCacheImpl() {
+    }
+
+    public void initialize(Session session, Map<String, String> parameters) {
+        assert parameters != null;
+
+        // cache size
+        try {
+            cacheSize = Integer.valueOf(parameters.get(SessionParameter.CACHE_SIZE_OBJECTS));
+            if (cacheSize < 0) {
+                cacheSize = 0;
+            }
+        } catch (Exception e) {
+            cacheSize = 1000;
+        }
+
+        // cache time-to-live
+        try {
+            cacheTtl = Integer.valueOf(parameters.get(SessionParameter.CACHE_TTL_OBJECTS));
+            if (cacheTtl < 0) {
+                cacheTtl = 2 * 60 * 60 * 1000;
+            }
+        } catch (Exception e) {
+            cacheTtl = 2 * 60 * 60 * 1000;
+        }
+
+        // path-to-id size
+        try {
+            pathToIdSize = Integer.valueOf(parameters.get(SessionParameter.CACHE_SIZE_PATHTOID));
+            if (pathToIdSize < 0) {
+                pathToIdSize = 0;
+            }
+        } catch (Exception e) {
+            pathToIdSize = 1000;
+        }
+
+        // path-to-id time-to-live
+        try {
+            pathToIdTtl = Integer.valueOf(parameters.get(SessionParameter.CACHE_TTL_PATHTOID));
+            if (pathToIdTtl < 0) {
+                pathToIdTtl = 30 * 60 * 1000;
+            }
+        } catch (Exception e) {
+            pathToIdTtl = 30 * 60 * 1000;
+        }
+
+        initializeInternals();
+    }
+
+    /**
+     * Sets up the internal objects.
+     */
+    private void initializeInternals() {
+        objectMap = new BoundedMap<String, Map<String, CmisObject>>(cacheSize, cacheTtl);
+        pathToIdMap = new BoundedMap<String, String>(pathToIdSize, pathToIdTtl);
+    }
+
+    public void clear() {
+        initializeInternals();
+    }
+
+    public boolean containsId(String objectId, String cacheKey) {
+        return objectMap.get(objectId) != null;
+    }
+
+    public boolean containsPath(String path, String cacheKey) {
+        String objectId = pathToIdMap.get(path);
+        if (objectId == null) {
+            return false;
+        }
+
+        if (!containsId(objectId, cacheKey)) {
+            pathToIdMap.remove(path);
+            return false;
+        }
+
+        return true;
+    }
+
+    public CmisObject getById(String objectId, String cacheKey) {
+        Map<String, CmisObject> item = objectMap.get(objectId);
+        return (item == null ? null : item.get(cacheKey));
+    }
+
+    public CmisObject getByPath(String path, String cacheKey) {
+        String objectId = pathToIdMap.get(path);
+        if (objectId == null) {
+            return null;
+        }
+
+        return getById(objectId, cacheKey);
+    }
+
+    public void put(CmisObject object, String cacheKey) {
+        // no object, no cache key - no cache
+        if ((object == null) || (cacheKey == null)) {
+            return;
+        }
+
+        // no id - no cache
+        if (object.getId() == null) {
+            return;
+        }
+
+        // put into id cache
+        Map<String, CmisObject> m = objectMap.getOrCreate(object.getId(),
+                new ConcurrentHashMap<String, CmisObject>(4, 0.75f, 2));
+        if (m != null) {
+            m.put(cacheKey, object);
+        }
+
+        // folders may have a path, use it!
+        String path = object.getPropertyValue(PropertyIds.PATH);
+        if (path != null) {
+            pathToIdMap.put(path, object.getId());
+        }
+    }
+
+    public void putPath(String path, CmisObject object, String cacheKey) {
+        if (path == null) {
+            return;
+        }
+
+        put(object, cacheKey);
+
+        if ((object != null) && (object.getId() != null) && (cacheKey != null)) {
+            pathToIdMap.put(path, object.getId());
+        }
+    }
+
+    public void remove(String objectId) {
+        if (objectId == null) {
+            return;
+        }
+
+        objectMap.remove(objectId);
+    }
+
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    // --- serialization ---
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        objectMap.writeEntries(out);
+        pathToIdMap.writeEntries(out);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initializeInternals();
+        objectMap.readEntries(in);
+        pathToIdMap.readEntries(in);
+    }
+
+    // --- bounded map ---
+
+    /**
+     * Size-bounded concurrent map with a time-to-live per entry.
+     * <p>
+     * Reads are lock-free. Writes are delegated to a {@link ConcurrentHashMap}.
+     * If the map exceeds its maximum size, one writer thread evicts entries in
+     * insertion order but gives recently read entries a second chance.
+     */
+    static class BoundedMap<K, V> {
+
+        private final int maxSize;
+        private final int ttl;
+
+        private final ConcurrentHashMap<K, Node<K, V>> map;
+        private final ConcurrentLinkedQueue<Node<K, V>> queue;
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicInteger queueLength = new AtomicInteger();
+        private final AtomicBoolean evicting = new AtomicBoolean();
+
+        public BoundedMap(int maxSize, int ttl) {
+            this.maxSize = maxSize;
+            this.ttl = ttl;
+            this.map = new ConcurrentHashMap<K, Node<K, V>>(Math.max(16, maxSize), 0.75f, CONCURRENCY_LEVEL);
+            this.queue = new ConcurrentLinkedQueue<Node<K, V>>();
+        }
+
+        /**
+         * Returns the value of a live entry or <code>null</code> if there is
+         * no entry or the entry has expired.
+         */
+        public V get(K key) {
+            if (key == null) {
+                return null;
+            }
+
+            Node<K, V> node = map.get(key);
+            if (node == null) {
+                return null;
+            }
+
+            V value = node.getValue();
+            if (value == null) {
+                removeNode(node);
+                return null;
+            }
+
+            node.referenced = true;
+
+            return value;
+        }
+
+        /**
+         * Returns the value of a live entry. If there is no live entry, the
+         * provided value is added and returned.
+         */
+        public V getOrCreate(K key, V value) {
+            if (maxSize == 0) {
+                return null;
+            }
+
+            while (true) {
+                Node<K, V> node = map.get(key);
+                if (node != null) {
+                    V current = node.getValue();
+                    if (current != null) {
+                        node.referenced = true;
+                        return current;
+                    }
+                }
+
+                Node<K, V> newNode = new Node<K, V>(key, value, System.currentTimeMillis() + ttl);
+                if (node == null) {
+                    if (map.putIfAbsent(key, newNode) == null) {
+                        size.incrementAndGet();
+                        enqueue(newNode);
+                        return value;
+                    }
+                } else if (map.replace(key, node, newNode)) {
+                    enqueue(newNode);
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * Adds or replaces an entry.
+         */
+        public void put(K key, V value) {
+            if (maxSize == 0) {
+                return;
+            }
+
+            putNode(new Node<K, V>(key, value, System.currentTimeMillis() + ttl));
+        }
+
+        /**
+         * Removes an entry.
+         */
+        public void remove(K key) {
+            if (map.remove(key) != null) {
+                size.decrementAndGet();
+            }
+        }
+
+        private void putNode(Node<K, V> node) {
+            if (map.put(node.key, node) == null) {
+                size.incrementAndGet();
+            }
+            enqueue(node);
+        }
+
+        private void removeNode(Node<K, V> node) {
+            if (map.remove(node.key, node)) {
+                size.decrementAndGet();
+            }
+        }
+
+        private void enqueue(Node<K, V> node) {
+            queue.offer(node);
+            queueLength.incrementAndGet();
+            evict();
+        }
+
+        /**
+         * Evicts entries if the map is too big. Replaced and removed entries
+         * remain in the queue until they are polled, so the queue is also
+         * trimmed if it contains too many of them.
+         */
+        private void evict() {
+            // only one thread evicts, all others continue
+            // the evicting thread checks again after it is done because other
+            // threads may have added entries in the meantime
+            while (needsEviction() && evicting.compareAndSet(false, true)) {
+                try {
+                    if (!evictEntries()) {
+                        break;
+                    }
+                } finally {
+                    evicting.set(false);
+                }
+            }
+        }
+
+        private boolean needsEviction() {
+            return size.get() > maxSize || queueLength.get() > 2 * maxSize + 16;
+        }
+
+        /**
+         * Polls entries from the queue until the map and the queue are small
+         * enough.
+         * 
+         * @return <code>true</code> if at least one entry has been polled
+         */
+        private boolean evictEntries() {
+            boolean polled = false;
+
+            int budget = 2 * queueLength.get() + 1;
+            while (budget-- > 0) {
+                boolean overflow = size.get() > maxSize;
+                if (!overflow && queueLength.get() <= maxSize) {
+                    break;
+                }
+
+                Node<K, V> node = queue.poll();
+                if (node == null) {
+                    break;
+                }
+                queueLength.decrementAndGet();
+                polled = true;
+
+                if (map.get(node.key) != node) {
+                    // entry has already been replaced or removed
+                    continue;
+                }
+
+                if (overflow && (!node.referenced || node.getValue() == null)) {
+                    removeNode(node);
+                    continue;
+                }
+
+                // give the entry a second chance
+                node.referenced = false;
+                queue.offer(node);
+                queueLength.incrementAndGet();
+            }
+
+            return polled;
+        }
+
+        void writeEntries(ObjectOutputStream out) throws IOException {
+            for (Node<K, V> node : map.values()) {
+                V value = node.getValue();
+                if (value != null) {
+                    out.writeObject(node.key);
+                    out.writeObject(value);
+                    out.writeLong(node.expiration);
+                }
+            }
+            out.writeObject(null);
+        }
+
+        @SuppressWarnings("unchecked")
+        void readEntries(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            long now = System.currentTimeMillis();
+            while (true) {
+                K key = (K) in.readObject();
+                if (key == null) {
+                    break;
+                }
+
+                V value = (V) in.readObject();
+                long expiration = in.readLong();
+
+                if (maxSize > 0 && expiration >= now) {
+                    putNode(new Node<K, V>(key, value, expiration));
+                }
+            }
+        }
+    }
+
+    // --- cache node ---
+
+    private static class Node<K, V> {
+
+        final K key;
+        final SoftReference<V> value;
+        final long expiration;
+        volatile boolean referenced;
+
+        public Node(K key, V value, long expiration) {
+            this.key = key;
+            this.value = new SoftReference<V>(value);
+            this.expiration = expiration;
+            this.referenced = true;
+        }
+
+        /**
+         * Returns the value or <code>null</code> if the entry has expired or
+         * has been garbage collected.
+         */
+        public V getValue() {
+            if (expiration < System.currentTimeMillis()) {
+                return null;
+            }
+
+            return value.get();
+        }
+    }
+}
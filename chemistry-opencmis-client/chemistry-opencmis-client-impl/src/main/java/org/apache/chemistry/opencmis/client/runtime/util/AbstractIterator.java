@@ -37,6 +37,7 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
     private Page<T> page;
     private Long totalNumItems;
     private Boolean hasMoreItems;
+    private PagePrefetcher<T> prefetcher;
 
     /**
      * Construct
@@ -130,6 +131,7 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
     protected Page<T> getCurrentPage() {
         if (page == null) {
             page = pageFetcher.fetchPage(skipCount);
+            prefetch();
         }
         return page;
     }
@@ -144,8 +146,35 @@ public abstract class AbstractIterator<T> implements Iterator<T> {
         skipOffset = 0;
         totalNumItems = null;
         hasMoreItems = null;
-        page = pageFetcher.fetchPage(skipCount);
+        page = (prefetcher == null ? null : prefetcher.take(skipCount));
+        if (page == null) {
+            page = pageFetcher.fetchPage(skipCount);
+        }
+        prefetch();
         return page;
     }
 
+    /**
+     * Returns whether this iterator fetches the following pages in the
+     * background if the page fetcher asks for it. Iterators that never move
+     * past the first page should return <code>false</code>.
+     */
+    protected boolean isPrefetchSupported() {
+        return false;
+    }
+
+    /**
+     * Starts fetching the pages after the current page.
+     */
+    private void prefetch() {
+        if (page == null || pageFetcher.getPrefetchPages() < 1 || !isPrefetchSupported()) {
+            return;
+        }
+
+        if (prefetcher == null) {
+            prefetcher = new PagePrefetcher<T>(pageFetcher, pageFetcher.getPrefetchPages());
+        }
+        prefetcher.prefetch(skipCount, page);
+    }
+
 }
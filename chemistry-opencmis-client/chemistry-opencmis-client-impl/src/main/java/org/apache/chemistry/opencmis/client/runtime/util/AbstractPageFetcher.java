@@ -29,9 +29,19 @@ import java.util.List;
 public abstract class AbstractPageFetcher<T> {
 
     protected long maxNumItems;
+    private final int prefetchPages;
 
     protected AbstractPageFetcher(long maxNumItems) {
+        this(maxNumItems, 0);
+    }
+
+    /**
+     * @param maxNumItems max number of items per page
+     * @param prefetchPages number of pages iterators fetch in the background
+     */
+    protected AbstractPageFetcher(long maxNumItems, int prefetchPages) {
         this.maxNumItems = maxNumItems;
+        this.prefetchPages = prefetchPages;
     }
 
     /**
@@ -81,4 +91,11 @@ public abstract class AbstractPageFetcher<T> {
         this.maxNumItems = maxNumItems;
     }
 
+    /**
+     * Returns the number of pages iterators fetch in the background.
+     */
+    public int getPrefetchPages() {
+        return prefetchPages;
+    }
+
 }
@@ -39,6 +39,11 @@ public class CollectionIterator<T> extends AbstractIterator<T> {
         super(skipCount, pageFetcher);
     }
 
+    @Override
+    protected boolean isPrefetchSupported() {
+        return true;
+    }
+
     /*
      * (non-Javadoc)
      *
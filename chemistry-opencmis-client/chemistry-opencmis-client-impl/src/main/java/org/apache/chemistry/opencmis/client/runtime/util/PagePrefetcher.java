@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime.util;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.runtime.util.AbstractPageFetcher.Page;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Fetches the pages following the current page of an iterator in the
+ * background.
+ * <p>
+ * The skip count of a page depends on the size of the page before it, so
+ * each background fetch waits for its predecessor. At most
+ * <code>depth</code> pages are pending or held at any time. If a background
+ * fetch fails, {@link #take(long)} returns <code>null</code> and the iterator
+ * fetches the page itself, so errors surface exactly as without prefetching.
+ * <p>
+ * Instances are used by a single iterator and are not thread-safe.
+ *
+ * @param <T> the type of items fetched
+ */
+class PagePrefetcher<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PagePrefetcher.class);
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "opencmis-prefetch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final AbstractPageFetcher<T> pageFetcher;
+    private final int depth;
+    private final LinkedList<Future<FetchedPage<T>>> pending = new LinkedList<Future<FetchedPage<T>>>();
+
+    PagePrefetcher(AbstractPageFetcher<T> pageFetcher, int depth) {
+        this.pageFetcher = pageFetcher;
+        this.depth = depth;
+    }
+
+    /**
+     * Schedules background fetches until <code>depth</code> pages after the
+     * given page are pending.
+     *
+     * @param skipCount the skip count of the current page
+     * @param page the current page
+     */
+    void prefetch(long skipCount, Page<T> page) {
+        while (pending.size() < depth) {
+            Future<FetchedPage<T>> future;
+
+            if (pending.isEmpty()) {
+                if (!hasNextPage(skipCount, page)) {
+                    return;
+                }
+                future = EXECUTOR.submit(new FetchTask(null, skipCount, page));
+            } else {
+                future = EXECUTOR.submit(new FetchTask(pending.getLast(), 0, null));
+            }
+
+            pending.add(future);
+        }
+    }
+
+    /**
+     * Returns the prefetched page with the given skip count.
+     *
+     * @return the page or <code>null</code> if the page hasn't been
+     *         prefetched or the fetch failed
+     */
+    Page<T> take(long skipCount) {
+        if (pending.isEmpty()) {
+            return null;
+        }
+
+        try {
+            FetchedPage<T> fetched = pending.removeFirst().get();
+            if (fetched != null && fetched.skipCount == skipCount) {
+                return fetched.page;
+            }
+        } catch (ExecutionException e) {
+            LOG.debug("Prefetching page at " + skipCount + " failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // start over
+        cancel();
+        return null;
+    }
+
+    /**
+     * Cancels all pending fetches.
+     */
+    void cancel() {
+        for (Future<FetchedPage<T>> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    private static <T> boolean hasNextPage(long skipCount, Page<T> page) {
+        if (page == null || !Boolean.TRUE.equals(page.getHasMoreItems())) {
+            return false;
+        }
+
+        List<T> items = page.getItems();
+        if (items == null || items.isEmpty()) {
+            return false;
+        }
+
+        Long totalNumItems = page.getTotalNumItems();
+        return totalNumItems == null || totalNumItems.longValue() < 0
+                || skipCount + items.size() < totalNumItems.longValue();
+    }
+
+    /**
+     * Fetches the page that follows either a known page or the result of a
+     * previous fetch.
+     */
+    private class FetchTask implements Callable<FetchedPage<T>> {
+        private final Future<FetchedPage<T>> previousFetch;
+        private final long previousSkipCount;
+        private final Page<T> previousPage;
+
+        FetchTask(Future<FetchedPage<T>> previousFetch, long previousSkipCount, Page<T> previousPage) {
+            this.previousFetch = previousFetch;
+            this.previousSkipCount = previousSkipCount;
+            this.previousPage = previousPage;
+        }
+
+        public FetchedPage<T> call() throws Exception {
+            long skipCount = previousSkipCount;
+            Page<T> page = previousPage;
+
+            if (previousFetch != null) {
+                FetchedPage<T> previous = previousFetch.get();
+                if (previous == null) {
+                    return null;
+                }
+                skipCount = previous.skipCount;
+                page = previous.page;
+            }
+
+            if (!hasNextPage(skipCount, page)) {
+                return null;
+            }
+
+            long nextSkipCount = skipCount + page.getItems().size();
+            return new FetchedPage<T>(nextSkipCount, pageFetcher.fetchPage(nextSkipCount));
+        }
+    }
+
+    private static class FetchedPage<T> {
+        final long skipCount;
+        final Page<T> page;
+
+        FetchedPage(long skipCount, Page<T> page) {
+            this.skipCount = skipCount;
+            this.page = page;
+        }
+    }
+}
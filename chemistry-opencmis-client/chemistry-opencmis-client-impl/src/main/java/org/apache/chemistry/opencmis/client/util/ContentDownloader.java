@@ -0,0 +1,514 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.PartialContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+
+/**
+ * Downloads large content with several parallel range requests.
+ * <p>
+ * The content is split into chunks. Each chunk is requested with
+ * <code>getContentStream(offset, length)</code> and written to its position
+ * in the target file. A chunk that fails or comes back incomplete is requested
+ * again up to {@link #setMaxRetries(int)} times. If the repository ignores
+ * the range and returns the whole content, the download falls back to this
+ * single stream.
+ * <p>
+ * CMIS doesn't provide checksums for content ranges. The length of each chunk
+ * is checked and, if an expected digest has been set with
+ * {@link #setExpectedDigest(String, byte[])}, the digest of the whole file is
+ * verified at the end.
+ * <p>
+ * Instances of this class are not thread-safe.
+ */
+public class ContentDownloader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_THREADS = 4;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Listener notified while the content is downloaded. It may be called
+     * from several threads at the same time.
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param downloaded
+         *            the number of bytes written to the file so far
+         * @param length
+         *            the total number of bytes or -1 if unknown
+         */
+        void progress(long downloaded, long length);
+    }
+
+    private final Document document;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int threads = DEFAULT_THREADS;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryDelay = DEFAULT_RETRY_DELAY;
+    private String digestAlgorithm;
+    private byte[] expectedDigest;
+    private ProgressListener progressListener;
+    private volatile boolean rangesSupported;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a downloader for the given document.
+     * 
+     * @param session
+     *            the session
+     * @param documentId
+     *            the id of the document
+     */
+    public ContentDownloader(Session session, String documentId) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+        if (documentId == null) {
+            throw new IllegalArgumentException("Document Id must be set!");
+        }
+
+        this.document = (Document) session.getObject(documentId);
+    }
+
+    /**
+     * Sets the chunk size in bytes.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the number of parallel range requests.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive!");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets how often a failed chunk is requested again.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must not be negative!");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the milliseconds to wait before a failed chunk is requested again.
+     */
+    public void setRetryDelay(long retryDelay) {
+        if (retryDelay < 0) {
+            throw new IllegalArgumentException("Retry delay must not be negative!");
+        }
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * Sets the digest the downloaded content must have.
+     * 
+     * @param algorithm
+     *            the {@link MessageDigest} algorithm, for example "SHA-256"
+     * @param digest
+     *            the expected digest
+     */
+    public void setExpectedDigest(String algorithm, byte[] digest) throws NoSuchAlgorithmException {
+        if (algorithm != null) {
+            // fail early
+            MessageDigest.getInstance(algorithm);
+        }
+
+        this.digestAlgorithm = algorithm;
+        this.expectedDigest = (digest == null ? null : digest.clone());
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Returns whether the repository honored the range requests of the last
+     * download.
+     */
+    public boolean isRangesSupported() {
+        return rangesSupported;
+    }
+
+    /**
+     * Downloads the content into the given file. An existing file is
+     * overwritten.
+     * 
+     * @return the number of bytes downloaded
+     */
+    public long download(File file) throws IOException {
+        rangesSupported = false;
+        cancelled = false;
+        long length = document.getContentStreamLength();
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        long written;
+        try {
+            FileChannel channel = raf.getChannel();
+            AtomicLong progress = new AtomicLong();
+
+            // the first chunk tells whether the repository supports ranges
+            boolean split = length > chunkSize;
+            ContentStream first = getContentStream(0, split ? chunkSize : -1);
+            if (first == null) {
+                channel.truncate(0);
+                return 0;
+            }
+
+            if (!split || !(first instanceof PartialContentStream)) {
+                // full content
+                written = write(first, channel, 0, -1, length, progress, new AtomicLong());
+            } else {
+                rangesSupported = true;
+                written = downloadChunk(channel, 0, chunkSize, length, progress, first);
+                try {
+                    written += downloadChunks(channel, length, progress);
+                } catch (RangeIgnoredException e) {
+                    // the repository ignored a range after all, all workers
+                    // have stopped writing at this point
+                    rangesSupported = false;
+                    progress.set(0);
+                    written = write(getContentStream(0, -1), channel, 0, -1, length, progress, new AtomicLong());
+                }
+            }
+
+            channel.truncate(written);
+        } finally {
+            raf.close();
+        }
+
+        if (length >= 0 && written != length) {
+            throw new IOException("Downloaded " + written + " bytes but the content has " + length + " bytes!");
+        }
+
+        verifyDigest(file);
+
+        return written;
+    }
+
+    private long downloadChunks(final FileChannel channel, final long length, final AtomicLong progress)
+            throws IOException {
+        final Queue<Long> offsets = new ConcurrentLinkedQueue<Long>();
+        for (long offset = chunkSize; offset < length; offset += chunkSize) {
+            offsets.add(offset);
+        }
+
+        final AtomicLong written = new AtomicLong();
+        class Worker implements Callable<Void> {
+            public Void call() throws IOException {
+                try {
+                    Long offset;
+                    while ((offset = offsets.poll()) != null) {
+                        long chunkLength = Math.min(chunkSize, length - offset);
+                        written.addAndGet(downloadChunk(channel, offset, chunkLength, length, progress, null));
+                    }
+                    return null;
+                } catch (IOException e) {
+                    cancel();
+                    throw e;
+                } catch (RuntimeException e) {
+                    cancel();
+                    throw e;
+                }
+            }
+
+            /**
+             * Stops the other workers after their current buffer.
+             */
+            private void cancel() {
+                offsets.clear();
+                cancelled = true;
+            }
+        }
+
+        int workers = Math.min(offsets.size(), threads);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers), new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "opencmis-download-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        try {
+            List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(new Worker()));
+            }
+
+            // the workers stopped by a failure report a cancellation, the
+            // failure itself is reported by the worker it happened in
+            Throwable failure = null;
+            for (Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (failure == null || failure instanceof CancelledException) {
+                        failure = e.getCause();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while downloading!");
+                }
+            }
+
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure != null) {
+                throw new CmisRuntimeException(failure.getMessage(), failure);
+            }
+        } finally {
+            // interrupting the workers would close the shared channel, so they
+            // are cancelled and the method returns only after all of them have
+            // stopped writing
+            offsets.clear();
+            cancelled = true;
+            executor.shutdown();
+            awaitTermination(executor);
+            cancelled = false;
+        }
+
+        return written.get();
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Downloads a chunk, retrying it if necessary.
+     * 
+     * @param initial
+     *            the already requested stream for the first attempt or
+     *            <code>null</code>
+     */
+    private long downloadChunk(FileChannel channel, long offset, long chunkLength, long length,
+            AtomicLong progress, ContentStream initial) throws IOException {
+        ContentStream firstStream = initial;
+        int attempt = 0;
+        while (true) {
+            long chunkProgress = 0;
+            try {
+                ContentStream contentStream = (firstStream != null ? firstStream : getContentStream(offset,
+                        chunkLength));
+                firstStream = null;
+                if (contentStream == null) {
+                    throw new CmisRuntimeException("Content stream disappeared while downloading!");
+                }
+                if (!(contentStream instanceof PartialContentStream)) {
+                    IOUtils.closeQuietly(contentStream);
+                    throw new RangeIgnoredException();
+                }
+
+                AtomicLong chunkCounter = new AtomicLong();
+                try {
+                    long written = write(contentStream, channel, offset, chunkLength, length, progress, chunkCounter);
+                    if (written != chunkLength) {
+                        throw new IOException("Received " + written + " bytes but requested " + chunkLength
+                                + " bytes at offset " + offset + "!");
+                    }
+                    return written;
+                } finally {
+                    chunkProgress = chunkCounter.get();
+                }
+            } catch (RangeIgnoredException e) {
+                throw e;
+            } catch (CmisConnectionException e) {
+                waitForRetry(e, ++attempt, progress, chunkProgress);
+            } catch (CmisRuntimeException e) {
+                waitForRetry(e, ++attempt, progress, chunkProgress);
+            } catch (IOException e) {
+                waitForRetry(e, ++attempt, progress, chunkProgress);
+            }
+        }
+    }
+
+    private <E extends Exception> void waitForRetry(E e, int attempt, AtomicLong progress, long chunkProgress)
+            throws E {
+        // the chunk is written again from its beginning
+        progress.addAndGet(-chunkProgress);
+
+        if (attempt > maxRetries || cancelled) {
+            throw e;
+        }
+
+        if (retryDelay > 0) {
+            try {
+                Thread.sleep(retryDelay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+        }
+    }
+
+    private ContentStream getContentStream(long offset, long length) {
+        return document.getContentStream(BigInteger.valueOf(offset), length < 0 ? null : BigInteger.valueOf(length));
+    }
+
+    /**
+     * Writes the stream to the channel at the given offset and closes the
+     * stream.
+     */
+    private long write(ContentStream contentStream, FileChannel channel, long offset, long maxLength, long length,
+            AtomicLong progress, AtomicLong counter) throws IOException {
+        InputStream stream = contentStream.getStream();
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = offset;
+            int b;
+            while ((maxLength < 0 || position - offset < maxLength) && (b = stream.read(buffer)) > -1) {
+                if (cancelled) {
+                    throw new CancelledException();
+                }
+                if (maxLength >= 0 && position - offset + b > maxLength) {
+                    // never write into the next chunk
+                    b = (int) (maxLength - (position - offset));
+                }
+
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, b);
+                while (byteBuffer.hasRemaining()) {
+                    position += channel.write(byteBuffer, position);
+                }
+
+                counter.addAndGet(b);
+                long downloaded = progress.addAndGet(b);
+                if (progressListener != null) {
+                    progressListener.progress(downloaded, length);
+                }
+            }
+
+            return position - offset;
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private void verifyDigest(File file) throws IOException {
+        if (digestAlgorithm == null || expectedDigest == null) {
+            return;
+        }
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(digestAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            throw new CmisRuntimeException(e.getMessage(), e);
+        }
+
+        InputStream stream = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int b;
+            while ((b = stream.read(buffer)) > -1) {
+                md.update(buffer, 0, b);
+            }
+        } finally {
+            stream.close();
+        }
+
+        if (!Arrays.equals(expectedDigest, md.digest())) {
+            throw new IOException("The " + digestAlgorithm + " digest of the downloaded content doesn't match!");
+        }
+    }
+
+    /**
+     * Thrown when the repository returned the whole content instead of a
+     * range.
+     */
+    private static class RangeIgnoredException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Thrown when a worker stops because another worker failed.
+     */
+    private static class CancelledException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CancelledException() {
+            super("Download cancelled!");
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.ObjectId;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.impl.MimeTypes;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+
+/**
+ * Uploads large content in chunks with <code>appendContentStream</code>
+ * (CMIS 1.1).
+ * <p>
+ * The first chunk replaces the current content of the document, all further
+ * chunks are appended. A chunk that fails with a connection or runtime error is
+ * sent again up to {@link #setMaxRetries(int)} times. Before a chunk is sent
+ * again, the content length on the server is checked, so a chunk that reached
+ * the repository although the response got lost is not appended twice.
+ * <p>
+ * If the upload fails anyway, {@link #resume(File, long)} or
+ * {@link #resume(InputStream, long)} continues it later, also from a new
+ * process, from the offset {@link #getConfirmedOffset()} returned. The content
+ * length of the document alone can't tell where to continue, because it is
+ * the length of the old content if the first chunk never reached the
+ * repository.
+ * <p>
+ * Instances of this class are not thread-safe.
+ */
+public class ContentUploader {
+
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+    public static final int DEFAULT_MAX_RETRIES = 3;
+    public static final long DEFAULT_RETRY_DELAY = 1000;
+
+    /**
+     * Listener notified after each chunk the repository has accepted.
+     */
+    public interface ProgressListener {
+
+        /**
+         * @param uploaded
+         *            the number of bytes the repository has confirmed so far
+         * @param length
+         *            the total number of bytes or -1 if unknown
+         */
+        void progress(long uploaded, long length);
+    }
+
+    private final Session session;
+    private Document document;
+    private String fileName;
+    private String mimeType;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+    private long retryDelay = DEFAULT_RETRY_DELAY;
+    private ProgressListener progressListener;
+    private long confirmedOffset;
+
+    /**
+     * Creates an uploader for the given document.
+     * 
+     * @param session
+     *            the session
+     * @param documentId
+     *            the id of the document, usually a private working copy
+     */
+    public ContentUploader(Session session, String documentId) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session must be set!");
+        }
+        if (documentId == null) {
+            throw new IllegalArgumentException("Document Id must be set!");
+        }
+
+        this.session = session;
+        this.document = (Document) session.getObject(documentId);
+    }
+
+    /**
+     * Returns the document. This can be a new version if the repository
+     * created one while the content was uploaded.
+     */
+    public Document getDocument() {
+        return document;
+    }
+
+    /**
+     * Returns the number of bytes the repository has confirmed. This is the
+     * offset to pass to {@link #resume(File, long)} or
+     * {@link #resume(InputStream, long)} if the upload failed.
+     */
+    public long getConfirmedOffset() {
+        return confirmedOffset;
+    }
+
+    /**
+     * Sets the file name of the content. Defaults to the name of the source
+     * file or the document name.
+     */
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    /**
+     * Sets the MIME type of the content. Defaults to the MIME type derived from
+     * the file name.
+     */
+    public void setMimeType(String mimeType) {
+        this.mimeType = mimeType;
+    }
+
+    /**
+     * Sets the chunk size in bytes. Up to two chunks are held in memory.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive!");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets how often a failed chunk is sent again.
+     */
+    public void setMaxRetries(int maxRetries) {
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Max retries must not be negative!");
+        }
+        this.maxRetries = maxRetries;
+    }
+
+    /**
+     * Sets the milliseconds to wait before a failed chunk is sent again.
+     */
+    public void setRetryDelay(long retryDelay) {
+        if (retryDelay < 0) {
+            throw new IllegalArgumentException("Retry delay must not be negative!");
+        }
+        this.retryDelay = retryDelay;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Replaces the content of the document with the content of the file.
+     * 
+     * @return the document
+     */
+    public Document upload(File file) throws IOException {
+        InputStream stream = new FileInputStream(file);
+        try {
+            return upload(stream, file.length(), getFileName(file), 0, false);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Replaces the content of the document with the content of the stream.
+     * The stream is not closed.
+     * 
+     * @return the document
+     */
+    public Document upload(InputStream stream) throws IOException {
+        return upload(stream, -1, getFileName(null), 0, false);
+    }
+
+    /**
+     * Continues an interrupted upload of the file.
+     * 
+     * @param confirmedOffset
+     *            the offset {@link #getConfirmedOffset()} returned when the
+     *            upload failed
+     * 
+     * @return the document
+     * 
+     * @throws CmisConstraintException
+     *             if the content length on the server doesn't match the
+     *             confirmed offset
+     */
+    public Document resume(File file, long confirmedOffset) throws IOException {
+        InputStream stream = new FileInputStream(file);
+        try {
+            return upload(stream, file.length(), getFileName(file), confirmedOffset, true);
+        } finally {
+            stream.close();
+        }
+    }
+
+    /**
+     * Continues an interrupted upload. The stream must provide the whole
+     * content from the beginning; the part that has already been uploaded is
+     * skipped. The stream is not closed.
+     * 
+     * @param confirmedOffset
+     *            the offset {@link #getConfirmedOffset()} returned when the
+     *            upload failed
+     * 
+     * @return the document
+     * 
+     * @throws CmisConstraintException
+     *             if the content length on the server doesn't match the
+     *             confirmed offset
+     */
+    public Document resume(InputStream stream, long confirmedOffset) throws IOException {
+        return upload(stream, -1, getFileName(null), confirmedOffset, true);
+    }
+
+    private Document upload(InputStream stream, long length, String name, long offset, boolean resume)
+            throws IOException {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Offset must not be negative!");
+        }
+
+        skip(stream, offset);
+        confirmedOffset = offset;
+
+        String contentMimeType = (mimeType != null ? mimeType : MimeTypes.getMIMEType(name));
+
+        // read one chunk ahead to know which chunk is the last one
+        byte[] chunk = readChunk(stream);
+        // the server has to confirm the offset of a resumed upload, the last
+        // chunk of the failed upload might have reached it, too
+        boolean verify = resume;
+        while (true) {
+            byte[] next = (chunk.length < chunkSize ? null : readChunk(stream));
+            boolean isLastChunk = (next == null || next.length == 0);
+
+            sendChunk(chunk, isLastChunk, name, contentMimeType, verify);
+            verify = false;
+
+            confirmedOffset += chunk.length;
+            if (progressListener != null) {
+                progressListener.progress(confirmedOffset, length);
+            }
+
+            if (isLastChunk) {
+                return document;
+            }
+
+            chunk = next;
+        }
+    }
+
+    private void sendChunk(byte[] chunk, boolean isLastChunk, String name, String contentMimeType,
+            boolean verify) {
+        int attempt = 0;
+        boolean failed = verify;
+        while (true) {
+            try {
+                if (failed && confirmedOffset > 0) {
+                    // the chunk might have reached the repository before the
+                    // connection broke
+                    long serverOffset = getServerOffset();
+                    if (serverOffset == confirmedOffset + chunk.length) {
+                        return;
+                    }
+                    if (serverOffset != confirmedOffset) {
+                        throw new CmisConstraintException("Content length on the server is " + serverOffset
+                                + " bytes but " + confirmedOffset + " bytes have been confirmed!");
+                    }
+                }
+
+                ContentStream contentStream = new ContentStreamImpl(name, BigInteger.valueOf(chunk.length),
+                        contentMimeType, new ByteArrayInputStream(chunk));
+
+                ObjectId newId;
+                if (confirmedOffset == 0) {
+                    newId = document.setContentStream(contentStream, true, true);
+                } else {
+                    newId = document.appendContentStream(contentStream, isLastChunk, true);
+                }
+
+                if (newId != null && !newId.getId().equals(document.getId())) {
+                    document = (Document) session.getObject(newId);
+                }
+
+                return;
+            } catch (CmisConnectionException e) {
+                waitForRetry(e, ++attempt);
+            } catch (CmisRuntimeException e) {
+                waitForRetry(e, ++attempt);
+            }
+
+            failed = true;
+        }
+    }
+
+    private void waitForRetry(CmisBaseException e, int attempt) {
+        if (attempt > maxRetries) {
+            throw e;
+        }
+
+        if (retryDelay > 0) {
+            try {
+                Thread.sleep(retryDelay);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the content length the repository reports for the document.
+     */
+    private long getServerOffset() {
+        document.refresh();
+        long length = document.getContentStreamLength();
+        return (length < 0 ? 0 : length);
+    }
+
+    private String getFileName(File file) {
+        if (fileName != null) {
+            return fileName;
+        }
+        if (file != null) {
+            return file.getName();
+        }
+        return document.getName();
+    }
+
+    private byte[] readChunk(InputStream stream) throws IOException {
+        byte[] buffer = new byte[chunkSize];
+        int pos = 0;
+        int b;
+        while (pos < buffer.length && (b = stream.read(buffer, pos, buffer.length - pos)) > -1) {
+            pos += b;
+        }
+
+        if (pos == buffer.length) {
+            return buffer;
+        }
+
+        byte[] result = new byte[pos];
+        System.arraycopy(buffer, 0, result, 0, pos);
+        return result;
+    }
+
+    private static void skip(InputStream stream, long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            long skipped = stream.skip(remaining);
+            if (skipped <= 0) {
+                // skip() may give up early, read() tells the truth
+                if (stream.read() == -1) {
+                    throw new IOException("Stream ends before the uploaded content length of " + n + " bytes!");
+                }
+                skipped = 1;
+            }
+            remaining -= skipped;
+        }
+    }
+}
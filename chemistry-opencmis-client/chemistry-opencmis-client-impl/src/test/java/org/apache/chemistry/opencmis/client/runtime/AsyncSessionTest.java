@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.chemistry.opencmis.client.api.AsyncSession;
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.ItemIterable;
+import org.apache.chemistry.opencmis.client.api.QueryResult;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.junit.Test;
+
+public class AsyncSessionTest {
+
+    private final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+
+    private Session createSession(final ItemIterable<QueryResult> queryResult) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        threads.add(Thread.currentThread().getName());
+
+                        String name = method.getName();
+                        if ("getObject".equals(name) || "getObjectByPath".equals(name)) {
+                            if ("missing".equals(args[0])) {
+                                throw new CmisObjectNotFoundException("Not found!");
+                            }
+                            return new CmisObjectMock(String.valueOf(args[0]));
+                        } else if ("query".equals(name)) {
+                            return queryResult;
+                        } else if ("getContentStream".equals(name)) {
+                            return new ContentStreamImpl("test.txt", "text/plain", "Hello world!");
+                        }
+                        throw new UnsupportedOperationException(name);
+                    }
+                });
+    }
+
+    @Test
+    public void testGetObject() throws Exception {
+        AsyncSession asyncSession = new AsyncSessionImpl(createSession(null), 2);
+        try {
+            Future<CmisObject> future1 = asyncSession.getObject("1");
+            Future<CmisObject> future2 = asyncSession.getObjectByPath("/2");
+            assertEquals("1", future1.get(10, TimeUnit.SECONDS).getId());
+            assertEquals("/2", future2.get(10, TimeUnit.SECONDS).getId());
+
+            for (String thread : threads) {
+                assertNotSame(Thread.currentThread().getName(), thread);
+            }
+
+            try {
+                asyncSession.getObject("missing").get(10, TimeUnit.SECONDS);
+                fail("Exception expected!");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof CmisObjectNotFoundException);
+            }
+        } finally {
+            asyncSession.shutdown();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testQueryFetchesFirstPage() throws Exception {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+        ItemIterable<QueryResult> result = (ItemIterable<QueryResult>) Proxy.newProxyInstance(
+                ItemIterable.class.getClassLoader(), new Class<?>[] { ItemIterable.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        calls.add(method.getName() + "@" + Thread.currentThread().getName());
+                        return Boolean.FALSE;
+                    }
+                });
+
+        AsyncSession asyncSession = new AsyncSessionImpl(createSession(result));
+        try {
+            assertSame(result, asyncSession.query("SELECT * FROM cmis:document", false).get(10, TimeUnit.SECONDS));
+            assertEquals(1, calls.size());
+            assertTrue(calls.get(0).startsWith("getHasMoreItems@"));
+            assertTrue(!calls.get(0).endsWith("@" + Thread.currentThread().getName()));
+        } finally {
+            asyncSession.shutdown();
+        }
+    }
+
+    @Test
+    public void testDownloadContent() throws Exception {
+        AsyncSession asyncSession = new AsyncSessionImpl(createSession(null), 1);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            Future<Long> future = asyncSession.downloadContent(new ObjectIdImpl("doc"), out);
+
+            assertEquals(Long.valueOf(12), future.get(10, TimeUnit.SECONDS));
+            assertEquals("Hello world!", out.toString("UTF-8"));
+        } finally {
+            asyncSession.shutdown();
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.runtime.cache.Cache;
+import org.apache.chemistry.opencmis.client.runtime.cache.CacheImpl;
+import org.apache.chemistry.opencmis.client.runtime.cache.ConcurrentCacheImpl;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.junit.Test;
+
+public class ConcurrentCacheTest {
+
+    @Test
+    public void cacheSingleObjectTest() {
+        Cache cache = createCache(100, 3600 * 1000);
+
+        String id = "1";
+        String cacheKey = "key";
+
+        CmisObject obj1 = new CmisObjectMock(id);
+        cache.put(obj1, cacheKey);
+
+        assertTrue(cache.containsId(id, cacheKey));
+        assertEquals(obj1, cache.getById(id, cacheKey));
+        assertNull(cache.getById(id, "otherKey"));
+
+        cache.putPath("/1", obj1, cacheKey);
+        assertTrue(cache.containsPath("/1", cacheKey));
+        assertEquals(obj1, cache.getByPath("/1", cacheKey));
+
+        cache.remove(id);
+        assertFalse(cache.containsId(id, cacheKey));
+        assertFalse(cache.containsPath("/1", cacheKey));
+
+        cache.put(obj1, cacheKey);
+        cache.clear();
+
+        assertFalse(cache.containsId(id, cacheKey));
+        assertNull(cache.getById(id, cacheKey));
+    }
+
+    @Test
+    public void lruTest() {
+        int cacheSize = 3;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        for (int i = 0; i < cacheSize + 1; i++) {
+            cache.put(new CmisObjectMock("id" + i), cacheKey);
+        }
+
+        assertNull(cache.getById("id0", cacheKey)); // thrown out
+        assertNotNull(cache.getById("id1", cacheKey));
+        assertNotNull(cache.getById("id2", cacheKey));
+        assertNotNull(cache.getById("id3", cacheKey));
+
+        // new entries are not evicted before older entries
+        cache.put(new CmisObjectMock("id4"), cacheKey);
+        cache.put(new CmisObjectMock("id5"), cacheKey);
+
+        assertNotNull(cache.getById("id5", cacheKey));
+        assertNotNull(cache.getById("id4", cacheKey));
+    }
+
+    @Test
+    public void ttlTest() throws InterruptedException {
+        Cache cache = createCache(10, 500);
+
+        String cacheKey = "key";
+        String id = "id";
+
+        cache.put(new CmisObjectMock(id), cacheKey);
+        assertNotNull(cache.getById(id, cacheKey));
+
+        Thread.sleep(750);
+
+        assertNull(cache.getById(id, cacheKey));
+    }
+
+    @Test
+    public void serializationTest() throws Exception {
+        int cacheSize = 10;
+        Cache cache = createCache(cacheSize, 3600 * 1000);
+
+        String cacheKey = "key";
+
+        for (int i = 0; i < cacheSize; i++) {
+            cache.put(new CmisObjectMock("id" + i), cacheKey);
+        }
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(buffer);
+        out.writeObject(cache);
+        out.close();
+
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(buffer.toByteArray()));
+        Cache cache2 = (Cache) in.readObject();
+        in.close();
+
+        assertEquals(cacheSize, cache2.getCacheSize());
+        for (int k = 0; k < cacheSize; k++) {
+            CmisObject o1 = cache.getById("id" + k, cacheKey);
+            CmisObject o2 = cache2.getById("id" + k, cacheKey);
+            assertEquals(o1.getId(), o2.getId());
+        }
+    }
+
+    @Test
+    public void concurrentAccessTest() throws Exception {
+        final int cacheSize = 500;
+        final Cache cache = createCache(cacheSize, 3600 * 1000);
+        final String cacheKey = "key";
+        final AtomicInteger errors = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int seed = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            String id = "id" + ((i * 31 + seed) % 2000);
+                            if (i % 4 == 0) {
+                                cache.put(new CmisObjectMock(id), cacheKey);
+                            } else {
+                                CmisObject obj = cache.getById(id, cacheKey);
+                                if (obj != null && !id.equals(obj.getId())) {
+                                    errors.incrementAndGet();
+                                }
+                            }
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, errors.get());
+
+        int cached = 0;
+        for (int i = 0; i < 2000; i++) {
+            if (cache.containsId("id" + i, cacheKey)) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= cacheSize);
+    }
+
+    /**
+     * Runs the same mixed read/put workload against the concurrent cache and
+     * the default cache. The workload touches more ids than the caches can
+     * hold, so both have to evict. The concurrent cache must never return a
+     * wrong object, stay within its size and hit about as often as the
+     * default cache.
+     */
+    @Test
+    public void mixedWorkloadMatchesDefaultCache() {
+        int cacheSize = 500;
+        int idCount = 1500;
+        Cache concurrent = createCache(cacheSize, 3600 * 1000);
+
+        Cache defaultCache = new CacheImpl();
+        defaultCache.initialize(null, createParameters(cacheSize, 3600 * 1000));
+
+        String cacheKey = "key";
+        Random random = new Random(42);
+        int concurrentHits = 0;
+        int defaultHits = 0;
+        int defaultMisses = 0;
+        for (int i = 0; i < 50000; i++) {
+            // most requests go to a hot set of 200 ids
+            String id = "id" + (random.nextInt(5) > 0 ? random.nextInt(200) : random.nextInt(idCount));
+
+            CmisObject expected = defaultCache.getById(id, cacheKey);
+            if (expected == null) {
+                defaultMisses++;
+                defaultCache.put(new CmisObjectMock(id), cacheKey);
+            } else {
+                defaultHits++;
+            }
+
+            CmisObject actual = concurrent.getById(id, cacheKey);
+            if (actual == null) {
+                concurrent.put(new CmisObjectMock(id), cacheKey);
+            } else {
+                assertEquals(id, actual.getId());
+                concurrentHits++;
+            }
+        }
+
+        assertTrue(defaultMisses > idCount);
+        assertTrue(concurrentHits > defaultHits * 0.95);
+
+        int cached = 0;
+        for (int i = 0; i < idCount; i++) {
+            if (concurrent.containsId("id" + i, cacheKey)) {
+                cached++;
+            }
+        }
+        assertTrue(cached <= cacheSize);
+    }
+
+    private static Cache createCache(int cacheSize, int ttl) {
+        Cache cache = new ConcurrentCacheImpl();
+        cache.initialize(null, createParameters(cacheSize, ttl));
+
+        return cache;
+    }
+
+    private static Map<String, String> createParameters(int cacheSize, int ttl) {
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.CACHE_SIZE_OBJECTS, "" + cacheSize);
+        parameters.put(SessionParameter.CACHE_TTL_OBJECTS, "" + ttl);
+
+        return parameters;
+    }
+}
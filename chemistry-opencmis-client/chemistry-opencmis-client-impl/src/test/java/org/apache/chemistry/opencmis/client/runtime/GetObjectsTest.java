@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.chemistry.opencmis.client.api.CmisObject;
+import org.apache.chemistry.opencmis.client.api.OperationContext;
+import org.apache.chemistry.opencmis.client.bindings.spi.BindingSession;
+import org.apache.chemistry.opencmis.client.bindings.spi.CmisSpi;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.SessionParameter;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.BindingType;
+import org.apache.chemistry.opencmis.commons.enums.CapabilityQuery;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.CmisVersion;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractTypeDefinition;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryCapabilitiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.spi.AclService;
+import org.apache.chemistry.opencmis.commons.spi.DiscoveryService;
+import org.apache.chemistry.opencmis.commons.spi.MultiFilingService;
+import org.apache.chemistry.opencmis.commons.spi.NavigationService;
+import org.apache.chemistry.opencmis.commons.spi.ObjectService;
+import org.apache.chemistry.opencmis.commons.spi.PolicyService;
+import org.apache.chemistry.opencmis.commons.spi.RelationshipService;
+import org.apache.chemistry.opencmis.commons.spi.RepositoryService;
+import org.apache.chemistry.opencmis.commons.spi.VersioningService;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GetObjectsTest {
+
+    private static final Pattern QUERY_PATTERN = Pattern
+            .compile("SELECT (\\S+) FROM (\\S+) WHERE cmis:objectId IN \\((.*)\\)");
+
+    static volatile CapabilityQuery queryCapability;
+    static final List<String> calls = Collections.synchronizedList(new ArrayList<String>());
+
+    @Before
+    public void setUp() {
+        calls.clear();
+    }
+
+    private static SessionImpl createSession(CapabilityQuery capability) {
+        queryCapability = capability;
+
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(SessionParameter.BINDING_TYPE, BindingType.CUSTOM.value());
+        parameters.put(SessionParameter.BINDING_SPI_CLASS, TestSpi.class.getName());
+        parameters.put(SessionParameter.REPOSITORY_ID, "test");
+
+        SessionImpl session = new SessionImpl(parameters, null, null, null);
+        session.connect();
+        return session;
+    }
+
+    private static OperationContext createContext(SessionImpl session) {
+        OperationContext context = session.createOperationContext();
+        context.setFilterString(PropertyIds.NAME);
+        context.setIncludeAcls(false);
+        context.setIncludePolicies(false);
+        context.setCacheEnabled(true);
+        return context;
+    }
+
+    private static int countCalls(String prefix) {
+        int count = 0;
+        synchronized (calls) {
+            for (String call : calls) {
+                if (call.startsWith(prefix)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void assertObjects(List<String> ids, List<CmisObject> objects) {
+        assertEquals(ids.size(), objects.size());
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i).startsWith("missing")) {
+                assertNull(objects.get(i));
+            } else {
+                assertEquals(ids.get(i), objects.get(i).getId());
+                assertEquals("name-" + ids.get(i), objects.get(i).getName());
+            }
+        }
+    }
+
+    @Test
+    public void testQuery() {
+        SessionImpl session = createSession(CapabilityQuery.METADATAONLY);
+        OperationContext context = createContext(session);
+
+        List<String> ids = Arrays.asList("doc1", "folder1", "doc2", "missing1", "doc1", "doc'3");
+        List<CmisObject> objects = session.getObjects(ids, context);
+
+        assertObjects(ids, objects);
+        assertSame(objects.get(0), objects.get(4));
+        assertEquals(2, countCalls("query:"));
+        assertEquals(1, countCalls("getObject:"));
+        assertTrue(calls.contains("getObject:missing1"));
+
+        // the existing objects come from the cache now
+        calls.clear();
+        ids = Arrays.asList("folder1", "doc2", "doc1");
+        List<CmisObject> cached = session.getObjects(ids, context);
+        assertObjects(ids, cached);
+        assertSame(objects.get(1), cached.get(0));
+        assertEquals(0, calls.size());
+    }
+
+    @Test
+    public void testQueryMixedFilter() {
+        SessionImpl session = createSession(CapabilityQuery.METADATAONLY);
+        OperationContext context = createContext(session);
+        context.setFilterString(PropertyIds.NAME + "," + PropertyIds.PATH + "," + PropertyIds.CONTENT_STREAM_LENGTH);
+
+        List<String> ids = Arrays.asList("doc1", "folder1", "doc2");
+        assertObjects(ids, session.getObjects(ids, context));
+        assertEquals(2, countCalls("query:"));
+        assertEquals(0, countCalls("getObject:"));
+
+        // each query only selects the properties of its base type
+        synchronized (calls) {
+            for (String call : calls) {
+                boolean folder = call.contains("FROM " + BaseTypeId.CMIS_FOLDER.value());
+                assertEquals(folder, call.contains(PropertyIds.PATH));
+                assertEquals(!folder, call.contains(PropertyIds.CONTENT_STREAM_LENGTH));
+            }
+        }
+    }
+
+    @Test
+    public void testQueryBatches() {
+        SessionImpl session = createSession(CapabilityQuery.BOTHCOMBINED);
+        OperationContext context = createContext(session);
+        context.setCacheEnabled(false);
+
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 250; i++) {
+            ids.add("doc" + i);
+        }
+
+        assertObjects(ids, session.getObjects(ids, context));
+        // all objects are documents, there is no folder query
+        assertEquals(3, countCalls("query:"));
+        assertEquals(0, countCalls("getObject:"));
+    }
+
+    @Test
+    public void testFanOut() {
+        SessionImpl session = createSession(CapabilityQuery.NONE);
+        OperationContext context = createContext(session);
+
+        List<String> ids = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            ids.add(i % 5 == 0 ? "missing" + i : "doc" + i);
+        }
+
+        assertObjects(ids, session.getObjects(ids, context));
+        assertEquals(0, countCalls("query:"));
+        assertEquals(20, countCalls("getObject:"));
+
+        // ACLs can't be queried
+        session = createSession(CapabilityQuery.METADATAONLY);
+        context = createContext(session);
+        context.setIncludeAcls(true);
+        calls.clear();
+
+        assertObjects(ids, session.getObjects(ids, context));
+        assertEquals(0, countCalls("query:"));
+        assertEquals(20, countCalls("getObject:"));
+    }
+
+    @Test
+    public void testFanOutFailure() {
+        SessionImpl session = createSession(CapabilityQuery.NONE);
+        OperationContext context = createContext(session);
+
+        try {
+            session.getObjects(Arrays.asList("doc1", "fail", "doc2", "doc3", "doc4", "doc5"), context);
+            fail("Exception expected!");
+        } catch (IllegalStateException e) {
+            assertEquals("fail", e.getMessage());
+        }
+    }
+
+    static ObjectData createObjectData(String id) {
+        boolean folder = id.startsWith("folder");
+
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, folder ? BaseTypeId.CMIS_FOLDER.value()
+                : BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, folder ? BaseTypeId.CMIS_FOLDER
+                .value() : BaseTypeId.CMIS_DOCUMENT.value()));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name-" + id));
+
+        ObjectDataImpl objectData = new ObjectDataImpl();
+        objectData.setProperties(properties);
+        return objectData;
+    }
+
+    static AbstractTypeDefinition createTypeDefinition(String typeId) {
+        AbstractTypeDefinition type = BaseTypeId.CMIS_FOLDER.value().equals(typeId) ? new FolderTypeDefinitionImpl()
+                : new DocumentTypeDefinitionImpl();
+        type.setId(typeId);
+        type.setQueryName(typeId);
+        type.setBaseTypeId(BaseTypeId.fromValue(typeId));
+        type.setIsQueryable(Boolean.TRUE);
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.OBJECT_ID, new PropertyIdDefinitionImpl()));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.BASE_TYPE_ID, new PropertyIdDefinitionImpl()));
+        type.addPropertyDefinition(createPropertyDefinition(PropertyIds.OBJECT_TYPE_ID,
+                new PropertyIdDefinitionImpl()));
+        for (String id : new String[] { PropertyIds.NAME, PropertyIds.CREATED_BY, PropertyIds.CREATION_DATE,
+                PropertyIds.LAST_MODIFIED_BY, PropertyIds.LAST_MODIFICATION_DATE, PropertyIds.CHANGE_TOKEN }) {
+            // the tests only need the standard property definitions to exist
+            type.addPropertyDefinition(createPropertyDefinition(id, new PropertyStringDefinitionImpl()));
+        }
+        if (type instanceof FolderTypeDefinitionImpl) {
+            type.addPropertyDefinition(createPropertyDefinition(PropertyIds.PATH, new PropertyStringDefinitionImpl()));
+        } else {
+            type.addPropertyDefinition(createPropertyDefinition(PropertyIds.CONTENT_STREAM_LENGTH,
+                    new PropertyStringDefinitionImpl()));
+        }
+        return type;
+    }
+
+    private static PropertyDefinition<?> createPropertyDefinition(String id, AbstractPropertyDefinition<?> definition) {
+        definition.setId(id);
+        definition.setQueryName(id);
+        definition.setCardinality(Cardinality.SINGLE);
+        definition.setPropertyType(definition instanceof PropertyIdDefinitionImpl ? PropertyType.ID
+                : PropertyType.STRING);
+        return definition;
+    }
+
+    /**
+     * SPI serving documents with ids starting with "doc" and folders with ids
+     * starting with "folder".
+     */
+    public static class TestSpi implements CmisSpi {
+
+        public TestSpi(BindingSession session) {
+        }
+
+        private static <T> T createService(Class<T> serviceInterface) {
+            return serviceInterface.cast(Proxy.newProxyInstance(serviceInterface.getClassLoader(),
+                    new Class<?>[] { serviceInterface }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            String name = method.getName();
+                            if ("getRepositoryInfo".equals(name)) {
+                                RepositoryCapabilitiesImpl capabilities = new RepositoryCapabilitiesImpl();
+                                capabilities.setCapabilityQuery(queryCapability);
+
+                                RepositoryInfoImpl info = new RepositoryInfoImpl();
+                                info.setId((String) args[0]);
+                                info.setCmisVersion(CmisVersion.CMIS_1_1);
+                                info.setCapabilities(capabilities);
+                                return info;
+                            } else if ("getTypeDefinition".equals(name)) {
+                                return createTypeDefinition((String) args[1]);
+                            } else if ("getObject".equals(name)) {
+                                String id = (String) args[1];
+                                calls.add("getObject:" + id);
+                                if ("fail".equals(id)) {
+                                    throw new IllegalStateException("fail");
+                                }
+                                if (!id.startsWith("doc") && !id.startsWith("folder")) {
+                                    throw new CmisObjectNotFoundException(id);
+                                }
+                                return createObjectData(id);
+                            } else if ("query".equals(name)) {
+                                calls.add("query:" + args[1]);
+                                Matcher matcher = QUERY_PATTERN.matcher((String) args[1]);
+                                assertTrue(matcher.find());
+                                String prefix = BaseTypeId.CMIS_FOLDER.value().equals(matcher.group(2)) ? "folder"
+                                        : "doc";
+
+                                // like a repository, reject properties the type doesn't define
+                                AbstractTypeDefinition type = createTypeDefinition(matcher.group(2));
+                                for (String propertyId : matcher.group(1).split(",")) {
+                                    if (!type.getPropertyDefinitions().containsKey(propertyId)) {
+                                        throw new CmisInvalidArgumentException(propertyId);
+                                    }
+                                }
+
+                                List<ObjectData> objects = new ArrayList<ObjectData>();
+                                for (String id : matcher.group(3).split(",")) {
+                                    id = id.substring(1, id.length() - 1).replace("\\'", "'");
+                                    if (id.startsWith(prefix)) {
+                                        objects.add(createObjectData(id));
+                                    }
+                                }
+
+                                ObjectListImpl result = new ObjectListImpl();
+                                result.setObjects(objects);
+                                result.setHasMoreItems(Boolean.FALSE);
+                                return result;
+                            } else if ("close".equals(name) || "clearAllCaches".equals(name)) {
+                                return null;
+                            }
+                            throw new UnsupportedOperationException(name);
+                        }
+                    }));
+        }
+
+        public RepositoryService getRepositoryService() {
+            return createService(RepositoryService.class);
+        }
+
+        public NavigationService getNavigationService() {
+            return createService(NavigationService.class);
+        }
+
+        public ObjectService getObjectService() {
+            return createService(ObjectService.class);
+        }
+
+        public VersioningService getVersioningService() {
+            return createService(VersioningService.class);
+        }
+
+        public RelationshipService getRelationshipService() {
+            return createService(RelationshipService.class);
+        }
+
+        public DiscoveryService getDiscoveryService() {
+            return createService(DiscoveryService.class);
+        }
+
+        public MultiFilingService getMultiFilingService() {
+            return createService(MultiFilingService.class);
+        }
+
+        public AclService getAclService() {
+            return createService(AclService.class);
+        }
+
+        public PolicyService getPolicyService() {
+            return createService(PolicyService.class);
+        }
+
+        public void clearAllCaches() {
+        }
+
+        public void clearRepositoryCache(String repositoryId) {
+        }
+
+        public void close() {
+        }
+    }
+}
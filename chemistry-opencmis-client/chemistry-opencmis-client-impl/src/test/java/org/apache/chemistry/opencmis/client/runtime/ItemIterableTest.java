@@ -25,6 +25,8 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Properties;
@@ -55,10 +57,23 @@ public class ItemIterableTest {
     private final String[] data0 = {};
 
     private ItemIterable<String> getIterable(final String[] data, long pageSize) {
-        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize) {
+        return getIterable(data, pageSize, 0, null);
+    }
+
+    private ItemIterable<String> getIterable(final String[] data, long pageSize, int prefetchPages,
+            final List<Long> fetches) {
+        return new CollectionIterable<String>(new AbstractPageFetcher<String>(pageSize, prefetchPages) {
 
             @Override
             protected Page<String> fetchPage(long skipCount) {
+                if (fetches != null) {
+                    fetches.add(skipCount);
+                    if (fetches.contains(-skipCount - 1)) {
+                        fetches.remove(Long.valueOf(-skipCount - 1));
+                        throw new IllegalStateException("Simulated failure at " + skipCount);
+                    }
+                }
+
                 boolean hasMoreItems = true;
                 List<String> page = new ArrayList<String>();
 
@@ -301,4 +316,78 @@ public class ItemIterableTest {
         assertEquals(Math.min(data.length - skipCount, pageSize), count);
     }
 
+    @Test
+    public void loopAllPrefetch() {
+        String[] data100 = new String[100];
+        for (int i = 0; i < data100.length; i++) {
+            data100[i] = "A" + i;
+        }
+
+        for (int prefetchPages = 1; prefetchPages <= 3; prefetchPages++) {
+            for (int pageSize : new int[] { 1, 7, 10, 99, 100, 1000 }) {
+                List<Long> fetches = Collections.synchronizedList(new ArrayList<Long>());
+
+                int count = 0;
+                for (String s : getIterable(data100, pageSize, prefetchPages, fetches)) {
+                    assertEquals("A" + count, s);
+                    count++;
+                }
+                assertEquals(data100.length, count);
+
+                // each page has been fetched exactly once
+                assertEquals((data100.length + pageSize - 1) / pageSize, fetches.size());
+                assertEquals(fetches.size(), new HashSet<Long>(fetches).size());
+            }
+        }
+
+        List<Long> fetches = Collections.synchronizedList(new ArrayList<Long>());
+        assertFalse(getIterable(data0, 5, 2, fetches).iterator().hasNext());
+        assertEquals(1, fetches.size());
+    }
+
+    @Test
+    public void prefetchIsBounded() throws Exception {
+        String[] data100 = new String[100];
+        for (int i = 0; i < data100.length; i++) {
+            data100[i] = "A" + i;
+        }
+
+        List<Long> fetches = Collections.synchronizedList(new ArrayList<Long>());
+        Iterator<String> iterator = getIterable(data100, 10, 2, fetches).iterator();
+        assertEquals("A0", iterator.next());
+
+        // the current page plus two pages ahead
+        for (int i = 0; i < 100 && fetches.size() < 3; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+        assertEquals(3, fetches.size());
+
+        // page iterables don't prefetch
+        fetches.clear();
+        for (String s : getIterable(data100, 10, 2, fetches).getPage()) {
+            assertNotNull(s);
+        }
+        Thread.sleep(50);
+        assertEquals(1, fetches.size());
+    }
+
+    @Test
+    public void prefetchFailure() {
+        String[] data30 = new String[30];
+        for (int i = 0; i < data30.length; i++) {
+            data30[i] = "A" + i;
+        }
+
+        // the first (background) fetch at skip count 10 fails
+        List<Long> fetches = Collections.synchronizedList(new ArrayList<Long>());
+        fetches.add(-11L);
+
+        int count = 0;
+        for (String s : getIterable(data30, 10, 2, fetches)) {
+            assertEquals("A" + count, s);
+            count++;
+        }
+        assertEquals(data30.length, count);
+    }
 }
@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ContentStreamImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PartialContentStreamImpl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ContentDownloaderTest {
+
+    private File file;
+
+    /**
+     * Simulated repository document. <code>failures</code> contains the
+     * offsets of requests that fail once, <code>shortChunks</code> the offsets
+     * of requests that return too few bytes once and
+     * <code>ignoredRanges</code> the offsets of requests that return the whole
+     * content. Streams are
+     * delivered slowly if <code>slow</code> is set.
+     */
+    private static class Repository {
+        final byte[] content;
+        final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+        final List<Long> failures = Collections.synchronizedList(new ArrayList<Long>());
+        final List<Long> shortChunks = Collections.synchronizedList(new ArrayList<Long>());
+        boolean rangesSupported = true;
+        final List<Long> ignoredRanges = Collections.synchronizedList(new ArrayList<Long>());
+        boolean slow;
+
+        Repository(int length) {
+            content = new byte[length];
+            for (int i = 0; i < length; i++) {
+                content[i] = (byte) (i % 251);
+            }
+        }
+
+        Session createSession() {
+            final Document document = (Document) Proxy.newProxyInstance(Document.class.getClassLoader(),
+                    new Class<?>[] { Document.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            String name = method.getName();
+                            if ("getContentStreamLength".equals(name)) {
+                                return Long.valueOf(content.length);
+                            } else if ("getContentStream".equals(name) && args.length == 2) {
+                                long offset = (args[0] == null ? 0 : ((BigInteger) args[0]).longValue());
+                                long length = (args[1] == null ? content.length - offset : ((BigInteger) args[1])
+                                        .longValue());
+                                requests.add(offset + ":" + args[1]);
+
+                                if (failures.remove(Long.valueOf(offset))) {
+                                    throw new CmisConnectionException("Connection reset");
+                                }
+                                if (shortChunks.remove(Long.valueOf(offset))) {
+                                    length = length / 2;
+                                }
+
+                                boolean full = !rangesSupported || (offset == 0 && args[1] == null)
+                                        || ignoredRanges.contains(Long.valueOf(offset));
+                                int start = (full ? 0 : (int) offset);
+                                int end = (full ? content.length : (int) Math.min(content.length, offset + length));
+                                InputStream stream = new ByteArrayInputStream(content, start, end - start);
+                                if (slow) {
+                                    stream = new FilterInputStream(stream) {
+                                        @Override
+                                        public int read(byte[] b, int off, int len) throws IOException {
+                                            // like a socket read, an interrupt doesn't stop the wait
+                                            LockSupport.parkNanos(100000);
+                                            return super.read(b, off, Math.min(len, 10));
+                                        }
+                                    };
+                                }
+
+                                if (full) {
+                                    return new ContentStreamImpl("test.bin", BigInteger.valueOf(content.length),
+                                            "application/octet-stream", stream);
+                                }
+                                return new PartialContentStreamImpl("test.bin", BigInteger.valueOf(end - start),
+                                        "application/octet-stream", stream);
+                            }
+                            throw new UnsupportedOperationException(name);
+                        }
+                    });
+
+            return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+                    new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if ("getObject".equals(method.getName())) {
+                                return document;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("opencmis", ".bin");
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private byte[] readFile() throws IOException {
+        byte[] result = new byte[(int) file.length()];
+        InputStream stream = new FileInputStream(file);
+        try {
+            int pos = 0;
+            int b;
+            while (pos < result.length && (b = stream.read(result, pos, result.length - pos)) > -1) {
+                pos += b;
+            }
+        } finally {
+            stream.close();
+        }
+        return result;
+    }
+
+    private ContentDownloader createDownloader(Repository repository) {
+        ContentDownloader downloader = new ContentDownloader(repository.createSession(), "doc");
+        downloader.setChunkSize(100);
+        downloader.setThreads(3);
+        downloader.setRetryDelay(0);
+        return downloader;
+    }
+
+    @Test
+    public void testDownload() throws Exception {
+        for (int length : new int[] { 0, 1, 100, 101, 999, 1000 }) {
+            Repository repository = new Repository(length);
+            final long[] last = new long[1];
+
+            ContentDownloader downloader = createDownloader(repository);
+            downloader.setProgressListener(new ContentDownloader.ProgressListener() {
+                public void progress(long downloaded, long total) {
+                    synchronized (last) {
+                        last[0] = Math.max(last[0], downloaded);
+                    }
+                }
+            });
+
+            assertEquals(length, downloader.download(file));
+            assertArrayEquals(repository.content, readFile());
+            assertEquals(length, last[0]);
+            assertEquals(length > 100, downloader.isRangesSupported());
+            assertEquals(Math.max(1, (length + 99) / 100), repository.requests.size());
+        }
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        Repository repository = new Repository(1000);
+        repository.failures.add(Long.valueOf(300));
+        repository.shortChunks.add(Long.valueOf(0));
+        repository.shortChunks.add(Long.valueOf(900));
+
+        ContentDownloader downloader = createDownloader(repository);
+        downloader.setMaxRetries(1);
+        downloader.setExpectedDigest("SHA-256", MessageDigest.getInstance("SHA-256").digest(repository.content));
+
+        assertEquals(1000, downloader.download(file));
+        assertArrayEquals(repository.content, readFile());
+        assertEquals(13, repository.requests.size());
+    }
+
+    @Test
+    public void testRetriesExhausted() throws Exception {
+        Repository repository = new Repository(1000);
+        repository.failures.add(Long.valueOf(500));
+        repository.failures.add(Long.valueOf(500));
+
+        ContentDownloader downloader = createDownloader(repository);
+        downloader.setMaxRetries(1);
+
+        try {
+            downloader.download(file);
+            fail("Exception expected!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRangesIgnored() throws Exception {
+        Repository repository = new Repository(1000);
+        repository.rangesSupported = false;
+
+        ContentDownloader downloader = createDownloader(repository);
+        assertEquals(1000, downloader.download(file));
+        assertArrayEquals(repository.content, readFile());
+        assertFalse(downloader.isRangesSupported());
+        assertEquals(1, repository.requests.size());
+    }
+
+    @Test
+    public void testRangeIgnoredWhileDownloading() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Repository repository = new Repository(10000);
+            repository.ignoredRanges.add(Long.valueOf(100));
+            repository.slow = true;
+
+            ContentDownloader downloader = createDownloader(repository);
+            downloader.setThreads(4);
+            downloader.setMaxRetries(0);
+
+            // the other workers are stopped before the whole content is
+            // written again
+            assertEquals(10000, downloader.download(file));
+            assertArrayEquals(repository.content, readFile());
+            assertFalse(downloader.isRangesSupported());
+        }
+    }
+
+    @Test
+    public void testDigestMismatch() throws Exception {
+        Repository repository = new Repository(500);
+
+        ContentDownloader downloader = createDownloader(repository);
+        downloader.setExpectedDigest("SHA-256", new byte[32]);
+
+        try {
+            downloader.download(file);
+            fail("Exception expected!");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("SHA-256"));
+        }
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.client.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.client.api.Document;
+import org.apache.chemistry.opencmis.client.api.Session;
+import org.apache.chemistry.opencmis.client.runtime.ObjectIdImpl;
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConnectionException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.junit.Test;
+
+public class ContentUploaderTest {
+
+    /**
+     * Simulated repository document. Failures are configured per call number
+     * of setContentStream/appendContentStream: "before" fails without storing
+     * the chunk, "after" stores the chunk and then fails.
+     */
+    private static class Repository {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final List<String> failures = new ArrayList<String>();
+        boolean complete;
+        int calls;
+
+        Repository() {
+            content.write(42); // old content
+        }
+
+        Session createSession() {
+            final Document document = (Document) Proxy.newProxyInstance(Document.class.getClassLoader(),
+                    new Class<?>[] { Document.class }, new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) throws Exception {
+                            String name = method.getName();
+                            if ("getId".equals(name)) {
+                                return "doc";
+                            } else if ("getName".equals(name)) {
+                                return "doc.bin";
+                            } else if ("refresh".equals(name)) {
+                                return null;
+                            } else if ("getContentStreamLength".equals(name)) {
+                                return Long.valueOf(content.size());
+                            } else if ("setContentStream".equals(name) || "appendContentStream".equals(name)) {
+                                String failure = (calls < failures.size() ? failures.get(calls) : null);
+                                calls++;
+                                if ("before".equals(failure)) {
+                                    throw new CmisConnectionException("before");
+                                }
+
+                                ContentStream contentStream = (ContentStream) args[0];
+                                if ("setContentStream".equals(name)) {
+                                    assertTrue((Boolean) args[1]);
+                                    content.reset();
+                                } else {
+                                    complete = (Boolean) args[1];
+                                }
+                                InputStream stream = contentStream.getStream();
+                                int b;
+                                while ((b = stream.read()) > -1) {
+                                    content.write(b);
+                                }
+
+                                if ("after".equals(failure)) {
+                                    throw new CmisConnectionException("after");
+                                }
+                                return new ObjectIdImpl("doc");
+                            }
+                            throw new UnsupportedOperationException(name);
+                        }
+                    });
+
+            return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+                    new InvocationHandler() {
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            if ("getObject".equals(method.getName())) {
+                                return document;
+                            }
+                            throw new UnsupportedOperationException(method.getName());
+                        }
+                    });
+        }
+    }
+
+    private static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i % 251);
+        }
+        return content;
+    }
+
+    @Test
+    public void testUpload() throws Exception {
+        for (int length : new int[] { 0, 1, 99, 100, 101, 1000 }) {
+            Repository repository = new Repository();
+            byte[] content = createContent(length);
+
+            final List<Long> progress = new ArrayList<Long>();
+            ContentUploader uploader = new ContentUploader(repository.createSession(), "doc");
+            uploader.setChunkSize(100);
+            uploader.setProgressListener(new ContentUploader.ProgressListener() {
+                public void progress(long uploaded, long total) {
+                    assertEquals(-1, total);
+                    progress.add(uploaded);
+                }
+            });
+            uploader.upload(new ByteArrayInputStream(content));
+
+            assertArrayEquals(content, repository.content.toByteArray());
+            assertEquals(length, uploader.getConfirmedOffset());
+            assertEquals(Math.max(1, (length + 99) / 100), repository.calls);
+            assertEquals(repository.calls, progress.size());
+            assertEquals(Long.valueOf(length), progress.get(progress.size() - 1));
+            assertEquals(length > 100, repository.complete);
+        }
+    }
+
+    @Test
+    public void testUploadFile() throws Exception {
+        byte[] content = createContent(550);
+        File file = File.createTempFile("opencmis", ".bin");
+        try {
+            FileOutputStream out = new FileOutputStream(file);
+            out.write(content);
+            out.close();
+
+            Repository repository = new Repository();
+            final List<Long> totals = new ArrayList<Long>();
+            ContentUploader uploader = new ContentUploader(repository.createSession(), "doc");
+            uploader.setChunkSize(100);
+            uploader.setProgressListener(new ContentUploader.ProgressListener() {
+                public void progress(long uploaded, long total) {
+                    totals.add(total);
+                }
+            });
+            uploader.upload(file);
+
+            assertArrayEquals(content, repository.content.toByteArray());
+            assertEquals(Long.valueOf(550), totals.get(0));
+            assertTrue(repository.complete);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRetry() throws Exception {
+        Repository repository = new Repository();
+        repository.failures.add("before");
+        repository.failures.add(null);
+        repository.failures.add("after");
+        repository.failures.add("before");
+        repository.failures.add("before");
+
+        byte[] content = createContent(500);
+        ContentUploader uploader = new ContentUploader(repository.createSession(), "doc");
+        uploader.setChunkSize(100);
+        uploader.setRetryDelay(0);
+        uploader.setMaxRetries(2);
+        uploader.upload(new ByteArrayInputStream(content));
+
+        // the chunk stored before the failure has not been sent again
+        assertArrayEquals(content, repository.content.toByteArray());
+        assertTrue(repository.complete);
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        Repository repository = new Repository();
+        repository.failures.add(null);
+        repository.failures.add(null);
+        repository.failures.add("before");
+
+        byte[] content = createContent(500);
+        ContentUploader uploader = new ContentUploader(repository.createSession(), "doc");
+        uploader.setChunkSize(100);
+        uploader.setMaxRetries(0);
+        try {
+            uploader.upload(new ByteArrayInputStream(content));
+            fail("Exception expected!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+        assertEquals(200, uploader.getConfirmedOffset());
+        assertEquals(200, repository.content.size());
+
+        // a new uploader continues from the confirmed offset
+        long offset = uploader.getConfirmedOffset();
+        uploader = new ContentUploader(repository.createSession(), "doc");
+        uploader.setChunkSize(100);
+        uploader.resume(new ByteArrayInputStream(content), offset);
+
+        assertArrayEquals(content, repository.content.toByteArray());
+        assertEquals(6, repository.calls);
+        assertTrue(repository.complete);
+    }
+
+    @Test
+    public void testResumeAfterStoredChunk() throws Exception {
+        Repository repository = new Repository();
+        repository.failures.add(null);
+        repository.failures.add("after");
+
+        byte[] content = createContent(500);
+        ContentUploader uploader = new ContentUploader(repository.createSession(), "doc");
+        uploader.setChunkSize(100);
+        uploader.setMaxRetries(0);
+        try {
+            uploader.upload(new ByteArrayInputStream(content));
+            fail("Exception expected!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+        assertEquals(100, uploader.getConfirmedOffset());
+        assertEquals(200, repository.content.size());
+
+        // the chunk that reached the repository is not appended again
+        long offset = uploader.getConfirmedOffset();
+        uploader = new ContentUploader(repository.createSession(), "doc");
+        uploader.setChunkSize(100);
+        uploader.resume(new ByteArrayInputStream(content), offset);
+
+        assertArrayEquals(content, repository.content.toByteArray());
+        assertEquals(5, repository.calls);
+        assertTrue(repository.complete);
+    }
+
+    @Test
+    public void testResumeBeforeFirstChunk() throws Exception {
+        Repository repository = new Repository();
+        repository.failures.add("before");
+
+        byte[] content = createContent(500);
+        ContentUploader uploader = new ContentUploader(repository.createSession(), "doc");
+        uploader.setChunkSize(100);
+        uploader.setMaxRetries(0);
+        try {
+            uploader.upload(new ByteArrayInputStream(content));
+            fail("Exception expected!");
+        } catch (CmisConnectionException e) {
+            // expected
+        }
+        assertEquals(0, uploader.getConfirmedOffset());
+
+        // an offset the repository doesn't confirm is rejected
+        uploader = new ContentUploader(repository.createSession(), "doc");
+        uploader.setChunkSize(100);
+        try {
+            uploader.resume(new ByteArrayInputStream(content), 100);
+            fail("Exception expected!");
+        } catch (CmisConstraintException e) {
+            // expected
+        }
+        assertEquals(1, repository.content.size());
+
+        // the old content is replaced, not appended to
+        uploader.resume(new ByteArrayInputStream(content), 0);
+
+        assertArrayEquals(content, repository.content.toByteArray());
+        assertTrue(repository.complete);
+    }
+}
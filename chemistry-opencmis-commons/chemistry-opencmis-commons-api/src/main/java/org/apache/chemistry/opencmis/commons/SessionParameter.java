@@ -206,6 +206,39 @@ package org.apache.chemistry.opencmis.commons;
  * <td>JVM default</td>
  * </tr>
  * <tr>
+ * <td>{@link #HTTP_MAX_CONNECTIONS}</td>
+ * <td>Maximum number of pooled HTTP connections (Apache HTTP client invoker only)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>4 * {@link #HTTP_MAX_CONNECTIONS_PER_ROUTE}</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_MAX_CONNECTIONS_PER_ROUTE}</td>
+ * <td>Maximum number of pooled HTTP connections per host (Apache HTTP client invoker only)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>number</td>
+ * <td>no</td>
+ * <td>system property <code>http.maxConnections</code> or 5</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_IDLE_TIMEOUT}</td>
+ * <td>Time after which idle pooled HTTP connections are closed (Apache HTTP client invoker only)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>time in milliseconds</td>
+ * <td>no</td>
+ * <td>never</td>
+ * </tr>
+ * <tr>
+ * <td>{@link #HTTP_KEEP_ALIVE}</td>
+ * <td>How long a HTTP connection is kept alive if the server doesn't send a
+ * keep-alive timeout (Apache HTTP client invoker only)</td>
+ * <td>AtomPub, Browser</td>
+ * <td>time in milliseconds</td>
+ * <td>no</td>
+ * <td>indefinitely</td>
+ * </tr>
+ * <tr>
  * <td colspan="6"><b>Cache settings</b></td>
  * </tr>
  * <tr>
@@ -581,6 +614,11 @@ public final class SessionParameter {
     public static final String CONNECT_TIMEOUT = "org.apache.chemistry.opencmis.binding.connecttimeout";
     public static final String READ_TIMEOUT = "org.apache.chemistry.opencmis.binding.readtimeout";
 
+    public static final String HTTP_MAX_CONNECTIONS = "org.apache.chemistry.opencmis.binding.http.maxconnections";
+    public static final String HTTP_MAX_CONNECTIONS_PER_ROUTE = "org.apache.chemistry.opencmis.binding.http.maxconnectionsperroute";
+    public static final String HTTP_IDLE_TIMEOUT = "org.apache.chemistry.opencmis.binding.http.idletimeout";
+    public static final String HTTP_KEEP_ALIVE = "org.apache.chemistry.opencmis.binding.http.keepalive";
+
     public static final String PROXY_USER = "org.apache.chemistry.opencmis.binding.proxyuser";
     public static final String PROXY_PASSWORD = "org.apache.chemistry.opencmis.binding.proxypassword";
 
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.server;
+
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+
+/**
+ * Optional extension of a {@link CmisService} that can provide the
+ * {@link ObjectInfo} objects for a whole page of objects at once.
+ * <p>
+ * The AtomPub binding calls {@link #prepareObjectInfos(String, List, Boolean)}
+ * with the objects of a feed before it renders the entries. Afterwards
+ * {@link CmisService#getObjectInfo(String, String)} should return the prepared
+ * object infos without contacting the repository again.
+ */
+public interface BulkObjectInfoHandler {
+
+    /**
+     * Prepares the object infos for the given objects.
+     * 
+     * @param repositoryId
+     *            the repository id
+     * @param objects
+     *            the objects as returned by the service call
+     * @param isFiled
+     *            <code>Boolean.TRUE</code> if all objects are known to have a
+     *            parent folder (for example the children of a folder),
+     *            <code>null</code> if this is unknown
+     */
+    void prepareObjectInfos(String repositoryId, List<ObjectData> objects, Boolean isFiled);
+}
@@ -20,10 +20,14 @@ package org.apache.chemistry.opencmis.commons.impl;
 
 import static org.apache.chemistry.opencmis.commons.impl.JSONConstants.*;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.GregorianCalendar;
@@ -159,7 +163,12 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionCont
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeMutabilityImpl;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONAware;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONValue;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONPullParser;
 
 /**
  * OpenCMIS objects to JSON converter.
@@ -1475,6 +1484,157 @@ public final class JSONConverter {
         return result;
     }
 
+    // -----------------------------------------------------------------
+    // The following converters produce the same JSON as the converters above,
+    // but the list entries are only converted while the result is written.
+    // Each entry is dropped right after it has been written, so the JSON tree
+    // of the complete list never exists in memory.
+
+    /**
+     * Converts a query object list. The objects are converted while the result
+     * is written.
+     */
+    public static JSONObject convertStreaming(final ObjectList list, final TypeCache typeCache,
+            final PropertyMode propertyMode, final boolean succinct) {
+        if (list == null) {
+            return null;
+        }
+
+        JSONObject result = new JSONObject();
+
+        JSONStreamAware objects = new StreamingArray<ObjectData>(list.getObjects()) {
+            @Override
+            protected Object convertItem(ObjectData object) {
+                return convert(object, typeCache, propertyMode, succinct);
+            }
+        };
+
+        if (propertyMode == PropertyMode.QUERY) {
+            result.put(JSON_QUERYRESULTLIST_RESULTS, objects);
+
+            setIfNotNull(JSON_QUERYRESULTLIST_HAS_MORE_ITEMS, list.hasMoreItems(), result);
+            setIfNotNull(JSON_QUERYRESULTLIST_NUM_ITEMS, list.getNumItems(), result);
+        } else {
+            result.put(JSON_OBJECTLIST_OBJECTS, objects);
+
+            setIfNotNull(JSON_OBJECTLIST_HAS_MORE_ITEMS, list.hasMoreItems(), result);
+            setIfNotNull(JSON_OBJECTLIST_NUM_ITEMS, list.getNumItems(), result);
+        }
+
+        convertExtension(list, result);
+
+        return result;
+    }
+
+    /**
+     * Converts a folder list. The objects are converted while the result is
+     * written.
+     */
+    public static JSONObject convertStreaming(final ObjectInFolderList objectInFolderList,
+            final TypeCache typeCache, final boolean succinct) {
+        if (objectInFolderList == null) {
+            return null;
+        }
+
+        JSONObject result = new JSONObject();
+
+        if (objectInFolderList.getObjects() != null) {
+            result.put(JSON_OBJECTINFOLDERLIST_OBJECTS,
+                    new StreamingArray<ObjectInFolderData>(objectInFolderList.getObjects()) {
+                        @Override
+                        protected Object convertItem(ObjectInFolderData object) {
+                            return convert(object, typeCache, succinct);
+                        }
+                    });
+        }
+
+        setIfNotNull(JSON_OBJECTINFOLDERLIST_HAS_MORE_ITEMS, objectInFolderList.hasMoreItems(), result);
+        setIfNotNull(JSON_OBJECTINFOLDERLIST_NUM_ITEMS, objectInFolderList.getNumItems(), result);
+
+        convertExtension(objectInFolderList, result);
+
+        return result;
+    }
+
+    /**
+     * Converts a list of folder containers. The containers are converted while
+     * the result is written.
+     */
+    public static JSONStreamAware convertStreaming(final List<ObjectInFolderContainer> containers,
+            final TypeCache typeCache, final boolean succinct) {
+        return new StreamingArray<ObjectInFolderContainer>(containers) {
+            @Override
+            protected Object convertItem(ObjectInFolderContainer container) {
+                return convertStreaming(container, typeCache, succinct);
+            }
+        };
+    }
+
+    private static JSONObject convertStreaming(final ObjectInFolderContainer container, final TypeCache typeCache,
+            final boolean succinct) {
+        if (container == null) {
+            return null;
+        }
+
+        JSONObject result = new JSONObject();
+        result.put(JSON_OBJECTINFOLDERCONTAINER_OBJECT, convert(container.getObject(), typeCache, succinct));
+
+        if ((container.getChildren() != null) && (container.getChildren().size() > 0)) {
+            result.put(JSON_OBJECTINFOLDERCONTAINER_CHILDREN,
+                    convertStreaming(container.getChildren(), typeCache, succinct));
+        }
+
+        convertExtension(container, result);
+
+        return result;
+    }
+
+    /**
+     * JSON array converting its items one by one while it is written.
+     */
+    private abstract static class StreamingArray<T> implements JSONStreamAware, JSONAware {
+        private final Collection<T> items;
+
+        public StreamingArray(Collection<T> items) {
+            this.items = items;
+        }
+
+        protected abstract Object convertItem(T item);
+
+        public void writeJSONString(Writer out) throws IOException {
+            out.write('[');
+            if (items != null) {
+                boolean first = true;
+                for (T item : items) {
+                    if (first) {
+                        first = false;
+                    } else {
+                        out.write(',');
+                    }
+
+                    JSONValue.writeJSONString(convertItem(item), out);
+                }
+            }
+            out.write(']');
+        }
+
+        public String toJSONString() {
+            StringWriter out = new StringWriter();
+            try {
+                writeJSONString(out);
+            } catch (IOException e) {
+                // StringWriter does not throw IOExceptions
+                throw new CmisRuntimeException(e.getMessage(), e);
+            }
+            return out.toString();
+        }
+
+        @Override
+        public String toString() {
+            return toJSONString();
+        }
+    }
+
     /**
      * Converts an object parent.
      */
@@ -2508,7 +2668,53 @@ public final class JSONConverter {
         result.setObjects(objects);
 
         if (isQueryResult) {
-            result.setHasMoreItems(getBoolean(json, JSON_QUERYRESULTLIST_NUM_ITEMS));
+            result.setHasMoreItems(getBoolean(json, JSON_QUERYRESULTLIST_HAS_MORE_ITEMS));
+            result.setNumItems(getInteger(json, JSON_QUERYRESULTLIST_NUM_ITEMS));
+            convertExtension(json, result, QUERYRESULTLIST_KEYS);
+        } else {
+            result.setHasMoreItems(getBoolean(json, JSON_OBJECTLIST_HAS_MORE_ITEMS));
+            result.setNumItems(getInteger(json, JSON_OBJECTLIST_NUM_ITEMS));
+            convertExtension(json, result, OBJECTLIST_KEYS);
+        }
+
+        return result;
+    }
+
+    // -----------------------------------------------------------------
+    // The following converters read the list directly from a pull parser.
+    // Only one list entry at a time is turned into a JSON tree, so the
+    // complete response never has to be held in memory as maps and lists.
+
+    /**
+     * Reads and converts an object list.
+     */
+    public static ObjectList convertObjectList(final JSONPullParser parser, final TypeCache typeCache,
+            final boolean isQueryResult) throws IOException, JSONParseException {
+        requireEvent(parser, JSONPullParser.START_OBJECT);
+
+        ObjectListImpl result = new ObjectListImpl();
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+
+        String objectsKey = isQueryResult ? JSON_QUERYRESULTLIST_RESULTS : JSON_OBJECTLIST_OBJECTS;
+        while (parser.next() == JSONPullParser.KEY) {
+            String key = parser.getKey();
+            if (parser.next() == JSONPullParser.START_ARRAY && objectsKey.equals(key)) {
+                while (parser.next() != JSONPullParser.END_ARRAY) {
+                    Map<String, Object> jsonObject = getMap(parser.readValue());
+                    if (jsonObject != null) {
+                        objects.add(convertObject(jsonObject, typeCache));
+                    }
+                }
+            } else {
+                json.put(key, parser.readValue());
+            }
+        }
+
+        result.setObjects(objects);
+
+        if (isQueryResult) {
+            result.setHasMoreItems(getBoolean(json, JSON_QUERYRESULTLIST_HAS_MORE_ITEMS));
             result.setNumItems(getInteger(json, JSON_QUERYRESULTLIST_NUM_ITEMS));
             convertExtension(json, result, QUERYRESULTLIST_KEYS);
         } else {
@@ -2520,6 +2726,96 @@ public final class JSONConverter {
         return result;
     }
 
+    /**
+     * Reads and converts an object in folder list.
+     */
+    public static ObjectInFolderList convertObjectInFolderList(final JSONPullParser parser, final TypeCache typeCache)
+            throws IOException, JSONParseException {
+        requireEvent(parser, JSONPullParser.START_OBJECT);
+
+        ObjectInFolderListImpl result = new ObjectInFolderListImpl();
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+
+        while (parser.next() == JSONPullParser.KEY) {
+            String key = parser.getKey();
+            if (parser.next() == JSONPullParser.START_ARRAY && JSON_OBJECTINFOLDERLIST_OBJECTS.equals(key)) {
+                while (parser.next() != JSONPullParser.END_ARRAY) {
+                    Map<String, Object> jsonObject = getMap(parser.readValue());
+                    if (jsonObject != null) {
+                        objects.add(convertObjectInFolder(jsonObject, typeCache));
+                    }
+                }
+            } else {
+                json.put(key, parser.readValue());
+            }
+        }
+
+        result.setObjects(objects);
+        result.setHasMoreItems(getBoolean(json, JSON_OBJECTINFOLDERLIST_HAS_MORE_ITEMS));
+        result.setNumItems(getInteger(json, JSON_OBJECTINFOLDERLIST_NUM_ITEMS));
+
+        convertExtension(json, result, OBJECTINFOLDERLIST_KEYS);
+
+        return result;
+    }
+
+    /**
+     * Reads and converts a descendants tree.
+     */
+    public static List<ObjectInFolderContainer> convertDescendants(final JSONPullParser parser,
+            final TypeCache typeCache) throws IOException, JSONParseException {
+        requireEvent(parser, JSONPullParser.START_ARRAY);
+
+        return readDescendants(parser, typeCache);
+    }
+
+    private static List<ObjectInFolderContainer> readDescendants(final JSONPullParser parser,
+            final TypeCache typeCache) throws IOException, JSONParseException {
+        List<ObjectInFolderContainer> result = new ArrayList<ObjectInFolderContainer>();
+
+        while (parser.next() != JSONPullParser.END_ARRAY) {
+            if (parser.getEvent() == JSONPullParser.START_OBJECT) {
+                result.add(readDescendant(parser, typeCache));
+            } else {
+                parser.skipValue();
+            }
+        }
+
+        return result;
+    }
+
+    private static ObjectInFolderContainer readDescendant(final JSONPullParser parser, final TypeCache typeCache)
+            throws IOException, JSONParseException {
+        ObjectInFolderContainerImpl result = new ObjectInFolderContainerImpl();
+        List<ObjectInFolderContainer> containerList = new ArrayList<ObjectInFolderContainer>();
+        Map<String, Object> json = new LinkedHashMap<String, Object>();
+
+        while (parser.next() == JSONPullParser.KEY) {
+            String key = parser.getKey();
+            if (parser.next() == JSONPullParser.START_ARRAY && JSON_OBJECTINFOLDERCONTAINER_CHILDREN.equals(key)) {
+                containerList.addAll(readDescendants(parser, typeCache));
+            } else {
+                json.put(key, parser.readValue());
+            }
+        }
+
+        result.setObject(convertObjectInFolder(getMap(json.get(JSON_OBJECTINFOLDERCONTAINER_OBJECT)), typeCache));
+        result.setChildren(containerList);
+
+        convertExtension(json, result, OBJECTINFOLDERCONTAINER_KEYS);
+
+        return result;
+    }
+
+    private static void requireEvent(final JSONPullParser parser, final int event) throws IOException,
+            JSONParseException {
+        if (parser.next() != event) {
+            throw new JSONParseException(parser.getPosition(), JSONParseException.ERROR_UNEXPECTED_TOKEN,
+                    parser.getValue());
+        }
+    }
+
     // -----------------------------------------------------------------
 
     /**
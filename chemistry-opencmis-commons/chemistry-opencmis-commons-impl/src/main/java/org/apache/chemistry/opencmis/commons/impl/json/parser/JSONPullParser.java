@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+
+/**
+ * Pull parser reading a JSON document event by event.
+ * <p>
+ * In contrast to {@link JSONParser#parse(Reader, ContainerFactory)} the
+ * document is not turned into a tree of maps and lists. The caller walks
+ * through the document with {@link #next()} and can turn single values into a
+ * tree with {@link #readValue()} or skip them with {@link #skipValue()}.
+ */
+public class JSONPullParser {
+    public static final int START_OBJECT = 1;
+    public static final int END_OBJECT = 2;
+    public static final int START_ARRAY = 3;
+    public static final int END_ARRAY = 4;
+    public static final int KEY = 5;
+    public static final int VALUE = 6;
+    public static final int END_DOCUMENT = 7;
+
+    private static final Integer IN_OBJECT = Integer.valueOf(0);
+    private static final Integer IN_ARRAY = Integer.valueOf(1);
+
+    private final Yylex lexer;
+    private final ContainerFactory containerFactory;
+    private final LinkedList<Integer> statusStack = new LinkedList<Integer>();
+    private Yytoken token;
+    private int event;
+    private String key;
+    private Object value;
+
+    public JSONPullParser(Reader in) {
+        this(in, null);
+    }
+
+    /**
+     * @param in
+     *            - The character reader.
+     * @param containerFactory
+     *            - Factory for the containers created by {@link #readValue()}.
+     */
+    public JSONPullParser(Reader in, ContainerFactory containerFactory) {
+        this.lexer = new Yylex(in);
+        this.containerFactory = containerFactory;
+    }
+
+    /**
+     * @return The position of the beginning of the current token.
+     */
+    public int getPosition() {
+        return lexer.getPosition();
+    }
+
+    /**
+     * Moves to the next event.
+     *
+     * @return the event, one of {@link #START_OBJECT}, {@link #END_OBJECT},
+     *         {@link #START_ARRAY}, {@link #END_ARRAY}, {@link #KEY},
+     *         {@link #VALUE} or {@link #END_DOCUMENT}
+     */
+    public int next() throws IOException, JSONParseException {
+        if (event == END_DOCUMENT) {
+            return event;
+        }
+
+        nextToken();
+
+        if (statusStack.isEmpty()) {
+            if (event == 0) {
+                return startValue();
+            }
+            if (token.type != Yytoken.TYPE_EOF) {
+                throw unexpectedToken();
+            }
+            return setEvent(END_DOCUMENT);
+        }
+
+        boolean first = (event == START_OBJECT || event == START_ARRAY);
+
+        if (statusStack.getFirst() == IN_OBJECT) {
+            if (event == KEY) {
+                return startValue();
+            }
+            if (token.type == Yytoken.TYPE_RIGHT_BRACE) {
+                statusStack.removeFirst();
+                return setEvent(END_OBJECT);
+            }
+            if (!first) {
+                expect(Yytoken.TYPE_COMMA);
+                nextToken();
+            }
+            if (token.type != Yytoken.TYPE_VALUE || !(token.value instanceof String)) {
+                throw unexpectedToken();
+            }
+            String newKey = (String) token.value;
+            nextToken();
+            expect(Yytoken.TYPE_COLON);
+            setEvent(KEY);
+            key = newKey;
+            return event;
+        } else {
+            if (token.type == Yytoken.TYPE_RIGHT_SQUARE) {
+                statusStack.removeFirst();
+                return setEvent(END_ARRAY);
+            }
+            if (!first) {
+                expect(Yytoken.TYPE_COMMA);
+                nextToken();
+            }
+            return startValue();
+        }
+    }
+
+    /**
+     * @return the current event
+     */
+    public int getEvent() {
+        return event;
+    }
+
+    /**
+     * @return the key if the current event is {@link #KEY}
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the string, number, boolean or <code>null</code> if the current
+     *         event is {@link #VALUE}
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Reads the value starting at the current event into a tree of maps and
+     * lists, just like {@link JSONParser} does. Afterwards the current event is
+     * the last event of the value.
+     */
+    public Object readValue() throws IOException, JSONParseException {
+        switch (event) {
+        case VALUE:
+            return value;
+        case START_OBJECT:
+            Map<String, Object> map = createObjectContainer();
+            while (next() == KEY) {
+                String entryKey = key;
+                next();
+                map.put(entryKey, readValue());
+            }
+            return map;
+        case START_ARRAY:
+            List<Object> list = createArrayContainer();
+            while (next() != END_ARRAY) {
+                list.add(readValue());
+            }
+            return list;
+        default:
+            throw unexpectedToken();
+        }
+    }
+
+    /**
+     * Skips the value starting at the current event. Afterwards the current
+     * event is the last event of the value.
+     */
+    public void skipValue() throws IOException, JSONParseException {
+        switch (event) {
+        case VALUE:
+            return;
+        case START_OBJECT:
+        case START_ARRAY:
+            int depth = statusStack.size();
+            while (statusStack.size() >= depth) {
+                if (next() == END_DOCUMENT) {
+                    throw unexpectedToken();
+                }
+            }
+            return;
+        default:
+            throw unexpectedToken();
+        }
+    }
+
+    private int startValue() throws JSONParseException {
+        switch (token.type) {
+        case Yytoken.TYPE_VALUE:
+            setEvent(VALUE);
+            value = token.value;
+            return event;
+        case Yytoken.TYPE_LEFT_BRACE:
+            statusStack.addFirst(IN_OBJECT);
+            return setEvent(START_OBJECT);
+        case Yytoken.TYPE_LEFT_SQUARE:
+            statusStack.addFirst(IN_ARRAY);
+            return setEvent(START_ARRAY);
+        default:
+            throw unexpectedToken();
+        }
+    }
+
+    private int setEvent(int newEvent) {
+        event = newEvent;
+        key = null;
+        value = null;
+        return event;
+    }
+
+    private void expect(int tokenType) throws JSONParseException {
+        if (token.type != tokenType) {
+            throw unexpectedToken();
+        }
+    }
+
+    private JSONParseException unexpectedToken() {
+        return new JSONParseException(getPosition(), JSONParseException.ERROR_UNEXPECTED_TOKEN, token);
+    }
+
+    private void nextToken() throws JSONParseException, IOException {
+        token = lexer.yylex();
+        if (token == null) {
+            token = new Yytoken(Yytoken.TYPE_EOF, null);
+        }
+    }
+
+    private Map<String, Object> createObjectContainer() {
+        Map<String, Object> m = (containerFactory == null ? null : containerFactory.createObjectContainer());
+        return m == null ? new JSONObject() : m;
+    }
+
+    private List<Object> createArrayContainer() {
+        List<Object> l = (containerFactory == null ? null : containerFactory.creatArrayContainer());
+        return l == null ? new JSONArray() : l;
+    }
+}
@@ -62,13 +62,21 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisNotSupportedExceptio
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionContainerImpl;
+import org.apache.chemistry.opencmis.commons.server.BulkObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.server.RenditionInfo;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
 
-public abstract class AbstractCmisService implements CmisService, ObjectInfoHandler {
+public abstract class AbstractCmisService implements CmisService, ObjectInfoHandler, BulkObjectInfoHandler {
+
+    private static final String[] OBJECT_INFO_PROPERTIES = { PropertyIds.OBJECT_ID, PropertyIds.BASE_TYPE_ID,
+            PropertyIds.OBJECT_TYPE_ID, PropertyIds.NAME };
+    private static final String[] DOCUMENT_OBJECT_INFO_PROPERTIES = { PropertyIds.VERSION_SERIES_ID,
+            PropertyIds.IS_LATEST_VERSION, PropertyIds.IS_VERSION_SERIES_CHECKED_OUT,
+            PropertyIds.CONTENT_STREAM_LENGTH, PropertyIds.CONTENT_STREAM_MIME_TYPE,
+            PropertyIds.CONTENT_STREAM_FILE_NAME };
 
     private Map<String, ObjectInfo> objectInfoMap;
     private boolean addObjectInfos = true;
@@ -1083,10 +1091,114 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
             throw new CmisRuntimeException("No properties!");
         }
 
-        ObjectInfoImpl info = new ObjectInfoImpl();
-
-        // get the repository info
+        // get the repository info and the base types
         RepositoryInfo repositoryInfo = getRepositoryInfo(repositoryId, null);
+        TypeDefinitionList baseTypesList = getTypeChildren(repositoryId, null, Boolean.FALSE, BigInteger.valueOf(4),
+                BigInteger.ZERO, null);
+
+        return createObjectInfo(repositoryId, object, repositoryInfo, baseTypesList, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * <p>
+     * <b>Implementation Hints:</b>
+     * <ul>
+     * <li>Bindings: AtomPub</li>
+     * <li>Objects that already have an object info are skipped. For all other
+     * objects the object info is derived from the provided object data. The
+     * repository info and the base type definitions are fetched once per call.
+     * The object parents are only fetched if <code>isFiled</code> is not set
+     * and the history only for checked out documents.</li>
+     * <li>Objects that lack properties needed for the object info (for example
+     * because of a property filter) are skipped.
+     * {@link #getObjectInfo(String, String)} assembles their object infos as
+     * usual.</li>
+     * <li>Renditions and relationships are only taken into account if the
+     * object data contains them.</li>
+     * <li>If you override {@link #getObjectInfoIntern(String, ObjectData)},
+     * override this method as well.</li>
+     * </ul>
+     */
+    public void prepareObjectInfos(String repositoryId, List<ObjectData> objects, Boolean isFiled) {
+        if (objects == null || objects.isEmpty()) {
+            return;
+        }
+
+        Map<String, ObjectInfo> oim = getObjectInfoMap();
+        List<ObjectData> missing = new ArrayList<ObjectData>();
+        for (ObjectData object : objects) {
+            if (object != null && object.getId() != null && !oim.containsKey(object.getId())
+                    && hasObjectInfoProperties(object)) {
+                missing.add(object);
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<ObjectInfo> infos = new ArrayList<ObjectInfo>();
+        try {
+            // switch off object info collection to avoid side effects
+            addObjectInfos = false;
+
+            RepositoryInfo repositoryInfo = getRepositoryInfo(repositoryId, null);
+            TypeDefinitionList baseTypesList = getTypeChildren(repositoryId, null, Boolean.FALSE,
+                    BigInteger.valueOf(4), BigInteger.ZERO, null);
+
+            for (ObjectData object : missing) {
+                try {
+                    infos.add(createObjectInfo(repositoryId, object, repositoryInfo, baseTypesList, isFiled));
+                } catch (Exception e) {
+                    // getObjectInfo() will try again
+                }
+            }
+        } catch (Exception e) {
+            // getObjectInfo() will try again
+        } finally {
+            addObjectInfos = true;
+        }
+
+        for (ObjectInfo info : infos) {
+            addObjectInfo(info);
+        }
+    }
+
+    /**
+     * Returns whether the object data contains all properties that are
+     * required to derive the object info.
+     */
+    private boolean hasObjectInfoProperties(ObjectData object) {
+        if (object.getProperties() == null || object.getProperties().getProperties() == null) {
+            return false;
+        }
+
+        Map<String, PropertyData<?>> properties = object.getProperties().getProperties();
+        for (String id : OBJECT_INFO_PROPERTIES) {
+            if (!properties.containsKey(id)) {
+                return false;
+            }
+        }
+
+        if (object.getBaseTypeId() == BaseTypeId.CMIS_DOCUMENT) {
+            for (String id : DOCUMENT_OBJECT_INFO_PROPERTIES) {
+                if (!properties.containsKey(id)) {
+                    return false;
+                }
+            }
+        }
+
+        return object.getBaseTypeId() != null;
+    }
+
+    /**
+     * Creates the object info from the object data.
+     */
+    private ObjectInfo createObjectInfo(String repositoryId, ObjectData object, RepositoryInfo repositoryInfo,
+            TypeDefinitionList baseTypesList, Boolean isFiled) {
+        ObjectInfoImpl info = new ObjectInfoImpl();
 
         // general properties
         info.setObject(object);
@@ -1142,6 +1254,8 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
             info.setHasParent(false);
         } else if (object.getBaseTypeId() == BaseTypeId.CMIS_FOLDER) {
             info.setHasParent(!object.getId().equals(repositoryInfo.getRootFolderId()));
+        } else if (isFiled != null) {
+            info.setHasParent(isFiled.booleanValue());
         } else {
             try {
                 List<ObjectParentData> parents = getObjectParents(repositoryId, object.getId(), null, Boolean.FALSE,
@@ -1156,8 +1270,6 @@ public abstract class AbstractCmisService implements CmisService, ObjectInfoHand
         info.setSupportsRelationships(false);
         info.setSupportsPolicies(false);
 
-        TypeDefinitionList baseTypesList = getTypeChildren(repositoryId, null, Boolean.FALSE, BigInteger.valueOf(4),
-                BigInteger.ZERO, null);
         for (TypeDefinition type : baseTypesList.getList()) {
             if (BaseTypeId.CMIS_RELATIONSHIP.value().equals(type.getId())) {
                 info.setSupportsRelationships(true);
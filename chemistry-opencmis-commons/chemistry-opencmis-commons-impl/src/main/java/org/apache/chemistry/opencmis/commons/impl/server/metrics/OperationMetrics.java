@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.server.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts, errors, latencies and result sizes of one operation in one
+ * repository.
+ * <p>
+ * Latencies are kept in a histogram with fixed buckets. Percentiles are
+ * reported as the upper bound of the bucket they fall in.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    /** Upper bounds of the latency buckets in milliseconds. */
+    private static final long[] BUCKETS = { 1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000,
+            Long.MAX_VALUE };
+
+    private static final long NANOS_PER_MILLI = 1000 * 1000;
+
+    private final String scope;
+    private final String repositoryId;
+    private final String operation;
+
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    private final ConcurrentMap<String, AtomicLong> errors = new ConcurrentHashMap<String, AtomicLong>();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length);
+    private final AtomicLong resultCount = new AtomicLong();
+    private final AtomicLong totalResultSize = new AtomicLong();
+    private final AtomicLong maxResultSize = new AtomicLong();
+
+    public OperationMetrics(String scope, String repositoryId, String operation) {
+        this.scope = scope;
+        this.repositoryId = repositoryId;
+        this.operation = operation;
+    }
+
+    /**
+     * Records a call.
+     * 
+     * @param nanos
+     *            the duration of the call in nanoseconds
+     * @param resultSize
+     *            the number of items or bytes returned or -1 if unknown
+     * @param error
+     *            the exception thrown by the call or <code>null</code>
+     */
+    public void record(long nanos, long resultSize, Throwable error) {
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        updateMax(maxNanos, nanos);
+
+        long millis = nanos / NANOS_PER_MILLI;
+        for (int i = 0; i < BUCKETS.length; i++) {
+            if (millis < BUCKETS[i]) {
+                histogram.incrementAndGet(i);
+                break;
+            }
+        }
+
+        if (error != null) {
+            errorCount.incrementAndGet();
+            String name = error.getClass().getSimpleName();
+            AtomicLong counter = errors.get(name);
+            if (counter == null) {
+                AtomicLong newCounter = new AtomicLong();
+                counter = errors.putIfAbsent(name, newCounter);
+                if (counter == null) {
+                    counter = newCounter;
+                }
+            }
+            counter.incrementAndGet();
+        }
+
+        if (resultSize >= 0) {
+            resultCount.incrementAndGet();
+            totalResultSize.addAndGet(resultSize);
+            updateMax(maxResultSize, resultSize);
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public String getRepositoryId() {
+        return repositoryId;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+
+    /**
+     * Returns the number of errors per exception class.
+     */
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> e : errors.entrySet()) {
+            result.put(e.getKey(), e.getValue().get());
+        }
+        return result;
+    }
+
+    public String getErrors() {
+        return getErrorCounts().toString();
+    }
+
+    public double getMeanLatencyMillis() {
+        long c = count.get();
+        return c == 0 ? 0.0 : (double) totalNanos.get() / c / NANOS_PER_MILLI;
+    }
+
+    public double getMaxLatencyMillis() {
+        return (double) maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    public long getLatency50thPercentileMillis() {
+        return getLatencyPercentileMillis(0.50);
+    }
+
+    public long getLatency95thPercentileMillis() {
+        return getLatencyPercentileMillis(0.95);
+    }
+
+    public long getLatency99thPercentileMillis() {
+        return getLatencyPercentileMillis(0.99);
+    }
+
+    /**
+     * Returns the upper bound of the bucket that contains the given
+     * percentile or -1 if there are no calls. The last bucket is unbounded and
+     * reported as the maximum latency.
+     */
+    public long getLatencyPercentileMillis(double percentile) {
+        long[] h = getLatencyHistogram();
+        long total = 0;
+        for (long c : h) {
+            total += c;
+        }
+        if (total == 0) {
+            return -1;
+        }
+
+        long threshold = (long) Math.ceil(total * percentile);
+        long sum = 0;
+        for (int i = 0; i < h.length; i++) {
+            sum += h[i];
+            if (sum >= threshold) {
+                return BUCKETS[i] == Long.MAX_VALUE ? (long) Math.ceil(getMaxLatencyMillis()) : BUCKETS[i];
+            }
+        }
+
+        return (long) Math.ceil(getMaxLatencyMillis());
+    }
+
+    public long[] getLatencyBucketsMillis() {
+        long[] result = new long[BUCKETS.length];
+        System.arraycopy(BUCKETS, 0, result, 0, BUCKETS.length);
+        return result;
+    }
+
+    public long[] getLatencyHistogram() {
+        long[] result = new long[histogram.length()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = histogram.get(i);
+        }
+        return result;
+    }
+
+    public long getResultCount() {
+        return resultCount.get();
+    }
+
+    public double getMeanResultSize() {
+        long c = resultCount.get();
+        return c == 0 ? 0.0 : (double) totalResultSize.get() / c;
+    }
+
+    public long getMaxResultSize() {
+        return maxResultSize.get();
+    }
+
+    public void reset() {
+        count.set(0);
+        errorCount.set(0);
+        errors.clear();
+        totalNanos.set(0);
+        maxNanos.set(0);
+        for (int i = 0; i < histogram.length(); i++) {
+            histogram.set(i, 0);
+        }
+        resultCount.set(0);
+        totalResultSize.set(0);
+        maxResultSize.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return scope + " " + repositoryId + " " + operation + ": count=" + getCount() + ", errors="
+                + getErrorCount() + " " + getErrors() + ", mean=" + String.format("%.2f", getMeanLatencyMillis())
+                + "ms, p95=" + getLatency95thPercentileMillis() + "ms, max="
+                + String.format("%.2f", getMaxLatencyMillis()) + "ms, meanResultSize="
+                + String.format("%.1f", getMeanResultSize());
+    }
+}
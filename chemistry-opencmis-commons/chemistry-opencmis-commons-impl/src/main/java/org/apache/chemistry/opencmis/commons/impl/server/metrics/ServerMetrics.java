@@ -0,0 +1,355 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
+import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Collects per-operation metrics of the server.
+ * <p>
+ * The <code>CmisServiceWrapper</code> of the server support module records
+ * every service call in the scope {@link #SCOPE_SERVICE}. The AtomPub and
+ * Browser binding dispatchers record every HTTP call in the scope of the
+ * binding. Comparing both shows the overhead of the binding.
+ * <p>
+ * The repository id comes from the client. A repository id is only used as a
+ * key after a call for it succeeded, and only up to
+ * {@link #MAX_REPOSITORIES} of them. All other calls are recorded under
+ * {@link #UNKNOWN_REPOSITORY}, so made up repository ids don't create new
+ * metrics.
+ * <p>
+ * Metrics are disabled by default. They can be enabled with
+ * {@link #configure(Map)} or {@link #setEnabled(boolean)}. Each operation is
+ * registered as an MBean named
+ * <code>org.apache.chemistry.opencmis:type=ServerMetrics,scope=...,repository=...,operation=...</code>
+ * if JMX is enabled.
+ */
+public class ServerMetrics {
+
+    public static final String SCOPE_SERVICE = "service";
+
+    public static final String UNKNOWN_REPOSITORY = "(unknown)";
+    public static final int MAX_REPOSITORIES = 100;
+
+    public static final String PARAM_ENABLED = "metrics";
+    public static final String PARAM_JMX = "metrics.jmx";
+    public static final String PARAM_REPORTER = "metrics.reporter";
+    public static final String PARAM_REPORT_INTERVAL = "metrics.reportInterval";
+
+    public static final String JMX_DOMAIN = "org.apache.chemistry.opencmis";
+
+    private static final Logger LOG = LoggerFactory.getLogger(ServerMetrics.class);
+
+    private static final ServerMetrics INSTANCE = new ServerMetrics();
+
+    private final ConcurrentMap<String, OperationMetrics> metrics = new ConcurrentHashMap<String, OperationMetrics>();
+    private final ConcurrentMap<String, Boolean> knownRepositories = new ConcurrentHashMap<String, Boolean>();
+    private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+    private volatile boolean enabled = false;
+    private volatile boolean jmxEnabled = false;
+    private ScheduledExecutorService reporterExecutor;
+
+    /**
+     * Returns the server wide instance.
+     */
+    public static ServerMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Configures the metrics from the repository configuration.
+     * <ul>
+     * <li><code>metrics</code> - <code>true</code> enables the metrics</li>
+     * <li><code>metrics.jmx</code> - <code>false</code> disables the MBeans
+     * (default: <code>true</code>)</li>
+     * <li><code>metrics.reporter</code> - class name of a
+     * {@link MetricsReporter}</li>
+     * <li><code>metrics.reportInterval</code> - report interval in seconds
+     * (default: 60)</li>
+     * </ul>
+     */
+    public void configure(Map<String, String> parameters) {
+        if (parameters == null || !Boolean.parseBoolean(parameters.get(PARAM_ENABLED))) {
+            return;
+        }
+
+        String jmx = parameters.get(PARAM_JMX);
+        setJmxEnabled(jmx == null || Boolean.parseBoolean(jmx.trim()));
+
+        String reporterClass = parameters.get(PARAM_REPORTER);
+        if (reporterClass != null && reporterClass.trim().length() > 0) {
+            long interval = 60;
+            String intervalStr = parameters.get(PARAM_REPORT_INTERVAL);
+            if (intervalStr != null) {
+                try {
+                    interval = Long.parseLong(intervalStr.trim());
+                } catch (NumberFormatException e) {
+                    LOG.warn("Invalid metrics report interval: " + intervalStr);
+                }
+            }
+
+            try {
+                MetricsReporter reporter = (MetricsReporter) ClassLoaderUtil.loadClass(reporterClass.trim())
+                        .newInstance();
+                setReporter(reporter, interval);
+            } catch (Exception e) {
+                LOG.warn("Could not create metrics reporter: " + e, e);
+            }
+        }
+
+        setEnabled(true);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Enables or disables the MBeans. Disabling unregisters all MBeans.
+     */
+    public synchronized void setJmxEnabled(boolean jmxEnabled) {
+        this.jmxEnabled = jmxEnabled;
+
+        if (jmxEnabled) {
+            for (OperationMetrics om : metrics.values()) {
+                register(om);
+            }
+        } else {
+            unregisterAll();
+        }
+    }
+
+    /**
+     * Sets the reporter that is called every <code>intervalSeconds</code>.
+     * 
+     * @param reporter
+     *            the reporter or <code>null</code> to stop reporting
+     */
+    public synchronized void setReporter(final MetricsReporter reporter, long intervalSeconds) {
+        if (reporterExecutor != null) {
+            reporterExecutor.shutdownNow();
+            reporterExecutor = null;
+        }
+
+        if (reporter == null) {
+            return;
+        }
+
+        if (intervalSeconds < 1) {
+            throw new IllegalArgumentException("Interval must be positive!");
+        }
+
+        reporterExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "opencmis-metrics-reporter");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        reporterExecutor.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                try {
+                    reporter.report(getMetrics());
+                } catch (Exception e) {
+                    LOG.warn("Metrics reporter failed: " + e, e);
+                }
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Records a call if the metrics are enabled.
+     * 
+     * @param scope
+     *            {@link #SCOPE_SERVICE} or the binding
+     * @param repositoryId
+     *            the repository id as sent by the client, may be
+     *            <code>null</code>
+     * @param operation
+     *            the operation name
+     * @param startNanos
+     *            the start time as returned by {@link System#nanoTime()}
+     * @param result
+     *            the result of the call, used to determine the result size
+     * @param error
+     *            the exception thrown by the call or <code>null</code>
+     */
+    public void record(String scope, String repositoryId, String operation, long startNanos, Object result,
+            Throwable error) {
+        if (!enabled) {
+            return;
+        }
+
+        long nanos = System.nanoTime() - startNanos;
+        getOperationMetrics(scope, getRepositoryKey(repositoryId, error == null), operation).record(nanos,
+                getResultSize(result), error);
+    }
+
+    /**
+     * Returns the repository id to record a call under.
+     */
+    private String getRepositoryKey(String repositoryId, boolean success) {
+        if (repositoryId == null || knownRepositories.containsKey(repositoryId)) {
+            return repositoryId;
+        }
+
+        if (success && knownRepositories.size() < MAX_REPOSITORIES) {
+            // the size check is not atomic, a few more ids don't hurt
+            knownRepositories.putIfAbsent(repositoryId, Boolean.TRUE);
+            return repositoryId;
+        }
+
+        return UNKNOWN_REPOSITORY;
+    }
+
+    /**
+     * Returns the metrics of an operation. The metrics are created if they
+     * don't exist yet.
+     */
+    public OperationMetrics getOperationMetrics(String scope, String repositoryId, String operation) {
+        String repId = (repositoryId == null ? "" : repositoryId);
+        String key = scope + '\u0000' + repId + '\u0000' + operation;
+
+        OperationMetrics om = metrics.get(key);
+        if (om == null) {
+            OperationMetrics newMetrics = new OperationMetrics(scope, repId, operation);
+            om = metrics.putIfAbsent(key, newMetrics);
+            if (om == null) {
+                om = newMetrics;
+                if (jmxEnabled) {
+                    synchronized (this) {
+                        register(om);
+                    }
+                }
+            }
+        }
+
+        return om;
+    }
+
+    /**
+     * Returns all metrics collected so far.
+     */
+    public List<OperationMetrics> getMetrics() {
+        Collection<OperationMetrics> values = metrics.values();
+        return new ArrayList<OperationMetrics>(values);
+    }
+
+    /**
+     * Resets all metrics.
+     */
+    public void reset() {
+        for (OperationMetrics om : metrics.values()) {
+            om.reset();
+        }
+    }
+
+    /**
+     * Disables the metrics, stops the reporter and unregisters the MBeans.
+     */
+    public synchronized void shutdown() {
+        enabled = false;
+        setReporter(null, 0);
+        jmxEnabled = false;
+        unregisterAll();
+        metrics.clear();
+        knownRepositories.clear();
+    }
+
+    /**
+     * Determines the number of items or bytes of a result or -1 if the result
+     * has no size.
+     */
+    protected long getResultSize(Object result) {
+        if (result instanceof ObjectList) {
+            List<?> list = ((ObjectList) result).getObjects();
+            return list == null ? 0 : list.size();
+        } else if (result instanceof ObjectInFolderList) {
+            List<?> list = ((ObjectInFolderList) result).getObjects();
+            return list == null ? 0 : list.size();
+        } else if (result instanceof TypeDefinitionList) {
+            List<?> list = ((TypeDefinitionList) result).getList();
+            return list == null ? 0 : list.size();
+        } else if (result instanceof List<?>) {
+            return ((List<?>) result).size();
+        } else if (result instanceof ContentStream) {
+            BigInteger length = ((ContentStream) result).getBigLength();
+            return length == null ? -1 : length.longValue();
+        }
+
+        return -1;
+    }
+
+    private void register(OperationMetrics om) {
+        try {
+            ObjectName name = new ObjectName(JMX_DOMAIN + ":type=ServerMetrics,scope=" + ObjectName.quote(om.getScope())
+                    + ",repository=" + ObjectName.quote(om.getRepositoryId()) + ",operation="
+                    + ObjectName.quote(om.getOperation()));
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(om, name);
+                registeredNames.add(name);
+            }
+        } catch (Exception e) {
+            LOG.warn("Could not register metrics MBean: " + e, e);
+        }
+    }
+
+    private void unregisterAll() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                if (server.isRegistered(name)) {
+                    server.unregisterMBean(name);
+                }
+            } catch (Exception e) {
+                LOG.warn("Could not unregister metrics MBean: " + e, e);
+            }
+        }
+        registeredNames.clear();
+    }
+}
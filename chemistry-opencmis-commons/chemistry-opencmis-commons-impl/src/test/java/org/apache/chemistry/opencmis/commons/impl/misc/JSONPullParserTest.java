@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParseException;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONParser;
+import org.apache.chemistry.opencmis.commons.impl.json.parser.JSONPullParser;
+import org.junit.Test;
+
+/**
+ * Tests the JSON pull parser and the converters reading from it.
+ */
+public class JSONPullParserTest {
+
+    private static final String DOCUMENT = "{\"a\":1,\"b\":[true,false,null,\"x\\\"y\"],"
+            + "\"c\":{\"d\":{},\"e\":[],\"f\":[[1.5],{\"g\":\"h\"}]},\"i\":-3}";
+
+    private static String object(String id) {
+        return "{\"properties\":{\"cmis:objectId\":{\"id\":\"cmis:objectId\",\"type\":\"id\","
+                + "\"cardinality\":\"single\",\"value\":\"" + id + "\"}}}";
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        JSONPullParser parser = new JSONPullParser(new StringReader("{\"a\":[1,{\"b\":null}],\"c\":\"d\"}"));
+
+        assertEquals(JSONPullParser.START_OBJECT, parser.next());
+        assertEquals(JSONPullParser.KEY, parser.next());
+        assertEquals("a", parser.getKey());
+        assertEquals(JSONPullParser.START_ARRAY, parser.next());
+        assertEquals(JSONPullParser.VALUE, parser.next());
+        assertEquals(BigInteger.ONE, parser.getValue());
+        assertEquals(JSONPullParser.START_OBJECT, parser.next());
+        assertEquals(JSONPullParser.KEY, parser.next());
+        assertEquals("b", parser.getKey());
+        assertEquals(JSONPullParser.VALUE, parser.next());
+        assertNull(parser.getValue());
+        assertEquals(JSONPullParser.END_OBJECT, parser.next());
+        assertEquals(JSONPullParser.END_ARRAY, parser.next());
+        assertEquals(JSONPullParser.KEY, parser.next());
+        assertEquals("c", parser.getKey());
+        assertEquals(JSONPullParser.VALUE, parser.next());
+        assertEquals("d", parser.getValue());
+        assertEquals(JSONPullParser.END_OBJECT, parser.next());
+        assertEquals(JSONPullParser.END_DOCUMENT, parser.next());
+        assertEquals(JSONPullParser.END_DOCUMENT, parser.next());
+    }
+
+    @Test
+    public void testReadValue() throws Exception {
+        JSONPullParser parser = new JSONPullParser(new StringReader(DOCUMENT));
+        parser.next();
+
+        assertEquals(new JSONParser().parse(DOCUMENT), parser.readValue());
+        assertEquals(JSONPullParser.END_DOCUMENT, parser.next());
+    }
+
+    @Test
+    public void testSkipValue() throws Exception {
+        JSONPullParser parser = new JSONPullParser(new StringReader(DOCUMENT));
+        parser.next();
+
+        assertEquals(JSONPullParser.KEY, parser.next());
+        parser.next();
+        parser.skipValue();
+        assertEquals(JSONPullParser.KEY, parser.next());
+        assertEquals("b", parser.getKey());
+        parser.next();
+        parser.skipValue();
+        assertEquals(JSONPullParser.KEY, parser.next());
+        assertEquals("c", parser.getKey());
+        parser.next();
+        parser.skipValue();
+        assertEquals(JSONPullParser.KEY, parser.next());
+        assertEquals("i", parser.getKey());
+        assertEquals(JSONPullParser.VALUE, parser.next());
+        assertEquals(BigInteger.valueOf(-3), parser.getValue());
+        assertEquals(JSONPullParser.END_OBJECT, parser.next());
+    }
+
+    @Test
+    public void testInvalidDocuments() throws Exception {
+        String[] invalid = { "{\"a\" 1}", "{\"a\":1 \"b\":2}", "[1 2]", "{1:2}", "[1,2}", "{\"a\":1}}", "]" };
+        for (String json : invalid) {
+            JSONPullParser parser = new JSONPullParser(new StringReader(json));
+            try {
+                while (parser.next() != JSONPullParser.END_DOCUMENT) {
+                    // read all events
+                }
+                fail("Invalid JSON not detected: " + json);
+            } catch (JSONParseException e) {
+                // expected
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testObjectList() throws Exception {
+        String json = "{\"numItems\":2,\"objects\":[" + object("1") + "," + object("2")
+                + "],\"hasMoreItems\":true,\"ext\":{\"x\":\"y\"}}";
+
+        ObjectList tree = JSONConverter.convertObjectList((Map<String, Object>) new JSONParser().parse(json), null,
+                false);
+        ObjectList stream = JSONConverter.convertObjectList(new JSONPullParser(new StringReader(json)), null, false);
+
+        assertEquals(2, stream.getObjects().size());
+        assertEquals("1", stream.getObjects().get(0).getId());
+        assertEquals("2", stream.getObjects().get(1).getId());
+        assertEquals(tree.getNumItems(), stream.getNumItems());
+        assertEquals(BigInteger.valueOf(2), stream.getNumItems());
+        assertTrue(stream.hasMoreItems());
+        assertEquals(1, stream.getExtensions().size());
+        assertEquals("ext", stream.getExtensions().get(0).getName());
+        assertEquals(tree.getExtensions().size(), stream.getExtensions().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testQueryResultList() throws Exception {
+        String json = "{\"results\":[" + object("q") + "],\"hasMoreItems\":false,\"numItems\":7}";
+
+        ObjectList tree = JSONConverter.convertObjectList((Map<String, Object>) new JSONParser().parse(json), null,
+                true);
+        ObjectList stream = JSONConverter.convertObjectList(new JSONPullParser(new StringReader(json)), null, true);
+
+        assertEquals(1, stream.getObjects().size());
+        assertEquals("q", stream.getObjects().get(0).getId());
+        assertEquals(BigInteger.valueOf(7), stream.getNumItems());
+        assertFalse(stream.hasMoreItems());
+        assertEquals(tree.hasMoreItems(), stream.hasMoreItems());
+    }
+
+    @Test
+    public void testObjectInFolderList() throws Exception {
+        String json = "{\"objects\":[{\"object\":" + object("a") + ",\"pathSegment\":\"seg\"}],"
+                + "\"hasMoreItems\":false,\"numItems\":1}";
+
+        ObjectInFolderList list = JSONConverter.convertObjectInFolderList(new JSONPullParser(new StringReader(json)),
+                null);
+
+        assertEquals(1, list.getObjects().size());
+        assertEquals("a", list.getObjects().get(0).getObject().getId());
+        assertEquals("seg", list.getObjects().get(0).getPathSegment());
+        assertEquals(BigInteger.ONE, list.getNumItems());
+        assertFalse(list.hasMoreItems());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testDescendants() throws Exception {
+        String json = "[{\"object\":{\"object\":" + object("f") + ",\"pathSegment\":\"f\"},\"children\":["
+                + "{\"object\":{\"object\":" + object("d") + ",\"pathSegment\":\"d\"}}]},"
+                + "{\"object\":{\"object\":" + object("g") + "}}]";
+
+        List<ObjectInFolderContainer> tree = JSONConverter.convertDescendants(
+                (List<Object>) new JSONParser().parse(json), null);
+        List<ObjectInFolderContainer> stream = JSONConverter.convertDescendants(new JSONPullParser(
+                new StringReader(json)), null);
+
+        assertEquals(tree.size(), stream.size());
+        assertEquals(2, stream.size());
+        assertEquals("f", stream.get(0).getObject().getObject().getId());
+        assertEquals("f", stream.get(0).getObject().getPathSegment());
+        assertEquals(1, stream.get(0).getChildren().size());
+        assertEquals("d", stream.get(0).getChildren().get(0).getObject().getObject().getId());
+        assertEquals(0, stream.get(0).getChildren().get(0).getChildren().size());
+        assertEquals("g", stream.get(1).getObject().getObject().getId());
+    }
+}
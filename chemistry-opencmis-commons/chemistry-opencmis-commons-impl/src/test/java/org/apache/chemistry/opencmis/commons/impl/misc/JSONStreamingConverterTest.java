@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.misc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
+import org.apache.chemistry.opencmis.commons.impl.JSONConverter.PropertyMode;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.AbstractPropertyData;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.CmisExtensionElementImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderContainerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectInFolderListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
+import org.junit.Test;
+
+/**
+ * Checks that the streaming JSON converters write the same JSON as the tree
+ * converters.
+ */
+public class JSONStreamingConverterTest {
+
+    private static ObjectData createObject(int i) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, "id" + i));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name \"" + i + "\""));
+        properties.addProperty(new PropertyIntegerImpl("size", BigInteger.valueOf(i)));
+        for (PropertyData<?> property : properties.getPropertyList()) {
+            // query results are keyed by query name
+            ((AbstractPropertyData<?>) property).setQueryName(property.getId());
+        }
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+        return object;
+    }
+
+    private static List<CmisExtensionElement> createExtensions() {
+        List<CmisExtensionElement> extensions = new ArrayList<CmisExtensionElement>();
+        extensions.add(new CmisExtensionElementImpl(null, "ext", null, "value"));
+        return extensions;
+    }
+
+    private static String write(JSONStreamAware json) throws IOException {
+        StringWriter out = new StringWriter();
+        json.writeJSONString(out);
+        return out.toString();
+    }
+
+    @Test
+    public void testObjectList() throws IOException {
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        for (int i = 0; i < 20; i++) {
+            objects.add(createObject(i));
+        }
+        objects.add(null);
+
+        ObjectListImpl list = new ObjectListImpl();
+        list.setObjects(objects);
+        list.setHasMoreItems(Boolean.TRUE);
+        list.setNumItems(BigInteger.valueOf(100));
+        list.setExtensions(createExtensions());
+
+        for (PropertyMode mode : PropertyMode.values()) {
+            for (boolean succinct : new boolean[] { false, true }) {
+                String expected = write(JSONConverter.convert(list, null, mode, succinct));
+                assertEquals(expected, write(JSONConverter.convertStreaming(list, null, mode, succinct)));
+                assertEquals(expected, JSONConverter.convertStreaming(list, null, mode, succinct).toJSONString());
+            }
+        }
+
+        ObjectListImpl empty = new ObjectListImpl();
+        assertEquals(write(JSONConverter.convert(empty, null, PropertyMode.QUERY, true)),
+                write(JSONConverter.convertStreaming(empty, null, PropertyMode.QUERY, true)));
+    }
+
+    @Test
+    public void testObjectInFolderList() throws IOException {
+        List<ObjectInFolderData> objects = new ArrayList<ObjectInFolderData>();
+        for (int i = 0; i < 10; i++) {
+            ObjectInFolderDataImpl object = new ObjectInFolderDataImpl(createObject(i));
+            object.setPathSegment("segment" + i);
+            objects.add(object);
+        }
+
+        ObjectInFolderListImpl list = new ObjectInFolderListImpl();
+        list.setObjects(objects);
+        list.setHasMoreItems(Boolean.FALSE);
+        list.setExtensions(createExtensions());
+
+        for (boolean succinct : new boolean[] { false, true }) {
+            assertEquals(write(JSONConverter.convert(list, null, succinct)),
+                    write(JSONConverter.convertStreaming(list, null, succinct)));
+        }
+
+        ObjectInFolderListImpl empty = new ObjectInFolderListImpl();
+        assertEquals(write(JSONConverter.convert(empty, null, true)),
+                write(JSONConverter.convertStreaming(empty, null, true)));
+    }
+
+    @Test
+    public void testDescendants() throws IOException {
+        List<ObjectInFolderContainer> tree = createContainers(3, 0);
+
+        for (boolean succinct : new boolean[] { false, true }) {
+            JSONArray expected = new JSONArray();
+            for (ObjectInFolderContainer container : tree) {
+                expected.add(JSONConverter.convert(container, null, succinct));
+            }
+
+            assertEquals(write(expected), write(JSONConverter.convertStreaming(tree, null, succinct)));
+        }
+
+        assertEquals("[]", write(JSONConverter.convertStreaming(
+                Collections.<ObjectInFolderContainer> emptyList(), null, true)));
+    }
+
+    private static List<ObjectInFolderContainer> createContainers(int depth, int start) {
+        List<ObjectInFolderContainer> result = new ArrayList<ObjectInFolderContainer>();
+        for (int i = 0; i < 3; i++) {
+            ObjectInFolderContainerImpl container = new ObjectInFolderContainerImpl();
+            container.setObject(new ObjectInFolderDataImpl(createObject(start * 10 + i)));
+            if (depth > 1) {
+                container.setChildren(createContainers(depth - 1, start * 10 + i));
+            }
+            if (i == 1) {
+                container.setExtensions(createExtensions());
+            }
+            result.add(container);
+        }
+        return result;
+    }
+}
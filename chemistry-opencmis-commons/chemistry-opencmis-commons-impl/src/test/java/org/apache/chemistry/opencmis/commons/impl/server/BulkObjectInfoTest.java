@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ExtensionsData;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderList;
+import org.apache.chemistry.opencmis.commons.data.ObjectParentData;
+import org.apache.chemistry.opencmis.commons.data.RepositoryInfo;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionList;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.DocumentTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.FolderTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectParentDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PolicyTypeDefinitionImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertiesImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyBooleanImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIdImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyIntegerImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.PropertyStringImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.RepositoryInfoImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.TypeDefinitionListImpl;
+import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
+import org.junit.Test;
+
+/**
+ * Checks that the object infos of a page are derived from the object data
+ * without fetching the objects again.
+ */
+public class BulkObjectInfoTest {
+
+    private static final String REPOSITORY_ID = "repo";
+
+    private static ObjectData createObject(String id, BaseTypeId baseType, boolean allProperties) {
+        PropertiesImpl properties = new PropertiesImpl();
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_ID, id));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.BASE_TYPE_ID, baseType.value()));
+        properties.addProperty(new PropertyIdImpl(PropertyIds.OBJECT_TYPE_ID, baseType.value()));
+        properties.addProperty(new PropertyStringImpl(PropertyIds.NAME, "name-" + id));
+        if (baseType == BaseTypeId.CMIS_DOCUMENT && allProperties) {
+            properties.addProperty(new PropertyIdImpl(PropertyIds.VERSION_SERIES_ID, "vs-" + id));
+            properties.addProperty(new PropertyBooleanImpl(PropertyIds.IS_LATEST_VERSION, Boolean.TRUE));
+            properties.addProperty(new PropertyBooleanImpl(PropertyIds.IS_VERSION_SERIES_CHECKED_OUT, Boolean.FALSE));
+            properties.addProperty(new PropertyIntegerImpl(PropertyIds.CONTENT_STREAM_LENGTH, BigInteger.TEN));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.CONTENT_STREAM_MIME_TYPE, "text/plain"));
+            properties.addProperty(new PropertyStringImpl(PropertyIds.CONTENT_STREAM_FILE_NAME, id + ".txt"));
+        }
+
+        ObjectDataImpl object = new ObjectDataImpl();
+        object.setProperties(properties);
+        return object;
+    }
+
+    private static List<ObjectData> createPage(boolean allProperties) {
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        for (int i = 0; i < 10; i++) {
+            objects.add(createObject("doc" + i, BaseTypeId.CMIS_DOCUMENT, allProperties));
+            objects.add(createObject("folder" + i, BaseTypeId.CMIS_FOLDER, allProperties));
+        }
+        objects.add(null);
+        return objects;
+    }
+
+    @Test
+    public void testFiledPage() {
+        CountingService service = new CountingService();
+        List<ObjectData> page = createPage(true);
+
+        service.prepareObjectInfos(REPOSITORY_ID, page, Boolean.TRUE);
+
+        for (int i = 0; i < 10; i++) {
+            ObjectInfo doc = service.getObjectInfo(REPOSITORY_ID, "doc" + i);
+            assertNotNull(doc);
+            assertEquals("name-doc" + i, doc.getName());
+            assertTrue(doc.hasContent());
+            assertEquals("doc" + i + ".txt", doc.getFileName());
+            assertTrue(doc.hasParent());
+            assertTrue(doc.isCurrentVersion());
+            assertTrue(doc.supportsPolicies());
+            assertFalse(doc.supportsRelationships());
+
+            ObjectInfo folder = service.getObjectInfo(REPOSITORY_ID, "folder" + i);
+            assertNotNull(folder);
+            assertEquals(BaseTypeId.CMIS_FOLDER, folder.getBaseType());
+            assertTrue(folder.hasParent());
+        }
+
+        assertEquals(1, service.repositoryInfoCalls);
+        assertEquals(1, service.typeChildrenCalls);
+        assertEquals(0, service.objectCalls);
+        assertEquals(0, service.parentsCalls);
+
+        // a second page with the same objects doesn't trigger any calls
+        service.prepareObjectInfos(REPOSITORY_ID, page, Boolean.TRUE);
+        assertEquals(1, service.repositoryInfoCalls);
+    }
+
+    @Test
+    public void testUnknownParents() {
+        CountingService service = new CountingService();
+
+        service.prepareObjectInfos(REPOSITORY_ID, createPage(true), null);
+
+        assertEquals(10, service.parentsCalls);
+        assertTrue(service.getObjectInfo(REPOSITORY_ID, "doc0").hasParent());
+        assertFalse(service.getObjectInfo(REPOSITORY_ID, "doc1").hasParent());
+        assertEquals(0, service.objectCalls);
+    }
+
+    @Test
+    public void testFilteredProperties() {
+        CountingService service = new CountingService();
+
+        service.prepareObjectInfos(REPOSITORY_ID, createPage(false), Boolean.TRUE);
+
+        // folders are complete, documents lack the content properties
+        assertNotNull(service.getObjectInfo(REPOSITORY_ID, "folder0"));
+        assertEquals(0, service.objectCalls);
+
+        ObjectInfo doc = service.getObjectInfo(REPOSITORY_ID, "doc0");
+        assertNotNull(doc);
+        assertEquals(1, service.objectCalls);
+    }
+
+    private static class CountingService extends AbstractCmisService {
+        int repositoryInfoCalls;
+        int typeChildrenCalls;
+        int objectCalls;
+        int parentsCalls;
+
+        @Override
+        public List<RepositoryInfo> getRepositoryInfos(ExtensionsData extension) {
+            repositoryInfoCalls++;
+            RepositoryInfoImpl info = new RepositoryInfoImpl();
+            info.setId(REPOSITORY_ID);
+            info.setRootFolder("root");
+            return Collections.<RepositoryInfo> singletonList(info);
+        }
+
+        @Override
+        public TypeDefinitionList getTypeChildren(String repositoryId, String typeId,
+                Boolean includePropertyDefinitions, BigInteger maxItems, BigInteger skipCount,
+                ExtensionsData extension) {
+            typeChildrenCalls++;
+            DocumentTypeDefinitionImpl document = new DocumentTypeDefinitionImpl();
+            document.setId(BaseTypeId.CMIS_DOCUMENT.value());
+            FolderTypeDefinitionImpl folder = new FolderTypeDefinitionImpl();
+            folder.setId(BaseTypeId.CMIS_FOLDER.value());
+            PolicyTypeDefinitionImpl policy = new PolicyTypeDefinitionImpl();
+            policy.setId(BaseTypeId.CMIS_POLICY.value());
+
+            List<TypeDefinition> types = new ArrayList<TypeDefinition>();
+            types.add(document);
+            types.add(folder);
+            types.add(policy);
+
+            TypeDefinitionListImpl result = new TypeDefinitionListImpl();
+            result.setList(types);
+            return result;
+        }
+
+        @Override
+        public TypeDefinition getTypeDefinition(String repositoryId, String typeId, ExtensionsData extension) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObjectInFolderList getChildren(String repositoryId, String folderId, String filter, String orderBy,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includePathSegment, BigInteger maxItems, BigInteger skipCount, ExtensionsData extension) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<ObjectParentData> getObjectParents(String repositoryId, String objectId, String filter,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includeRelativePathSegment, ExtensionsData extension) {
+            parentsCalls++;
+            if (objectId.endsWith("1")) {
+                return Collections.emptyList();
+            }
+            ObjectParentDataImpl parent = new ObjectParentDataImpl(createObject("root", BaseTypeId.CMIS_FOLDER,
+                    true));
+            return Collections.<ObjectParentData> singletonList(parent);
+        }
+
+        @Override
+        public ObjectData getObject(String repositoryId, String objectId, String filter,
+                Boolean includeAllowableActions, IncludeRelationships includeRelationships, String renditionFilter,
+                Boolean includePolicyIds, Boolean includeAcl, ExtensionsData extension) {
+            objectCalls++;
+            return createObject(objectId, objectId.startsWith("doc") ? BaseTypeId.CMIS_DOCUMENT
+                    : BaseTypeId.CMIS_FOLDER, true);
+        }
+    }
+}
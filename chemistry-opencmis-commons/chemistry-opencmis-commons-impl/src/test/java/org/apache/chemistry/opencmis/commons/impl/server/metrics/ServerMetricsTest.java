@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.commons.impl.server.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.junit.After;
+import org.junit.Test;
+
+public class ServerMetricsTest {
+
+    private static final long MS = 1000 * 1000;
+
+    @After
+    public void tearDown() {
+        ServerMetrics.getInstance().shutdown();
+    }
+
+    @Test
+    public void testOperationMetrics() {
+        OperationMetrics om = new OperationMetrics("service", "repo", "getObject");
+        assertEquals(-1, om.getLatency50thPercentileMillis());
+
+        for (int i = 0; i < 98; i++) {
+            om.record(3 * MS, 10, null);
+        }
+        om.record(200 * MS, 30, new CmisObjectNotFoundException());
+        om.record(20000 * MS, -1, new CmisRuntimeException());
+
+        assertEquals(100, om.getCount());
+        assertEquals(2, om.getErrorCount());
+        assertEquals(Long.valueOf(1), om.getErrorCounts().get("CmisObjectNotFoundException"));
+        assertEquals(Long.valueOf(1), om.getErrorCounts().get("CmisRuntimeException"));
+        assertEquals(5, om.getLatency50thPercentileMillis());
+        assertEquals(5, om.getLatency95thPercentileMillis());
+        assertEquals(250, om.getLatency99thPercentileMillis());
+        assertEquals(30000, om.getLatencyPercentileMillis(1.0));
+        assertEquals(20000.0, om.getMaxLatencyMillis(), 0.001);
+        assertEquals(99, om.getResultCount());
+        assertEquals(30, om.getMaxResultSize());
+        assertEquals(1010.0 / 99, om.getMeanResultSize(), 0.001);
+
+        long total = 0;
+        for (long c : om.getLatencyHistogram()) {
+            total += c;
+        }
+        assertEquals(100, total);
+        assertEquals(om.getLatencyBucketsMillis().length, om.getLatencyHistogram().length);
+
+        om.reset();
+        assertEquals(0, om.getCount());
+        assertEquals(0, om.getErrorCount());
+        assertTrue(om.getErrorCounts().isEmpty());
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        assertFalse(metrics.isEnabled());
+
+        metrics.record(ServerMetrics.SCOPE_SERVICE, "repo", "getObject", System.nanoTime(), null, null);
+        assertTrue(metrics.getMetrics().isEmpty());
+
+        metrics.configure(Collections.singletonMap("class", "x"));
+        assertFalse(metrics.isEnabled());
+    }
+
+    @Test
+    public void testJmx() throws Exception {
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        Map<String, String> parameters = new HashMap<String, String>();
+        parameters.put(ServerMetrics.PARAM_ENABLED, "true");
+        metrics.configure(parameters);
+        assertTrue(metrics.isEnabled());
+
+        metrics.record("atompub", "repo,1", "children GET", System.nanoTime(), null, null);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(ServerMetrics.JMX_DOMAIN + ":type=ServerMetrics,scope="
+                + ObjectName.quote("atompub") + ",repository=" + ObjectName.quote("repo,1") + ",operation="
+                + ObjectName.quote("children GET"));
+        assertTrue(server.isRegistered(name));
+        assertEquals(Long.valueOf(1), server.getAttribute(name, "Count"));
+
+        metrics.shutdown();
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testUnknownRepositories() {
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.setJmxEnabled(false);
+        metrics.setEnabled(true);
+
+        // failed calls for repositories that never answered share one bucket
+        for (int i = 0; i < 1000; i++) {
+            metrics.record("browser", "repo" + i, "GET", System.nanoTime(), null, new CmisObjectNotFoundException());
+        }
+        assertEquals(1, metrics.getMetrics().size());
+        assertEquals(1000, metrics.getOperationMetrics("browser", ServerMetrics.UNKNOWN_REPOSITORY, "GET").getCount());
+
+        // a successful call makes a repository known
+        metrics.record("browser", "repo1", "GET", System.nanoTime(), null, null);
+        metrics.record("browser", "repo1", "GET", System.nanoTime(), null, new CmisObjectNotFoundException());
+        assertEquals(2, metrics.getOperationMetrics("browser", "repo1", "GET").getCount());
+
+        // the number of known repositories is limited
+        for (int i = 0; i < 1000; i++) {
+            metrics.record("browser", "ok" + i, "GET", System.nanoTime(), null, null);
+        }
+        assertEquals(ServerMetrics.MAX_REPOSITORIES + 1, metrics.getMetrics().size());
+    }
+
+    @Test
+    public void testReporter() throws Exception {
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.setEnabled(true);
+        metrics.record(ServerMetrics.SCOPE_SERVICE, "repo", "query", System.nanoTime(), Collections.nCopies(5, ""),
+                null);
+
+        final List<List<OperationMetrics>> reports = Collections
+                .synchronizedList(new ArrayList<List<OperationMetrics>>());
+        metrics.setReporter(new MetricsReporter() {
+            public void report(List<OperationMetrics> m) {
+                reports.add(m);
+            }
+        }, 1);
+
+        long end = System.currentTimeMillis() + 5000;
+        while (reports.isEmpty() && System.currentTimeMillis() < end) {
+            Thread.sleep(50);
+        }
+
+        assertFalse(reports.isEmpty());
+        assertEquals(1, reports.get(0).size());
+        assertEquals(5, reports.get(0).get(0).getMaxResultSize());
+    }
+}
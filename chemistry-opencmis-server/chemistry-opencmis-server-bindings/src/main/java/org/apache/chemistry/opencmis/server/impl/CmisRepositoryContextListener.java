@@ -31,6 +31,7 @@ import javax.servlet.ServletContextListener;
 import org.apache.chemistry.opencmis.commons.impl.ClassLoaderUtil;
 import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.apache.chemistry.opencmis.commons.server.CmisServiceFactory;
+import org.apache.chemistry.opencmis.commons.impl.server.metrics.ServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -67,6 +68,9 @@ public class CmisRepositoryContextListener implements ServletContextListener {
         if (factory != null) {
             factory.destroy();
         }
+
+        // stop server metrics
+        ServerMetrics.getInstance().shutdown();
     }
 
     /**
@@ -124,6 +128,9 @@ public class CmisRepositoryContextListener implements ServletContextListener {
 
         factory.init(parameters);
 
+        // enable server metrics if configured
+        ServerMetrics.getInstance().configure(parameters);
+
         LOG.info("Initialized Services Factory: " + factory.getClass().getName());
 
         return factory;
@@ -23,6 +23,7 @@
 package org.apache.chemistry.opencmis.server.impl.atompub;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
@@ -32,6 +33,7 @@ import javax.xml.stream.XMLStreamException;
 
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectInFolderContainer;
+import org.apache.chemistry.opencmis.commons.data.ObjectInFolderData;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinitionContainer;
 import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
@@ -40,6 +42,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.Constants;
 import org.apache.chemistry.opencmis.commons.impl.ReturnVersion;
 import org.apache.chemistry.opencmis.commons.impl.UrlBuilder;
+import org.apache.chemistry.opencmis.commons.server.BulkObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.NamespaceDefinitions;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
@@ -137,6 +140,71 @@ public abstract class AbstractAtomPubServiceCall extends AbstractServiceCall {
         return null;
     }
 
+    // -------------------------------------------------------------------------
+    // --- object infos ---
+    // -------------------------------------------------------------------------
+
+    /**
+     * Lets the service prepare the object infos of a page of objects at once,
+     * if it supports that.
+     */
+    public void prepareObjectInfos(CmisService service, String repositoryId, List<ObjectData> objects,
+            Boolean isFiled) {
+        if (!(service instanceof BulkObjectInfoHandler) || objects == null || objects.isEmpty()) {
+            return;
+        }
+
+        ((BulkObjectInfoHandler) service).prepareObjectInfos(repositoryId, objects, isFiled);
+    }
+
+    /**
+     * Lets the service prepare the object infos of folder children at once.
+     */
+    public void prepareObjectInfosInFolder(CmisService service, String repositoryId,
+            List<ObjectInFolderData> children) {
+        if (!(service instanceof BulkObjectInfoHandler) || children == null) {
+            return;
+        }
+
+        List<ObjectData> objects = new ArrayList<ObjectData>(children.size());
+        for (ObjectInFolderData child : children) {
+            if (child != null && child.getObject() != null) {
+                objects.add(child.getObject());
+            }
+        }
+
+        prepareObjectInfos(service, repositoryId, objects, Boolean.TRUE);
+    }
+
+    /**
+     * Lets the service prepare the object infos of a descendants tree at once.
+     */
+    public void prepareObjectInfosInTree(CmisService service, String repositoryId,
+            List<ObjectInFolderContainer> containers) {
+        if (!(service instanceof BulkObjectInfoHandler) || containers == null) {
+            return;
+        }
+
+        List<ObjectData> objects = new ArrayList<ObjectData>();
+        collectObjects(containers, objects);
+
+        prepareObjectInfos(service, repositoryId, objects, Boolean.TRUE);
+    }
+
+    private void collectObjects(List<ObjectInFolderContainer> containers, List<ObjectData> objects) {
+        for (ObjectInFolderContainer container : containers) {
+            if (container == null) {
+                continue;
+            }
+            if (container.getObject() != null && container.getObject().getObject() != null) {
+                objects.add(container.getObject().getObject());
+            }
+            if (container.getChildren() != null) {
+                collectObjects(container.getChildren(), objects);
+            }
+        }
+    }
+
     // -------------------------------------------------------------------------
     // --- entry builder ---
     // -------------------------------------------------------------------------
@@ -167,6 +167,8 @@ public class NavigationService {
 
             // write entries
             if (children.getObjects() != null) {
+                prepareObjectInfosInFolder(service, repositoryId, children.getObjects());
+
                 AtomEntry entry = new AtomEntry(feed.getWriter());
                 for (ObjectInFolderData object : children.getObjects()) {
                     if ((object == null) || (object.getObject() == null)) {
@@ -258,6 +260,8 @@ public class NavigationService {
             }
 
             // write entries
+            prepareObjectInfosInTree(service, repositoryId, descendants);
+
             AtomEntry entry = new AtomEntry(feed.getWriter());
             for (ObjectInFolderContainer container : descendants) {
                 if ((container == null) || (container.getObject() == null)
@@ -351,6 +355,8 @@ public class NavigationService {
             }
 
             // write entries
+            prepareObjectInfosInTree(service, repositoryId, folderTree);
+
             AtomEntry entry = new AtomEntry(feed.getWriter());
             for (ObjectInFolderContainer container : folderTree) {
                 if ((container == null) || (container.getObject() == null)
@@ -533,6 +539,8 @@ public class NavigationService {
 
             // write entries
             if (checkedOut.getObjects() != null) {
+                prepareObjectInfos(service, repositoryId, checkedOut.getObjects(), null);
+
                 AtomEntry entry = new AtomEntry(feed.getWriter());
                 for (ObjectData object : checkedOut.getObjects()) {
                     if (object == null) {
@@ -114,6 +114,8 @@ public class RelationshipService {
                     relationships.hasMoreItems(), PAGE_SIZE);
 
             // write entries
+            prepareObjectInfos(service, repositoryId, relationships.getObjects(), null);
+
             AtomEntry entry = new AtomEntry(feed.getWriter());
             for (ObjectData object : relationships.getObjects()) {
                 if (object == null) {
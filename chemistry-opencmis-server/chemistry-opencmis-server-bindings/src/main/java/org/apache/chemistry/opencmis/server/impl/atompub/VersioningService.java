@@ -145,6 +145,8 @@ public class VersioningService {
             }
 
             // write entries
+            prepareObjectInfos(service, repositoryId, versions, null);
+
             AtomEntry entry = new AtomEntry(feed.getWriter());
             for (ObjectData object : versions) {
                 if (object == null) {
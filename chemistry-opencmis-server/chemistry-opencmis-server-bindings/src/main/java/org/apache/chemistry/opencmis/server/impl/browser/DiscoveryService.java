@@ -81,7 +81,7 @@ public class DiscoveryService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonResults = JSONConverter.convert(results, typeCache, JSONConverter.PropertyMode.QUERY,
+            JSONObject jsonResults = JSONConverter.convertStreaming(results, typeCache, JSONConverter.PropertyMode.QUERY,
                     succinct);
 
             response.setStatus(HttpServletResponse.SC_OK);
@@ -115,7 +115,7 @@ public class DiscoveryService {
                     filter, includePolicyIds, includeAcl, maxItems, null);
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChanges = JSONConverter.convert(changes, typeCache, JSONConverter.PropertyMode.CHANGE,
+            JSONObject jsonChanges = JSONConverter.convertStreaming(changes, typeCache, JSONConverter.PropertyMode.CHANGE,
                     succinct);
             jsonChanges.put(JSONConstants.JSON_OBJECTLIST_CHANGE_LOG_TOKEN, changeLogTokenHolder.getValue());
 
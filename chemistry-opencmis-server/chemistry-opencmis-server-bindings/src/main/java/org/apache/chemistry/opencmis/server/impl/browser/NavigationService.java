@@ -47,6 +47,7 @@ import org.apache.chemistry.opencmis.commons.impl.JSONConverter;
 import org.apache.chemistry.opencmis.commons.impl.TypeCache;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONArray;
 import org.apache.chemistry.opencmis.commons.impl.json.JSONObject;
+import org.apache.chemistry.opencmis.commons.impl.json.JSONStreamAware;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 
@@ -90,7 +91,7 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChildren = JSONConverter.convert(children, typeCache, succinct);
+            JSONObject jsonChildren = JSONConverter.convertStreaming(children, typeCache, succinct);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonChildren, request, response);
@@ -129,10 +130,7 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONArray jsonDescendants = new JSONArray();
-            for (ObjectInFolderContainer descendant : descendants) {
-                jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct));
-            }
+            JSONStreamAware jsonDescendants = JSONConverter.convertStreaming(descendants, typeCache, succinct);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonDescendants, request, response);
@@ -171,10 +169,7 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONArray jsonDescendants = new JSONArray();
-            for (ObjectInFolderContainer descendant : folderTree) {
-                jsonDescendants.add(JSONConverter.convert(descendant, typeCache, succinct));
-            }
+            JSONStreamAware jsonDescendants = JSONConverter.convertStreaming(folderTree, typeCache, succinct);
 
             response.setStatus(HttpServletResponse.SC_OK);
             writeJSON(jsonDescendants, request, response);
@@ -288,7 +283,7 @@ public class NavigationService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonCheckedOut = JSONConverter.convert(checkedout, typeCache, JSONConverter.PropertyMode.OBJECT,
+            JSONObject jsonCheckedOut = JSONConverter.convertStreaming(checkedout, typeCache, JSONConverter.PropertyMode.OBJECT,
                     succinct);
 
             response.setStatus(HttpServletResponse.SC_OK);
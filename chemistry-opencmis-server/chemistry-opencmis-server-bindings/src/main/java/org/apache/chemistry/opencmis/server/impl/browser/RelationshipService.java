@@ -77,7 +77,7 @@ public class RelationshipService {
             }
 
             TypeCache typeCache = new ServerTypeCacheImpl(repositoryId, service);
-            JSONObject jsonChildren = JSONConverter.convert(relationships, typeCache,
+            JSONObject jsonChildren = JSONConverter.convertStreaming(relationships, typeCache,
                     JSONConverter.PropertyMode.OBJECT, succinct);
 
             response.setStatus(HttpServletResponse.SC_OK);
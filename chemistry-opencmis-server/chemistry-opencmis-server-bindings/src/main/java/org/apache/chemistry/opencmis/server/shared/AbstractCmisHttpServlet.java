@@ -18,11 +18,16 @@
  */
 package org.apache.chemistry.opencmis.server.shared;
 
+import java.io.IOException;
+import java.util.Locale;
 import java.util.Map;
+import java.util.zip.Deflater;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -40,6 +45,16 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
 
     public static final String PARAM_CALL_CONTEXT_HANDLER = "callContextHandler";
     public static final String PARAM_CMIS_VERSION = "cmisVersion";
+    public static final String PARAM_COMPRESSION = "compression";
+    public static final String PARAM_COMPRESSION_LEVEL = "compressionLevel";
+    public static final String PARAM_COMPRESSION_MIN_SIZE = "compressionMinSize";
+    public static final String PARAM_COMPRESSION_MIME_TYPES = "compressionMimeTypes";
+    public static final String PARAM_REQUEST_DECOMPRESSION = "requestDecompression";
+
+    public static final int DEFAULT_COMPRESSION_LEVEL = Deflater.BEST_SPEED;
+    public static final int DEFAULT_COMPRESSION_MIN_SIZE = 2 * 1024;
+    public static final String DEFAULT_COMPRESSION_MIME_TYPES = "text/,+xml,+json,application/xml,"
+            + "application/json,application/javascript";
 
     private static final long serialVersionUID = 1L;
 
@@ -48,6 +63,11 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
     private CmisVersion cmisVersion;
     private CallContextHandler callContextHandler;
     private ThresholdOutputStreamFactory streamFactory;
+    private DeflaterPool gzipPool;
+    private DeflaterPool deflatePool;
+    private int compressionMinSize;
+    private String[] compressionMimeTypes;
+    private boolean requestDecompression;
 
     @Override
     public void init(ServletConfig config) throws ServletException {
@@ -76,6 +96,101 @@ public abstract class AbstractCmisHttpServlet extends HttpServlet {
         // set up stream factory
         streamFactory = ThresholdOutputStreamFactory.newInstance(factory.getTempDirectory(),
                 factory.getMemoryThreshold(), factory.getMaxContentSize(), factory.encryptTempFiles());
+
+        // set up response compression
+        initCompression(config);
+
+        // compressed request bodies are only accepted if enabled
+        requestDecompression = Boolean.parseBoolean(config.getInitParameter(PARAM_REQUEST_DECOMPRESSION));
+    }
+
+    /**
+     * Reads the compression settings.
+     */
+    private void initCompression(ServletConfig config) throws ServletException {
+        gzipPool = null;
+        deflatePool = null;
+
+        if (!Boolean.parseBoolean(config.getInitParameter(PARAM_COMPRESSION))) {
+            return;
+        }
+
+        int level = DEFAULT_COMPRESSION_LEVEL;
+        compressionMinSize = DEFAULT_COMPRESSION_MIN_SIZE;
+        try {
+            String levelStr = config.getInitParameter(PARAM_COMPRESSION_LEVEL);
+            if (levelStr != null) {
+                level = Integer.parseInt(levelStr.trim());
+            }
+
+            String minSizeStr = config.getInitParameter(PARAM_COMPRESSION_MIN_SIZE);
+            if (minSizeStr != null) {
+                compressionMinSize = Integer.parseInt(minSizeStr.trim());
+            }
+
+            gzipPool = new DeflaterPool(level, true, DeflaterPool.DEFAULT_MAX_SIZE);
+            deflatePool = new DeflaterPool(level, false, DeflaterPool.DEFAULT_MAX_SIZE);
+        } catch (IllegalArgumentException e) {
+            throw new ServletException("Invalid compression settings: " + e.getMessage(), e);
+        }
+
+        String mimeTypes = config.getInitParameter(PARAM_COMPRESSION_MIME_TYPES);
+        if (mimeTypes == null) {
+            mimeTypes = DEFAULT_COMPRESSION_MIME_TYPES;
+        }
+
+        compressionMimeTypes = mimeTypes.trim().toLowerCase(Locale.ENGLISH).split("\\s*,\\s*");
+    }
+
+    /**
+     * Decompresses compressed request bodies and compresses the response
+     * before the request is handled, if enabled. Decompressed bodies can't be
+     * larger than the max content size of the service factory.
+     */
+    @Override
+    public void service(ServletRequest req, ServletResponse res) throws ServletException, IOException {
+        if (!(req instanceof HttpServletRequest) || !(res instanceof HttpServletResponse)) {
+            super.service(req, res);
+            return;
+        }
+
+        HttpServletRequest request = (HttpServletRequest) req;
+        HttpServletResponse response = (HttpServletResponse) res;
+
+        if (requestDecompression && DecompressingHttpServletRequestWrapper.isCompressed(request)) {
+            request = new DecompressingHttpServletRequestWrapper(request, streamFactory.getMaxContentSize());
+        }
+
+        String encoding = (gzipPool == null ? null : CompressingHttpServletResponseWrapper.selectEncoding(request
+                .getHeader("Accept-Encoding")));
+        if (encoding == null) {
+            super.service(request, response);
+            return;
+        }
+
+        CompressingHttpServletResponseWrapper compressingResponse = new CompressingHttpServletResponseWrapper(
+                response, encoding, CompressingHttpServletResponseWrapper.ENCODING_GZIP.equals(encoding) ? gzipPool
+                        : deflatePool, compressionMinSize, compressionMimeTypes);
+        try {
+            super.service(request, compressingResponse);
+        } finally {
+            compressingResponse.finish();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (gzipPool != null) {
+            gzipPool.clear();
+        }
+        if (deflatePool != null) {
+            deflatePool.clear();
+        }
+        if (streamFactory != null && streamFactory.getBufferPool() != null) {
+            streamFactory.getBufferPool().clear();
+        }
+
+        super.destroy();
     }
 
     /**
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.util.LinkedList;
+
+/**
+ * Pool of byte arrays in power-of-two size classes.
+ * <p>
+ * Used by {@link ThresholdOutputStream} to keep request content in memory
+ * without allocating fresh buffers for every request. Arrays handed out by
+ * the pool are not cleared and may contain data of a previous request.
+ */
+public class BufferPool {
+
+    public static final int MIN_BUFFER_SIZE = 4 * 1024; // 4 KiB
+    public static final int MAX_BUFFER_SIZE = 1024 * 1024; // 1 MiB
+    public static final long DEFAULT_MAX_POOLED_BYTES = 16 * 1024 * 1024; // 16 MiB
+
+    private final long maxPooledBytes;
+    private final LinkedList<byte[]>[] pools;
+    private long pooledBytes = 0;
+
+    /**
+     * Creates a pool.
+     * 
+     * @param maxPooledBytes
+     *            the maximum number of bytes held by idle buffers
+     */
+    @SuppressWarnings("unchecked")
+    public BufferPool(long maxPooledBytes) {
+        this.maxPooledBytes = maxPooledBytes;
+
+        pools = new LinkedList[sizeClass(MAX_BUFFER_SIZE) + 1];
+        for (int i = 0; i < pools.length; i++) {
+            pools[i] = new LinkedList<byte[]>();
+        }
+    }
+
+    /**
+     * Returns the size of the buffer that {@link #getBuffer(int)} returns for
+     * the given minimum size.
+     */
+    public static int getBufferSize(int minSize) {
+        if (minSize > MAX_BUFFER_SIZE) {
+            return minSize;
+        }
+
+        int size = MIN_BUFFER_SIZE;
+        while (size < minSize) {
+            size <<= 1;
+        }
+
+        return size;
+    }
+
+    /**
+     * Takes a buffer of at least the given size from the pool or creates a new
+     * one. Buffers larger than {@link #MAX_BUFFER_SIZE} are never pooled.
+     */
+    public byte[] getBuffer(int minSize) {
+        int size = getBufferSize(minSize);
+        if (size > MAX_BUFFER_SIZE) {
+            return new byte[size];
+        }
+
+        LinkedList<byte[]> pool = pools[sizeClass(size)];
+        synchronized (this) {
+            if (!pool.isEmpty()) {
+                pooledBytes -= size;
+                return pool.removeFirst();
+            }
+        }
+
+        return new byte[size];
+    }
+
+    /**
+     * Puts a buffer back into the pool. Buffers that don't match a size class
+     * or don't fit into the pool are left to the garbage collector.
+     */
+    public void returnBuffer(byte[] buffer) {
+        if (buffer == null || buffer.length > MAX_BUFFER_SIZE || buffer.length < MIN_BUFFER_SIZE
+                || Integer.bitCount(buffer.length) != 1) {
+            return;
+        }
+
+        synchronized (this) {
+            if (pooledBytes + buffer.length <= maxPooledBytes) {
+                pools[sizeClass(buffer.length)].addFirst(buffer);
+                pooledBytes += buffer.length;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of bytes held by idle buffers.
+     */
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    /**
+     * Releases all idle buffers.
+     */
+    public synchronized void clear() {
+        for (LinkedList<byte[]> pool : pools) {
+            pool.clear();
+        }
+        pooledBytes = 0;
+    }
+
+    private static int sizeClass(int size) {
+        return Integer.numberOfTrailingZeros(size) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+}
@@ -0,0 +1,521 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that compresses the response body with gzip or deflate.
+ * <p>
+ * The body is buffered until it reaches the minimum size. Only then the
+ * decision is made whether the body is compressed. Bodies are sent
+ * uncompressed if they are too small, their content type is not compressible,
+ * they already have a content encoding or they are partial content.
+ * <p>
+ * {@link #finish()} must be called after the response has been written.
+ */
+public class CompressingHttpServletResponseWrapper extends HttpServletResponseWrapper {
+
+    public static final String ENCODING_GZIP = "gzip";
+    public static final String ENCODING_DEFLATE = "deflate";
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final int UNDECIDED = 0;
+    private static final int PLAIN = 1;
+    private static final int COMPRESSED = 2;
+
+    private final String encoding;
+    private final DeflaterPool deflaterPool;
+    private final int minSize;
+    private final String[] mimeTypes;
+
+    private int status = SC_OK;
+    private long contentLength = -1;
+    private boolean hasContentEncoding = false;
+    private boolean hasContentRange = false;
+
+    private CompressingOutputStream stream;
+    private PrintWriter writer;
+
+    /**
+     * Creates the wrapper.
+     * 
+     * @param response
+     *            the response
+     * @param encoding
+     *            {@link #ENCODING_GZIP} or {@link #ENCODING_DEFLATE}
+     * @param deflaterPool
+     *            the pool providing the deflaters, raw deflaters for gzip and
+     *            zlib deflaters for deflate
+     * @param minSize
+     *            bodies smaller than this size are not compressed
+     * @param mimeTypes
+     *            the compressible MIME types, see
+     *            {@link #isCompressible(String, String[])}
+     */
+    public CompressingHttpServletResponseWrapper(HttpServletResponse response, String encoding,
+            DeflaterPool deflaterPool, int minSize, String[] mimeTypes) {
+        super(response);
+        this.encoding = encoding;
+        this.deflaterPool = deflaterPool;
+        this.minSize = minSize;
+        this.mimeTypes = mimeTypes;
+    }
+
+    /**
+     * Selects the content encoding from an <code>Accept-Encoding</code> header.
+     * 
+     * @return {@link #ENCODING_GZIP}, {@link #ENCODING_DEFLATE} or
+     *         <code>null</code> if the client doesn't accept compressed
+     *         responses
+     */
+    public static String selectEncoding(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+
+        boolean gzip = false;
+        boolean deflate = false;
+
+        for (String token : acceptEncoding.split(",")) {
+            String name = token;
+            int semicolon = token.indexOf(';');
+            if (semicolon > -1) {
+                name = token.substring(0, semicolon);
+                String params = token.substring(semicolon + 1).replaceAll("\\s", "");
+                if (params.startsWith("q=0") && !params.matches("q=0\\.0*[1-9].*")) {
+                    continue;
+                }
+            }
+
+            name = name.trim().toLowerCase(Locale.ENGLISH);
+            if (ENCODING_GZIP.equals(name) || "x-gzip".equals(name)) {
+                gzip = true;
+            } else if (ENCODING_DEFLATE.equals(name)) {
+                deflate = true;
+            }
+        }
+
+        if (gzip) {
+            return ENCODING_GZIP;
+        }
+        if (deflate) {
+            return ENCODING_DEFLATE;
+        }
+
+        return null;
+    }
+
+    /**
+     * Checks whether a content type is compressible.
+     * <p>
+     * An entry ending with '/' matches all subtypes of a type (for example
+     * "text/"), an entry starting with '+' matches a structured syntax suffix
+     * (for example "+xml"). All other entries must match exactly.
+     */
+    public static boolean isCompressible(String contentType, String[] mimeTypes) {
+        if (contentType == null || mimeTypes == null) {
+            return false;
+        }
+
+        String mimeType = contentType;
+        int semicolon = mimeType.indexOf(';');
+        if (semicolon > -1) {
+            mimeType = mimeType.substring(0, semicolon);
+        }
+        mimeType = mimeType.trim().toLowerCase(Locale.ENGLISH);
+
+        for (String entry : mimeTypes) {
+            if (entry.endsWith("/")) {
+                if (mimeType.startsWith(entry)) {
+                    return true;
+                }
+            } else if (entry.startsWith("+")) {
+                if (mimeType.endsWith(entry)) {
+                    return true;
+                }
+            } else if (mimeType.equals(entry)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns whether the body is sent compressed.
+     */
+    public boolean isCompressed() {
+        return stream != null && stream.state == COMPRESSED;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called!");
+        }
+
+        return getStream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (stream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called!");
+            }
+            writer = new PrintWriter(new OutputStreamWriter(getStream(), getCharacterEncoding()));
+        }
+
+        return writer;
+    }
+
+    private CompressingOutputStream getStream() throws IOException {
+        if (stream == null) {
+            stream = new CompressingOutputStream();
+        }
+
+        return stream;
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+        super.setStatus(sc);
+    }
+
+    @SuppressWarnings("deprecation")
+    @Override
+    public void setStatus(int sc, String sm) {
+        status = sc;
+        super.setStatus(sc, sm);
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        if (interceptHeader("Content-Length", String.valueOf(len))) {
+            return;
+        }
+        super.setContentLength(len);
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (interceptHeader(name, value)) {
+            return;
+        }
+        super.setHeader(name, value);
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (interceptHeader(name, value)) {
+            return;
+        }
+        super.addHeader(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        if (interceptHeader(name, String.valueOf(value))) {
+            return;
+        }
+        super.setIntHeader(name, value);
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        if (interceptHeader(name, String.valueOf(value))) {
+            return;
+        }
+        super.addIntHeader(name, value);
+    }
+
+    /**
+     * Tracks the headers that influence the compression.
+     * 
+     * @return <code>true</code> if the header must not be passed on yet
+     */
+    private boolean interceptHeader(String name, String value) {
+        if ("Content-Encoding".equalsIgnoreCase(name)) {
+            hasContentEncoding = true;
+        } else if ("Content-Range".equalsIgnoreCase(name)) {
+            hasContentRange = true;
+        } else if ("Content-Length".equalsIgnoreCase(name)) {
+            if (stream != null && stream.state == PLAIN) {
+                return false;
+            }
+            if (stream != null && stream.state == COMPRESSED) {
+                return true;
+            }
+            try {
+                contentLength = Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+        if (stream != null) {
+            stream.flush();
+        }
+        super.flushBuffer();
+    }
+
+    @Override
+    public void resetBuffer() {
+        super.resetBuffer();
+        if (stream != null && stream.state == UNDECIDED) {
+            stream.buffer.reset();
+        }
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        status = SC_OK;
+        contentLength = -1;
+        hasContentEncoding = false;
+        hasContentRange = false;
+        if (stream != null) {
+            stream.release();
+        }
+        stream = null;
+        writer = null;
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        discard();
+        super.sendError(sc);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        discard();
+        super.sendError(sc, msg);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        discard();
+        super.sendRedirect(location);
+    }
+
+    /**
+     * Drops the buffered body. The container writes the response itself.
+     */
+    private void discard() {
+        if (stream != null && stream.state == UNDECIDED) {
+            stream.buffer.reset();
+            stream.state = PLAIN;
+            stream.finished = true;
+        }
+    }
+
+    /**
+     * Writes the remaining data and returns the deflater to the pool.
+     */
+    public void finish() throws IOException {
+        try {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.finish();
+            } else if (contentLength > -1) {
+                super.setHeader("Content-Length", String.valueOf(contentLength));
+            }
+        } finally {
+            if (stream != null) {
+                stream.release();
+            }
+        }
+    }
+
+    private class CompressingOutputStream extends ServletOutputStream {
+
+        private int state = UNDECIDED;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(minSize > 0 ? minSize : 32);
+        private ServletOutputStream out;
+        private Deflater deflater;
+        private CRC32 crc;
+        private byte[] deflateBuffer;
+        private boolean finished = false;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b) throws IOException {
+            write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (finished) {
+                throw new IOException("Stream is already closed!");
+            }
+
+            if (state == UNDECIDED) {
+                if (contentLength > -1 || buffer.size() + len >= minSize) {
+                    decide(false);
+                } else {
+                    buffer.write(b, off, len);
+                    return;
+                }
+            }
+
+            if (state == COMPRESSED) {
+                crc.update(b, off, len);
+                deflater.setInput(b, off, len);
+                while (!deflater.needsInput()) {
+                    deflate();
+                }
+            } else {
+                out.write(b, off, len);
+            }
+        }
+
+        /**
+         * Decides whether the body is compressed and writes the buffered data.
+         */
+        private void decide(boolean complete) throws IOException {
+            out = CompressingHttpServletResponseWrapper.super.getOutputStream();
+
+            long length = (complete ? buffer.size() : contentLength);
+            boolean compress = !hasContentEncoding && !hasContentRange && status != SC_PARTIAL_CONTENT
+                    && status != SC_NO_CONTENT && status != SC_NOT_MODIFIED && (length < 0 || length >= minSize)
+                    && isCompressible(getContentType(), mimeTypes);
+
+            if (compress) {
+                state = COMPRESSED;
+                CompressingHttpServletResponseWrapper.super.setHeader("Content-Encoding", encoding);
+                CompressingHttpServletResponseWrapper.super.addHeader("Vary", "Accept-Encoding");
+
+                deflater = deflaterPool.getDeflater();
+                crc = new CRC32();
+                deflateBuffer = new byte[8 * 1024];
+
+                if (ENCODING_GZIP.equals(encoding)) {
+                    out.write(new byte[] { (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0,
+                            0, 0, 0, 0 });
+                }
+            } else {
+                state = PLAIN;
+                if (contentLength > -1) {
+                    CompressingHttpServletResponseWrapper.super.setHeader("Content-Length",
+                            String.valueOf(contentLength));
+                } else if (complete) {
+                    CompressingHttpServletResponseWrapper.super.setContentLength(buffer.size());
+                }
+            }
+
+            if (buffer.size() > 0) {
+                byte[] buffered = buffer.toByteArray();
+                buffer.reset();
+                write(buffered, 0, buffered.length);
+            }
+        }
+
+        private void deflate() throws IOException {
+            int len = deflater.deflate(deflateBuffer, 0, deflateBuffer.length);
+            if (len > 0) {
+                out.write(deflateBuffer, 0, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+
+            if (state == UNDECIDED) {
+                decide(true);
+            }
+
+            finished = true;
+
+            if (state == COMPRESSED) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate();
+                }
+
+                if (ENCODING_GZIP.equals(encoding)) {
+                    writeInt((int) crc.getValue());
+                    writeInt((int) deflater.getBytesRead());
+                }
+
+                release();
+            }
+
+            if (out != null) {
+                out.flush();
+            }
+        }
+
+        private void writeInt(int i) throws IOException {
+            out.write(i & 0xff);
+            out.write((i >> 8) & 0xff);
+            out.write((i >> 16) & 0xff);
+            out.write((i >> 24) & 0xff);
+        }
+
+        private void release() {
+            if (deflater != null) {
+                deflaterPool.returnDeflater(deflater);
+                deflater = null;
+            }
+        }
+    }
+}
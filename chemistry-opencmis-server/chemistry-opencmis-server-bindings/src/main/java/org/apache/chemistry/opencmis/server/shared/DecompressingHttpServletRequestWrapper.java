@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+
+/**
+ * Request wrapper that decompresses gzip or deflate encoded request bodies.
+ * <p>
+ * The <code>Content-Encoding</code> and <code>Content-Length</code> headers of
+ * the original request are hidden because they describe the compressed body.
+ * The decompressed body is limited to a maximum size, so that a small
+ * compressed request can't expand into an arbitrary amount of data.
+ */
+public class DecompressingHttpServletRequestWrapper extends HttpServletRequestWrapper {
+
+    private final boolean gzip;
+    private final long maxSize;
+    private ServletInputStream stream;
+
+    /**
+     * Constructor.
+     *
+     * @param request
+     *            the compressed request
+     * @param maxSize
+     *            the maximum size of the decompressed body in bytes, a negative
+     *            value disables the limit
+     */
+    public DecompressingHttpServletRequestWrapper(HttpServletRequest request, long maxSize) {
+        super(request);
+        gzip = !"deflate".equals(getEncoding(request));
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Checks whether the request body is gzip or deflate encoded.
+     */
+    public static boolean isCompressed(HttpServletRequest request) {
+        String encoding = getEncoding(request);
+        return "gzip".equals(encoding) || "x-gzip".equals(encoding) || "deflate".equals(encoding);
+    }
+
+    private static String getEncoding(HttpServletRequest request) {
+        String encoding = request.getHeader("Content-Encoding");
+        if (encoding == null) {
+            return null;
+        }
+
+        return encoding.trim().toLowerCase(Locale.ENGLISH);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (stream == null) {
+            InputStream in = super.getInputStream();
+            stream = new DecompressingInputStream(gzip ? new GZIPInputStream(in, 8 * 1024) : new InflaterInputStream(
+                    in), maxSize);
+        }
+
+        return stream;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public String getHeader(String name) {
+        if (isHiddenHeader(name)) {
+            return null;
+        }
+
+        return super.getHeader(name);
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        if (isHiddenHeader(name)) {
+            return -1;
+        }
+
+        return super.getIntHeader(name);
+    }
+
+    private boolean isHiddenHeader(String name) {
+        return "Content-Encoding".equalsIgnoreCase(name) || "Content-Length".equalsIgnoreCase(name);
+    }
+
+    private static class DecompressingInputStream extends ServletInputStream {
+
+        private final InputStream stream;
+        private final long maxSize;
+        private long count;
+
+        public DecompressingInputStream(InputStream stream, long maxSize) {
+            this.stream = stream;
+            this.maxSize = maxSize;
+        }
+
+        private void count(long n) {
+            if (n > 0) {
+                count += n;
+                if (maxSize >= 0 && count > maxSize) {
+                    throw new CmisConstraintException("Content too big!");
+                }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = stream.read();
+            if (b > -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b) throws IOException {
+            return read(b, 0, b.length);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = stream.read(b, off, len);
+            count(n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = stream.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return stream.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.shared;
+
+import java.util.LinkedList;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of {@link Deflater} objects.
+ * <p>
+ * Deflaters hold native memory that is only released by {@link Deflater#end()}
+ * or by the garbage collector. Reusing them avoids allocating and freeing
+ * native memory for each compressed response.
+ */
+public class DeflaterPool {
+
+    public static final int DEFAULT_MAX_SIZE = 32;
+
+    private final int level;
+    private final boolean nowrap;
+    private final int maxSize;
+    private final LinkedList<Deflater> pool = new LinkedList<Deflater>();
+
+    /**
+     * Creates a pool.
+     * 
+     * @param level
+     *            the compression level (0-9 or
+     *            {@link Deflater#DEFAULT_COMPRESSION})
+     * @param nowrap
+     *            <code>true</code> for raw deflate data (as used by gzip),
+     *            <code>false</code> for the zlib format
+     * @param maxSize
+     *            the maximum number of idle deflaters kept in the pool
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxSize) {
+        if (level != Deflater.DEFAULT_COMPRESSION
+                && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Returns the compression level.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Takes a deflater from the pool or creates a new one.
+     */
+    public Deflater getDeflater() {
+        synchronized (pool) {
+            if (!pool.isEmpty()) {
+                return pool.removeFirst();
+            }
+        }
+
+        return new Deflater(level, nowrap);
+    }
+
+    /**
+     * Puts a deflater back into the pool. If the pool is full, the deflater is
+     * released.
+     */
+    public void returnDeflater(Deflater deflater) {
+        if (deflater == null) {
+            return;
+        }
+
+        deflater.reset();
+
+        synchronized (pool) {
+            if (pool.size() < maxSize) {
+                pool.addFirst(deflater);
+                return;
+            }
+        }
+
+        deflater.end();
+    }
+
+    /**
+     * Returns the number of idle deflaters.
+     */
+    public int size() {
+        synchronized (pool) {
+            return pool.size();
+        }
+    }
+
+    /**
+     * Releases all idle deflaters.
+     */
+    public void clear() {
+        synchronized (pool) {
+            for (Deflater deflater : pool) {
+                deflater.end();
+            }
+            pool.clear();
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.server.CallContext;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.apache.chemistry.opencmis.commons.impl.server.metrics.ServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -84,17 +85,37 @@ public class Dispatcher implements Serializable {
             LOG.debug(repositoryId + " / " + resource + ", " + httpMethod + " -> " + serviceCall.getClass().getName());
         }
 
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        long start = System.nanoTime();
         try {
             serviceCall.serve(context, service, repositoryId, request, response);
         } catch (CmisBaseException ce) {
+            record(metrics, resource, httpMethod, context, repositoryId, start, ce);
             throw ce;
         } catch (Exception e) {
-            throw new CmisRuntimeException(e.getMessage(), e);
+            CmisRuntimeException re = new CmisRuntimeException(e.getMessage(), e);
+            record(metrics, resource, httpMethod, context, repositoryId, start, re);
+            throw re;
         }
 
+        record(metrics, resource, httpMethod, context, repositoryId, start, null);
+
         return true;
     }
 
+    /**
+     * Records the call in the scope of the binding.
+     */
+    private void record(ServerMetrics metrics, String resource, String httpMethod, CallContext context,
+            String repositoryId, long start, Throwable error) {
+        if (!metrics.isEnabled()) {
+            return;
+        }
+
+        String binding = (context == null || context.getBinding() == null ? "http" : context.getBinding());
+        metrics.record(binding, repositoryId, resource + " " + httpMethod, start, null, error);
+    }
+
     /**
      * Generates a map key from a resource and an HTTP method.
      */
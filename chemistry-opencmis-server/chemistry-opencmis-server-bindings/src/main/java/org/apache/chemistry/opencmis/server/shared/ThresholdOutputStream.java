@@ -19,15 +19,18 @@
 package org.apache.chemistry.opencmis.server.shared;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.security.Key;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
@@ -47,30 +50,44 @@ import org.slf4j.LoggerFactory;
  * It it is important to close this OutputStream before
  * {@link #getInputStream()} is called or call {@link #destroy()} if the
  * InputStream isn't required!
+ * <p>
+ * The data is kept in a list of chunks that grow in size. Growing never copies
+ * data that has already been written. If a {@link BufferPool} is provided, the
+ * chunks are taken from and returned to the pool.
  */
 public class ThresholdOutputStream extends OutputStream {
 
     private static final Logger LOG = LoggerFactory.getLogger(ThresholdOutputStream.class);
 
-    private static final int MAX_GROW = 10 * 1024 * 1024; // 10 MiB
+    private static final int DEFAULT_INIT_SIZE = 64 * 1024; // 64 KiB
     private static final int DEFAULT_THRESHOLD = 4 * 1024 * 1024; // 4 MiB
+    private static final int MAX_CHUNK_SIZE = BufferPool.MAX_BUFFER_SIZE;
+    private static final int FILE_BUFFER_SIZE = 64 * 1024; // 64 KiB
 
     private static final String ALGORITHM = "AES";
     private static final String MODE = "CTR";
-    private static final String PADDING = "PKCS5Padding";
+    private static final String PADDING = "NoPadding";
     private static final String TRANSFORMATION = ALGORITHM + '/' + MODE + '/' + PADDING;
     private static final int KEY_SIZE = 128;
 
     private final File tempDir;
+    private final int initSize;
     private final int memoryThreshold;
     private final long maxContentSize;
     private final boolean encrypt;
+    private final BufferPool bufferPool;
 
-    private byte[] buf = null;
-    private int bufSize = 0;
+    private List<byte[]> chunks = new ArrayList<byte[]>();
+    private byte[] chunk = null;
+    private int chunkPos = 0;
+    private long capacity = 0;
     private long size = 0;
+
     private File tempFile;
-    private OutputStream tmpStream;
+    private FileChannel tmpChannel;
+    private OutputStream tmpCipherStream;
+    private byte[] fileBuffer;
+    private int fileBufferPos = 0;
     private Key key;
     private byte[] iv;
 
@@ -86,7 +103,7 @@ public class ThresholdOutputStream extends OutputStream {
      *            max size of the content in bytes (-1 to disable the check)
      */
     public ThresholdOutputStream(File tempDir, int memoryThreshold, long maxContentSize) {
-        this(64 * 1024, tempDir, memoryThreshold, maxContentSize, false);
+        this(DEFAULT_INIT_SIZE, tempDir, memoryThreshold, maxContentSize, false);
     }
 
     /**
@@ -101,7 +118,7 @@ public class ThresholdOutputStream extends OutputStream {
      *            max size of the content in bytes (-1 to disable the check)
      */
     public ThresholdOutputStream(File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt) {
-        this(64 * 1024, tempDir, memoryThreshold, maxContentSize, encrypt);
+        this(DEFAULT_INIT_SIZE, tempDir, memoryThreshold, maxContentSize, encrypt);
     }
 
     /**
@@ -120,62 +137,128 @@ public class ThresholdOutputStream extends OutputStream {
      *            indicates if temporary files must be encrypted
      */
     public ThresholdOutputStream(int initSize, File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt) {
+        this(initSize, tempDir, memoryThreshold, maxContentSize, encrypt, null);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param initSize
+     *            initial internal buffer size
+     * @param tempDir
+     *            temp directory or <code>null</code> for the default temp
+     *            directory
+     * @param memoryThreshold
+     *            memory threshold in bytes
+     * @param maxContentSize
+     *            max size of the content in bytes (-1 to disable the check)
+     * @param encrypt
+     *            indicates if temporary files must be encrypted
+     * @param bufferPool
+     *            pool for the internal buffers or <code>null</code> to
+     *            allocate new buffers
+     */
+    public ThresholdOutputStream(int initSize, File tempDir, int memoryThreshold, long maxContentSize,
+            boolean encrypt, BufferPool bufferPool) {
         if (initSize < 0) {
             throw new IllegalArgumentException("Negative initial size: " + initSize);
         }
 
         this.tempDir = tempDir;
+        this.initSize = initSize;
         this.memoryThreshold = (memoryThreshold < 0 ? DEFAULT_THRESHOLD : memoryThreshold);
         this.maxContentSize = maxContentSize;
         this.encrypt = encrypt;
+        this.bufferPool = bufferPool;
+    }
 
-        buf = new byte[initSize];
+    private byte[] allocate(int minSize) {
+        return bufferPool == null ? new byte[minSize] : bufferPool.getBuffer(minSize);
     }
 
-    private void expand(int nextBufferSize) throws IOException {
-        if (bufSize + nextBufferSize <= buf.length) {
-            return;
+    private void release(byte[] buffer) {
+        if (bufferPool != null) {
+            bufferPool.returnBuffer(buffer);
         }
+    }
 
-        if (bufSize + nextBufferSize > memoryThreshold) {
-            if (tmpStream == null) {
-                tempFile = File.createTempFile("opencmis", null, tempDir);
-                if (encrypt) {
+    /**
+     * Appends a new chunk. The chunks double in size up to
+     * {@link #MAX_CHUNK_SIZE} but don't reach far beyond the memory threshold.
+     */
+    private void addChunk() {
+        int nextSize = (chunk == null ? initSize : Math.min(chunk.length * 2, MAX_CHUNK_SIZE));
+        nextSize = (int) Math.min(nextSize, memoryThreshold - capacity);
+        nextSize = Math.max(nextSize, BufferPool.MIN_BUFFER_SIZE);
+
+        chunk = allocate(nextSize);
+        chunkPos = 0;
+        chunks.add(chunk);
+        capacity += chunk.length;
+    }
 
-                    Cipher cipher;
-                    try {
-                        KeyGenerator keyGenerator = KeyGenerator.getInstance(ALGORITHM);
-                        keyGenerator.init(KEY_SIZE);
-                        key = keyGenerator.generateKey();
+    /**
+     * Moves the data from the memory to a temporary file.
+     */
+    private void spill() throws IOException {
+        tempFile = File.createTempFile("opencmis", null, tempDir);
+        FileOutputStream fileStream = new FileOutputStream(tempFile);
+        tmpChannel = fileStream.getChannel();
 
-                        cipher = Cipher.getInstance(TRANSFORMATION);
-                        cipher.init(Cipher.ENCRYPT_MODE, key);
+        if (encrypt) {
+            Cipher cipher;
+            try {
+                KeyGenerator keyGenerator = KeyGenerator.getInstance(ALGORITHM);
+                keyGenerator.init(KEY_SIZE);
+                key = keyGenerator.generateKey();
 
-                        iv = cipher.getIV();
-                    } catch (Exception e) {
-                        throw new IOException("Cannot initialize encryption cipher!", e);
-                    }
+                cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.ENCRYPT_MODE, key);
 
-                    tmpStream = new BufferedOutputStream(new CipherOutputStream(new FileOutputStream(tempFile), cipher));
-                } else {
-                    tmpStream = new BufferedOutputStream(new FileOutputStream(tempFile));
-                }
+                iv = cipher.getIV();
+            } catch (Exception e) {
+                throw new IOException("Cannot initialize encryption cipher!", e);
             }
-            tmpStream.write(buf, 0, bufSize);
 
-            if (buf.length != memoryThreshold) {
-                buf = new byte[memoryThreshold];
-            }
-            bufSize = 0;
+            tmpCipherStream = new CipherOutputStream(fileStream, cipher);
+        }
 
-            return;
+        for (int i = 0; i < chunks.size(); i++) {
+            byte[] c = chunks.get(i);
+            writeToFile(c, 0, (i == chunks.size() - 1 ? chunkPos : c.length));
         }
 
-        int newSize = ((bufSize + nextBufferSize) * 2 < MAX_GROW ? (bufSize + nextBufferSize) * 2 : buf.length
-                + nextBufferSize + MAX_GROW);
-        byte[] newbuf = new byte[newSize];
-        System.arraycopy(buf, 0, newbuf, 0, bufSize);
-        buf = newbuf;
+        // the chunks are released only after all of them have been written,
+        // if writing fails destroy() releases them
+        List<byte[]> written = chunks;
+        chunks = null;
+        chunk = null;
+        chunkPos = 0;
+        capacity = 0;
+        for (byte[] c : written) {
+            release(c);
+        }
+
+        fileBuffer = allocate(FILE_BUFFER_SIZE);
+        fileBufferPos = 0;
+    }
+
+    private void writeToFile(byte[] buffer, int offset, int len) throws IOException {
+        if (tmpCipherStream != null) {
+            tmpCipherStream.write(buffer, offset, len);
+        } else {
+            ByteBuffer bb = ByteBuffer.wrap(buffer, offset, len);
+            while (bb.hasRemaining()) {
+                tmpChannel.write(bb);
+            }
+        }
+    }
+
+    private void flushFileBuffer() throws IOException {
+        if (fileBufferPos > 0) {
+            writeToFile(fileBuffer, 0, fileBufferPos);
+            fileBufferPos = 0;
+        }
     }
 
     public long getSize() {
@@ -199,9 +282,37 @@ public class ThresholdOutputStream extends OutputStream {
                 throw new CmisConstraintException("Content too big!");
             }
 
-            expand(len);
-            System.arraycopy(buffer, offset, buf, bufSize, len);
-            bufSize += len;
+            if (tempFile == null && size + len > memoryThreshold) {
+                spill();
+            }
+
+            if (tempFile != null) {
+                if (fileBufferPos + len > fileBuffer.length) {
+                    flushFileBuffer();
+                }
+
+                if (len >= fileBuffer.length) {
+                    writeToFile(buffer, offset, len);
+                } else {
+                    System.arraycopy(buffer, offset, fileBuffer, fileBufferPos, len);
+                    fileBufferPos += len;
+                }
+            } else {
+                int pos = offset;
+                int remaining = len;
+                while (remaining > 0) {
+                    if (chunk == null || chunkPos == chunk.length) {
+                        addChunk();
+                    }
+
+                    int n = Math.min(remaining, chunk.length - chunkPos);
+                    System.arraycopy(buffer, pos, chunk, chunkPos, n);
+                    chunkPos += n;
+                    pos += n;
+                    remaining -= n;
+                }
+            }
+
             size += len;
         } catch (IOException ioe) {
             destroy();
@@ -217,11 +328,24 @@ public class ThresholdOutputStream extends OutputStream {
                 throw new CmisConstraintException("Content too big!");
             }
 
-            if (bufSize == buf.length) {
-                expand(1);
+            if (tempFile == null && size + 1 > memoryThreshold) {
+                spill();
+            }
+
+            if (tempFile != null) {
+                if (fileBufferPos == fileBuffer.length) {
+                    flushFileBuffer();
+                }
+
+                fileBuffer[fileBufferPos++] = (byte) oneByte;
+            } else {
+                if (chunk == null || chunkPos == chunk.length) {
+                    addChunk();
+                }
+
+                chunk[chunkPos++] = (byte) oneByte;
             }
 
-            buf[bufSize++] = (byte) oneByte;
             size++;
         } catch (IOException ioe) {
             destroy();
@@ -231,13 +355,12 @@ public class ThresholdOutputStream extends OutputStream {
 
     @Override
     public void flush() throws IOException {
-        if (tmpStream != null) {
+        if (tmpChannel != null) {
             try {
-                if (bufSize > 0) {
-                    tmpStream.write(buf, 0, bufSize);
-                    bufSize = 0;
+                flushFileBuffer();
+                if (tmpCipherStream != null) {
+                    tmpCipherStream.flush();
                 }
-                tmpStream.flush();
             } catch (IOException ioe) {
                 destroy();
                 throw ioe;
@@ -249,8 +372,40 @@ public class ThresholdOutputStream extends OutputStream {
     public void close() throws IOException {
         flush();
 
-        if (tmpStream != null) {
-            tmpStream.close();
+        if (tmpChannel != null) {
+            closeFile();
+        }
+    }
+
+    private void closeFile() throws IOException {
+        try {
+            if (tmpCipherStream != null) {
+                tmpCipherStream.close();
+            }
+            tmpChannel.close();
+        } finally {
+            tmpCipherStream = null;
+            tmpChannel = null;
+            release(fileBuffer);
+            fileBuffer = null;
+        }
+    }
+
+    /**
+     * Returns all internal buffers to the pool.
+     */
+    private void releaseBuffers() {
+        if (chunks != null) {
+            for (byte[] c : chunks) {
+                release(c);
+            }
+            chunks = null;
+            chunk = null;
+        }
+
+        if (fileBuffer != null) {
+            release(fileBuffer);
+            fileBuffer = null;
         }
     }
 
@@ -259,9 +414,8 @@ public class ThresholdOutputStream extends OutputStream {
      */
     public void destroy() {
         try {
-            if (tmpStream != null) {
-                tmpStream.flush();
-                tmpStream.close();
+            if (tmpChannel != null) {
+                closeFile();
             }
         } catch (Exception e) {
             // ignore
@@ -274,16 +428,15 @@ public class ThresholdOutputStream extends OutputStream {
             }
         }
 
-        buf = null;
+        releaseBuffers();
     }
 
     /**
      * Returns the data as an InputStream.
      */
     public InputStream getInputStream() throws IOException {
-        if (tmpStream != null) {
+        if (tempFile != null) {
             close();
-            buf = null;
 
             return new InternalTempFileInputStream();
         } else {
@@ -337,6 +490,17 @@ public class ThresholdOutputStream extends OutputStream {
          * Rewinds the stream so that it can be read from the beginning.
          */
         public abstract void rewind() throws IOException;
+
+        /**
+         * Writes the complete content to the given channel, independent of
+         * the current read position. Unencrypted temporary files are
+         * transferred with {@link FileChannel#transferTo(long, long,
+         * WritableByteChannel)}, which lets the operating system copy the data
+         * without passing it through the Java heap.
+         * 
+         * @return the number of bytes written
+         */
+        public abstract long transferTo(WritableByteChannel target) throws IOException;
     }
 
     /**
@@ -344,24 +508,58 @@ public class ThresholdOutputStream extends OutputStream {
      */
     private class InternalBufferInputStream extends ThresholdInputStream {
 
-        private int pos = 0;
-        private int mark = -1;
+        private long pos = 0;
+        private int index = 0;
+        private int offset = 0;
+        private long mark = -1;
+        private byte[] bytes = null;
 
         public boolean isInMemory() {
             return true;
         }
 
+        /**
+         * Returns a copy of the content. Pooled chunks may contain data of
+         * other requests beyond the end of the content and are never exposed.
+         */
         public byte[] getBytes() {
-            return buf;
+            if (bytes == null && chunks != null) {
+                bytes = new byte[(int) size];
+                int p = 0;
+                for (int i = 0; i < chunks.size(); i++) {
+                    int len = chunkLength(i);
+                    System.arraycopy(chunks.get(i), 0, bytes, p, len);
+                    p += len;
+                }
+            }
+
+            return bytes;
+        }
+
+        private int chunkLength(int i) {
+            return i == chunks.size() - 1 ? chunkPos : chunks.get(i).length;
+        }
+
+        private void seek(long newPos) {
+            pos = newPos;
+            index = 0;
+
+            long rest = newPos;
+            while (index < chunks.size() - 1 && rest >= chunkLength(index)) {
+                rest -= chunkLength(index);
+                index++;
+            }
+
+            offset = (int) rest;
         }
 
         @Override
         public void rewind() throws IOException {
-            if (buf == null) {
+            if (chunks == null) {
                 throw new IOException("Stream is already closed!");
             }
 
-            pos = 0;
+            seek(0);
             mark = -1;
         }
 
@@ -372,32 +570,42 @@ public class ThresholdOutputStream extends OutputStream {
 
         @Override
         public void mark(int readlimit) {
-            if (buf != null) {
+            if (chunks != null) {
                 mark = pos;
             }
         }
 
         @Override
         public void reset() throws IOException {
-            if (mark < 0) {
+            if (mark < 0 || chunks == null) {
                 throw new IOException("Reset not possible.");
             }
 
-            pos = mark;
+            seek(mark);
         }
 
         @Override
         public int available() {
-            if (buf == null) {
+            if (chunks == null) {
                 return 0;
             }
 
-            return bufSize - pos;
+            return (int) (size - pos);
         }
 
         @Override
         public int read() {
-            return (pos < bufSize) && (buf != null) ? (buf[pos++] & 0xff) : -1;
+            if (chunks == null || pos >= size) {
+                return -1;
+            }
+
+            if (offset == chunkLength(index)) {
+                index++;
+                offset = 0;
+            }
+
+            pos++;
+            return chunks.get(index)[offset++] & 0xff;
         }
 
         @Override
@@ -407,46 +615,58 @@ public class ThresholdOutputStream extends OutputStream {
 
         @Override
         public int read(byte[] b, int off, int len) {
-            if ((pos >= bufSize) || (buf == null)) {
+            if (chunks == null || pos >= size) {
                 return -1;
             }
 
-            if (len == 0) {
-                return 0;
-            }
+            int n = 0;
+            while (n < len && pos < size) {
+                if (offset == chunkLength(index)) {
+                    index++;
+                    offset = 0;
+                }
 
-            if ((pos + len) > bufSize) {
-                len = (bufSize - pos);
+                int k = Math.min(len - n, chunkLength(index) - offset);
+                System.arraycopy(chunks.get(index), offset, b, off + n, k);
+                offset += k;
+                pos += k;
+                n += k;
             }
 
-            System.arraycopy(buf, pos, b, off, len);
-            pos += len;
-
-            return len;
+            return n;
         }
 
         @Override
         public long skip(long n) {
-            if (buf == null) {
-                return -1;
-            }
-
-            if (n <= 0) {
+            if (chunks == null || n <= 0) {
                 return 0;
             }
 
-            if ((pos + n) > bufSize) {
-                n = bufSize - pos;
+            long k = Math.min(n, size - pos);
+            seek(pos + k);
+
+            return k;
+        }
+
+        @Override
+        public long transferTo(WritableByteChannel target) throws IOException {
+            if (chunks == null) {
+                throw new IOException("Stream is already closed!");
             }
 
-            pos += n;
+            for (int i = 0; i < chunks.size(); i++) {
+                ByteBuffer bb = ByteBuffer.wrap(chunks.get(i), 0, chunkLength(i));
+                while (bb.hasRemaining()) {
+                    target.write(bb);
+                }
+            }
 
-            return n;
+            return size;
         }
 
         @Override
         public void close() throws IOException {
-            buf = null;
+            releaseBuffers();
             mark = -1;
         }
     }
@@ -456,34 +676,34 @@ public class ThresholdOutputStream extends OutputStream {
      */
     private class InternalTempFileInputStream extends ThresholdInputStream {
 
-        private final Cipher cipher;
         private BufferedInputStream stream;
         private boolean isDeleted = false;
         private boolean isClosed = false;
 
         public InternalTempFileInputStream() throws IOException {
+            openStream();
+        }
 
-            if (encrypt) {
-                try {
-                    cipher = Cipher.getInstance(TRANSFORMATION);
-                    cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
-                } catch (Exception e) {
-                    delete();
-                    throw new IOException("Cannot initialize decryption cipher!", e);
-                }
-            } else {
-                cipher = null;
+        private Cipher createDecryptionCipher() throws IOException {
+            try {
+                Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+                cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(iv));
+                return cipher;
+            } catch (Exception e) {
+                delete();
+                throw new IOException("Cannot initialize decryption cipher!", e);
             }
+        }
 
-            openStream();
+        protected void openStream() throws IOException {
+            stream = new BufferedInputStream(openFile(), FILE_BUFFER_SIZE);
         }
 
-        protected void openStream() throws FileNotFoundException {
+        private InputStream openFile() throws IOException {
             if (encrypt) {
-                stream = new BufferedInputStream(new CipherInputStream(new FileInputStream(tempFile), cipher),
-                        memoryThreshold);
+                return new CipherInputStream(new FileInputStream(tempFile), createDecryptionCipher());
             } else {
-                stream = new BufferedInputStream(new FileInputStream(tempFile), memoryThreshold);
+                return new FileInputStream(tempFile);
             }
         }
 
@@ -539,7 +759,7 @@ public class ThresholdOutputStream extends OutputStream {
         @Override
         public long skip(long n) throws IOException {
             if (isClosed) {
-                return -1;
+                return 0;
             }
 
             return stream.skip(n);
@@ -571,7 +791,7 @@ public class ThresholdOutputStream extends OutputStream {
                 return -1;
             }
 
-            int n = super.read(b, off, len);
+            int n = stream.read(b, off, len);
 
             if (n == -1) {
                 delete();
@@ -580,6 +800,46 @@ public class ThresholdOutputStream extends OutputStream {
             return n;
         }
 
+        @Override
+        public long transferTo(WritableByteChannel target) throws IOException {
+            if (isClosed) {
+                throw new IOException("Stream is already closed!");
+            }
+
+            if (!encrypt) {
+                FileInputStream fileStream = new FileInputStream(tempFile);
+                try {
+                    FileChannel channel = fileStream.getChannel();
+                    long length = channel.size();
+                    long position = 0;
+                    while (position < length) {
+                        position += channel.transferTo(position, length - position, target);
+                    }
+                    return length;
+                } finally {
+                    fileStream.close();
+                }
+            }
+
+            InputStream in = openFile();
+            byte[] buffer = allocate(FILE_BUFFER_SIZE);
+            try {
+                long length = 0;
+                int n;
+                while ((n = in.read(buffer)) > -1) {
+                    ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+                    while (bb.hasRemaining()) {
+                        target.write(bb);
+                    }
+                    length += n;
+                }
+                return length;
+            } finally {
+                in.close();
+                release(buffer);
+            }
+        }
+
         @Override
         public void close() throws IOException {
             delete();
@@ -25,16 +25,21 @@ import java.io.File;
  */
 public final class ThresholdOutputStreamFactory {
 
+    private static final int DEFAULT_INIT_SIZE = 64 * 1024; // 64 KiB
+
     private File tempDir;
     private int memoryThreshold;
     private long maxContentSize;
     private boolean encrypt;
+    private BufferPool bufferPool;
 
-    private ThresholdOutputStreamFactory(File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt) {
+    private ThresholdOutputStreamFactory(File tempDir, int memoryThreshold, long maxContentSize, boolean encrypt,
+            BufferPool bufferPool) {
         this.tempDir = tempDir;
         this.memoryThreshold = memoryThreshold;
         this.maxContentSize = maxContentSize;
         this.encrypt = encrypt;
+        this.bufferPool = bufferPool;
     }
 
     /**
@@ -53,14 +58,39 @@ public final class ThresholdOutputStreamFactory {
      */
     public static ThresholdOutputStreamFactory newInstance(File tempDir, int memoryThreshold, long maxContentSize,
             boolean encrypt) {
-        return new ThresholdOutputStreamFactory(tempDir, memoryThreshold, maxContentSize, encrypt);
+        return newInstance(tempDir, memoryThreshold, maxContentSize, encrypt, BufferPool.DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    /**
+     * Creates a new factory. The parameters are used to create new
+     * {@link ThresholdOutputStream} objects. All streams share one
+     * {@link BufferPool}.
+     * 
+     * @param tempDir
+     *            temp directory or <code>null</code> for the default temp
+     *            directory
+     * @param memoryThreshold
+     *            memory threshold in bytes
+     * @param maxContentSize
+     *            max size of the content in bytes (-1 to disable the check)
+     * @param encrypt
+     *            indicates if temporary files must be encrypted
+     * @param maxPooledBytes
+     *            max number of bytes kept in the buffer pool (0 to disable
+     *            pooling)
+     */
+    public static ThresholdOutputStreamFactory newInstance(File tempDir, int memoryThreshold, long maxContentSize,
+            boolean encrypt, long maxPooledBytes) {
+        return new ThresholdOutputStreamFactory(tempDir, memoryThreshold, maxContentSize, encrypt,
+                maxPooledBytes > 0 ? new BufferPool(maxPooledBytes) : null);
     }
 
     /**
      * Creates a new {@link ThresholdOutputStream} object.
      */
     public ThresholdOutputStream newOutputStream() {
-        return new ThresholdOutputStream(tempDir, memoryThreshold, maxContentSize, encrypt);
+        return new ThresholdOutputStream(DEFAULT_INIT_SIZE, tempDir, memoryThreshold, maxContentSize, encrypt,
+                bufferPool);
     }
 
     /**
@@ -91,4 +121,12 @@ public final class ThresholdOutputStreamFactory {
     public boolean isEncrypted() {
         return encrypt;
     }
+
+    /**
+     * Returns the buffer pool shared by the streams or <code>null</code> if
+     * pooling is disabled.
+     */
+    public BufferPool getBufferPool() {
+        return bufferPool;
+    }
 }
@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.server.shared.AbstractCmisHttpServlet;
+import org.apache.chemistry.opencmis.server.shared.CompressingHttpServletResponseWrapper;
+import org.apache.chemistry.opencmis.server.shared.DecompressingHttpServletRequestWrapper;
+import org.apache.chemistry.opencmis.server.shared.DeflaterPool;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CompressionTest {
+
+    private static final String[] MIME_TYPES = AbstractCmisHttpServlet.DEFAULT_COMPRESSION_MIME_TYPES.split(",");
+
+    @Test
+    public void testSelectEncoding() {
+        assertEquals("gzip", CompressingHttpServletResponseWrapper.selectEncoding("gzip,deflate"));
+        assertEquals("gzip", CompressingHttpServletResponseWrapper.selectEncoding("deflate, x-gzip;q=0.5"));
+        assertEquals("deflate", CompressingHttpServletResponseWrapper.selectEncoding("gzip;q=0, deflate"));
+        assertEquals("gzip", CompressingHttpServletResponseWrapper.selectEncoding("GZIP; q=0.01"));
+        assertNull(CompressingHttpServletResponseWrapper.selectEncoding("identity"));
+        assertNull(CompressingHttpServletResponseWrapper.selectEncoding(null));
+    }
+
+    @Test
+    public void testIsCompressible() {
+        assertTrue(CompressingHttpServletResponseWrapper.isCompressible("application/atom+xml;type=feed",
+                MIME_TYPES));
+        assertTrue(CompressingHttpServletResponseWrapper.isCompressible("application/json; charset=UTF-8",
+                MIME_TYPES));
+        assertTrue(CompressingHttpServletResponseWrapper.isCompressible("text/html", MIME_TYPES));
+        assertFalse(CompressingHttpServletResponseWrapper.isCompressible("image/png", MIME_TYPES));
+        assertFalse(CompressingHttpServletResponseWrapper.isCompressible("application/zip", MIME_TYPES));
+        assertFalse(CompressingHttpServletResponseWrapper.isCompressible(null, MIME_TYPES));
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        DeflaterPool pool = new DeflaterPool(Deflater.BEST_SPEED, true, 2);
+        byte[] body = createBody(100 * 1024);
+
+        for (int i = 0; i < 3; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            HttpServletResponse response = createResponse(out, "application/atom+xml;type=feed");
+
+            CompressingHttpServletResponseWrapper wrapper = new CompressingHttpServletResponseWrapper(response,
+                    "gzip", pool, 1024, MIME_TYPES);
+            wrapper.setHeader("Content-Length", String.valueOf(body.length));
+            wrapper.getOutputStream().write(body, 0, 10);
+            wrapper.getOutputStream().write(body, 10, body.length - 10);
+            wrapper.finish();
+
+            assertTrue(wrapper.isCompressed());
+            assertTrue(out.size() < body.length);
+            assertArrayEquals(body, readAll(new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+            Mockito.verify(response).setHeader("Content-Encoding", "gzip");
+            Mockito.verify(response, Mockito.never()).setHeader(Mockito.eq("Content-Length"), Mockito.anyString());
+            assertEquals(1, pool.size());
+        }
+    }
+
+    @Test
+    public void testDeflateWriter() throws IOException {
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, false, 2);
+        String body = new String(createBody(10 * 1024), "UTF-8");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = createResponse(out, "application/json");
+
+        CompressingHttpServletResponseWrapper wrapper = new CompressingHttpServletResponseWrapper(response,
+                "deflate", pool, 1024, MIME_TYPES);
+        wrapper.getWriter().write(body);
+        wrapper.finish();
+
+        assertTrue(wrapper.isCompressed());
+        assertEquals(body, new String(readAll(new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))),
+                "UTF-8"));
+        Mockito.verify(response).setHeader("Content-Encoding", "deflate");
+    }
+
+    @Test
+    public void testNotCompressed() throws IOException {
+        DeflaterPool pool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 2);
+
+        // too small
+        byte[] small = createBody(100);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletResponse response = createResponse(out, "application/atom+xml;type=entry");
+        CompressingHttpServletResponseWrapper wrapper = new CompressingHttpServletResponseWrapper(response, "gzip",
+                pool, 1024, MIME_TYPES);
+        wrapper.getOutputStream().write(small);
+        wrapper.finish();
+
+        assertFalse(wrapper.isCompressed());
+        assertArrayEquals(small, out.toByteArray());
+        Mockito.verify(response).setContentLength(small.length);
+
+        // not compressible
+        byte[] image = createBody(10 * 1024);
+        out = new ByteArrayOutputStream();
+        response = createResponse(out, "image/png");
+        wrapper = new CompressingHttpServletResponseWrapper(response, "gzip", pool, 1024, MIME_TYPES);
+        wrapper.setHeader("Content-Length", String.valueOf(image.length));
+        wrapper.getOutputStream().write(image);
+        wrapper.finish();
+
+        assertFalse(wrapper.isCompressed());
+        assertArrayEquals(image, out.toByteArray());
+        Mockito.verify(response).setHeader("Content-Length", String.valueOf(image.length));
+
+        // partial content
+        out = new ByteArrayOutputStream();
+        response = createResponse(out, "text/plain");
+        wrapper = new CompressingHttpServletResponseWrapper(response, "gzip", pool, 1024, MIME_TYPES);
+        wrapper.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        wrapper.setHeader("Content-Range", "bytes 0-10239/20000");
+        wrapper.getOutputStream().write(image);
+        wrapper.finish();
+
+        assertFalse(wrapper.isCompressed());
+        assertArrayEquals(image, out.toByteArray());
+        assertEquals(0, pool.size());
+    }
+
+    @Test
+    public void testCompressedRequest() throws IOException {
+        byte[] body = createBody(20 * 1024);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(compressed);
+        gzip.write(body);
+        gzip.close();
+
+        HttpServletRequest request = HttpRequestMockHelper.createRequest("x", compressed.toByteArray());
+        Mockito.when(request.getHeader("Content-Encoding")).thenReturn("gzip");
+        Mockito.when(request.getHeader("Content-Length")).thenReturn(String.valueOf(compressed.size()));
+        Mockito.when(request.getContentLength()).thenReturn(compressed.size());
+
+        assertTrue(DecompressingHttpServletRequestWrapper.isCompressed(request));
+
+        DecompressingHttpServletRequestWrapper wrapper = new DecompressingHttpServletRequestWrapper(request,
+                body.length);
+        assertNull(wrapper.getHeader("Content-Encoding"));
+        assertNull(wrapper.getHeader("content-length"));
+        assertEquals(-1, wrapper.getContentLength());
+        assertArrayEquals(body, readAll(wrapper.getInputStream()));
+
+        // the decompressed body must not exceed the limit
+        request = HttpRequestMockHelper.createRequest("x", compressed.toByteArray());
+        Mockito.when(request.getHeader("Content-Encoding")).thenReturn("gzip");
+        wrapper = new DecompressingHttpServletRequestWrapper(request, body.length - 1);
+        try {
+            readAll(wrapper.getInputStream());
+            fail("Decompressed body exceeds the limit");
+        } catch (CmisConstraintException e) {
+            // expected
+        }
+    }
+
+    private static HttpServletResponse createResponse(final ByteArrayOutputStream out, String contentType)
+            throws IOException {
+        HttpServletResponse response = Mockito.mock(HttpServletResponse.class);
+        Mockito.when(response.getContentType()).thenReturn(contentType);
+        Mockito.when(response.getCharacterEncoding()).thenReturn("UTF-8");
+        Mockito.when(response.getOutputStream()).thenReturn(new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+        });
+        return response;
+    }
+
+    private static byte[] createBody(int size) {
+        byte[] body = new byte[size];
+        String entry = "<atom:entry><cmis:propertyId propertyDefinitionId=\"cmis:objectId\">";
+        for (int i = 0; i < size; i++) {
+            body[i] = (byte) (i % 97 == 0 ? '0' + (i % 10) : entry.charAt(i % entry.length()));
+        }
+        return body;
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int b;
+        while ((b = stream.read(buffer)) > -1) {
+            out.write(buffer, 0, b);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.commons.exceptions.CmisConstraintException;
+import org.apache.chemistry.opencmis.server.shared.BufferPool;
+import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStream;
+import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStream.ThresholdInputStream;
+import org.apache.chemistry.opencmis.server.shared.ThresholdOutputStreamFactory;
+import org.junit.Test;
+
+public class ThresholdOutputStreamTest {
+
+    private static final int THRESHOLD = 1024 * 1024;
+
+    private static byte[] createContent(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private static ThresholdInputStream write(ThresholdOutputStreamFactory factory, byte[] content)
+            throws IOException {
+        ThresholdOutputStream tos = factory.newOutputStream();
+        // mix single bytes and blocks of different sizes
+        int pos = 0;
+        int block = 1;
+        while (pos < content.length) {
+            if (block % 7 == 0) {
+                tos.write(content[pos]);
+                pos++;
+            } else {
+                int len = Math.min(block * 997, content.length - pos);
+                tos.write(content, pos, len);
+                pos += len;
+            }
+            block++;
+        }
+        tos.close();
+
+        assertEquals(content.length, tos.getSize());
+
+        return (ThresholdInputStream) tos.getInputStream();
+    }
+
+    private static byte[] read(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[3000];
+        int b;
+        while ((b = stream.read(buffer)) > -1) {
+            out.write(buffer, 0, b);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] transfer(ThresholdInputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(stream.length(), stream.transferTo(Channels.newChannel(out)));
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testInMemory() throws IOException {
+        ThresholdOutputStreamFactory factory = ThresholdOutputStreamFactory.newInstance(null, THRESHOLD, -1, false);
+
+        for (int length : new int[] { 0, 1, 100, 64 * 1024, 200 * 1024, THRESHOLD }) {
+            byte[] content = createContent(length);
+            ThresholdInputStream stream = write(factory, content);
+
+            assertTrue(stream.isInMemory());
+            assertNull(stream.getTemporaryFile());
+            assertEquals(length, stream.length());
+            assertArrayEquals(content, stream.getBytes());
+            assertArrayEquals(content, transfer(stream));
+            assertArrayEquals(content, read(stream));
+
+            stream.rewind();
+            assertArrayEquals(content, read(stream));
+
+            if (length > 70000) {
+                stream.rewind();
+                assertEquals(70000, stream.skip(70000));
+                stream.mark(0);
+                assertEquals(content[70000] & 0xff, stream.read());
+                assertEquals(content[70001] & 0xff, stream.read());
+                stream.reset();
+                assertEquals(content[70000] & 0xff, stream.read());
+            }
+
+            stream.close();
+            assertEquals(-1, stream.read());
+            assertEquals(0, stream.skip(10));
+        }
+    }
+
+    @Test
+    public void testBufferPool() throws IOException {
+        ThresholdOutputStreamFactory factory = ThresholdOutputStreamFactory.newInstance(null, THRESHOLD, -1, false);
+        BufferPool pool = factory.getBufferPool();
+        assertNotNull(pool);
+        assertEquals(0, pool.getPooledBytes());
+
+        byte[] content = createContent(300 * 1024);
+        ThresholdInputStream stream = write(factory, content);
+        byte[] bytes = stream.getBytes();
+        stream.close();
+
+        long pooled = pool.getPooledBytes();
+        assertTrue(pooled >= content.length);
+
+        // the next stream reuses the buffers
+        ThresholdInputStream stream2 = write(factory, createContent(300 * 1024));
+        assertTrue(pool.getPooledBytes() < pooled);
+
+        // the copy handed out earlier is not affected
+        assertArrayEquals(content, bytes);
+
+        stream2.close();
+        assertEquals(pooled, pool.getPooledBytes());
+
+        // an unpooled factory works, too
+        ThresholdOutputStreamFactory unpooled = ThresholdOutputStreamFactory.newInstance(null, THRESHOLD, -1, false,
+                0);
+        assertNull(unpooled.getBufferPool());
+        assertArrayEquals(content, read(write(unpooled, content)));
+    }
+
+    @Test
+    public void testTempFile() throws IOException {
+        for (boolean encrypt : new boolean[] { false, true }) {
+            ThresholdOutputStreamFactory factory = ThresholdOutputStreamFactory.newInstance(null, THRESHOLD, -1,
+                    encrypt);
+
+            byte[] content = createContent(THRESHOLD + 12345);
+            ThresholdInputStream stream = write(factory, content);
+
+            assertFalse(stream.isInMemory());
+            assertNull(stream.getBytes());
+            File tempFile = stream.getTemporaryFile();
+            assertTrue(tempFile.exists());
+            assertEquals(content.length, tempFile.length());
+
+            assertArrayEquals(content, transfer(stream));
+            assertArrayEquals(content, read(stream));
+            assertFalse(tempFile.exists());
+            assertEquals(0, stream.skip(10));
+        }
+
+        // all buffers are back in the pool
+        ThresholdOutputStreamFactory factory = ThresholdOutputStreamFactory.newInstance(null, 1000, -1, false);
+        InputStream stream = write(factory, createContent(5000));
+        stream.close();
+        assertEquals(BufferPool.getBufferSize(1000) + BufferPool.getBufferSize(64 * 1024), factory.getBufferPool()
+                .getPooledBytes());
+    }
+
+    @Test
+    public void testMaxContentSize() throws IOException {
+        ThresholdOutputStreamFactory factory = ThresholdOutputStreamFactory.newInstance(null, 1000, 5000, false);
+        try {
+            write(factory, createContent(5001));
+            fail("CmisConstraintException expected!");
+        } catch (CmisConstraintException e) {
+            // expected
+        }
+
+        assertArrayEquals(createContent(5000), read(write(factory, createContent(5000))));
+    }
+}
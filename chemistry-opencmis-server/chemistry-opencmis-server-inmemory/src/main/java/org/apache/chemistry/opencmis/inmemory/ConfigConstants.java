@@ -29,6 +29,14 @@ public final class ConfigConstants {
     public static final String TEMP_DIR = "InMemoryServer.TempDir";
     public static final String MAX_CONTENT_SIZE = "InMemoryServer.MaxContentSize";
     public static final String ENCRYPT_TEMP_FILES = "InMemoryServer.EncryptTempFiles";
+    // where document content is kept: heap, offheap or file
+    public static final String CONTENT_STORE = "InMemoryServer.ContentStore";
+
+    // secondary indexes used by queries, properties are given as comma
+    // separated lists of property ids
+    public static final String INDEX_TYPES = "InMemoryServer.Index.Types";
+    public static final String INDEX_HASH_PROPERTIES = "InMemoryServer.Index.HashProperties";
+    public static final String INDEX_SORTED_PROPERTIES = "InMemoryServer.Index.SortedProperties";
 
     // Helper constants that allow to fill a repository with data on
     // initialization
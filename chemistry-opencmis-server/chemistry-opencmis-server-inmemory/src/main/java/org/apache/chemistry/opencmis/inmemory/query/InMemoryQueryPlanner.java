@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectIndex;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
+import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
+import org.apache.chemistry.opencmis.server.support.query.CmisQlStrictLexer;
+import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
+import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.QueryObject;
+
+/**
+ * Uses the secondary indexes of the object store to find the objects that
+ * might match a query. Only the FROM type, <code>=</code>, <code>IN</code>,
+ * range comparisons and <code>IN_FOLDER</code> predicates are considered, all
+ * other predicates are left to the query processor. The returned set of ids is
+ * a superset of the matching objects, so the query must still be evaluated for
+ * each of them.
+ */
+public class InMemoryQueryPlanner {
+
+    private final ObjectStoreImpl objStore;
+    private final ObjectIndex index;
+    private final QueryObject queryObj;
+    private final AbstractPredicateWalker literalWalker = new AbstractPredicateWalker() {
+    };
+
+    public InMemoryQueryPlanner(ObjectStoreImpl objStore, QueryObject queryObj) {
+        this.objStore = objStore;
+        this.index = objStore.getObjectIndex();
+        this.queryObj = queryObj;
+    }
+
+    /**
+     * Returns the ids of all objects that might match the query.
+     *
+     * @param td
+     *            type definition of the FROM type
+     * @param whereTree
+     *            where clause of the query, may be null
+     * @return ids of the candidate objects or null if all objects must be
+     *         checked
+     */
+    public Set<String> getCandidateIds(TypeDefinition td, Tree whereTree) {
+        Set<String> candidates = getIdsOfType(td);
+        if (null != whereTree) {
+            candidates = intersect(candidates, plan(whereTree));
+        }
+        return candidates;
+    }
+
+    private Set<String> getIdsOfType(TypeDefinition td) {
+        if (!index.isTypeIndexed() || td.getBaseTypeId() == BaseTypeId.CMIS_SECONDARY) {
+            // objects may match a secondary type that is not their type
+            return null;
+        }
+
+        List<String> typeIds = new ArrayList<String>();
+        for (String typeId : index.getIndexedTypeIds()) {
+            if (isSubTypeOf(typeId, td.getId())) {
+                typeIds.add(typeId);
+            }
+        }
+        return index.getIdsOfTypes(typeIds);
+    }
+
+    private boolean isSubTypeOf(String typeId, String superTypeId) {
+        String currentTypeId = typeId;
+        while (currentTypeId != null) {
+            if (currentTypeId.equals(superTypeId)) {
+                return true;
+            }
+            TypeDefinition parentTD = queryObj.getParentType(currentTypeId);
+            currentTypeId = parentTD == null ? null : parentTD.getId();
+        }
+        return false;
+    }
+
+    private Set<String> plan(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.AND:
+            return intersect(plan(node.getChild(0)), plan(node.getChild(1)));
+        case CmisQlStrictLexer.OR:
+            return union(plan(node.getChild(0)), plan(node.getChild(1)));
+        case CmisQlStrictLexer.EQ:
+            return planEquals(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IN:
+            return planIn(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.GT:
+            return planRange(node.getChild(0), node.getChild(1), true, false);
+        case CmisQlStrictLexer.GTEQ:
+            return planRange(node.getChild(0), node.getChild(1), true, true);
+        case CmisQlStrictLexer.LT:
+            return planRange(node.getChild(0), node.getChild(1), false, false);
+        case CmisQlStrictLexer.LTEQ:
+            return planRange(node.getChild(0), node.getChild(1), false, true);
+        case CmisQlStrictLexer.IN_FOLDER:
+            return planInFolder(node.getChild(node.getChildCount() - 1));
+        default:
+            return null;
+        }
+    }
+
+    private Set<String> planEquals(Tree colNode, Tree literalNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef) {
+            return null;
+        }
+
+        Object literal = literalWalker.walkExpr(literalNode);
+        if (PropertyIds.OBJECT_TYPE_ID.equals(colRef.getPropertyId())) {
+            return literal instanceof String ? index.getIdsOfTypes(Collections.singleton((String) literal)) : null;
+        }
+
+        Object key = getIndexKey(colRef, literal);
+        return null == key ? null : index.getIdsByValues(colRef.getPropertyId(), Collections.singleton(key));
+    }
+
+    private Set<String> planIn(Tree colNode, Tree listNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef) {
+            return null;
+        }
+
+        Object literals = literalWalker.walkExpr(listNode);
+        if (!(literals instanceof List<?>)) {
+            return null;
+        }
+
+        if (PropertyIds.OBJECT_TYPE_ID.equals(colRef.getPropertyId())) {
+            Set<String> typeIds = new HashSet<String>();
+            for (Object literal : (List<?>) literals) {
+                if (!(literal instanceof String)) {
+                    return null;
+                }
+                typeIds.add((String) literal);
+            }
+            return index.getIdsOfTypes(typeIds);
+        }
+
+        Set<Object> keys = new HashSet<Object>();
+        for (Object literal : (List<?>) literals) {
+            Object key = getIndexKey(colRef, literal);
+            if (null == key) {
+                return null;
+            }
+            keys.add(key);
+        }
+        return index.getIdsByValues(colRef.getPropertyId(), keys);
+    }
+
+    private Set<String> planRange(Tree colNode, Tree literalNode, boolean isLowerBound, boolean inclusive) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (null == colRef) {
+            return null;
+        }
+
+        Object key = getIndexKey(colRef, literalWalker.walkExpr(literalNode));
+        if (null == key) {
+            return null;
+        } else if (isLowerBound) {
+            return index.getIdsInRange(colRef.getPropertyId(), key, inclusive, null, false);
+        } else {
+            return index.getIdsInRange(colRef.getPropertyId(), null, false, key, inclusive);
+        }
+    }
+
+    private Set<String> planInFolder(Tree paramNode) {
+        Object folderId = literalWalker.walkExpr(paramNode);
+        return folderId instanceof String ? objStore.getChildIds((String) folderId) : null;
+    }
+
+    /**
+     * Returns the column reference of a single-value property that can be
+     * looked up in an index, null otherwise.
+     */
+    private ColumnReference getColumnReference(Tree columnNode) {
+        if (columnNode.getType() != CmisQlStrictLexer.COL) {
+            return null;
+        }
+        CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
+        if (!(sel instanceof ColumnReference)) {
+            return null;
+        }
+        ColumnReference colRef = (ColumnReference) sel;
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        if (null == pd || pd.getCardinality() != Cardinality.SINGLE) {
+            return null;
+        }
+        if (!PropertyIds.OBJECT_TYPE_ID.equals(colRef.getPropertyId())
+                && !index.isPropertyIndexed(colRef.getPropertyId())) {
+            return null;
+        }
+        return colRef;
+    }
+
+    /**
+     * Converts a query literal into an index key the same way the query
+     * processor converts it for comparing it with a property value.
+     */
+    private static Object getIndexKey(ColumnReference colRef, Object literal) {
+        switch (colRef.getPropertyDefinition().getPropertyType()) {
+        case BOOLEAN:
+            return literal instanceof Boolean ? literal : null;
+        case INTEGER:
+            return literal instanceof Long ? ObjectIndex.getIndexKey(BigInteger.valueOf((Long) literal)) : null;
+        case DECIMAL:
+            if (literal instanceof Double) {
+                return ObjectIndex.getIndexKey(BigDecimal.valueOf((Double) literal));
+            } else if (literal instanceof Long) {
+                return ObjectIndex.getIndexKey(BigDecimal.valueOf((Long) literal));
+            } else {
+                return null;
+            }
+        case DATETIME:
+            return literal instanceof GregorianCalendar ? ObjectIndex.getIndexKey(literal) : null;
+        case HTML:
+        case STRING:
+        case URI:
+        case ID:
+            return literal instanceof String ? literal : null;
+        default:
+            return null;
+        }
+    }
+
+    private static Set<String> intersect(Set<String> ids1, Set<String> ids2) {
+        if (null == ids1) {
+            return ids2;
+        } else if (null == ids2) {
+            return ids1;
+        }
+
+        Set<String> smaller = ids1.size() <= ids2.size() ? ids1 : ids2;
+        Set<String> larger = smaller == ids1 ? ids2 : ids1;
+        Set<String> result = new HashSet<String>();
+        for (String id : smaller) {
+            if (larger.contains(id)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> union(Set<String> ids1, Set<String> ids2) {
+        if (null == ids1 || null == ids2) {
+            return null;
+        }
+
+        Set<String> result = new HashSet<String>(ids1);
+        result.addAll(ids2);
+        return result;
+    }
+}
@@ -23,25 +23,21 @@
 package org.apache.chemistry.opencmis.inmemory.query;
 
 import java.io.UnsupportedEncodingException;
-import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
+import java.util.PriorityQueue;
 
 import org.antlr.runtime.tree.Tree;
 import org.apache.chemistry.opencmis.commons.data.ObjectData;
 import org.apache.chemistry.opencmis.commons.data.ObjectList;
-import org.apache.chemistry.opencmis.commons.data.PropertyData;
 import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
 import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
-import org.apache.chemistry.opencmis.commons.enums.Cardinality;
 import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
-import org.apache.chemistry.opencmis.commons.enums.PropertyType;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
@@ -56,24 +52,26 @@ import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataIm
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.types.PropertyCreationHelper;
 import org.apache.chemistry.opencmis.server.support.TypeManager;
-import org.apache.chemistry.opencmis.server.support.query.AbstractPredicateWalker;
 import org.apache.chemistry.opencmis.server.support.query.CmisQueryWalker;
 import org.apache.chemistry.opencmis.server.support.query.CmisSelector;
 import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.CompiledPredicate;
+import org.apache.chemistry.opencmis.server.support.query.PredicateCompiler;
+import org.apache.chemistry.opencmis.server.support.query.PredicateContext;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject.JoinSpec;
 import org.apache.chemistry.opencmis.server.support.query.QueryObject.SortSpec;
 import org.apache.chemistry.opencmis.server.support.query.QueryUtilStrict;
-import org.apache.chemistry.opencmis.server.support.query.StringUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * A processor for a CMIS query for the In-Memory server. During tree traversal
  * conditions are checked against the data contained in the central hash map
- * with all objects. In a first pass one time setup is performed, in a custom
- * walk across the query expression tree an object is checked if it matches. In
- * case of a match it is appended to a list of matching objects.
+ * with all objects. In a first pass one time setup is performed and the where
+ * clause is compiled into a {@link CompiledPredicate}, which is then evaluated
+ * for each object. In case of a match it is appended to a list of matching
+ * objects.
  */
 public class InMemoryQueryProcessor {
 
@@ -82,6 +80,7 @@ public class InMemoryQueryProcessor {
     private List<StoredObject> matches = new ArrayList<StoredObject>();
     private QueryObject queryObj;
     private Tree whereTree;
+    private CompiledPredicate<StoredObject> wherePredicate;
     private ObjectStoreImpl objStore;
     private List<TypeDefinition> secondaryTypeIds;
 
@@ -98,10 +97,25 @@ public class InMemoryQueryProcessor {
 
         processQueryAndCatchExc(statement, tm); // calls query processor
 
-        // iterate over all the objects and check for each if the query matches
-        for (String objectId : ((ObjectStoreImpl) objectStore).getIds()) {
+        // use the indexes of the store to find the objects that might match
+        // or iterate over all objects if this is not possible
+        String queryName = queryObj.getTypes().values().iterator().next();
+        TypeDefinition td = queryObj.getTypeDefinitionFromQueryName(queryName);
+        Collection<String> candidateIds = new InMemoryQueryPlanner((ObjectStoreImpl) objectStore, queryObj)
+                .getCandidateIds(td, whereTree);
+        if (null == candidateIds) {
+            candidateIds = ((ObjectStoreImpl) objectStore).getIds();
+        } else {
+            LOG.debug("Query planner selected " + candidateIds.size() + " candidate objects");
+        }
+
+        // check for each candidate if the query matches
+        PredicateContext<StoredObject> context = new InMemoryPredicateContext(user);
+        for (String objectId : candidateIds) {
             StoredObject so = objectStore.getObjectById(objectId);
-            match(so, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            if (null != so) {
+                match(so, context, user, searchAllVersions == null ? true : searchAllVersions.booleanValue());
+            }
         }
 
         ObjectList objList = buildResultList(tm, user, includeAllowableActions, includeRelationships, renditionFilter,
@@ -118,15 +132,15 @@ public class InMemoryQueryProcessor {
         whereTree = walker.getWherePredicateTree();
         secondaryTypeIds = queryObj.getJoinedSecondaryTypes();
         doAdditionalChecks(walker);
+        // compile the where clause once instead of walking it for each object
+        wherePredicate = null == whereTree ? null : new PredicateCompiler<StoredObject>(queryObj)
+                .compile(whereTree);
     }
 
     public ObjectList buildResultList(TypeManager tm, String user, Boolean includeAllowableActions,
             IncludeRelationships includeRelationships, String renditionFilter, BigInteger maxItems, BigInteger skipCount) {
 
-        sortMatches();
-
-        ObjectListImpl res = new ObjectListImpl();
-        res.setNumItems(BigInteger.valueOf(matches.size()));
+        int numItems = matches.size();
         int start = 0;
         if (skipCount != null) {
             start = (int) skipCount.longValue();
@@ -134,21 +148,25 @@ public class InMemoryQueryProcessor {
         if (start < 0) {
             start = 0;
         }
-        if (start > matches.size()) {
-            start = matches.size();
+        if (start > numItems) {
+            start = numItems;
         }
         int stop = 0;
         if (maxItems != null) {
             stop = start + (int) maxItems.longValue();
         }
-        if (stop <= 0 || stop > matches.size()) {
-            stop = matches.size();
-        }
-        res.setHasMoreItems(stop < matches.size());
-        if (start > 0 || stop > 0) {
-            matches = matches.subList(start, stop);
+        if (stop <= 0 || stop > numItems) {
+            stop = numItems;
         }
 
+        // only the objects up to the end of the requested page must be sorted
+        sortMatches(stop);
+
+        ObjectListImpl res = new ObjectListImpl();
+        res.setNumItems(BigInteger.valueOf(numItems));
+        res.setHasMoreItems(stop < numItems);
+        matches = matches.subList(start, stop);
+
         List<ObjectData> objDataList = new ArrayList<ObjectData>();
         Map<String, String> props = queryObj.getRequestedPropertiesByAlias();
         Map<String, String> funcs = queryObj.getRequestedFuncsByAlias();
@@ -185,54 +203,93 @@ public class InMemoryQueryProcessor {
         return false;
     }
 
-    private void sortMatches() {
+    /**
+     * Sorts the matches by all ORDER BY criteria. If only the first
+     * <code>limit</code> matches are needed, they are selected with a bounded
+     * heap and all other matches are dropped.
+     *
+     * @param limit
+     *            number of matches that are needed in sort order
+     */
+    private void sortMatches(int limit) {
         final List<SortSpec> orderBy = queryObj.getOrderBys();
-        if (orderBy.size() > 1) {
-            LOG.warn("ORDER BY has more than one sort criterium, all but the first are ignored.");
+        if (orderBy.isEmpty()) {
+            return;
         }
-        class ResultComparator implements Comparator<StoredObject> {
-
-            @Override
-            @SuppressWarnings("unchecked")
-            public int compare(StoredObject so1, StoredObject so2) {
-                SortSpec s = orderBy.get(0);
-                CmisSelector sel = s.getSelector();
-                int result;
-
-                if (queryObj.isPredfinedQueryName(sel.getName())) {
-                    // must be SEARCH_SCORE which is currently ignored
-                    result = 0;
-                } else if (sel instanceof ColumnReference) {
-                    String propId = ((ColumnReference) sel).getPropertyId();
-                    PropertyDefinition<?> pd = ((ColumnReference) sel).getPropertyDefinition();
-
-                    Object propVal1 = PropertyQueryUtil.getProperty(so1, propId, pd);
-                    Object propVal2 = PropertyQueryUtil.getProperty(so2, propId, pd);
-
-                    if (propVal1 == null && propVal2 == null) {
-                        result = 0;
-                    } else if (propVal1 == null) {
-                        result = -1;
-                    } else if (propVal2 == null) {
-                        result = 1;
-                    } else {
-                        result = ((Comparable<Object>) propVal1).compareTo(propVal2);
-                    }
-                } else {
-                    // evaluate function here, currently ignore
-                    result = 0;
-                }
-                if (!s.isAscending()) {
-                    result = -result;
-                }
-                return result;
+
+        Comparator<StoredObject> comparator = new ResultComparator(orderBy);
+        if (limit >= matches.size()) {
+            Collections.sort(matches, comparator);
+            return;
+        }
+
+        // keep the best matches in a heap with the worst of them on top
+        PriorityQueue<StoredObject> topMatches = new PriorityQueue<StoredObject>(limit + 1,
+                Collections.reverseOrder(comparator));
+        for (StoredObject so : matches) {
+            if (topMatches.size() < limit) {
+                topMatches.add(so);
+            } else if (comparator.compare(so, topMatches.peek()) < 0) {
+                topMatches.poll();
+                topMatches.add(so);
             }
         }
 
-        if (orderBy.size() > 0) {
-            Collections.sort(matches, new ResultComparator());
+        matches = new ArrayList<StoredObject>(topMatches);
+        Collections.sort(matches, comparator);
+    }
+
+    /**
+     * Compares two matches by all ORDER BY criteria. Objects that are equal
+     * for all criteria are ordered by id, so that the pages of a query do
+     * not overlap.
+     */
+    private class ResultComparator implements Comparator<StoredObject> {
+
+        private final List<SortSpec> orderBy;
+
+        public ResultComparator(List<SortSpec> orderBy) {
+            this.orderBy = orderBy;
+        }
+
+        public int compare(StoredObject so1, StoredObject so2) {
+            for (SortSpec s : orderBy) {
+                int result = compare(s, so1, so2);
+                if (result != 0) {
+                    return s.isAscending() ? result : -result;
+                }
+            }
+            return so1.getId().compareTo(so2.getId());
         }
 
+        @SuppressWarnings("unchecked")
+        private int compare(SortSpec s, StoredObject so1, StoredObject so2) {
+            CmisSelector sel = s.getSelector();
+
+            if (queryObj.isPredfinedQueryName(sel.getName())) {
+                // must be SEARCH_SCORE which is currently ignored
+                return 0;
+            } else if (sel instanceof ColumnReference) {
+                String propId = ((ColumnReference) sel).getPropertyId();
+                PropertyDefinition<?> pd = ((ColumnReference) sel).getPropertyDefinition();
+
+                Object propVal1 = PropertyQueryUtil.getProperty(so1, propId, pd);
+                Object propVal2 = PropertyQueryUtil.getProperty(so2, propId, pd);
+
+                if (propVal1 == null && propVal2 == null) {
+                    return 0;
+                } else if (propVal1 == null) {
+                    return -1;
+                } else if (propVal2 == null) {
+                    return 1;
+                } else {
+                    return ((Comparable<Object>) propVal1).compareTo(propVal2);
+                }
+            } else {
+                // evaluate function here, currently ignore
+                return 0;
+            }
+        }
     }
 
     /**
@@ -243,7 +300,8 @@ public class InMemoryQueryProcessor {
      * @param so
      *            object stored in the in-memory repository
      */
-    private void match(StoredObject so, String user, boolean searchAllVersions) {
+    private void match(StoredObject so, PredicateContext<StoredObject> context, String user,
+            boolean searchAllVersions) {
         // first check if type is matching...
         // as we don't support joins take first type
         String queryName = queryObj.getTypes().values().iterator().next();
@@ -260,14 +318,14 @@ public class InMemoryQueryProcessor {
         }
         // ... then check expression...
         if (typeMatches && !skip) {
-            evalWhereTree(whereTree, user, so);
+            evalWhereTree(context, user, so);
         }
     }
 
-    private void evalWhereTree(Tree node, String user, StoredObject so) {
+    private void evalWhereTree(PredicateContext<StoredObject> context, String user, StoredObject so) {
         boolean match = true;
-        if (null != node) {
-            match = evalWhereNode(so, user, node);
+        if (null != wherePredicate) {
+            match = wherePredicate.evaluate(so, context);
         }
         if (match && objStore.hasReadAccess(user, so)) {
             matches.add(so); // add to list
@@ -275,371 +333,52 @@ public class InMemoryQueryProcessor {
     }
 
     /**
-     * For each object check if it matches and append it to match-list if it
-     * does. We do here our own walking mechanism so that we can pass additional
-     * parameters and define the return types.
-     * 
-     * @param node
-     *            node in where clause
-     * @return true if it matches, false if it not matches
+     * Gives the compiled where clause access to the objects of the in-memory
+     * repository on behalf of a user.
      */
-    boolean evalWhereNode(StoredObject so, String user, Tree node) {
-        return new InMemoryWhereClauseWalker(so, user).walkPredicate(node);
-    }
+    private class InMemoryPredicateContext implements PredicateContext<StoredObject> {
 
-    public class InMemoryWhereClauseWalker extends AbstractPredicateWalker {
+        private final String user;
 
-        protected final StoredObject so;
-        protected final String user;
-
-        public InMemoryWhereClauseWalker(StoredObject so, String user) {
-            this.so = so;
+        public InMemoryPredicateContext(String user) {
             this.user = user;
         }
 
-        @Override
-        public Boolean walkNot(Tree opNode, Tree node) {
-            boolean hasMatched = walkPredicate(node);
-            return !hasMatched;
-        }
-
-        @Override
-        public Boolean walkAnd(Tree opNode, Tree leftNode, Tree rightNode) {
-            boolean matches1 = walkPredicate(leftNode);
-            boolean matches2 = walkPredicate(rightNode);
-            return matches1 && matches2;
-        }
-
-        @Override
-        public Boolean walkOr(Tree opNode, Tree leftNode, Tree rightNode) {
-            boolean matches1 = walkPredicate(leftNode);
-            boolean matches2 = walkPredicate(rightNode);
-            return matches1 || matches2;
+        public Object getPropertyValue(StoredObject so, ColumnReference colRef) {
+            return PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), colRef.getPropertyDefinition());
         }
 
-        @Override
-        public Boolean walkEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp == 0;
+        public boolean isInFolder(StoredObject so, String folderId) {
+            return so instanceof Filing && hasParent(so, folderId, user);
         }
 
-        @Override
-        public Boolean walkNotEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp != 0;
+        public boolean isInTree(StoredObject so, String folderId) {
+            return so instanceof Filing && hasAncestor(so, folderId, user);
         }
 
-        @Override
-        public Boolean walkGreaterThan(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp > 0;
-        }
-
-        @Override
-        public Boolean walkGreaterOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp >= 0;
-        }
-
-        @Override
-        public Boolean walkLessThan(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp < 0;
-        }
-
-        @Override
-        public Boolean walkLessOrEquals(Tree opNode, Tree leftNode, Tree rightNode) {
-            Integer cmp = compareTo(leftNode, rightNode);
-            return cmp == null ? false : cmp <= 0;
-        }
-
-        @Override
-        public Boolean walkIn(Tree opNode, Tree colNode, Tree listNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            List<Object> literals = onLiteralList(listNode);
-            Object prop = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd);
-
-            if (pd.getCardinality() != Cardinality.SINGLE) {
-                throw new IllegalStateException("Operator IN only is allowed on single-value properties ");
-            } else if (prop == null) {
-                return false;
-            } else {
-                return literals.contains(prop);
-            }
-        }
-
-        @Override
-        public Boolean walkNotIn(Tree opNode, Tree colNode, Tree listNode) {
-            // Note just return !walkIn(node, colNode, listNode) is wrong,
-            // because
-            // then it evaluates to true for null values (not set properties).
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            Object prop = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd);
-            List<Object> literals = onLiteralList(listNode);
-            if (pd.getCardinality() != Cardinality.SINGLE) {
-                throw new IllegalStateException("Operator IN only is allowed on single-value properties ");
-            } else if (prop == null) {
-                return false;
-            } else {
-                return !literals.contains(prop);
-            }
+        public boolean containsText(StoredObject so, String text) {
+            return findText(so, text);
         }
+    }
 
-        @Override
-        public Boolean walkInAny(Tree opNode, Tree colNode, Tree listNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyData<?> lVal = so.getProperties().get(colRef.getPropertyId());
-            List<Object> literals = onLiteralList(listNode);
-            if (pd.getCardinality() != Cardinality.MULTI) {
-                throw new IllegalStateException("Operator ANY...IN only is allowed on multi-value properties ");
-            } else if (lVal == null) {
-                return false;
-            } else {
-                List<?> props = lVal.getValues();
-                for (Object prop : props) {
-                    LOG.debug("comparing with: " + prop);
-                    if (literals.contains(prop)) {
-                        return true;
-                    }
+    private static boolean findText(StoredObject so, String pattern) {
+        if (so instanceof Content && ((Content) so).hasContent()) {
+            ContentStreamDataImpl cdi = (ContentStreamDataImpl) ((Content) so).getContent(0, -1);
+            if (cdi.getMimeType().startsWith("text/")) {
+                byte[] ba = cdi.getBytes();
+                String text;
+                try {
+                    text = new String(ba, "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new CmisRuntimeException("Internal error: Unsupported encoding UTF-8", e);
                 }
-                return false;
-            }
-        }
-
-        @Override
-        public Boolean walkNotInAny(Tree opNode, Tree colNode, Tree listNode) {
-            // Note just return !walkNotInAny(node, colNode, listNode) is
-            // wrong, because
-            // then it evaluates to true for null values (not set properties).
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyData<?> lVal = so.getProperties().get(colRef.getPropertyId());
-            List<Object> literals = onLiteralList(listNode);
-            if (pd.getCardinality() != Cardinality.MULTI) {
-                throw new IllegalStateException("Operator ANY...IN only is allowed on multi-value properties ");
-            } else if (lVal == null) {
-                return false;
+                int match = text.indexOf(pattern);
+                return match >= 0;
             } else {
-                List<?> props = lVal.getValues();
-                for (Object prop : props) {
-                    LOG.debug("comparing with: " + prop);
-                    if (literals.contains(prop)) {
-                        return false;
-                    }
-                }
-                return true;
-            }
-        }
-
-        @Override
-        public Boolean walkEqAny(Tree opNode, Tree literalNode, Tree colNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyData<?> lVal = so.getProperties().get(colRef.getPropertyId());
-            Object literal = walkExpr(literalNode);
-            if (pd.getCardinality() != Cardinality.MULTI) {
-                throw new IllegalStateException("Operator = ANY only is allowed on multi-value properties ");
-            } else if (lVal == null) {
                 return false;
-            } else {
-                List<?> props = lVal.getValues();
-                return props.contains(literal);
             }
         }
-
-        @Override
-        public Boolean walkIsNull(Tree opNode, Tree colNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            Object propVal = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd);
-            return propVal == null;
-        }
-
-        @Override
-        public Boolean walkIsNotNull(Tree opNode, Tree colNode) {
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            Object propVal = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd);
-            return propVal != null;
-        }
-
-        @Override
-        public Boolean walkLike(Tree opNode, Tree colNode, Tree stringNode) {
-            Object rVal = walkExpr(stringNode);
-            if (!(rVal instanceof String)) {
-                throw new IllegalStateException("LIKE operator requires String literal on right hand side.");
-            }
-
-            ColumnReference colRef = getColumnReference(colNode);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            PropertyType propType = pd.getPropertyType();
-            if (propType != PropertyType.STRING && propType != PropertyType.HTML && propType != PropertyType.ID
-                    && propType != PropertyType.URI) {
-                throw new IllegalStateException("Property type " + propType.value() + " is not allowed FOR LIKE");
-            }
-            if (pd.getCardinality() != Cardinality.SINGLE) {
-                throw new IllegalStateException("LIKE is not allowed for multi-value properties ");
-            }
-
-            String propVal = (String) PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd);
-
-            if (null == propVal) {
-                return false;
-            } else {
-                String pattern = translatePattern((String) rVal); // SQL to Java
-                // regex
-                // syntax
-                Pattern p = Pattern.compile(pattern);
-                return p.matcher(propVal).matches();
-            }
-        }
-
-        @Override
-        public Boolean walkNotLike(Tree opNode, Tree colNode, Tree stringNode) {
-            return !walkLike(opNode, colNode, stringNode);
-        }
-
-        @Override
-        public Boolean walkInFolder(Tree opNode, Tree qualNode, Tree paramNode) {
-            if (null != qualNode) {
-                getTableReference(qualNode);
-                // just for error checking we do not evaluate this, there is
-                // only one from without join support
-            }
-            Object lit = walkExpr(paramNode);
-            if (!(lit instanceof String)) {
-                throw new IllegalStateException("Folder id in IN_FOLDER must be of type String");
-            }
-            String folderId = (String) lit;
-
-            // check if object is in folder
-            if (so instanceof Filing) {
-                return hasParent(so, folderId, user);
-            } else {
-                return false;
-            }
-        }
-
-        @Override
-        public Boolean walkInTree(Tree opNode, Tree qualNode, Tree paramNode) {
-            if (null != qualNode) {
-                getTableReference(qualNode);
-                // just for error checking we do not evaluate this, there is
-                // only one from without join support
-            }
-            Object lit = walkExpr(paramNode);
-            if (!(lit instanceof String)) {
-                throw new IllegalStateException("Folder id in IN_FOLDER must be of type String");
-            }
-            String folderId = (String) lit;
-
-            // check if object is in folder
-            if (so instanceof Filing) {
-                return hasAncestor(so, folderId, user);
-            } else {
-                return false;
-            }
-        }
-
-        protected Integer compareTo(Tree leftChild, Tree rightChild) {
-            Object rVal = walkExpr(rightChild);
-
-            ColumnReference colRef = getColumnReference(leftChild);
-            PropertyDefinition<?> pd = colRef.getPropertyDefinition();
-            Object val = PropertyQueryUtil.getProperty(so, colRef.getPropertyId(), pd);
-            if (val == null) {
-                return null;
-            } else if (val instanceof List<?>) {
-                throw new IllegalStateException(
-                        "You can't query operators <, <=, ==, !=, >=, > on multi-value properties ");
-            } else {
-                return InMemoryQueryProcessor.this.compareTo(pd, val, rVal);
-            }
-        }
-
-        @SuppressWarnings("unchecked")
-        public List<Object> onLiteralList(Tree node) {
-            return (List<Object>) walkExpr(node);
-        }
-
-        @Override
-        protected Boolean walkTextAnd(Tree node) {
-            List<Tree> terms = getChildrenAsList(node);
-            for (Tree term : terms) {
-                Boolean foundOnce = walkSearchExpr(term);
-                if (foundOnce == null || !foundOnce) {
-                    return false;
-                }
-            }
-            return true;
-        }
-
-        @Override
-        protected Boolean walkTextOr(Tree node) {
-            List<Tree> terms = getChildrenAsList(node);
-            for (Tree term : terms) {
-                Boolean foundOnce = walkSearchExpr(term);
-                if (foundOnce != null && foundOnce) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        @Override
-        protected Boolean walkTextMinus(Tree node) {
-            return !findText(node.getChild(0).getText());
-        }
-
-        @Override
-        protected Boolean walkTextWord(Tree node) {
-            return findText(node.getText());
-        }
-
-        @Override
-        protected Boolean walkTextPhrase(Tree node) {
-            String phrase = node.getText();
-            return findText(phrase.substring(1, phrase.length() - 1));
-        }
-
-        private List<Tree> getChildrenAsList(Tree node) {
-            List<Tree> res = new ArrayList<Tree>(node.getChildCount());
-            for (int i = 0; i < node.getChildCount(); i++) {
-                Tree childNnode = node.getChild(i);
-                res.add(childNnode);
-            }
-            return res;
-        }
-
-        private boolean findText(String nodeText) {
-            Content cont = (Content) so;
-            String pattern = StringUtil.unescape(nodeText, "\\'-");
-            if (null == pattern) {
-                throw new CmisInvalidArgumentException("Illegal Escape sequence in text search expression " + nodeText);
-            }
-
-            if (so instanceof Content && cont.hasContent()) {
-                ContentStreamDataImpl cdi = (ContentStreamDataImpl) cont.getContent(0, -1);
-                if (cdi.getMimeType().startsWith("text/")) {
-                    byte[] ba = cdi.getBytes();
-                    String text;
-                    try {
-                        text = new String(ba, "UTF-8");
-                    } catch (UnsupportedEncodingException e) {
-                        throw new CmisRuntimeException("Internal error: Unsupported encoding UTF-8", e);
-                    }
-                    int match = text.indexOf(pattern);
-                    return match >= 0;
-                } else {
-                    return false;
-                }
-            }
-            return false;
-        }
-
+        return false;
     }
 
     private boolean hasParent(StoredObject objInFolder, String folderId, String user) {
@@ -670,79 +409,6 @@ public class InMemoryQueryProcessor {
         return false;
     }
 
-    protected int compareTo(PropertyDefinition<?> td, Object lValue, Object rVal) {
-        switch (td.getPropertyType()) {
-        case BOOLEAN:
-            if (rVal instanceof Boolean) {
-                return ((Boolean) lValue).compareTo((Boolean) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        case INTEGER: {
-            Long lLongValue = ((BigInteger) lValue).longValue();
-            if (rVal instanceof Long) {
-                return (lLongValue).compareTo((Long) rVal);
-            } else if (rVal instanceof Double) {
-                return Double.valueOf(((Integer) lValue).doubleValue()).compareTo((Double) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        }
-        case DATETIME:
-            if (rVal instanceof GregorianCalendar) {
-                return ((GregorianCalendar) lValue).compareTo((GregorianCalendar) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        case DECIMAL: {
-            Double lDoubleValue = ((BigDecimal) lValue).doubleValue();
-            if (rVal instanceof Double) {
-                return lDoubleValue.compareTo((Double) rVal);
-            } else if (rVal instanceof Long) {
-                return lDoubleValue.compareTo(Double.valueOf(((Long) rVal)));
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        }
-        case HTML:
-        case STRING:
-        case URI:
-        case ID:
-            if (rVal instanceof String) {
-                LOG.debug("compare strings: " + lValue + " with " + rVal);
-                return ((String) lValue).compareTo((String) rVal);
-            } else {
-                throwIncompatibleTypesException(lValue, rVal);
-            }
-            break;
-        }
-        return 0;
-    }
-
-    private ColumnReference getColumnReference(Tree columnNode) {
-        CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
-        if (null == sel) {
-            throw new IllegalStateException("Unknown property query name " + columnNode.getChild(0));
-        } else if (sel instanceof ColumnReference) {
-            return (ColumnReference) sel;
-        } else {
-            throw new IllegalStateException("Unexpected numerical value function in where clause");
-        }
-    }
-
-    private String getTableReference(Tree tableNode) {
-        String typeQueryName = queryObj.getTypeQueryName(tableNode.getText());
-        if (null == typeQueryName) {
-            throw new IllegalStateException("Inavlid type in IN_FOLDER() or IN_TREE(), must be in FROM list: "
-                    + tableNode.getText());
-        }
-        return typeQueryName;
-    }
-
     private void doAdditionalChecks(CmisQueryWalker walker) {
         if (walker.getNumberOfContainsClauses() > 1) {
             throw new CmisInvalidArgumentException("More than one CONTAINS clause is not allowed");
@@ -763,47 +429,7 @@ public class InMemoryQueryProcessor {
 
     // translate SQL wildcards %, _ to Java regex syntax
     public static String translatePattern(String wildcardString) {
-        int index = 0;
-        int start = 0;
-        String wildcard = wildcardString;
-
-        StringBuffer res = new StringBuffer();
-
-        while (index >= 0) {
-            index = wildcard.indexOf('%', start);
-            if (index < 0) {
-                res.append(wildcard.substring(start));
-            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
-                res.append(wildcard.substring(start, index));
-                res.append(".*");
-            } else {
-                res.append(wildcard.substring(start, index + 1));
-            }
-            start = index + 1;
-        }
-        wildcard = res.toString();
-
-        index = 0;
-        start = 0;
-        res = new StringBuffer();
-
-        while (index >= 0) {
-            index = wildcard.indexOf('_', start);
-            if (index < 0) {
-                res.append(wildcard.substring(start));
-            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
-                res.append(wildcard.substring(start, index));
-                res.append(".");
-            } else {
-                res.append(wildcard.substring(start, index + 1));
-            }
-            start = index + 1;
-        }
-        return res.toString();
-    }
-
-    private static void throwIncompatibleTypesException(Object o1, Object o2) {
-        throw new CmisInvalidArgumentException("Incompatible Types to compare: " + o1 + " and " + o2);
+        return PredicateCompiler.translateLikePattern(wildcardString);
     }
 
 }
@@ -28,6 +28,7 @@ import java.math.BigInteger;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -59,6 +60,9 @@ import org.apache.chemistry.opencmis.inmemory.ConfigurationSettings;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoreManager;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.TypeManagerCreatable;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectIndex;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerFactory;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.StoreManagerImpl;
 import org.apache.chemistry.opencmis.server.support.CmisServiceWrapper;
@@ -107,6 +111,7 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
 
         String tempDirStr = parameters.get(ConfigConstants.TEMP_DIR);
         tempDir = (tempDirStr == null ? super.getTempDirectory() : new File(tempDirStr));
+        ContentStore.configure(parameters.get(ConfigConstants.CONTENT_STORE), tempDir);
 
         String memoryThresholdStr = parameters.get(ConfigConstants.MEMORY_THRESHOLD);
         memoryThreshold = (memoryThresholdStr == null ? super.getMemoryThreshold() : Integer
@@ -124,6 +129,7 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
         parameters.put(ConfigConstants.DEPLOYMENT_TIME, strDate);
 
         boolean created = initStorageManager(parameters);
+        initObjectIndexes(parameters);
 
         if (created) {
             fillRepositoryIfConfigured(parameters);
@@ -301,6 +307,52 @@ public class InMemoryServiceFactoryImpl extends AbstractServiceFactory {
         }
     }
 
+    private void initObjectIndexes(Map<String, String> parameters) {
+        String indexTypesStr = parameters.get(ConfigConstants.INDEX_TYPES);
+        boolean indexTypes = indexTypesStr == null ? false : Boolean.parseBoolean(indexTypesStr);
+        List<String> hashProperties = readIndexedProperties(parameters, ConfigConstants.INDEX_HASH_PROPERTIES);
+        List<String> sortedProperties = readIndexedProperties(parameters, ConfigConstants.INDEX_SORTED_PROPERTIES);
+
+        if (!indexTypes && hashProperties.isEmpty() && sortedProperties.isEmpty()) {
+            return;
+        }
+
+        LOG.info("Indexing types: " + indexTypes + ", hash indexed properties: " + hashProperties
+                + ", sorted indexed properties: " + sortedProperties);
+        for (String repositoryId : storeManager.getAllRepositoryIds()) {
+            ObjectStore objectStore = storeManager.getObjectStore(repositoryId);
+            if (objectStore instanceof ObjectStoreImpl) {
+                ((ObjectStoreImpl) objectStore).setObjectIndex(new ObjectIndex(indexTypes, hashProperties,
+                        sortedProperties));
+            }
+        }
+    }
+
+    private static List<String> readIndexedProperties(Map<String, String> parameters, String key) {
+        List<String> propertyIds = readListFromConfig(parameters, key);
+        for (Iterator<String> iter = propertyIds.iterator(); iter.hasNext();) {
+            String propertyId = iter.next();
+            if (!ObjectIndex.isIndexableProperty(propertyId)) {
+                LOG.warn("System property " + propertyId + " can't be indexed, ignoring it in " + key + ".");
+                iter.remove();
+            }
+        }
+        return propertyIds;
+    }
+
+    private static List<String> readListFromConfig(Map<String, String> parameters, String key) {
+        List<String> values = new ArrayList<String>();
+        String valueStr = parameters.get(key);
+        if (null != valueStr) {
+            for (String value : valueStr.split(",")) {
+                if (value.trim().length() > 0) {
+                    values.add(value.trim());
+                }
+            }
+        }
+        return values;
+    }
+
     private static List<String> readPropertiesToSetFromConfig(Map<String, String> parameters, String keyPrefix) {
         List<String> propsToSet = new ArrayList<String>();
         for (int i = 0;; ++i) {
@@ -71,6 +71,10 @@ public class InMemoryVersioningServiceImpl extends InMemoryAbstractServiceImpl {
         // if this is the last version delete the document itself
         if (verDoc.getAllVersions().size() == 0) {
             fStoreManager.getObjectStore(repositoryId).deleteObject(verDoc.getId(), true, user);
+        } else {
+            // the name of the latest version might differ from the name of the
+            // pwc
+            objStore.upateObject(verDoc);
         }
     }
 
@@ -98,6 +102,7 @@ public class InMemoryVersioningServiceImpl extends InMemoryAbstractServiceImpl {
         
         verDoc.checkIn(major, properties, contentStream, checkinComment, policies, user);
         verDoc.updateSystemBasePropertiesWhenModified(null, context.getUsername());
+        fStoreManager.getObjectStore(repositoryId).upateObject(verDoc);
         // To be able to provide all Atom links in the response we need
         // additional information:
         if (context.isObjectInfoRequired()) {
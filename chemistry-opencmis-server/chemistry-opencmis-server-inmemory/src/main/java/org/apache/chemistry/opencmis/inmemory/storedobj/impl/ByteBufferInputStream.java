@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Reads a sequence of byte buffers one after the other.
+ */
+class ByteBufferInputStream extends InputStream {
+
+    private final List<ByteBuffer> buffers;
+    private int current;
+
+    ByteBufferInputStream(List<ByteBuffer> buffers) {
+        this.buffers = buffers;
+    }
+
+    private ByteBuffer nextBuffer() {
+        while (current < buffers.size()) {
+            ByteBuffer buffer = buffers.get(current);
+            if (buffer.hasRemaining()) {
+                return buffer;
+            }
+            current++;
+        }
+        return null;
+    }
+
+    @Override
+    public int read() {
+        ByteBuffer buffer = nextBuffer();
+        return null == buffer ? -1 : buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = nextBuffer();
+        if (null == buffer) {
+            return -1;
+        }
+        int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = 0;
+        ByteBuffer buffer = nextBuffer();
+        while (skipped < n && null != buffer) {
+            int step = (int) Math.min(n - skipped, buffer.remaining());
+            buffer.position(buffer.position() + step);
+            skipped += step;
+            buffer = nextBuffer();
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        ByteBuffer buffer = nextBuffer();
+        return null == buffer ? 0 : buffer.remaining();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Content store keeping the content in a list of heap or direct byte buffers.
+ * Appending only fills the last chunk or adds new chunks, existing content is
+ * never copied. The chunk size grows with the content, so that at most half of
+ * the allocated memory is unused.
+ */
+class ChunkedContentStore extends ContentStore {
+
+    private static final int MIN_CHUNK_SIZE = 1024;
+    private static final int MAX_CHUNK_SIZE = 1024 * 1024;
+
+    private final boolean direct;
+    private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+    private long length;
+
+    ChunkedContentStore(boolean direct) {
+        this.direct = direct;
+    }
+
+    @Override
+    public synchronized long getLength() {
+        return length;
+    }
+
+    @Override
+    public synchronized void append(byte[] buffer, int offset, int len) {
+        int off = offset;
+        int remaining = len;
+        while (remaining > 0) {
+            ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (null == chunk || !chunk.hasRemaining()) {
+                int capacity = (int) Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, Math.max(remaining, length)));
+                chunk = direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+                chunks.add(chunk);
+            }
+            int n = Math.min(remaining, chunk.remaining());
+            chunk.put(buffer, off, n);
+            off += n;
+            remaining -= n;
+            length += n;
+        }
+    }
+
+    @Override
+    public synchronized void truncate(long newLength) {
+        long chunkStart = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            ByteBuffer chunk = chunks.get(i);
+            if (chunkStart + chunk.position() >= newLength) {
+                chunk.position((int) Math.max(0, newLength - chunkStart));
+                chunks.subList(i + 1, chunks.size()).clear();
+                break;
+            }
+            chunkStart += chunk.position();
+        }
+        length = Math.min(length, newLength);
+    }
+
+    @Override
+    public synchronized InputStream getStream(long offset, long len) {
+        long end = Math.min(length, offset + len);
+        List<ByteBuffer> slices = new ArrayList<ByteBuffer>();
+        long chunkStart = 0;
+        for (ByteBuffer chunk : chunks) {
+            // the position of a chunk is the number of bytes written to it
+            long chunkEnd = chunkStart + chunk.position();
+            if (chunkEnd > offset && chunkStart < end) {
+                ByteBuffer slice = chunk.duplicate();
+                slice.limit((int) (Math.min(chunkEnd, end) - chunkStart));
+                slice.position((int) (Math.max(offset, chunkStart) - chunkStart));
+                slices.add(slice.slice());
+            }
+            chunkStart = chunkEnd;
+        }
+        return new ByteBufferInputStream(slices);
+    }
+
+    @Override
+    protected synchronized void free() {
+        chunks.clear();
+        length = 0;
+    }
+}
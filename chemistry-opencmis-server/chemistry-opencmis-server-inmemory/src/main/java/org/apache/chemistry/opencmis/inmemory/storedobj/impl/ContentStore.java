@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Storage for the bytes of a content stream. Content can only be appended, a
+ * stored byte is never changed. Streams returned by
+ * {@link #getStream(long, long)} read the stored bytes without copying them.
+ * <p>
+ * A store is reference counted. The creator holds the first reference and
+ * every stream opened with {@link #openStream(long, long)} holds another one
+ * until it is closed. The resources are freed when the last reference is
+ * released.
+ * <p>
+ * The kind of store used for new content is configured once for the whole
+ * repository:
+ * <ul>
+ * <li>{@link #HEAP}: chunks of heap memory (default)</li>
+ * <li>{@link #OFF_HEAP}: chunks of direct memory outside of the Java heap</li>
+ * <li>{@link #MAPPED_FILE}: a temporary file that is memory mapped for reading</li>
+ * </ul>
+ */
+public abstract class ContentStore {
+
+    public static final String HEAP = "heap";
+    public static final String OFF_HEAP = "offheap";
+    public static final String MAPPED_FILE = "file";
+
+    private static volatile String storeType = HEAP;
+    private static volatile File tempDir;
+
+    private int references = 1;
+
+    /**
+     * Sets the kind of store used for new content.
+     *
+     * @param type
+     *            one of {@link #HEAP}, {@link #OFF_HEAP} or
+     *            {@link #MAPPED_FILE}, <code>null</code> selects
+     *            {@link #HEAP}
+     * @param tempDirectory
+     *            directory for the files of {@link #MAPPED_FILE} stores,
+     *            <code>null</code> selects the default temp directory
+     */
+    public static void configure(String type, File tempDirectory) {
+        String newType = type == null ? HEAP : type.trim().toLowerCase();
+        if (!HEAP.equals(newType) && !OFF_HEAP.equals(newType) && !MAPPED_FILE.equals(newType)) {
+            throw new IllegalArgumentException("Unknown content store: " + type);
+        }
+        storeType = newType;
+        tempDir = tempDirectory;
+    }
+
+    /**
+     * Creates a new, empty store of the configured kind.
+     */
+    public static ContentStore create() throws IOException {
+        String type = storeType;
+        if (OFF_HEAP.equals(type)) {
+            return new ChunkedContentStore(true);
+        } else if (MAPPED_FILE.equals(type)) {
+            return new MappedFileContentStore(tempDir);
+        } else {
+            return new ChunkedContentStore(false);
+        }
+    }
+
+    /**
+     * Returns the number of stored bytes.
+     */
+    public abstract long getLength();
+
+    /**
+     * Appends bytes to the end of the stored content.
+     */
+    public abstract void append(byte[] buffer, int offset, int length) throws IOException;
+
+    /**
+     * Removes all bytes after the given length.
+     */
+    public abstract void truncate(long length) throws IOException;
+
+    /**
+     * Returns a stream reading a range of the stored content.
+     *
+     * @param offset
+     *            first byte to read
+     * @param length
+     *            number of bytes to read, ranges beyond the end of the content
+     *            are cut off
+     */
+    public abstract InputStream getStream(long offset, long length) throws IOException;
+
+    /**
+     * Returns a stream reading a range of the stored content. The store is not
+     * freed before the stream is closed.
+     *
+     * @return the stream or <code>null</code> if the store has already been
+     *         freed
+     */
+    public final InputStream openStream(long offset, long length) throws IOException {
+        synchronized (this) {
+            if (references == 0) {
+                return null;
+            }
+            references++;
+        }
+
+        try {
+            return new StoreInputStream(getStream(offset, length));
+        } catch (IOException e) {
+            release();
+            throw e;
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    /**
+     * Releases one reference to this store. The resources are freed when the
+     * last reference is released, the content can't be read anymore
+     * afterwards.
+     */
+    public final void release() {
+        synchronized (this) {
+            if (references == 0 || --references > 0) {
+                return;
+            }
+        }
+        free();
+    }
+
+    /**
+     * Frees the resources of this store.
+     */
+    protected abstract void free();
+
+    /**
+     * Stream holding a reference to the store until it is closed.
+     */
+    private class StoreInputStream extends FilterInputStream {
+
+        private boolean closed;
+
+        StoreInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+    }
+}
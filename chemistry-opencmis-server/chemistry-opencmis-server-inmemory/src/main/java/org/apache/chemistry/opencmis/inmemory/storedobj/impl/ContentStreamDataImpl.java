@@ -21,8 +21,6 @@ package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
  *
  */
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigInteger;
@@ -33,6 +31,8 @@ import org.apache.chemistry.opencmis.commons.data.CmisExtensionElement;
 import org.apache.chemistry.opencmis.commons.data.ContentStream;
 import org.apache.chemistry.opencmis.commons.data.LastModifiedContentStream;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -42,18 +42,20 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
 
     private static final int BUFFER_SIZE = 0xFFFF;
 
+    private static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
     private static final Logger LOG = LoggerFactory.getLogger(ContentStreamDataImpl.class.getName());
 
     private static long totalLength = 0L;
     private static long totalCalls = 0L;
 
-    private int fLength;
+    private long fLength;
 
     private String fMimeType;
 
     private String fFileName;
 
-    private byte[] fContent;
+    private ContentStore fContent;
 
     private GregorianCalendar fLastModified;
 
@@ -67,11 +69,11 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         return totalLength;
     }
 
-    private static synchronized void increaseTotalLength(int length) {
+    private static synchronized void increaseTotalLength(long length) {
         totalLength += length;
     }
     
-    private static synchronized void decreaseTotalLength(int length) {
+    private static synchronized void decreaseTotalLength(long length) {
         totalLength -= length;
     }
     
@@ -93,27 +95,23 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         fStreamLimitOffset = -1;
         fStreamLimitLength = -1;
         if (null == in) {
-            fContent = null; // delete content
-            fLength = 0;
+            release(); // delete content
         } else {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-            int len = in.read(buffer);
-            while (len != -1) {
-                contentStream.write(buffer, 0, len);
-                fLength += len;
-                if (sizeLimitKB > 0 && fLength > sizeLimitKB * SIZE_KB) {
-                    throw new CmisInvalidArgumentException("Content size exceeds max. allowed size of " + sizeLimitKB
-                            + "KB.");
-                }
-                len = in.read(buffer);
+            ContentStore store = ContentStore.create();
+            long length;
+            try {
+                length = readContent(store, 0, in);
+            } catch (IOException e) {
+                store.release();
+                throw e;
+            } catch (RuntimeException e) {
+                store.release();
+                throw e;
             }
-            fContent = contentStream.toByteArray();
-            fLength = contentStream.size();
-            contentStream.close();
-            in.close();
+            release();
+            fContent = store;
+            fLength = length;
         }
-        increaseTotalLength(fLength);
         increaseTotalCalls();
         LOG.debug("setting content stream, total no calls " + getTotalCalls() + ".");
         LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
@@ -124,33 +122,59 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         if (null == is) {
             return; // nothing to do
         } else {
-            byte[] buffer = new byte[BUFFER_SIZE];
-            ByteArrayOutputStream contentStream = new ByteArrayOutputStream();
-
-            // first read existing stream
-            contentStream.write(fContent);
-            decreaseTotalLength(fLength);
+            if (null == fContent) {
+                fContent = ContentStore.create();
+            }
+            // the new content is added to the existing chunks, the existing
+            // content is not copied
+            try {
+                fLength = readContent(fContent, fLength, is);
+            } catch (IOException e) {
+                fContent.truncate(fLength); // drop the partially appended content
+                throw e;
+            } catch (RuntimeException e) {
+                fContent.truncate(fLength);
+                throw e;
+            }
+        }
+        increaseTotalCalls();
+        LOG.debug("setting content stream, total no calls " + getTotalCalls() + ".");
+        LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
+    }
 
-            // then append new content
-            int len = is.read(buffer);
+    private long readContent(ContentStore store, long startLength, InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long length = startLength;
+        try {
+            int len = in.read(buffer);
             while (len != -1) {
-                contentStream.write(buffer, 0, len);
-                fLength += len;
-                if (sizeLimitKB > 0 && fLength > sizeLimitKB * SIZE_KB) {
+                if (sizeLimitKB > 0 && length + len > sizeLimitKB * SIZE_KB) {
                     throw new CmisInvalidArgumentException("Content size exceeds max. allowed size of " + sizeLimitKB
                             + "KB.");
                 }
-                len = is.read(buffer);
+                store.append(buffer, 0, len);
+                length += len;
+                len = in.read(buffer);
             }
-            fContent = contentStream.toByteArray();
-            fLength = contentStream.size();
-            contentStream.close();
-            is.close();
+        } finally {
+            in.close();
         }
-        increaseTotalLength(fLength);
-        increaseTotalCalls();
-        LOG.debug("setting content stream, total no calls " + getTotalCalls() + ".");
-        LOG.debug("setting content stream, new size total " + (getTotalLength() / (SIZE_KB * SIZE_KB)) + "MB.");
+        increaseTotalLength(length - startLength);
+        return length;
+    }
+
+    /**
+     * Frees the content. Streams that are already open can still be read, the
+     * store is freed when the last of them is closed. Clones created with
+     * {@link #getCloneWithLimits(long, long)} can't open new streams.
+     */
+    public void release() {
+        if (null != fContent) {
+            fContent.release();
+            fContent = null;
+            decreaseTotalLength(fLength);
+        }
+        fLength = 0;
     }
 
     @Override
@@ -189,12 +213,24 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
     public InputStream getStream() {
         if (null == fContent) {
             return null;
-        } else if (fStreamLimitOffset <= 0 && fStreamLimitLength < 0) {
-            return new ByteArrayInputStream(fContent);
-        } else {
-            return new ByteArrayInputStream(fContent, (int) (fStreamLimitOffset < 0 ? 0 : fStreamLimitOffset),
-                    (int) (fStreamLimitLength < 0 ? fLength : fStreamLimitLength));
         }
+        long offset = fStreamLimitOffset < 0 ? 0 : fStreamLimitOffset;
+        long length = fStreamLimitLength < 0 ? fLength - offset : Math.min(fStreamLimitLength, fLength - offset);
+        return openStream(offset, length);
+    }
+
+    private InputStream openStream(long offset, long length) {
+        InputStream stream;
+        try {
+            stream = fContent.openStream(offset, length);
+        } catch (IOException e) {
+            throw new CmisRuntimeException("Failed to read content", e);
+        }
+        if (null == stream) {
+            // the content was replaced or deleted after this clone was made
+            throw new CmisObjectNotFoundException("Content has been deleted.");
+        }
+        return stream;
     }
 
     public void setLastModified(GregorianCalendar lastModified) {
@@ -218,8 +254,34 @@ public class ContentStreamDataImpl implements LastModifiedContentStream {
         return clone;
     }
 
+    /**
+     * Returns a copy of the whole content.
+     */
     public final byte[] getBytes() {
-        return fContent;
+        if (null == fContent) {
+            return null;
+        }
+        if (fLength > MAX_ARRAY_SIZE) {
+            throw new CmisRuntimeException("Content of " + fLength + " bytes is too large to be copied.");
+        }
+        byte[] bytes = new byte[(int) fLength];
+        InputStream in = openStream(0, fLength);
+        try {
+            int pos = 0;
+            int len = 0;
+            while (pos < bytes.length && (len = in.read(bytes, pos, bytes.length - pos)) != -1) {
+                pos += len;
+            }
+        } catch (IOException e) {
+            throw new CmisRuntimeException("Failed to read content", e);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close content stream", e);
+            }
+        }
+        return bytes;
     }
 
     @Override
@@ -19,6 +19,7 @@
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
@@ -73,26 +74,33 @@ public class DocumentImpl extends FilingImpl implements Document {
 
     @Override
     public void setContent(ContentStream content, boolean mustPersist) {
+        ContentStreamDataImpl oldContent = fContent;
         if (null == content) {
             fContent = null;
         } else {
-            fContent = new ContentStreamDataImpl(MAX_CONTENT_SIZE_KB == null ? 0 : MAX_CONTENT_SIZE_KB);
+            ContentStreamDataImpl newContent = new ContentStreamDataImpl(MAX_CONTENT_SIZE_KB == null ? 0
+                    : MAX_CONTENT_SIZE_KB);
             String fileName = content.getFileName();
             if (null == fileName || fileName.length() <= 0) {
                 fileName = getName(); // use name of document as fallback
             }
-            fContent.setFileName(fileName);
+            newContent.setFileName(fileName);
             String mimeType = content.getMimeType();
             if (null == mimeType || mimeType.length() <= 0) {
                 mimeType = "application/octet-stream"; // use as fallback
             }
-            fContent.setMimeType(mimeType);
-            fContent.setLastModified(getModifiedAt());
+            newContent.setMimeType(mimeType);
+            newContent.setLastModified(getModifiedAt());
             try {
-                fContent.setContent(content.getStream());
+                newContent.setContent(content.getStream());
             } catch (IOException e) {
                 throw new CmisRuntimeException("Failed to get content from InputStream", e);
             }
+            fContent = newContent;
+        }
+        // the old content is released only after the new one has been read
+        if (null != oldContent) {
+            oldContent.release();
         }
     }
 
@@ -244,8 +252,14 @@ public class DocumentImpl extends FilingImpl implements Document {
 
         try {
             if (isImage(mimeType)) {
-                ImageThumbnailGenerator generator = new ImageThumbnailGenerator(getContent(0L, -1L).getStream());
-                return generator.getRendition(THUMBNAIL_SIZE, 0);
+                // the stream keeps the content store alive until it is closed
+                InputStream image = getContent(0L, -1L).getStream();
+                try {
+                    ImageThumbnailGenerator generator = new ImageThumbnailGenerator(image);
+                    return generator.getRendition(THUMBNAIL_SIZE, 0);
+                } finally {
+                    image.close();
+                }
             } else if (isAudio(mimeType)) {
                 return getIconFromResourceDir("/audio-x-generic.png");
             } else if (isVideo(mimeType)) {
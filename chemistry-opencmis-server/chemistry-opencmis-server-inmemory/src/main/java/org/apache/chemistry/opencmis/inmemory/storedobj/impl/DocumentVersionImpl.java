@@ -80,18 +80,25 @@ public class DocumentVersionImpl extends StoredObjectImpl implements DocumentVer
     }
 
     private void setContentIntern(ContentStream content) {
+        ContentStreamDataImpl oldContent = fContent;
         if (null == content) {
             fContent = null;
         } else {
-            fContent = new ContentStreamDataImpl(MAX_CONTENT_SIZE_KB == null ? 0 : MAX_CONTENT_SIZE_KB);
-            fContent.setFileName(content.getFileName());
-            fContent.setMimeType(content.getMimeType());
-            fContent.setLastModified(getModifiedAt());
+            ContentStreamDataImpl newContent = new ContentStreamDataImpl(MAX_CONTENT_SIZE_KB == null ? 0
+                    : MAX_CONTENT_SIZE_KB);
+            newContent.setFileName(content.getFileName());
+            newContent.setMimeType(content.getMimeType());
+            newContent.setLastModified(getModifiedAt());
             try {
-                fContent.setContent(content.getStream());
+                newContent.setContent(content.getStream());
             } catch (IOException e) {
                 throw new CmisRuntimeException("Failed to get content from InputStream", e);
             }
+            fContent = newContent;
+        }
+        // the old content is released only after the new one has been read
+        if (null != oldContent) {
+            oldContent.release();
         }
     }
 
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content store writing the content to a temporary file. Streams map the
+ * requested range of the file into memory, so the content is neither held on
+ * the Java heap nor copied when it is read. The file is deleted when the last
+ * reference to the store is released.
+ * <p>
+ * The file is never made shorter while the store is in use, because accessing
+ * a mapping beyond the end of its file crashes the VM. Truncating only moves
+ * the logical end of the content.
+ */
+class MappedFileContentStore extends ContentStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappedFileContentStore.class.getName());
+
+    private static final long MAX_MAPPING_SIZE = Integer.MAX_VALUE;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private long length;
+    private boolean freed;
+
+    MappedFileContentStore(File tempDir) throws IOException {
+        file = File.createTempFile("opencmis-content", ".bin", tempDir);
+        try {
+            raf = new RandomAccessFile(file, "rw");
+        } catch (IOException e) {
+            deleteFile();
+            throw e;
+        }
+        channel = raf.getChannel();
+    }
+
+    @Override
+    public synchronized long getLength() {
+        return length;
+    }
+
+    @Override
+    public synchronized void append(byte[] buffer, int offset, int len) throws IOException {
+        ByteBuffer src = ByteBuffer.wrap(buffer, offset, len);
+        while (src.hasRemaining()) {
+            length += channel.write(src, length);
+        }
+    }
+
+    @Override
+    public synchronized void truncate(long newLength) {
+        // open streams may still map the removed bytes, later appends
+        // overwrite them
+        if (newLength < length) {
+            length = newLength;
+        }
+    }
+
+    @Override
+    public synchronized InputStream getStream(long offset, long len) throws IOException {
+        long end = Math.min(length, offset + len);
+        List<ByteBuffer> mappings = new ArrayList<ByteBuffer>();
+        for (long pos = offset; pos < end; pos += MAX_MAPPING_SIZE) {
+            mappings.add(channel.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(MAX_MAPPING_SIZE, end - pos)));
+        }
+        return new ByteBufferInputStream(mappings);
+    }
+
+    @Override
+    protected synchronized void free() {
+        if (freed) {
+            return;
+        }
+        freed = true;
+        try {
+            raf.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to close content file " + file, e);
+        }
+        deleteFile();
+        length = 0;
+    }
+
+    private void deleteFile() {
+        if (!file.delete() && file.exists()) {
+            LOG.warn("Failed to delete content file " + file);
+        }
+    }
+}
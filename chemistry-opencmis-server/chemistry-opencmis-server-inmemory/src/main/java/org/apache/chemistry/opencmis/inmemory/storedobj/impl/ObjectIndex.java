@@ -0,0 +1,470 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.VersionedDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional secondary indexes of the in-memory object store. Objects can be
+ * indexed by their type id and by the values of configured custom properties.
+ * A hash index supports lookups by value, a sorted index additionally
+ * supports range lookups.
+ * <p>
+ * The indexes are used by the query processor to narrow down the objects that
+ * have to be checked against a query. They return a superset of the matching
+ * objects, the query itself is still evaluated for each returned object.
+ * Version series are never indexed, because queries only return versions.
+ * <p>
+ * Only custom properties can be indexed. The values of the system
+ * <code>cmis:*</code> properties are not kept in the property map of an object
+ * and change without the object being re-indexed.
+ */
+public class ObjectIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ObjectIndex.class);
+
+    private final boolean fIndexTypes;
+    private final Map<String, Set<String>> fIdsByType = new HashMap<String, Set<String>>();
+    private final Map<String, String> fTypeById = new HashMap<String, String>();
+    private final Map<String, PropertyIndex> fPropertyIndexes = new HashMap<String, PropertyIndex>();
+    private final ReadWriteLock fRwLock = new ReentrantReadWriteLock();
+
+    public static final String SYSTEM_PROPERTY_PREFIX = "cmis:";
+
+    /**
+     * Creates an empty index.
+     *
+     * @param indexTypes
+     *            if objects are indexed by type id
+     * @param hashProperties
+     *            ids of the properties to maintain a hash index for, may be
+     *            null
+     * @param sortedProperties
+     *            ids of the properties to maintain a sorted index for, may be
+     *            null
+     * @throws IllegalArgumentException
+     *             if a property is a system property, see
+     *             {@link #isIndexableProperty(String)}
+     */
+    public ObjectIndex(boolean indexTypes, Collection<String> hashProperties, Collection<String> sortedProperties) {
+        fIndexTypes = indexTypes;
+        if (null != hashProperties) {
+            for (String propId : hashProperties) {
+                checkIndexable(propId);
+                fPropertyIndexes.put(propId, new PropertyIndex(propId, false));
+            }
+        }
+        if (null != sortedProperties) {
+            for (String propId : sortedProperties) {
+                checkIndexable(propId);
+                fPropertyIndexes.put(propId, new PropertyIndex(propId, true));
+            }
+        }
+    }
+
+    /**
+     * Returns if a property can be indexed. System properties can't.
+     */
+    public static boolean isIndexableProperty(String propertyId) {
+        return null != propertyId && !propertyId.startsWith(SYSTEM_PROPERTY_PREFIX);
+    }
+
+    private static void checkIndexable(String propertyId) {
+        if (!isIndexableProperty(propertyId)) {
+            throw new IllegalArgumentException("Property " + propertyId + " can't be indexed.");
+        }
+    }
+
+    /**
+     * Returns an index that does not index anything.
+     */
+    public static ObjectIndex createDisabledIndex() {
+        return new ObjectIndex(false, null, null);
+    }
+
+    public boolean isEnabled() {
+        return fIndexTypes || !fPropertyIndexes.isEmpty();
+    }
+
+    public boolean isTypeIndexed() {
+        return fIndexTypes;
+    }
+
+    public boolean isPropertyIndexed(String propertyId) {
+        return fPropertyIndexes.containsKey(propertyId);
+    }
+
+    /**
+     * Adds an object to the index or updates the index entries of an object.
+     *
+     * @param id
+     *            id of the object, an object that has just been created does
+     *            not yet know its id
+     * @param so
+     *            object to index
+     */
+    public void add(String id, StoredObject so) {
+        if (!isEnabled() || so instanceof VersionedDocument) {
+            return;
+        }
+
+        fRwLock.writeLock().lock();
+        try {
+            removeIntern(id);
+
+            if (fIndexTypes && null != so.getTypeId()) {
+                fTypeById.put(id, so.getTypeId());
+                Set<String> ids = fIdsByType.get(so.getTypeId());
+                if (null == ids) {
+                    ids = new HashSet<String>();
+                    fIdsByType.put(so.getTypeId(), ids);
+                }
+                ids.add(id);
+            }
+
+            Map<String, PropertyData<?>> props = so.getProperties();
+            if (null != props) {
+                for (PropertyIndex index : fPropertyIndexes.values()) {
+                    PropertyData<?> pd = props.get(index.getPropertyId());
+                    List<?> values = null == pd ? null : pd.getValues();
+                    if (null != values && values.size() == 1) {
+                        index.add(id, getIndexKey(values.get(0)));
+                    }
+                }
+            }
+        } finally {
+            fRwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all index entries of an object.
+     *
+     * @param id
+     *            id of the object
+     */
+    public void remove(String id) {
+        if (!isEnabled() || null == id) {
+            return;
+        }
+
+        fRwLock.writeLock().lock();
+        try {
+            removeIntern(id);
+        } finally {
+            fRwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all entries from the index.
+     */
+    public void clear() {
+        fRwLock.writeLock().lock();
+        try {
+            fIdsByType.clear();
+            fTypeById.clear();
+            for (PropertyIndex index : fPropertyIndexes.values()) {
+                index.reset();
+            }
+        } finally {
+            fRwLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all type ids of indexed objects.
+     */
+    public Set<String> getIndexedTypeIds() {
+        fRwLock.readLock().lock();
+        try {
+            return new HashSet<String>(fIdsByType.keySet());
+        } finally {
+            fRwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all objects having one of the given types (subtypes
+     * are not considered).
+     *
+     * @return ids of the objects or null if types are not indexed
+     */
+    public Set<String> getIdsOfTypes(Collection<String> typeIds) {
+        if (!fIndexTypes) {
+            return null;
+        }
+
+        fRwLock.readLock().lock();
+        try {
+            Set<String> result = new HashSet<String>();
+            for (String typeId : typeIds) {
+                Set<String> ids = fIdsByType.get(typeId);
+                if (null != ids) {
+                    result.addAll(ids);
+                }
+            }
+            return result;
+        } finally {
+            fRwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all objects where a single-value property has one of
+     * the given values.
+     *
+     * @param propertyId
+     *            id of the property
+     * @param values
+     *            property values as returned by {@link #getIndexKey(Object)}
+     * @return ids of the objects or null if the index can't be used
+     */
+    public Set<String> getIdsByValues(String propertyId, Collection<?> values) {
+        PropertyIndex index = fPropertyIndexes.get(propertyId);
+        if (null == index) {
+            return null;
+        }
+
+        fRwLock.readLock().lock();
+        try {
+            return index.getIdsByValues(values);
+        } finally {
+            fRwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all objects where a single-value property has a value
+     * in the given range.
+     *
+     * @param propertyId
+     *            id of the property
+     * @param from
+     *            lower bound as returned by {@link #getIndexKey(Object)}, null
+     *            if the range has no lower bound
+     * @param fromInclusive
+     *            if the lower bound is part of the range
+     * @param to
+     *            upper bound as returned by {@link #getIndexKey(Object)}, null
+     *            if the range has no upper bound
+     * @param toInclusive
+     *            if the upper bound is part of the range
+     * @return ids of the objects or null if the index can't be used
+     */
+    public Set<String> getIdsInRange(String propertyId, Object from, boolean fromInclusive, Object to,
+            boolean toInclusive) {
+        PropertyIndex index = fPropertyIndexes.get(propertyId);
+        if (null == index) {
+            return null;
+        }
+
+        fRwLock.readLock().lock();
+        try {
+            return index.getIdsInRange(from, fromInclusive, to, toInclusive);
+        } finally {
+            fRwLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Converts a property value into the key that is stored in the index.
+     * Values are converted in the way the query processor compares them:
+     * decimals as doubles and date times as milliseconds.
+     *
+     * @return index key or null if the value can't be indexed
+     */
+    public static Object getIndexKey(Object value) {
+        if (value instanceof String || value instanceof Boolean || value instanceof BigInteger) {
+            return value;
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).doubleValue();
+        } else if (value instanceof GregorianCalendar) {
+            return ((GregorianCalendar) value).getTimeInMillis();
+        } else {
+            return null;
+        }
+    }
+
+    private void removeIntern(String id) {
+        String typeId = fTypeById.remove(id);
+        if (null != typeId) {
+            Set<String> ids = fIdsByType.get(typeId);
+            if (null != ids) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    fIdsByType.remove(typeId);
+                }
+            }
+        }
+
+        for (PropertyIndex index : fPropertyIndexes.values()) {
+            index.remove(id);
+        }
+    }
+
+    /**
+     * Maps the values of one property to the ids of the objects having this
+     * value. Must be accessed under the lock of the enclosing index.
+     */
+    private static class PropertyIndex {
+
+        private final String fPropertyId;
+        private final Map<Object, Set<String>> fIdsByValue;
+        private final Map<String, Object> fValueById = new HashMap<String, Object>();
+        private Class<?> fKeyClass;
+        private boolean fUsable = true;
+
+        public PropertyIndex(String propertyId, boolean sorted) {
+            fPropertyId = propertyId;
+            if (sorted) {
+                fIdsByValue = new TreeMap<Object, Set<String>>();
+            } else {
+                fIdsByValue = new HashMap<Object, Set<String>>();
+            }
+        }
+
+        public String getPropertyId() {
+            return fPropertyId;
+        }
+
+        public void add(String id, Object key) {
+            if (!fUsable) {
+                return;
+            }
+
+            if (null == key || (null != fKeyClass && fKeyClass != key.getClass())) {
+                // the property is defined with different types, an index
+                // lookup would miss objects
+                LOG.warn("Property " + fPropertyId + " has values of different types, index is disabled.");
+                fUsable = false;
+                clear();
+                return;
+            }
+
+            fKeyClass = key.getClass();
+            fValueById.put(id, key);
+            Set<String> ids = fIdsByValue.get(key);
+            if (null == ids) {
+                ids = new HashSet<String>();
+                fIdsByValue.put(key, ids);
+            }
+            ids.add(id);
+        }
+
+        public void remove(String id) {
+            Object key = fValueById.remove(id);
+            if (null != key) {
+                Set<String> ids = fIdsByValue.get(key);
+                if (null != ids) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        fIdsByValue.remove(key);
+                    }
+                }
+            }
+        }
+
+        public void clear() {
+            fIdsByValue.clear();
+            fValueById.clear();
+        }
+
+        /**
+         * Removes all entries and makes a disabled index usable again.
+         */
+        public void reset() {
+            clear();
+            fKeyClass = null;
+            fUsable = true;
+        }
+
+        public Set<String> getIdsByValues(Collection<?> values) {
+            if (!fUsable || !hasKeyClass(values)) {
+                return null;
+            }
+
+            Set<String> result = new HashSet<String>();
+            for (Object value : values) {
+                Set<String> ids = fIdsByValue.get(value);
+                if (null != ids) {
+                    result.addAll(ids);
+                }
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Set<String> getIdsInRange(Object from, boolean fromInclusive, Object to, boolean toInclusive) {
+            if (!fUsable || !(fIdsByValue instanceof NavigableMap)) {
+                return null;
+            }
+            if ((null != from && !hasKeyClass(Collections.singleton(from)))
+                    || (null != to && !hasKeyClass(Collections.singleton(to)))) {
+                return null;
+            }
+
+            NavigableMap<Object, Set<String>> range = (NavigableMap<Object, Set<String>>) fIdsByValue;
+            if (null != from && null != to) {
+                if (((Comparable<Object>) from).compareTo(to) > 0) {
+                    return new HashSet<String>();
+                }
+                range = range.subMap(from, fromInclusive, to, toInclusive);
+            } else if (null != from) {
+                range = range.tailMap(from, fromInclusive);
+            } else if (null != to) {
+                range = range.headMap(to, toInclusive);
+            }
+
+            Set<String> result = new HashSet<String>();
+            for (Set<String> ids : range.values()) {
+                result.addAll(ids);
+            }
+            return result;
+        }
+
+        private boolean hasKeyClass(Collection<?> values) {
+            for (Object value : values) {
+                if (null == value || (null != fKeyClass && fKeyClass != value.getClass())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
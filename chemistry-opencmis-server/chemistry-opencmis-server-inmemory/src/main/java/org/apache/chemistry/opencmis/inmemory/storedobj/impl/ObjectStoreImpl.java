@@ -19,14 +19,18 @@
 package org.apache.chemistry.opencmis.inmemory.storedobj.impl;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.chemistry.opencmis.commons.data.Ace;
 import org.apache.chemistry.opencmis.commons.data.Acl;
@@ -42,6 +46,7 @@ import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentExcep
 import org.apache.chemistry.opencmis.commons.exceptions.CmisNameConstraintViolationException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisPermissionDeniedException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Content;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Document;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.DocumentVersion;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
@@ -103,6 +108,18 @@ public class ObjectStoreImpl implements ObjectStore {
      */
     private final Map<String, StoredObject> fStoredObjectMap = new ConcurrentHashMap<String, StoredObject>();
 
+    /**
+     * index mapping a folder id to the children of the folder, this avoids
+     * iterating over all objects in the repository to find the children
+     */
+    private final ConcurrentHashMap<String, FolderChildren> fChildrenIndex = new ConcurrentHashMap<String, FolderChildren>();
+
+    /**
+     * optional secondary indexes on type ids and property values used by
+     * queries
+     */
+    private volatile ObjectIndex fObjectIndex = ObjectIndex.createDisabledIndex();
+
     /**
      * a concurrent HashMap to hold all Acls in the repository
      */
@@ -110,6 +127,22 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private final List<InMemoryAcl> fAcls = new ArrayList<InMemoryAcl>();
 
+    /**
+     * index mapping an Acl id to the Acl
+     */
+    private final Map<Integer, InMemoryAcl> fAclMap = new ConcurrentHashMap<Integer, InMemoryAcl>();
+
+    /**
+     * cache mapping a principal to the ids of all Acls granting a permission to
+     * this principal, one bit set per permission; cleared whenever a new Acl is
+     * added
+     */
+    private final Map<String, BitSet[]> fAclPermissionCache = new ConcurrentHashMap<String, BitSet[]>();
+
+    private static final int MAX_ACL_PERMISSION_CACHE_SIZE = 1000;
+
+    private static final String ANONYMOUS_CACHE_KEY = "\0anonymous";
+
     private final Lock fLock = new ReentrantLock();
 
     private final String fRepositoryId;
@@ -143,28 +176,34 @@ public class ObjectStoreImpl implements ObjectStore {
 
     @Override
     public StoredObject getObjectByPath(String path, String user) {
-        StoredObject so = findObjectWithPathInDescendents(path, user, Filing.PATH_SEPARATOR, fRootFolder);
-        return so;
-    }
+        if (null == path || !path.startsWith(Filing.PATH_SEPARATOR)) {
+            return null;
+        }
 
-    private Fileable findObjectWithPathInDescendents(String path, String user, String prefix, Fileable fo) {
-        if (path.equals(prefix)) {
-            return fo;
-        } else if (fo instanceof Folder) {
-            List<Fileable> children = getChildren((Folder) fo);
-            for (Fileable child : children) {
-                String foundPath = prefix.length() == 1 ? prefix + child.getName() : prefix + Filing.PATH_SEPARATOR
-                        + child.getName();
-                if (path.startsWith(foundPath)) {
-                    Fileable found = findObjectWithPathInDescendents(path, user, foundPath, child);
-                    if (null != found)
-                     {
-                        return found;   // note that there can be multiple folders with the same prefix like folder1, folder10
-                    }
-                }
+        // resolve one path segment after the other using the children index
+        Fileable fo = fRootFolder;
+        int start = Filing.PATH_SEPARATOR.length();
+        while (start < path.length()) {
+            if (!(fo instanceof Folder)) {
+                return null;
+            }
+            int end = path.indexOf(Filing.PATH_SEPARATOR, start);
+            if (end < 0) {
+                end = path.length();
+            } else if (end == path.length() - Filing.PATH_SEPARATOR.length()) {
+                return null; // trailing separator
+            }
+
+            FolderChildren children = fChildrenIndex.get(fo.getId());
+            Fileable child = null == children ? null : children.getByName(path.substring(start, end));
+            if (null == child) {
+                return null;
             }
+
+            fo = resolveChild(child, false);
+            start = end + Filing.PATH_SEPARATOR.length();
         }
-        return null;
+        return fo;
     }
 
     @Override
@@ -193,17 +232,36 @@ public class ObjectStoreImpl implements ObjectStore {
                 List<DocumentVersion> allVers = parentDoc.getAllVersions();
                 for (DocumentVersion ver : allVers) {
                     fStoredObjectMap.remove(ver.getId());
+                    fObjectIndex.remove(ver.getId());
+                    releaseContent(ver);
                 }
             } else {
                 fStoredObjectMap.remove(objectId);
+                fObjectIndex.remove(objectId);
                 otherVersionsExists = parentDoc.deleteVersion(vers);
+                releaseContent(vers);
             }
 
             if (!otherVersionsExists) {
                 fStoredObjectMap.remove(parentDoc.getId());
+                removeFromChildrenIndex((Fileable) parentDoc);
             }
         } else {
             fStoredObjectMap.remove(objectId);
+            fObjectIndex.remove(objectId);
+            if (obj instanceof Fileable) {
+                removeFromChildrenIndex((Fileable) obj);
+            }
+            releaseContent(obj);
+        }
+    }
+
+    /**
+     * Frees the content of a deleted object.
+     */
+    private static void releaseContent(StoredObject so) {
+        if (so instanceof Content) {
+            ((Content) so).setContent(null, false);
         }
     }
 
@@ -214,6 +272,7 @@ public class ObjectStoreImpl implements ObjectStore {
             id = getNextId().toString();
         }
         fStoredObjectMap.put(id, so);
+        fObjectIndex.add(id, so);
         return id;
     }
 
@@ -223,6 +282,7 @@ public class ObjectStoreImpl implements ObjectStore {
 
     void removeObject(String id) {
         fStoredObjectMap.remove(id);
+        fObjectIndex.remove(id);
     }
 
     public Set<String> getIds() {
@@ -236,7 +296,12 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public void clear() {
         lock();
+        for (StoredObject so : fStoredObjectMap.values()) {
+            releaseContent(so);
+        }
         fStoredObjectMap.clear();
+        fChildrenIndex.clear();
+        fObjectIndex.clear();
         storeObject(fRootFolder);
         unlock();
     }
@@ -246,6 +311,50 @@ public class ObjectStoreImpl implements ObjectStore {
         return fStoredObjectMap.size();
     }
 
+    /**
+     * Returns the secondary indexes of this store.
+     */
+    public ObjectIndex getObjectIndex() {
+        return fObjectIndex;
+    }
+
+    /**
+     * Replaces the secondary indexes of this store. All objects already
+     * contained in the store are added to the new index.
+     */
+    public void setObjectIndex(ObjectIndex index) {
+        lock();
+        try {
+            index.clear();
+            for (Map.Entry<String, StoredObject> entry : fStoredObjectMap.entrySet()) {
+                index.add(entry.getKey(), entry.getValue());
+            }
+            fObjectIndex = index;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of all objects filed in a folder. Version series are
+     * represented by the ids of all of their versions.
+     */
+    public Set<String> getChildIds(String folderId) {
+        Set<String> ids = new HashSet<String>();
+        FolderChildren children = fChildrenIndex.get(folderId);
+        if (null != children) {
+            for (Fileable child : children.getChildren()) {
+                ids.add(child.getId());
+                if (child instanceof VersionedDocument) {
+                    for (DocumentVersion ver : ((VersionedDocument) child).getAllVersions()) {
+                        ids.add(ver.getId());
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
     // /////////////////////////////////////////
     // private helper methods
 
@@ -286,6 +395,7 @@ public class ObjectStoreImpl implements ObjectStore {
         }
         String id = storeObject(doc);
         doc.setId(id);
+        addToChildrenIndex(doc);
         applyAcl(doc, addACEs, removeACEs);
         return doc;
     }
@@ -312,6 +422,7 @@ public class ObjectStoreImpl implements ObjectStore {
         item.setAclId(aclId);
         String id = storeObject(item);
         item.setId(id);
+        addToChildrenIndex(item);
         applyAcl(item, addACEs, removeACEs);
         return item;
     }
@@ -344,6 +455,7 @@ public class ObjectStoreImpl implements ObjectStore {
         }
         id = storeObject(version);
         version.setId(id);
+        addToChildrenIndex(doc);
         applyAcl(doc, addACEs, removeACEs);
         return version;
     }
@@ -372,6 +484,7 @@ public class ObjectStoreImpl implements ObjectStore {
 
         String id = storeObject(folder);
         folder.setId(id);
+        addToChildrenIndex(folder);
         applyAcl(folder, addACEs, removeACEs);
         return folder;
     }
@@ -426,16 +539,30 @@ public class ObjectStoreImpl implements ObjectStore {
     @Override
     public void deleteVersion(DocumentVersion version) {
         StoredObject found = fStoredObjectMap.remove(version.getId());
+        fObjectIndex.remove(version.getId());
 
         if (null == found) {
             throw new CmisInvalidArgumentException("Cannot delete object with id  " + version.getId()
                     + ". Object does not exist.");
         }
+        releaseContent(found);
     }
 
     @Override
     public void upateObject(StoredObject so) {
-        // nothing to do
+        // the name of an object might have changed
+        if (so instanceof Fileable) {
+            updateChildrenIndex((Fileable) so);
+        }
+
+        // ... and so might its properties
+        if (so instanceof VersionedDocument) {
+            for (DocumentVersion ver : ((VersionedDocument) so).getAllVersions()) {
+                fObjectIndex.add(ver.getId(), ver);
+            }
+        } else if (null != so.getId() && fStoredObjectMap.containsKey(so.getId())) {
+            fObjectIndex.add(so.getId(), so);
+        }
     }
 
     @Override
@@ -522,14 +649,53 @@ public class ObjectStoreImpl implements ObjectStore {
 
     public List<Integer> getAllAclsForUser(String principalId, Permission permission) {
         List<Integer> acls = new ArrayList<Integer>();
-        for (InMemoryAcl acl : fAcls) {
-            if (acl.hasPermission(principalId, permission)) {
-                acls.add(acl.getId());
-            }
+        BitSet aclIds = getAclIdsForUser(principalId, permission);
+        for (int i = aclIds.nextSetBit(0); i >= 0; i = aclIds.nextSetBit(i + 1)) {
+            acls.add(i);
         }
         return acls;
     }
 
+    /**
+     * Returns the ids of all Acls granting the given permission to a
+     * principal. The returned bit set must not be modified.
+     */
+    private BitSet getAclIdsForUser(String principalId, Permission permission) {
+        if (null == permission) {
+            return new BitSet();
+        }
+
+        String key = principalId == null ? ANONYMOUS_CACHE_KEY : principalId;
+        BitSet[] aclIds = fAclPermissionCache.get(key);
+        if (aclIds == null) {
+            lock();
+            try {
+                aclIds = fAclPermissionCache.get(key);
+                if (aclIds == null) {
+                    Permission[] permissions = Permission.values();
+                    aclIds = new BitSet[permissions.length];
+                    for (int i = 0; i < permissions.length; i++) {
+                        aclIds[i] = new BitSet(nextUnusedAclId);
+                    }
+                    for (InMemoryAcl acl : fAcls) {
+                        for (int i = 0; i < permissions.length; i++) {
+                            if (acl.hasPermission(principalId, permissions[i])) {
+                                aclIds[i].set(acl.getId());
+                            }
+                        }
+                    }
+                    if (fAclPermissionCache.size() >= MAX_ACL_PERMISSION_CACHE_SIZE) {
+                        fAclPermissionCache.clear();
+                    }
+                    fAclPermissionCache.put(key, aclIds);
+                }
+            } finally {
+                unlock();
+            }
+        }
+        return aclIds[permission.ordinal()];
+    }
+
    
     @Override
     public Acl getAcl(int aclId) {
@@ -621,77 +787,95 @@ public class ObjectStoreImpl implements ObjectStore {
         }
 
         fStoredObjectMap.remove(folderId);
+        fObjectIndex.remove(folderId);
+        removeFromChildrenIndex((Fileable) folder);
+        fChildrenIndex.remove(folderId);
     }
 
     @Override
     public ChildrenResult getChildren(Folder folder, int maxItemsParam, int skipCountParam, String user, boolean usePwc) {
-        List<Fileable> children = getChildren(folder, user, usePwc);
-        sortFolderList(children);
-
-        int maxItems = maxItemsParam < 0 ? children.size() : maxItemsParam;
+        int maxItems = maxItemsParam < 0 ? Integer.MAX_VALUE : maxItemsParam;
         int skipCount = skipCountParam < 0 ? 0 : skipCountParam;
-        
-        int from = Math.min(skipCount, children.size());
-        int to = Math.min(maxItems + from, children.size());
-        int noItems = children.size();
 
-        children = children.subList(from, to);
-        return new ChildrenResult(children, noItems);
-    }
+        // children are already sorted by name, only the requested page is
+        // collected
+        List<Fileable> page = new ArrayList<Fileable>();
+        int noItems = collectChildren(folder, createReadFilter(user, false), skipCount, maxItems, page);
 
-    private List<Fileable> getChildren(Folder folder) {
-        return getChildren(folder, null, false);
+        List<Fileable> children = new ArrayList<Fileable>(page.size());
+        for (Fileable child : page) {
+            children.add(resolveChild(child, usePwc));
+        }
+
+        return new ChildrenResult(children, noItems);
     }
 
-    private List<Fileable> getChildren(Folder folder, String user, boolean usePwc) {
-        List<Fileable> children = new ArrayList<Fileable>();
-        for (String id : getIds()) {
-            StoredObject obj = getObject(id);
-            if (obj instanceof Fileable) {
-                Fileable pathObj = (Fileable) obj;
-                if ((null == user || hasReadAccess(user, obj)) && pathObj.getParentIds().contains(folder.getId())) {
-                    if (pathObj instanceof VersionedDocument) {
-                         DocumentVersion ver;
-                        if (usePwc) {
-                            ver = ((VersionedDocument) pathObj).getPwc();
-                            if (null == ver) {
-                                ver = ((VersionedDocument) pathObj).getLatestVersion(false);
-                            }
-                        } else {
-                            ver = ((VersionedDocument) pathObj).getLatestVersion(false);
-                        }
-                        children.add(ver);                        
-                    } else if (!(pathObj instanceof DocumentVersion)) { // ignore
-                                                                        // DocumentVersion
-                        children.add(pathObj);
-                    }
-                    
+    /**
+     * Returns the object that represents a child in a folder listing.
+     */
+    private static Fileable resolveChild(Fileable child, boolean usePwc) {
+        if (child instanceof VersionedDocument) {
+            DocumentVersion ver;
+            if (usePwc) {
+                ver = ((VersionedDocument) child).getPwc();
+                if (null == ver) {
+                    ver = ((VersionedDocument) child).getLatestVersion(false);
                 }
+            } else {
+                ver = ((VersionedDocument) child).getLatestVersion(false);
             }
+            return ver;
         }
-        return children;
+        return child;
     }
 
     @Override
-    public ChildrenResult getFolderChildren(Folder folder, int maxItems, int skipCount, String user) {
+    public ChildrenResult getFolderChildren(Folder folder, int maxItemsParam, int skipCountParam, String user) {
+        int maxItems = maxItemsParam < 0 ? Integer.MAX_VALUE : maxItemsParam;
+        int skipCount = skipCountParam < 0 ? 0 : skipCountParam;
+
         List<Fileable> folderChildren = new ArrayList<Fileable>();
-        for (String id : getIds()) {
-            StoredObject obj = getObject(id);
-            if (hasReadAccess(user, obj) && obj instanceof Folder) {
-                Folder childFolder = (Folder) obj;
-                if (childFolder.getParentIds().contains(folder.getId()) ) {
-                    folderChildren.add(childFolder);
-                }
-            }
+        int noItems = collectChildren(folder, createReadFilter(user, true), skipCount, maxItems, folderChildren);
+
+        return new ChildrenResult(folderChildren, noItems);
+    }
+
+    /**
+     * Creates a filter for the children a user can read or <code>null</code>
+     * if all children are accepted. The Acl ids are resolved up front, so the
+     * filter doesn't need the store lock while the children index is locked.
+     */
+    private ChildFilter createReadFilter(String user, final boolean foldersOnly) {
+        if (null == user && !foldersOnly) {
+            return null;
         }
-        sortFolderList(folderChildren);
-        int from = Math.min(skipCount, folderChildren.size());
-        int to = Math.min(maxItems + from, folderChildren.size());
-        int noItems = folderChildren.size();
 
-        folderChildren = folderChildren.subList(from, to);
+        final BitSet readable = ADMIN_PRINCIPAL_ID.equals(user) ? null : getAclIdsForUser(user, Permission.READ);
 
-        return new ChildrenResult(folderChildren, noItems);
+        if (null == readable && !foldersOnly) {
+            return null;
+        }
+
+        return new ChildFilter() {
+            public boolean accept(Fileable child) {
+                if (foldersOnly && !(child instanceof Folder)) {
+                    return false;
+                }
+                if (null == readable) {
+                    return true;
+                }
+                int aclId = ((StoredObjectImpl) child).getAclId();
+                return aclId >= 0 && readable.get(aclId);
+            }
+        };
+    }
+
+    private int collectChildren(Folder folder, ChildFilter filter, int skipCount, int maxItems, List<Fileable> page) {
+        FolderChildren children = fChildrenIndex.get(folder.getId());
+        if (null == children) {
+            return 0;
+        }
+        return children.collect(filter, skipCount, maxItems, page);
     }
 
     @Override
@@ -707,7 +891,9 @@ public class ObjectStoreImpl implements ObjectStore {
                 addParentIntern(fi, newParent);
                 removeParentIntern(fi, oldParent);
             } else if (so instanceof FolderImpl) {
+                removeFromChildrenIndex(oldParent.getId(), (FolderImpl) so);
                 ((FolderImpl) so).setParentId(newParent.getId());
+                addToChildrenIndex(newParent.getId(), (FolderImpl) so);
             }
         } finally {
             unlock();
@@ -729,19 +915,15 @@ public class ObjectStoreImpl implements ObjectStore {
                 }
             }
             so.setName(newName);
+            updateChildrenIndex(so);
         } finally {
             unlock();
         }
     }
 
     private boolean hasChild(Folder folder, String name) {
-        List<Fileable> children = getChildren(folder);
-        for (Fileable child : children) {
-            if (child.getName().equals(name)) {
-                return true;
-            }
-        }
-        return false;
+        FolderChildren children = fChildrenIndex.get(folder.getId());
+        return null != children && null != children.getByName(name);
     }
 
     @Override
@@ -796,18 +978,12 @@ public class ObjectStoreImpl implements ObjectStore {
         if (null != principalId && principalId.equals(ADMIN_PRINCIPAL_ID)) {
             return true;
         }
-        List<Integer> aclIds = getAllAclsForUser(principalId, permission);
-        return aclIds.contains(((StoredObjectImpl) so).getAclId());
+        int aclId = ((StoredObjectImpl) so).getAclId();
+        return aclId >= 0 && getAclIdsForUser(principalId, permission).get(aclId);
     }
 
     private InMemoryAcl getInMemoryAcl(int aclId) {
-
-        for (InMemoryAcl acl : fAcls) {
-            if (aclId == acl.getId()) {
-                return acl;
-            }
-        }
-        return null;
+        return fAclMap.get(aclId);
     }
 
     private int setAcl(StoredObjectImpl so, Acl acl) {
@@ -851,6 +1027,8 @@ public class ObjectStoreImpl implements ObjectStore {
                 aclId = getNextAclId();
                 acl.setId(aclId);
                 fAcls.add(acl);
+                fAclMap.put(aclId, acl);
+                fAclPermissionCache.clear();
             }
         } finally {
             unlock();
@@ -982,26 +1160,195 @@ public class ObjectStoreImpl implements ObjectStore {
 
     private void addParentIntern(MultiFiling so, Folder parent) {
         so.addParentId(parent.getId());
+        addToChildrenIndex(parent.getId(), getIndexedObject((Fileable) so));
     }
 
     private void removeParentIntern(MultiFiling so, Folder parent) {
         so.removeParentId(parent.getId());
+        removeFromChildrenIndex(parent.getId(), getIndexedObject((Fileable) so));
+    }
+
+    // /////////////////////////////////////////
+    // children index
+
+    /**
+     * Returns the object that is stored in the children index for a fileable
+     * object. Versions are represented by their version series.
+     */
+    private static Fileable getIndexedObject(Fileable so) {
+        if (so instanceof DocumentVersion) {
+            return (Fileable) ((DocumentVersion) so).getParentDocument();
+        }
+        return so;
+    }
+
+    /**
+     * Returns the name of an object as it appears in a folder listing.
+     */
+    private static String getIndexedName(Fileable so) {
+        if (so instanceof VersionedDocument) {
+            DocumentVersion ver = ((VersionedDocument) so).getLatestVersion(false);
+            if (null != ver) {
+                return ver.getName();
+            }
+        }
+        return so.getName();
     }
 
-    private static void sortFolderList(List<? extends StoredObject> list) {
-        // TODO evaluate orderBy, for now sort by path segment
-        class FolderComparator implements Comparator<StoredObject> {
+    private void addToChildrenIndex(Fileable so) {
+        for (String parentId : so.getParentIds()) {
+            addToChildrenIndex(parentId, so);
+        }
+    }
+
+    private void addToChildrenIndex(String folderId, Fileable so) {
+        FolderChildren children = fChildrenIndex.get(folderId);
+        if (null == children) {
+            FolderChildren newChildren = new FolderChildren();
+            children = fChildrenIndex.putIfAbsent(folderId, newChildren);
+            if (null == children) {
+                children = newChildren;
+            }
+        }
+        children.add(so);
+    }
+
+    private void removeFromChildrenIndex(Fileable so) {
+        for (String parentId : so.getParentIds()) {
+            removeFromChildrenIndex(parentId, so);
+        }
+    }
+
+    private void removeFromChildrenIndex(String folderId, Fileable so) {
+        FolderChildren children = fChildrenIndex.get(folderId);
+        if (null != children) {
+            children.remove(so);
+        }
+    }
 
-            @Override
-            public int compare(StoredObject f1, StoredObject f2) {
-                String segment1 = f1.getName();
-                String segment2 = f2.getName();
+    private void updateChildrenIndex(Fileable so) {
+        Fileable indexed = getIndexedObject(so);
+        if (null != indexed) {
+            addToChildrenIndex(indexed);
+        }
+    }
 
-                return segment1.compareTo(segment2);
+    /**
+     * The children of a folder sorted by name. The key of each child is its
+     * name followed by its id, so the order of the keys is the order of the
+     * names.
+     */
+    private static class FolderChildren {
+
+        private static final char KEY_SEPARATOR = '\0';
+
+        private final TreeMap<String, Fileable> fChildren = new TreeMap<String, Fileable>();
+        private final Map<String, String> fKeys = new HashMap<String, String>();
+        private final ReadWriteLock fRwLock = new ReentrantReadWriteLock();
+
+        /**
+         * Adds a child or updates its position if it has been renamed.
+         */
+        public void add(Fileable child) {
+            String key = getIndexedName(child) + KEY_SEPARATOR + child.getId();
+            fRwLock.writeLock().lock();
+            try {
+                String oldKey = fKeys.put(child.getId(), key);
+                if (null != oldKey) {
+                    fChildren.remove(oldKey);
+                }
+                fChildren.put(key, child);
+            } finally {
+                fRwLock.writeLock().unlock();
+            }
+        }
+
+        public void remove(Fileable child) {
+            fRwLock.writeLock().lock();
+            try {
+                String oldKey = fKeys.remove(child.getId());
+                if (null != oldKey) {
+                    fChildren.remove(oldKey);
+                }
+            } finally {
+                fRwLock.writeLock().unlock();
             }
         }
 
-        Collections.sort(list, new FolderComparator());
+        public Fileable getByName(String name) {
+            if (null == name) {
+                return null;
+            }
+            String prefix = name + KEY_SEPARATOR;
+            fRwLock.readLock().lock();
+            try {
+                Map.Entry<String, Fileable> entry = fChildren.ceilingEntry(prefix);
+                if (null != entry && entry.getKey().startsWith(prefix)) {
+                    return entry.getValue();
+                }
+                return null;
+            } finally {
+                fRwLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Returns a snapshot of the children sorted by name.
+         */
+        public List<Fileable> getChildren() {
+            fRwLock.readLock().lock();
+            try {
+                return new ArrayList<Fileable>(fChildren.values());
+            } finally {
+                fRwLock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Adds the accepted children from <code>skipCount</code> to
+         * <code>skipCount + maxItems</code> in name order to the page and
+         * returns the number of accepted children. Without a filter only the
+         * page is visited.
+         */
+        public int collect(ChildFilter filter, int skipCount, int maxItems, List<Fileable> page) {
+            fRwLock.readLock().lock();
+            try {
+                if (null == filter) {
+                    int total = fChildren.size();
+                    if (skipCount < total && maxItems > 0) {
+                        int pos = 0;
+                        for (Fileable child : fChildren.values()) {
+                            if (pos++ >= skipCount) {
+                                page.add(child);
+                                if (page.size() >= maxItems) {
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                    return total;
+                }
+
+                int noItems = 0;
+                for (Fileable child : fChildren.values()) {
+                    if (filter.accept(child)) {
+                        if (noItems >= skipCount && page.size() < maxItems) {
+                            page.add(child);
+                        }
+                        noItems++;
+                    }
+                }
+                return noItems;
+            } finally {
+                fRwLock.readLock().unlock();
+            }
+        }
     }
 
+    /**
+     * Decides which children are part of a folder listing.
+     */
+    private interface ChildFilter {
+        boolean accept(Fileable child);
+    }
 }
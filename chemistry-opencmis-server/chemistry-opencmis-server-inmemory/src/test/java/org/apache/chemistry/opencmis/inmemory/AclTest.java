@@ -33,8 +33,10 @@ import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlEntry
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlListImpl;
 import org.apache.chemistry.opencmis.commons.impl.dataobjects.AccessControlPrincipalDataImpl;
 import org.apache.chemistry.opencmis.commons.impl.jaxb.EnumBasicPermissions;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.InMemoryAce;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.InMemoryAcl;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.Permission;
 import org.junit.Test;
 import org.slf4j.Logger;
@@ -272,6 +274,38 @@ public class AclTest {
         assertEquals(acl, acl2);
     }
     
+    @Test
+    public void testStoreAccessChecks() {
+        ObjectStoreImpl store = new ObjectStoreImpl("AclTestRepository");
+        Folder root = store.getRootFolder();
+        Acl aclDefault = new AccessControlListImpl(Arrays.asList(new Ace[] { createAce(InMemoryAce.getAnyoneUser(),
+                EnumBasicPermissions.CMIS_ALL.value()) }));
+
+        Acl aclR = new AccessControlListImpl(Arrays.asList(new Ace[] { createAce(BERTA,
+                EnumBasicPermissions.CMIS_READ.value()) }));
+        Folder f1 = store.createFolder("Folder 1", null, ANDREAS, root, null, aclR, aclDefault);
+
+        assertTrue(store.hasReadAccess(BERTA, f1));
+        assertFalse(store.hasWriteAccess(BERTA, f1));
+        assertFalse(store.hasReadAccess(CHRISTIAN, f1));
+        assertFalse(store.hasReadAccess(null, f1));
+        assertTrue(store.hasAllAccess("Admin", f1));
+        assertTrue(store.hasAllAccess(CHRISTIAN, root));
+        assertTrue(store.getAllAclsForUser(BERTA, Permission.READ).contains(f1.getAclId()));
+
+        // a new Acl must be visible to principals already checked
+        Acl aclW = new AccessControlListImpl(Arrays.asList(new Ace[] { createAce(CHRISTIAN,
+                EnumBasicPermissions.CMIS_WRITE.value()) }));
+        Folder f2 = store.createFolder("Folder 2", null, ANDREAS, root, null, aclW, aclDefault);
+
+        assertTrue(store.hasWriteAccess(CHRISTIAN, f2));
+        assertTrue(store.hasReadAccess(CHRISTIAN, f2));
+        assertFalse(store.hasReadAccess(BERTA, f2));
+        assertFalse(store.hasReadAccess(CHRISTIAN, f1));
+        assertEquals(f1.getAclId(), store.getAclId(null, aclR, null));
+        assertTrue(hasCommonsAce(store.getAcl(f2.getAclId()), CHRISTIAN, EnumBasicPermissions.CMIS_WRITE.value()));
+    }
+
     private InMemoryAcl createDefaultAcl() {
         return  new InMemoryAcl(new ArrayList<InMemoryAce>() {{ add(aceA); add(aceR);  add(aceN);  add(aceW); }});
     }
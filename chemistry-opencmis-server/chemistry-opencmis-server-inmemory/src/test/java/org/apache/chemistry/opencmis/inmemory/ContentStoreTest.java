@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+
+import org.apache.chemistry.opencmis.commons.data.ContentStream;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStore;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ContentStreamDataImpl;
+import org.junit.After;
+import org.junit.Test;
+
+public class ContentStoreTest {
+
+    private static final int SIZE = 3 * 1024 * 1024 + 17;
+
+    @After
+    public void tearDown() {
+        ContentStore.configure(null, null);
+    }
+
+    @Test
+    public void testHeapStore() throws IOException {
+        checkContentStore(ContentStore.HEAP);
+    }
+
+    @Test
+    public void testOffHeapStore() throws IOException {
+        checkContentStore(ContentStore.OFF_HEAP);
+    }
+
+    @Test
+    public void testMappedFileStore() throws IOException {
+        checkContentStore(ContentStore.MAPPED_FILE);
+    }
+
+    @Test
+    public void testMappedFileStoreRelease() throws IOException {
+        File tempDir = File.createTempFile("opencmis-test", "");
+        assertTrue(tempDir.delete());
+        assertTrue(tempDir.mkdir());
+        try {
+            ContentStore.configure(ContentStore.MAPPED_FILE, tempDir);
+            byte[] data = new byte[10000];
+            new Random(42).nextBytes(data);
+
+            // replacing the content deletes the old file
+            ContentStreamDataImpl content = new ContentStreamDataImpl(8);
+            content.setContent(new ByteArrayInputStream(data, 0, 1000));
+            content.setContent(new ByteArrayInputStream(data, 0, 2000));
+            assertEquals(1, tempDir.list().length);
+
+            // a failed replace deletes the new file and keeps the old content
+            try {
+                content.setContent(new ByteArrayInputStream(data));
+                fail("Content larger than the limit should throw exception");
+            } catch (CmisInvalidArgumentException e) {
+                // expected
+            }
+            assertEquals(1, tempDir.list().length);
+            assertArrayEquals(copyOf(data, 0, 2000), content.getBytes());
+
+            // an open stream can still be read after the content is released,
+            // the file is deleted when the stream is closed
+            InputStream in = content.getStream();
+            content.release();
+            assertEquals(0, content.getLength());
+            assertNull(content.getStream());
+            assertEquals(1, tempDir.list().length);
+            assertArrayEquals(copyOf(data, 0, 2000), readAll(in));
+            assertEquals(0, tempDir.list().length);
+        } finally {
+            for (File file : tempDir.listFiles()) {
+                file.delete();
+            }
+            tempDir.delete();
+        }
+    }
+
+    @Test
+    public void testUnknownStore() {
+        try {
+            ContentStore.configure("tape", null);
+            fail("Unknown content store should throw exception");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private void checkContentStore(String type) throws IOException {
+        ContentStore.configure(type, null);
+        byte[] data = new byte[SIZE];
+        new Random(42).nextBytes(data);
+
+        // set and append content in several parts
+        ContentStreamDataImpl content = new ContentStreamDataImpl(0);
+        content.setContent(new ByteArrayInputStream(data, 0, 1000));
+        content.appendContent(new ByteArrayInputStream(data, 1000, 200000));
+        content.appendContent(new ByteArrayInputStream(data, 201000, SIZE - 201000));
+        assertEquals(SIZE, content.getLength());
+        assertArrayEquals(data, readAll(content.getStream()));
+        assertArrayEquals(data, content.getBytes());
+
+        // ranged reads
+        checkRange(content, data, 0, 10);
+        checkRange(content, data, 999, 2);
+        checkRange(content, data, 150000, 1500000);
+        checkRange(content, data, SIZE - 5, 100);
+        checkRange(content, data, 12345, -1);
+
+        // a failed append keeps the existing content
+        ContentStreamDataImpl limited = new ContentStreamDataImpl(1);
+        limited.setContent(new ByteArrayInputStream(data, 0, 1000));
+        try {
+            limited.appendContent(new ByteArrayInputStream(data, 1000, 1000));
+            fail("Content larger than the limit should throw exception");
+        } catch (CmisInvalidArgumentException e) {
+            // expected
+        }
+        assertEquals(1000, limited.getLength());
+        limited.appendContent(new ByteArrayInputStream(data, 1000, 24));
+        assertArrayEquals(copyOf(data, 0, 1024), readAll(limited.getStream()));
+
+        // a stream of a clone stays readable when the content is replaced,
+        // the clone can't open new streams
+        ContentStream clone = content.getCloneWithLimits(100, 5000);
+        InputStream in = clone.getStream();
+        content.setContent(new ByteArrayInputStream(data, 0, 10));
+        assertArrayEquals(copyOf(data, 100, 5000), readAll(in));
+        try {
+            clone.getStream();
+            fail("The content of the clone has been replaced");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        content.setContent(null);
+        assertNull(content.getStream());
+    }
+
+    private static void checkRange(ContentStreamDataImpl content, byte[] data, int offset, int length) throws IOException {
+        ContentStream range = content.getCloneWithLimits(offset, length);
+        int expectedLength = length < 0 ? data.length - offset : Math.min(length, data.length - offset);
+        assertArrayEquals(copyOf(data, offset, expectedLength), readAll(range.getStream()));
+    }
+
+    private static byte[] copyOf(byte[] data, int offset, int length) {
+        byte[] result = new byte[length];
+        System.arraycopy(data, offset, result, 0, length);
+        return result;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int len;
+        while ((len = in.read(buffer)) != -1) {
+            out.write(buffer, 0, len);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+}
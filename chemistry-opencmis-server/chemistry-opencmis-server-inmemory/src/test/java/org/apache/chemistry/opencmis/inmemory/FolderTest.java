@@ -25,6 +25,7 @@ import junit.framework.TestCase;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Fileable;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Filing;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.Folder;
+import org.apache.chemistry.opencmis.inmemory.storedobj.api.ObjectStore;
 import org.apache.chemistry.opencmis.inmemory.storedobj.api.StoredObject;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.FolderImpl;
 import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectStoreImpl;
@@ -155,6 +156,60 @@ public class FolderTest extends TestCase {
         }
     }
 
+    @Test
+    public void testChildrenPaging() {
+        createFolder("Folder 0", fRoot);
+        createFolder("Folder 5", fRoot);
+
+        ObjectStore.ChildrenResult result = fStore.getChildren(fRoot, 2, 1, USER, false);
+        assertEquals(6, result.getNoItems());
+        assertEquals(2, result.getChildren().size());
+        assertEquals("Folder 1", result.getChildren().get(0).getName());
+        assertEquals("Folder 2", result.getChildren().get(1).getName());
+
+        result = fStore.getFolderChildren(fRoot, 10, 4, USER);
+        assertEquals(6, result.getNoItems());
+        assertEquals(2, result.getChildren().size());
+        assertEquals("Folder 4", result.getChildren().get(0).getName());
+        assertEquals("Folder 5", result.getChildren().get(1).getName());
+
+        // renamed and moved folders keep the children sorted
+        fStore.rename(f1, "Folder 9");
+        fStore.move(f2, fRoot, f3);
+        List<Fileable> children = fStore.getChildren(fRoot, -1, -1, USER, false).getChildren();
+        assertEquals(5, children.size());
+        assertEquals("Folder 0", children.get(0).getName());
+        assertEquals("Folder 3", children.get(1).getName());
+        assertEquals("Folder 9", children.get(4).getName());
+        assertEquals(f2, fStore.getChildren(f3, -1, -1, USER, false).getChildren().get(0));
+
+        fStore.deleteObject(f4.getId(), true, USER);
+        assertEquals(4, fStore.getChildren(fRoot, -1, -1, USER, false).getNoItems());
+    }
+
+    @Test
+    public void testGetObjectByPath() {
+        Folder f10 = createFolder("Folder 10", fRoot);
+        Folder f101 = createFolder("Folder 1.1", f10);
+
+        // folders with a common prefix must not be confused
+        assertEquals(f10, fStore.getObjectByPath("/Folder 10", USER));
+        assertEquals(f101, fStore.getObjectByPath("/Folder 10/Folder 1.1", USER));
+        assertEquals(f11, fStore.getObjectByPath("/Folder 1/Folder 1.1", USER));
+
+        assertNull(fStore.getObjectByPath("/Folder 1/", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1//Folder 1.1", USER));
+        assertNull(fStore.getObjectByPath("Folder 1", USER));
+        assertNull(fStore.getObjectByPath("/Folder 1/Folder 1.1/Unknown", USER));
+
+        fStore.move(f10, fRoot, f2);
+        assertNull(fStore.getObjectByPath("/Folder 10/Folder 1.1", USER));
+        assertEquals(f101, fStore.getObjectByPath("/Folder 2/Folder 10/Folder 1.1", USER));
+
+        fStore.deleteObject(f101.getId(), true, USER);
+        assertNull(fStore.getObjectByPath("/Folder 2/Folder 10/Folder 1.1", USER));
+    }
+
     private void createFolders() {
         fRoot = (FolderImpl) fStore.getRootFolder();
         f1 = (FolderImpl) createFolder("Folder 1", fRoot);
@@ -575,6 +575,43 @@ public class EvalQueryTest extends AbstractServiceTest {
         log.debug("...Stop testOrderByBool.");
     }
 
+    @Test
+    public void testOrderByMultipleColumns() {
+        log.debug("Start testOrderByMultipleColumns...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " ORDER BY " + PROP_ID_BOOLEAN + ", " + PROP_ID_INT
+                + " DESC";
+        ObjectList res = doQuery(statement);
+        assertEquals(5, res.getObjects().size());
+        assertTrue(resultContainsAtPos("epsilon", 0, res));
+        assertTrue(resultContainsAtPos("beta", 1, res));
+        assertTrue(resultContainsAtPos("delta", 2, res));
+        assertTrue(resultContainsAtPos("gamma", 3, res));
+        assertTrue(resultContainsAtPos("alpha", 4, res));
+        log.debug("...Stop testOrderByMultipleColumns.");
+    }
+
+    @Test
+    public void testOrderByWithPaging() {
+        log.debug("Start testOrderByWithPaging...");
+        String statement = "SELECT * FROM " + COMPLEX_TYPE + " ORDER BY " + PROP_ID_BOOLEAN + ", " + PROP_ID_INT
+                + " DESC";
+        ObjectList res = fDiscSvc.query(fRepositoryId, statement, false, false, IncludeRelationships.NONE, null,
+                BigInteger.valueOf(2), BigInteger.valueOf(1), null);
+        assertEquals(2, res.getObjects().size());
+        assertEquals(BigInteger.valueOf(5), res.getNumItems());
+        assertTrue(res.hasMoreItems());
+        assertTrue(resultContainsAtPos("beta", 0, res));
+        assertTrue(resultContainsAtPos("delta", 1, res));
+
+        res = fDiscSvc.query(fRepositoryId, statement, false, false, IncludeRelationships.NONE, null,
+                BigInteger.valueOf(2), BigInteger.valueOf(3), null);
+        assertEquals(2, res.getObjects().size());
+        assertFalse(res.hasMoreItems());
+        assertTrue(resultContainsAtPos("gamma", 0, res));
+        assertTrue(resultContainsAtPos("alpha", 1, res));
+        log.debug("...Stop testOrderByWithPaging.");
+    }
+
     // reported JIRA issue CMIS-510
     @Test
     public void testOrderBySystemProperties() {
@@ -1098,7 +1135,7 @@ public class EvalQueryTest extends AbstractServiceTest {
         log.debug("...Stop testPredfinedQueryName.");
     }
 
-    private ObjectList doQuery(String queryString) {
+    protected ObjectList doQuery(String queryString) {
         log.debug("\nExecuting query: " + queryString);
         ObjectList res = fDiscSvc.query(fRepositoryId, queryString, false, false, IncludeRelationships.NONE, null,
                 null, null, null);
@@ -1149,7 +1186,7 @@ public class EvalQueryTest extends AbstractServiceTest {
         return false;
     }
 
-    private static boolean resultContains(String name, ObjectList results) {
+    protected static boolean resultContains(String name, ObjectList results) {
         return resultContains(name, PropertyIds.NAME, results);
     }
 
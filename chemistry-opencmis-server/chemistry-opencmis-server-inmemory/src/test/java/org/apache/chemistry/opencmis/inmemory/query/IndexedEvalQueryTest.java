@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.COMPLEX_TYPE;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_BOOLEAN;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_DATETIME;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_DECIMAL;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_ID;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_INT;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.PROP_ID_STRING;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.SECONDARY_INTEGER_PROP;
+import static org.apache.chemistry.opencmis.inmemory.UnitTestTypeSystemCreator.SECONDARY_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.data.PropertyData;
+import org.apache.chemistry.opencmis.commons.data.Properties;
+import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.inmemory.ConfigConstants;
+import org.apache.chemistry.opencmis.inmemory.storedobj.impl.ObjectIndex;
+import org.junit.Test;
+
+/**
+ * Runs all query tests with type and property indexes enabled. The configured
+ * system properties are not indexed, queries on them scan all objects.
+ */
+public class IndexedEvalQueryTest extends EvalQueryTest {
+
+    @Override
+    protected void addParameters(Map<String, String> parameters) {
+        parameters.put(ConfigConstants.INDEX_TYPES, "true");
+        parameters.put(ConfigConstants.INDEX_HASH_PROPERTIES, PROP_ID_STRING + ", " + PROP_ID_BOOLEAN + ", "
+                + PROP_ID_ID + ", " + PropertyIds.NAME);
+        parameters.put(ConfigConstants.INDEX_SORTED_PROPERTIES, PROP_ID_INT + ", " + PROP_ID_DECIMAL + ", "
+                + PROP_ID_DATETIME + ", " + SECONDARY_INTEGER_PROP + ", " + PropertyIds.NAME + ", "
+                + PropertyIds.CREATION_DATE);
+    }
+
+    @Test
+    public void testIndexFollowsUpdates() {
+        new QueryTestDataCreator(fRepositoryId, fRootFolderId, fObjSvc, fVerSvc).createSecondaryTestDocuments();
+
+        ObjectList res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE cmis:name = 'docwithsecondary'");
+        assertEquals(1, res.getObjects().size());
+        String id = (String) res.getObjects().get(0).getProperties().getProperties().get(PropertyIds.OBJECT_ID)
+                .getFirstValue();
+
+        String statement = "SELECT * FROM " + SECONDARY_TYPE + " WHERE " + SECONDARY_INTEGER_PROP + " = 100";
+        res = doQuery(statement);
+        assertEquals(1, res.getObjects().size());
+
+        List<PropertyData<?>> properties = new ArrayList<PropertyData<?>>();
+        properties.add(fFactory.createPropertyIntegerData(SECONDARY_INTEGER_PROP, BigInteger.valueOf(4711)));
+        Properties newProps = fFactory.createPropertiesData(properties);
+        fObjSvc.updateProperties(fRepositoryId, new Holder<String>(id), new Holder<String>(), newProps, null);
+
+        res = doQuery(statement);
+        assertEquals(0, res.getObjects().size());
+        statement = "SELECT * FROM " + SECONDARY_TYPE + " WHERE " + SECONDARY_INTEGER_PROP + " > 4000";
+        res = doQuery(statement);
+        assertEquals(1, res.getObjects().size());
+
+        fObjSvc.deleteObject(fRepositoryId, id, true, null);
+        res = doQuery(statement);
+        assertEquals(0, res.getObjects().size());
+    }
+
+    @Test
+    public void testSystemPropertyIndex() {
+        try {
+            new ObjectIndex(false, Collections.singletonList(PropertyIds.NAME), null);
+            fail("System properties must not be indexed");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // compare with the result of a scan without a WHERE clause
+        List<String> all = getNames(doQuery("SELECT * FROM " + COMPLEX_TYPE));
+        assertEquals(5, all.size());
+
+        List<String> expected = new ArrayList<String>();
+        for (String name : all) {
+            if (name.equals("alpha") || name.equals("gamma")) {
+                expected.add(name);
+            }
+        }
+        assertEquals(2, expected.size());
+        assertEquals(expected, getNames(doQuery("SELECT * FROM " + COMPLEX_TYPE
+                + " WHERE cmis:name IN ('alpha', 'gamma', 'unknown')")));
+        assertEquals(Collections.singletonList("alpha"), getNames(doQuery("SELECT * FROM " + COMPLEX_TYPE
+                + " WHERE cmis:name = 'alpha'")));
+        assertEquals(all, getNames(doQuery("SELECT * FROM " + COMPLEX_TYPE
+                + " WHERE cmis:creationDate > TIMESTAMP '2000-01-01T00:00:00.000Z'")));
+    }
+
+    private static List<String> getNames(ObjectList res) {
+        List<String> names = new ArrayList<String>();
+        for (ObjectData od : res.getObjects()) {
+            names.add((String) od.getProperties().getProperties().get(PropertyIds.NAME).getFirstValue());
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    @Test
+    public void testTypeIndex() {
+        ObjectList res = doQuery("SELECT * FROM cmis:document WHERE cmis:objectTypeId = '" + COMPLEX_TYPE + "'");
+        assertEquals(5, res.getObjects().size());
+        res = doQuery("SELECT * FROM " + COMPLEX_TYPE + " WHERE cmis:objectTypeId IN ('" + COMPLEX_TYPE
+                + "', 'UnknownType') AND " + PROP_ID_BOOLEAN + " = true");
+        assertEquals(3, res.getObjects().size());
+        res = doQuery("SELECT * FROM cmis:folder WHERE cmis:objectTypeId = '" + COMPLEX_TYPE + "'");
+        assertEquals(0, res.getObjects().size());
+    }
+}
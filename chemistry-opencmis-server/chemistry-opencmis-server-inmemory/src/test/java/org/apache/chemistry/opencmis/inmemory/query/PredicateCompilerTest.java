@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.definitions.TypeDefinition;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.inmemory.TypeManagerImpl;
+import org.apache.chemistry.opencmis.server.support.query.ColumnReference;
+import org.apache.chemistry.opencmis.server.support.query.CompiledPredicate;
+import org.apache.chemistry.opencmis.server.support.query.PredicateCompiler;
+import org.apache.chemistry.opencmis.server.support.query.PredicateContext;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PredicateCompilerTest extends AbstractQueryTest {
+
+    private static final String PARENT = "parent";
+    private static final String TEXT = "text";
+
+    private static final PredicateContext<Map<String, Object>> CONTEXT = new PredicateContext<Map<String, Object>>() {
+
+        public Object getPropertyValue(Map<String, Object> object, ColumnReference colRef) {
+            return object.get(colRef.getPropertyId());
+        }
+
+        public boolean isInFolder(Map<String, Object> object, String folderId) {
+            return folderId.equals(object.get(PARENT));
+        }
+
+        public boolean isInTree(Map<String, Object> object, String folderId) {
+            return isInFolder(object, folderId);
+        }
+
+        public boolean containsText(Map<String, Object> object, String text) {
+            String content = (String) object.get(TEXT);
+            return content != null && content.indexOf(text) >= 0;
+        }
+    };
+
+    @Before
+    public void setUp() {
+        TypeManagerImpl tm = new TypeManagerImpl();
+        tm.initTypeSystem(null, true); // create CMIS default types
+
+        // create some types for testing
+        List<TypeDefinition> typeDefs = super.createTypes();
+        for (TypeDefinition typeDef : typeDefs) {
+            tm.addTypeDefinition(typeDef, true);
+        }
+        super.setUp(tm, null);
+    }
+
+    @Test
+    public void testComparisons() throws Exception {
+        Map<String, Object> obj = createObject("abc", 42, true);
+
+        assertTrue(matches("MyIntegerProp = 42", obj));
+        assertTrue(matches("MyIntegerProp > 41 AND MyIntegerProp <= 42", obj));
+        assertFalse(matches("MyIntegerProp <> 42", obj));
+        assertTrue(matches("MyIntegerProp < 42.5", obj));
+        assertTrue(matches("MyStringProp = 'abc' OR MyBooleanProp = false", obj));
+        assertTrue(matches("NOT (MyBooleanProp = false)", obj));
+        assertFalse(matches("MyStringProp > 'abc'", obj));
+
+        // a property that is not set never matches a comparison
+        Map<String, Object> empty = new HashMap<String, Object>();
+        assertFalse(matches("MyIntegerProp = 42", empty));
+        assertFalse(matches("MyIntegerProp <> 42", empty));
+        assertTrue(matches("MyIntegerProp IS NULL", empty));
+        assertFalse(matches("MyIntegerProp IS NOT NULL", empty));
+    }
+
+    @Test
+    public void testIntegersOutsideLongRange() throws Exception {
+        // 2^64 and -2^64 would wrap around to 0 as a long
+        Map<String, Object> big = createObject("abc", 0, true);
+        big.put(INT_PROP, BigInteger.ONE.shiftLeft(64));
+        Map<String, Object> small = createObject("abc", 0, true);
+        small.put(INT_PROP, BigInteger.ONE.shiftLeft(64).negate());
+
+        assertFalse(matches("MyIntegerProp = 0", big));
+        assertTrue(matches("MyIntegerProp > 42", big));
+        assertFalse(matches("MyIntegerProp IN (0, 1)", big));
+        assertFalse(matches("MyIntegerProp = 0", small));
+        assertTrue(matches("MyIntegerProp < -42", small));
+        assertTrue(matches("MyIntegerProp NOT IN (0, 1)", small));
+    }
+
+    @Test
+    public void testIn() throws Exception {
+        Map<String, Object> obj = createObject("abc", 3, true);
+
+        assertTrue(matches("MyIntegerProp IN (1, 3, 5)", obj));
+        assertFalse(matches("MyIntegerProp NOT IN (1, 3, 5)", obj));
+        assertTrue(matches("MyStringProp IN ('xyz', 'abc')", obj));
+        assertFalse(matches("MyStringProp IN ('xyz')", obj));
+        assertFalse(matches("MyStringProp NOT IN ('xyz')", new HashMap<String, Object>()));
+    }
+
+    @Test
+    public void testLike() throws Exception {
+        Map<String, Object> obj = createObject("abcdef", 0, true);
+
+        assertTrue(matches("MyStringProp LIKE 'abcdef'", obj));
+        assertTrue(matches("MyStringProp LIKE 'abc%'", obj));
+        assertTrue(matches("MyStringProp LIKE '%def'", obj));
+        assertTrue(matches("MyStringProp LIKE '%cd%'", obj));
+        assertTrue(matches("MyStringProp LIKE '%'", obj));
+        assertTrue(matches("MyStringProp LIKE 'a_c%f'", obj));
+        assertFalse(matches("MyStringProp LIKE 'abc'", obj));
+        assertFalse(matches("MyStringProp LIKE '%abc'", obj));
+        assertTrue(matches("MyStringProp NOT LIKE 'x%'", obj));
+        assertTrue(matches("MyStringProp NOT LIKE 'x%'", new HashMap<String, Object>()));
+    }
+
+    @Test
+    public void testFolderAndText() throws Exception {
+        Map<String, Object> obj = createObject("abc", 0, true);
+        obj.put(PARENT, "folder1");
+        obj.put(TEXT, "The quick brown fox");
+
+        assertTrue(matches("IN_FOLDER('folder1')", obj));
+        assertFalse(matches("IN_TREE('folder2')", obj));
+        assertTrue(matches("CONTAINS('quick fox')", obj));
+        assertFalse(matches("CONTAINS('quick -fox')", obj));
+        assertTrue(matches("CONTAINS('dog OR fox')", obj));
+        assertTrue(matches("CONTAINS('\\'quick brown\\'')", obj));
+    }
+
+    @Test
+    public void testErrors() throws Exception {
+        try {
+            compile("MyBooleanProp = 'abc'");
+            fail("Comparing a boolean with a string should fail");
+        } catch (CmisInvalidArgumentException e) {
+            assertTrue(e.getMessage().contains("Incompatible Types to compare"));
+        }
+
+        try {
+            compile("MyIntegerProp LIKE 'abc'");
+            fail("LIKE on an integer property should fail");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().contains("is not allowed FOR LIKE"));
+        }
+    }
+
+    /**
+     * Evaluates a range of query shapes over all combinations of property
+     * values and checks the compiled predicates against a plain Java
+     * reference. Each predicate is compiled once and reused for all objects,
+     * and must give the same result as a predicate compiled for one object.
+     */
+    @Test
+    public void testMatchesReference() throws Exception {
+        Map<String, Reference> shapes = new LinkedHashMap<String, Reference>();
+        shapes.put("MyIntegerProp = 42", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return i != null && i == 42;
+            }
+        });
+        shapes.put("MyIntegerProp <> 42", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return i != null && i != 42;
+            }
+        });
+        shapes.put("MyIntegerProp > 1 AND MyIntegerProp <= 42", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return i != null && i > 1 && i <= 42;
+            }
+        });
+        shapes.put("MyIntegerProp < 2 OR MyBooleanProp = false", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return (i != null && i < 2) || (b != null && !b);
+            }
+        });
+        shapes.put("MyIntegerProp IN (1, 3, 100)", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return i != null && (i == 1 || i == 3 || i == 100);
+            }
+        });
+        shapes.put("MyIntegerProp NOT IN (1, 3)", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return i != null && i != 1 && i != 3;
+            }
+        });
+        shapes.put("MyStringProp LIKE 'doc1%'", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return s != null && s.startsWith("doc1");
+            }
+        });
+        shapes.put("MyStringProp LIKE '%c'", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return s != null && s.endsWith("c");
+            }
+        });
+        shapes.put("MyStringProp LIKE 'a_d'", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return s != null && s.length() == 3 && s.charAt(0) == 'a' && s.charAt(2) == 'd';
+            }
+        });
+        shapes.put("MyStringProp NOT LIKE 'ab%'", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return s == null || !s.startsWith("ab");
+            }
+        });
+        shapes.put("MyStringProp >= 'abd' AND MyStringProp < 'doc10'", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return s != null && s.compareTo("abd") >= 0 && s.compareTo("doc10") < 0;
+            }
+        });
+        shapes.put("MyStringProp IN ('abc', 'xyz') OR MyIntegerProp = 0", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return "abc".equals(s) || "xyz".equals(s) || (i != null && i == 0);
+            }
+        });
+        shapes.put("MyBooleanProp = true AND (MyIntegerProp = 3 OR MyStringProp = 'doc1')", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return Boolean.TRUE.equals(b) && ((i != null && i == 3) || "doc1".equals(s));
+            }
+        });
+        shapes.put("MyStringProp IS NULL AND MyIntegerProp IS NOT NULL", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return s == null && i != null;
+            }
+        });
+        shapes.put("NOT (MyStringProp IS NULL)", new Reference() {
+            public boolean matches(String s, Integer i, Boolean b) {
+                return s != null;
+            }
+        });
+
+        String[] strings = { "abc", "abd", "doc1", "doc10", "xyz", null };
+        Integer[] ints = { 0, 1, 3, 42, 100, null };
+        Boolean[] bools = { Boolean.TRUE, Boolean.FALSE, null };
+
+        for (Map.Entry<String, Reference> shape : shapes.entrySet()) {
+            CompiledPredicate<Map<String, Object>> predicate = compile(shape.getKey());
+            int matchCount = 0;
+
+            for (String s : strings) {
+                for (Integer i : ints) {
+                    for (Boolean b : bools) {
+                        Map<String, Object> obj = createObject(s, i, b);
+                        String msg = shape.getKey() + " for " + obj;
+
+                        boolean expected = shape.getValue().matches(s, i, b);
+                        assertEquals(msg, expected, predicate.evaluate(obj, CONTEXT));
+                        assertEquals(msg, expected, matches(shape.getKey(), obj));
+
+                        if (expected) {
+                            matchCount++;
+                        }
+                    }
+                }
+            }
+
+            // every shape must select some, but not all objects
+            assertTrue(shape.getKey(), matchCount > 0);
+            assertTrue(shape.getKey(), matchCount < strings.length * ints.length * bools.length);
+        }
+    }
+
+    /**
+     * Plain Java version of a where clause. A <code>null</code> argument
+     * stands for a property that is not set.
+     */
+    private interface Reference {
+        boolean matches(String stringVal, Integer intVal, Boolean boolVal);
+    }
+
+    private static Map<String, Object> createObject(String stringVal, Integer intVal, Boolean boolVal) {
+        Map<String, Object> obj = new HashMap<String, Object>();
+        if (stringVal != null) {
+            obj.put(STRING_PROP, stringVal);
+        }
+        if (intVal != null) {
+            obj.put(INT_PROP, BigInteger.valueOf(intVal));
+        }
+        if (boolVal != null) {
+            obj.put(BOOL_PROP, boolVal);
+        }
+        return obj;
+    }
+
+    private CompiledPredicate<Map<String, Object>> compile(String where) throws RecognitionException {
+        Tree whereTree = getWalker("SELECT * FROM MyDocType WHERE " + where).getWherePredicateTree();
+        return new PredicateCompiler<Map<String, Object>>(queryObj).compile(whereTree);
+    }
+
+    private boolean matches(String where, Map<String, Object> obj) throws RecognitionException {
+        return compile(where).evaluate(obj, CONTEXT);
+    }
+}
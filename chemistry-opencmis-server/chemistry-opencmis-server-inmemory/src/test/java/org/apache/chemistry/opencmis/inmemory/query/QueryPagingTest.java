@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.inmemory.query;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.PropertyIds;
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.data.ObjectList;
+import org.apache.chemistry.opencmis.commons.enums.BaseTypeId;
+import org.apache.chemistry.opencmis.commons.enums.IncludeRelationships;
+import org.apache.chemistry.opencmis.inmemory.AbstractServiceTest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the pages of a sorted query across skipCount boundaries.
+ */
+public class QueryPagingTest extends AbstractServiceTest {
+
+    private static final int DOCUMENT_COUNT = 47;
+    private static final int PAGE_SIZE = 10;
+
+    @Override
+    @Before
+    public void setUp() {
+        super.setUp();
+
+        // create the documents in an order that differs from the sort order
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            int n = (i * 13) % DOCUMENT_COUNT;
+            createDocument("doc" + (n < 10 ? "0" : "") + n, fRootFolderId, BaseTypeId.CMIS_DOCUMENT.value(), false);
+        }
+    }
+
+    @Override
+    @After
+    public void tearDown() {
+        super.tearDown();
+    }
+
+    @Test
+    public void testAscending() {
+        checkPages("ASC");
+    }
+
+    @Test
+    public void testDescending() {
+        checkPages("DESC");
+    }
+
+    private void checkPages(String direction) {
+        String statement = "SELECT * FROM cmis:document ORDER BY " + PropertyIds.NAME + " " + direction;
+
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            int n = "ASC".equals(direction) ? i : DOCUMENT_COUNT - 1 - i;
+            expected.add("doc" + (n < 10 ? "0" : "") + n);
+        }
+
+        // the complete result
+        assertEquals(expected, getNames(query(statement, -1, 0)));
+
+        // consecutive pages and pages starting off the page grid
+        int[] skipCounts = { 0, 10, 20, 30, 40, 5, 9, 11, 37, 46, 47, 50 };
+        for (int skipCount : skipCounts) {
+            ObjectList page = query(statement, PAGE_SIZE, skipCount);
+
+            int from = Math.min(skipCount, DOCUMENT_COUNT);
+            int to = Math.min(skipCount + PAGE_SIZE, DOCUMENT_COUNT);
+            String msg = direction + ", skipCount " + skipCount;
+
+            assertEquals(msg, expected.subList(from, to), getNames(page));
+            assertEquals(msg, BigInteger.valueOf(DOCUMENT_COUNT), page.getNumItems());
+            assertEquals(msg, Boolean.valueOf(to < DOCUMENT_COUNT), page.hasMoreItems());
+        }
+
+        // walking all pages returns every document exactly once
+        List<String> walked = new ArrayList<String>();
+        for (int skipCount = 0; skipCount < DOCUMENT_COUNT; skipCount += PAGE_SIZE) {
+            walked.addAll(getNames(query(statement, PAGE_SIZE, skipCount)));
+        }
+        assertEquals(expected, walked);
+    }
+
+    private ObjectList query(String statement, int maxItems, int skipCount) {
+        return fDiscSvc.query(fRepositoryId, statement, false, false, IncludeRelationships.NONE, null,
+                maxItems < 0 ? null : BigInteger.valueOf(maxItems), BigInteger.valueOf(skipCount), null);
+    }
+
+    private static List<String> getNames(ObjectList list) {
+        List<String> names = new ArrayList<String>();
+        for (ObjectData object : list.getObjects()) {
+            names.add((String) object.getProperties().getProperties().get(PropertyIds.NAME).getFirstValue());
+        }
+        return names;
+    }
+}
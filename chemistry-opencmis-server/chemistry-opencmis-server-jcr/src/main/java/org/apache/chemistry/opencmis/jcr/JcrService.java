@@ -57,19 +57,39 @@ import java.util.Map;
  */
 public class JcrService extends AbstractCmisService {
     private final JcrRepository jcrRepository;
+    private final JcrSessionPool sessionPool;
     private final Map<String, Session> sessions = new HashMap<String, Session>();
 
     private CallContext context;
 
     public JcrService(JcrRepository jcrRepository) {
+        this(jcrRepository, null);
+    }
+
+    /**
+     * Create a new <code>JcrService</code> taking its JCR sessions from a pool.
+     * The sessions are returned to the pool on {@link #close()}.
+     *
+     * @param jcrRepository
+     * @param sessionPool  pool of JCR sessions or <code>null</code> for logging
+     *   into the repository for every service instance
+     */
+    public JcrService(JcrRepository jcrRepository, JcrSessionPool sessionPool) {
         this.jcrRepository = jcrRepository;
+        this.sessionPool = sessionPool;
     }
 
     @Override
     public void close() {
         for (Session session : sessions.values()) {
-            session.logout();
+            if (sessionPool == null) {
+                session.logout();
+            }
+            else {
+                sessionPool.release(session);
+            }
         }
+        sessions.clear();
         
         super.close();
     }
@@ -339,11 +359,16 @@ public class JcrService extends AbstractCmisService {
         if (session == null) {
             String userName = context.getUsername();
             String password = context.getPassword();
-            Credentials credentials = userName == null
-                ? null
-                : new SimpleCredentials(userName, password == null ? "".toCharArray() : password.toCharArray());
-
-            session = jcrRepository.login(credentials, workspaceName);
+            if (sessionPool == null) {
+                Credentials credentials = userName == null
+                    ? null
+                    : new SimpleCredentials(userName, password == null ? "".toCharArray() : password.toCharArray());
+
+                session = jcrRepository.login(credentials, workspaceName);
+            }
+            else {
+                session = sessionPool.login(userName, password, workspaceName);
+            }
             sessions.put(workspaceName, session);
         }
         return session;
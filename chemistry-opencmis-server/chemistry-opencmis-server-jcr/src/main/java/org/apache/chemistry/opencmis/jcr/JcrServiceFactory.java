@@ -53,6 +53,8 @@ public class JcrServiceFactory extends AbstractServiceFactory {
 
     public static final String MOUNT_PATH_CONFIG = "mount-path";
     public static final String PREFIX_JCR_CONFIG = "jcr.";
+    public static final String SESSION_POOL_MAX_IDLE_CONFIG = "session-pool.max-idle";
+    public static final String SESSION_POOL_IDLE_TIMEOUT_CONFIG = "session-pool.idle-timeout";
 
     public static final BigInteger DEFAULT_MAX_ITEMS_TYPES = BigInteger.valueOf(50);
     public static final BigInteger DEFAULT_DEPTH_TYPES = BigInteger.valueOf(-1);
@@ -63,6 +65,9 @@ public class JcrServiceFactory extends AbstractServiceFactory {
     protected Map<String, String> jcrConfig;
     protected String mountPath;
     protected JcrRepository jcrRepository;
+    protected JcrSessionPool sessionPool;
+    protected int sessionPoolMaxIdle = JcrSessionPool.DEFAULT_MAX_IDLE;
+    protected long sessionPoolIdleTimeout = JcrSessionPool.DEFAULT_IDLE_TIMEOUT;
 
     @Override
     public void init(Map<String, String> parameters) {
@@ -71,10 +76,15 @@ public class JcrServiceFactory extends AbstractServiceFactory {
         PathManager pathManger = new PathManager(mountPath);
         JcrTypeHandlerManager typeHandlerManager = createTypeHandlerManager(pathManger, typeManager);
         jcrRepository = new JcrRepository(acquireJcrRepository(jcrConfig), pathManger, typeManager, typeHandlerManager);
+        sessionPool = createSessionPool(jcrRepository);
     }
 
     @Override
     public void destroy() {
+        if (sessionPool != null) {
+            sessionPool.close();
+            sessionPool = null;
+        }
         jcrRepository = null;
         typeManager = null;
     }
@@ -134,7 +144,20 @@ public class JcrServiceFactory extends AbstractServiceFactory {
      * @return
      */
     protected JcrService createJcrService(JcrRepository jcrRepository, CallContext context) {
-        return new JcrService(jcrRepository);
+        return new JcrService(jcrRepository, sessionPool);
+    }
+
+    /**
+     * Create the pool of JCR sessions shared by all <code>JcrService</code> instances.
+     * Pooling is disabled by setting {@link #SESSION_POOL_MAX_IDLE_CONFIG} to 0.
+     *
+     * @param jcrRepository
+     * @return  the session pool or <code>null</code> if pooling is disabled
+     */
+    protected JcrSessionPool createSessionPool(JcrRepository jcrRepository) {
+        return sessionPoolMaxIdle == 0
+            ? null
+            : new JcrSessionPool(jcrRepository, sessionPoolMaxIdle, sessionPoolIdleTimeout);
     }
 
     protected JcrTypeManager createTypeManager() {
@@ -168,6 +191,16 @@ public class JcrServiceFactory extends AbstractServiceFactory {
                 log.debug("Configuration: " + MOUNT_PATH_CONFIG + '=' + mountPath);
             }
 
+            else if (SESSION_POOL_MAX_IDLE_CONFIG.equals(key)) {
+                sessionPoolMaxIdle = Integer.parseInt(parameters.get(key).trim());
+                log.debug("Configuration: " + SESSION_POOL_MAX_IDLE_CONFIG + '=' + sessionPoolMaxIdle);
+            }
+
+            else if (SESSION_POOL_IDLE_TIMEOUT_CONFIG.equals(key)) {
+                sessionPoolIdleTimeout = Long.parseLong(parameters.get(key).trim());
+                log.debug("Configuration: " + SESSION_POOL_IDLE_TIMEOUT_CONFIG + '=' + sessionPoolIdleTimeout);
+            }
+
             else {
                 log.warn("Configuration: unrecognized key: " + key);
             }
@@ -221,4 +254,8 @@ public class JcrServiceFactory extends AbstractServiceFactory {
         return jcrRepository;
     }
 
+    public JcrSessionPool getSessionPool() {
+        return sessionPool;
+    }
+
 }
@@ -0,0 +1,299 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.jcr;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import javax.jcr.Credentials;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.SimpleCredentials;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of JCR sessions shared by the {@link JcrService} instances of a
+ * {@link JcrServiceFactory}. Sessions are pooled per user name, password and
+ * workspace, so a session is only handed out again to a caller presenting the
+ * same credentials it was opened with.
+ * <p>
+ * A session taken from the pool is refreshed, discarding any pending changes
+ * and picking up changes made through other sessions. Sessions which are no
+ * longer live are dropped. Idle sessions are logged out when there are more
+ * than <code>maxIdle</code> of them for the same key or when they have not
+ * been used for <code>idleTimeout</code> milliseconds.
+ */
+public class JcrSessionPool {
+    private static final Logger log = LoggerFactory.getLogger(JcrSessionPool.class);
+
+    public static final int DEFAULT_MAX_IDLE = 8;
+    public static final long DEFAULT_IDLE_TIMEOUT = 5 * 60 * 1000;
+
+    private final JcrRepository jcrRepository;
+    private final int maxIdle;
+    private final long idleTimeout;
+
+    private final Map<Key, LinkedList<IdleSession>> idleSessions = new HashMap<Key, LinkedList<IdleSession>>();
+    private final Map<Session, Key> activeSessions = new IdentityHashMap<Session, Key>();
+    private long lastEviction = System.currentTimeMillis();
+    private boolean closed;
+
+    /**
+     * Create a new pool.
+     *
+     * @param jcrRepository  repository the sessions are logged into
+     * @param maxIdle  maximum number of idle sessions kept per user and workspace.
+     *   <code>0</code> disables pooling.
+     * @param idleTimeout  milliseconds after which an idle session is logged out
+     */
+    public JcrSessionPool(JcrRepository jcrRepository, int maxIdle, long idleTimeout) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle must not be negative: " + maxIdle);
+        }
+        if (idleTimeout <= 0) {
+            throw new IllegalArgumentException("idleTimeout must be positive: " + idleTimeout);
+        }
+
+        this.jcrRepository = jcrRepository;
+        this.maxIdle = maxIdle;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Take a session for the given user and workspace from the pool or log into
+     * the repository if there is no idle session.
+     * The session must be returned with {@link #release(Session)}.
+     *
+     * @param userName  name of the user or <code>null</code> for anonymous access
+     * @param password  password of the user
+     * @param workspaceName  name of the workspace or <code>null</code> for the default workspace
+     * @return  a live session
+     */
+    public Session login(String userName, String password, String workspaceName) {
+        Key key = new Key(userName, password, workspaceName);
+        long now = System.currentTimeMillis();
+
+        List<Session> expired = new ArrayList<Session>();
+        Session session = null;
+        synchronized (this) {
+            evictExpired(now, expired);
+
+            LinkedList<IdleSession> idle = idleSessions.get(key);
+            if (idle != null) {
+                // most recently used first, older sessions are more likely to time out
+                while (session == null && !idle.isEmpty()) {
+                    session = idle.removeFirst().session;
+                    if (!session.isLive()) {
+                        session = null;
+                    }
+                }
+                if (idle.isEmpty()) {
+                    idleSessions.remove(key);
+                }
+            }
+        }
+        logout(expired);
+
+        if (session != null && !refresh(session)) {
+            session = null;
+        }
+        if (session == null) {
+            session = jcrRepository.login(key.getCredentials(), workspaceName);
+        }
+
+        synchronized (this) {
+            activeSessions.put(session, key);
+        }
+        return session;
+    }
+
+    /**
+     * Return a session obtained from {@link #login(String, String, String)} to
+     * the pool.
+     *
+     * @param session  session to return
+     */
+    public void release(Session session) {
+        boolean keep;
+        synchronized (this) {
+            Key key = activeSessions.remove(session);
+            keep = key != null && !closed && session.isLive();
+            if (keep) {
+                LinkedList<IdleSession> idle = idleSessions.get(key);
+                if (idle == null) {
+                    idle = new LinkedList<IdleSession>();
+                    idleSessions.put(key, idle);
+                }
+                keep = idle.size() < maxIdle;
+                if (keep) {
+                    idle.addFirst(new IdleSession(session, System.currentTimeMillis()));
+                }
+                else if (idle.isEmpty()) {
+                    idleSessions.remove(key);
+                }
+            }
+        }
+
+        if (!keep) {
+            session.logout();
+        }
+    }
+
+    /**
+     * Log out all idle sessions. Sessions still in use are logged out when
+     * they are released.
+     */
+    public void close() {
+        List<Session> sessions = new ArrayList<Session>();
+        synchronized (this) {
+            closed = true;
+            for (LinkedList<IdleSession> idle : idleSessions.values()) {
+                for (IdleSession idleSession : idle) {
+                    sessions.add(idleSession.session);
+                }
+            }
+            idleSessions.clear();
+        }
+        logout(sessions);
+    }
+
+    /**
+     * @return  the number of idle sessions in the pool
+     */
+    public synchronized int getIdleCount() {
+        int count = 0;
+        for (LinkedList<IdleSession> idle : idleSessions.values()) {
+            count += idle.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return  the number of sessions currently handed out by the pool
+     */
+    public synchronized int getActiveCount() {
+        return activeSessions.size();
+    }
+
+    //------------------------------------------< private >---
+
+    /**
+     * Remove idle sessions which timed out. Runs at most twice per timeout
+     * period so checking out a session stays cheap.
+     */
+    private void evictExpired(long now, List<Session> expired) {
+        if (now - lastEviction < idleTimeout / 2) {
+            return;
+        }
+        lastEviction = now;
+
+        Iterator<LinkedList<IdleSession>> lists = idleSessions.values().iterator();
+        while (lists.hasNext()) {
+            LinkedList<IdleSession> idle = lists.next();
+            // the list is ordered by last use, so expired sessions are at the end
+            while (!idle.isEmpty() && now - idle.getLast().lastUsed >= idleTimeout) {
+                expired.add(idle.removeLast().session);
+            }
+            if (idle.isEmpty()) {
+                lists.remove();
+            }
+        }
+    }
+
+    private static boolean refresh(Session session) {
+        try {
+            session.refresh(false);
+            return true;
+        }
+        catch (RepositoryException e) {
+            log.debug("Discarding pooled session: " + e.getMessage(), e);
+            session.logout();
+            return false;
+        }
+    }
+
+    private static void logout(List<Session> sessions) {
+        for (Session session : sessions) {
+            session.logout();
+        }
+    }
+
+    private static class IdleSession {
+        final Session session;
+        final long lastUsed;
+
+        IdleSession(Session session, long lastUsed) {
+            this.session = session;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private static class Key {
+        private final String userName;
+        private final String password;
+        private final String workspaceName;
+
+        Key(String userName, String password, String workspaceName) {
+            this.userName = userName;
+            this.password = userName == null ? null : password == null ? "" : password;
+            this.workspaceName = workspaceName;
+        }
+
+        Credentials getCredentials() {
+            return userName == null
+                ? null
+                : new SimpleCredentials(userName, password.toCharArray());
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            Key that = (Key) other;
+            return equals(userName, that.userName)
+                && equals(password, that.password)
+                && equals(workspaceName, that.workspaceName);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = userName == null ? 0 : userName.hashCode();
+            hash = 31 * hash + (password == null ? 0 : password.hashCode());
+            hash = 31 * hash + (workspaceName == null ? 0 : workspaceName.hashCode());
+            return hash;
+        }
+
+        private static boolean equals(String s1, String s2) {
+            return s1 == null ? s2 == null : s1.equals(s2);
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.jcr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.jcr.Session;
+
+import org.apache.chemistry.opencmis.commons.server.CallContext;
+import org.junit.Test;
+
+public class JcrSessionPoolTest extends AbstractJcrSessionTest {
+
+    @Test
+    public void testSessionReuse() throws Exception {
+        JcrSessionPool pool = new JcrSessionPool(getJcrRepository(), 2, 60000);
+
+        Session session = pool.login("adminId", "admin", null);
+        assertEquals(1, pool.getActiveCount());
+        pool.release(session);
+        assertEquals(0, pool.getActiveCount());
+        assertEquals(1, pool.getIdleCount());
+
+        assertSame(session, pool.login("adminId", "admin", null));
+        pool.release(session);
+
+        // different credentials never share a session
+        Session other = pool.login("adminId", "other", null);
+        assertNotSame(session, other);
+        pool.release(other);
+        assertEquals(2, pool.getIdleCount());
+
+        pool.close();
+        assertEquals(0, pool.getIdleCount());
+        assertFalse(session.isLive());
+        assertFalse(other.isLive());
+    }
+
+    @Test
+    public void testPendingChangesDiscarded() throws Exception {
+        JcrSessionPool pool = new JcrSessionPool(getJcrRepository(), 2, 60000);
+
+        Session session = pool.login("adminId", "admin", null);
+        session.getRootNode().addNode("pending");
+        assertTrue(session.hasPendingChanges());
+        pool.release(session);
+
+        assertSame(session, pool.login("adminId", "admin", null));
+        assertFalse(session.hasPendingChanges());
+        assertFalse(session.getRootNode().hasNode("pending"));
+        pool.release(session);
+        pool.close();
+    }
+
+    @Test
+    public void testMaxIdle() throws Exception {
+        JcrSessionPool pool = new JcrSessionPool(getJcrRepository(), 1, 60000);
+
+        Session session1 = pool.login("adminId", "admin", null);
+        Session session2 = pool.login("adminId", "admin", null);
+        assertNotSame(session1, session2);
+
+        pool.release(session1);
+        pool.release(session2);
+        assertEquals(1, pool.getIdleCount());
+        assertTrue(session1.isLive());
+        assertFalse(session2.isLive());
+        pool.close();
+    }
+
+    @Test
+    public void testIdleTimeout() throws Exception {
+        JcrSessionPool pool = new JcrSessionPool(getJcrRepository(), 2, 50);
+
+        Session session = pool.login("adminId", "admin", null);
+        pool.release(session);
+        Thread.sleep(100);
+
+        Session newSession = pool.login("adminId", "admin", null);
+        assertNotSame(session, newSession);
+        assertFalse(session.isLive());
+        pool.release(newSession);
+        pool.close();
+    }
+
+    @Test
+    public void testServiceReturnsSessions() throws Exception {
+        JcrSessionPool pool = new JcrSessionPool(getJcrRepository(), 2, 60000);
+        JcrService service = new JcrService(getJcrRepository(), pool);
+        service.setCallContext(createCallContext("adminId", "admin"));
+
+        Session session = service.login(null);
+        assertSame(session, service.login(null));
+        service.close();
+        assertEquals(1, pool.getIdleCount());
+        assertTrue(session.isLive());
+
+        service = new JcrService(getJcrRepository(), pool);
+        service.setCallContext(createCallContext("adminId", "admin"));
+        assertSame(session, service.login(null));
+        service.close();
+        pool.close();
+    }
+
+    private static CallContext createCallContext(final String userName, final String password) {
+        return (CallContext) Proxy.newProxyInstance(CallContext.class.getClassLoader(),
+                new Class<?>[] { CallContext.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getUsername".equals(method.getName())) {
+                            return userName;
+                        }
+                        if ("getPassword".equals(method.getName())) {
+                            return password;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+}
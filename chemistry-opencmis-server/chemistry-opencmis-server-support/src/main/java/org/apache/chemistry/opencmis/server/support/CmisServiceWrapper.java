@@ -50,16 +50,18 @@ import org.apache.chemistry.opencmis.commons.enums.VersioningState;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisBaseException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
 import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+import org.apache.chemistry.opencmis.commons.server.BulkObjectInfoHandler;
 import org.apache.chemistry.opencmis.commons.server.CmisService;
 import org.apache.chemistry.opencmis.commons.server.ObjectInfo;
 import org.apache.chemistry.opencmis.commons.spi.Holder;
+import org.apache.chemistry.opencmis.commons.impl.server.metrics.ServerMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Service wrapper.
  */
-public class CmisServiceWrapper<T extends CmisService> implements CmisService {
+public class CmisServiceWrapper<T extends CmisService> implements CmisService, BulkObjectInfoHandler {
 
     public static final BigInteger MINUS_ONE = BigInteger.valueOf(-1);
 
@@ -140,6 +142,25 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         }
     }
 
+    /**
+     * Records a successful call of the wrapped service.
+     */
+    protected void recordCall(String repositoryId, String operation, long startNanos, Object result) {
+        ServerMetrics.getInstance().record(ServerMetrics.SCOPE_SERVICE, repositoryId, operation, startNanos, result,
+                null);
+    }
+
+    /**
+     * Records a failed call of the wrapped service and returns the given
+     * exception.
+     */
+    protected CmisBaseException recordError(String repositoryId, String operation, long startNanos,
+            CmisBaseException exception) {
+        ServerMetrics.getInstance().record(ServerMetrics.SCOPE_SERVICE, repositoryId, operation, startNanos, null,
+                exception);
+        return exception;
+    }
+
     /**
      * Throws an exception if the given id is <code>null</code> or empty.
      */
@@ -487,6 +508,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         return service.getObjectInfo(repositoryId, objectId);
     }
 
+    public void prepareObjectInfos(String repositoryId, List<ObjectData> objects, Boolean isFiled) {
+        if (service instanceof BulkObjectInfoHandler) {
+            ((BulkObjectInfoHandler) service).prepareObjectInfos(repositoryId, objects, isFiled);
+        }
+    }
+
     public void close() {
         service.close();
     }
@@ -496,18 +523,24 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
     public RepositoryInfo getRepositoryInfo(String repositoryId, ExtensionsData extension) {
         checkRepositoryId(repositoryId);
 
+        long start = System.nanoTime();
         try {
-            return service.getRepositoryInfo(repositoryId, extension);
+            RepositoryInfo result = service.getRepositoryInfo(repositoryId, extension);
+            recordCall(repositoryId, "getRepositoryInfo", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getRepositoryInfo", start, createCmisException(e));
         }
     }
 
     public List<RepositoryInfo> getRepositoryInfos(ExtensionsData extension) {
+        long start = System.nanoTime();
         try {
-            return service.getRepositoryInfos(extension);
+            List<RepositoryInfo> result = service.getRepositoryInfos(extension);
+            recordCall(null, "getRepositoryInfos", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(null, "getRepositoryInfos", start, createCmisException(e));
         }
     }
 
@@ -518,11 +551,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         maxItems = getTypesMaxItems(maxItems);
         skipCount = getSkipCount(skipCount);
 
+        long start = System.nanoTime();
         try {
-            return service.getTypeChildren(repositoryId, typeId, includePropertyDefinitions, maxItems, skipCount,
-                    extension);
+            TypeDefinitionList result = service.getTypeChildren(repositoryId, typeId, includePropertyDefinitions,
+                    maxItems, skipCount, extension);
+            recordCall(repositoryId, "getTypeChildren", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getTypeChildren", start, createCmisException(e));
         }
     }
 
@@ -530,10 +566,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Type Id", typeId);
 
+        long start = System.nanoTime();
         try {
-            return service.getTypeDefinition(repositoryId, typeId, extension);
+            TypeDefinition result = service.getTypeDefinition(repositoryId, typeId, extension);
+            recordCall(repositoryId, "getTypeDefinition", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getTypeDefinition", start, createCmisException(e));
         }
     }
 
@@ -543,10 +582,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         includePropertyDefinitions = getDefaultFalse(includePropertyDefinitions);
         depth = getTypesDepth(depth);
 
+        long start = System.nanoTime();
         try {
-            return service.getTypeDescendants(repositoryId, typeId, depth, includePropertyDefinitions, extension);
+            List<TypeDefinitionContainer> result = service.getTypeDescendants(repositoryId, typeId, depth,
+                    includePropertyDefinitions, extension);
+            recordCall(repositoryId, "getTypeDescendants", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getTypeDescendants", start, createCmisException(e));
         }
     }
 
@@ -554,10 +597,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkTypeDefinition(type);
 
+        long start = System.nanoTime();
         try {
-            return service.createType(repositoryId, type, extension);
+            TypeDefinition result = service.createType(repositoryId, type, extension);
+            recordCall(repositoryId, "createType", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "createType", start, createCmisException(e));
         }
     }
 
@@ -565,10 +611,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkTypeDefinition(type);
 
+        long start = System.nanoTime();
         try {
-            return service.updateType(repositoryId, type, extension);
+            TypeDefinition result = service.updateType(repositoryId, type, extension);
+            recordCall(repositoryId, "updateType", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "updateType", start, createCmisException(e));
         }
     }
 
@@ -576,10 +625,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Type Id", typeId);
 
+        long start = System.nanoTime();
         try {
             service.deleteType(repositoryId, typeId, extension);
+            recordCall(repositoryId, "deleteType", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "deleteType", start, createCmisException(e));
         }
     }
 
@@ -595,11 +646,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         maxItems = getMaxItems(maxItems);
         skipCount = getSkipCount(skipCount);
 
+        long start = System.nanoTime();
         try {
-            return service.getCheckedOutDocs(repositoryId, folderId, filter, orderBy, includeAllowableActions,
-                    includeRelationships, renditionFilter, maxItems, skipCount, extension);
+            ObjectList result = service.getCheckedOutDocs(repositoryId, folderId, filter, orderBy,
+                    includeAllowableActions, includeRelationships, renditionFilter, maxItems, skipCount, extension);
+            recordCall(repositoryId, "getCheckedOutDocs", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getCheckedOutDocs", start, createCmisException(e));
         }
     }
 
@@ -615,11 +669,15 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         maxItems = getMaxItems(maxItems);
         skipCount = getSkipCount(skipCount);
 
+        long start = System.nanoTime();
         try {
-            return service.getChildren(repositoryId, folderId, filter, orderBy, includeAllowableActions,
-                    includeRelationships, renditionFilter, includePathSegment, maxItems, skipCount, extension);
+            ObjectInFolderList result = service.getChildren(repositoryId, folderId, filter, orderBy,
+                    includeAllowableActions, includeRelationships, renditionFilter, includePathSegment, maxItems,
+                    skipCount, extension);
+            recordCall(repositoryId, "getChildren", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getChildren", start, createCmisException(e));
         }
     }
 
@@ -634,11 +692,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         renditionFilter = getDefaultRenditionFilter(renditionFilter);
         includePathSegment = getDefaultFalse(includePathSegment);
 
+        long start = System.nanoTime();
         try {
-            return service.getDescendants(repositoryId, folderId, depth, filter, includeAllowableActions,
-                    includeRelationships, renditionFilter, includePathSegment, extension);
+            List<ObjectInFolderContainer> result = service.getDescendants(repositoryId, folderId, depth, filter,
+                    includeAllowableActions, includeRelationships, renditionFilter, includePathSegment, extension);
+            recordCall(repositoryId, "getDescendants", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getDescendants", start, createCmisException(e));
         }
     }
 
@@ -646,10 +707,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Folder Id", folderId);
 
+        long start = System.nanoTime();
         try {
-            return service.getFolderParent(repositoryId, folderId, filter, extension);
+            ObjectData result = service.getFolderParent(repositoryId, folderId, filter, extension);
+            recordCall(repositoryId, "getFolderParent", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getFolderParent", start, createCmisException(e));
         }
     }
 
@@ -664,11 +728,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         renditionFilter = getDefaultRenditionFilter(renditionFilter);
         includePathSegment = getDefaultFalse(includePathSegment);
 
+        long start = System.nanoTime();
         try {
-            return service.getFolderTree(repositoryId, folderId, depth, filter, includeAllowableActions,
-                    includeRelationships, renditionFilter, includePathSegment, extension);
+            List<ObjectInFolderContainer> result = service.getFolderTree(repositoryId, folderId, depth, filter,
+                    includeAllowableActions, includeRelationships, renditionFilter, includePathSegment, extension);
+            recordCall(repositoryId, "getFolderTree", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getFolderTree", start, createCmisException(e));
         }
     }
 
@@ -682,11 +749,15 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         renditionFilter = getDefaultRenditionFilter(renditionFilter);
         includeRelativePathSegment = getDefaultFalse(includeRelativePathSegment);
 
+        long start = System.nanoTime();
         try {
-            return service.getObjectParents(repositoryId, objectId, filter, includeAllowableActions,
-                    includeRelationships, renditionFilter, includeRelativePathSegment, extension);
+            List<ObjectParentData> result = service.getObjectParents(repositoryId, objectId, filter,
+                    includeAllowableActions, includeRelationships, renditionFilter, includeRelativePathSegment,
+                    extension);
+            recordCall(repositoryId, "getObjectParents", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getObjectParents", start, createCmisException(e));
         }
     }
 
@@ -699,11 +770,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkProperty(properties, PropertyIds.OBJECT_TYPE_ID, String.class);
         versioningState = getDefault(versioningState);
 
+        long start = System.nanoTime();
         try {
-            return service.create(repositoryId, properties, folderId, contentStream, versioningState, policies,
+            String result = service.create(repositoryId, properties, folderId, contentStream, versioningState, policies,
                     extension);
+            recordCall(repositoryId, "create", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "create", start, createCmisException(e));
         }
     }
 
@@ -715,11 +789,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkProperty(properties, PropertyIds.OBJECT_TYPE_ID, String.class);
         versioningState = getDefault(versioningState);
 
+        long start = System.nanoTime();
         try {
-            return service.createDocument(repositoryId, properties, folderId, contentStream, versioningState, policies,
-                    addAces, removeAces, extension);
+            String result = service.createDocument(repositoryId, properties, folderId, contentStream, versioningState,
+                    policies, addAces, removeAces, extension);
+            recordCall(repositoryId, "createDocument", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "createDocument", start, createCmisException(e));
         }
     }
 
@@ -730,11 +807,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Source Id", sourceId);
         versioningState = getDefault(versioningState);
 
+        long start = System.nanoTime();
         try {
-            return service.createDocumentFromSource(repositoryId, sourceId, properties, folderId, versioningState,
-                    policies, addAces, removeAces, extension);
+            String result = service.createDocumentFromSource(repositoryId, sourceId, properties, folderId,
+                    versioningState, policies, addAces, removeAces, extension);
+            recordCall(repositoryId, "createDocumentFromSource", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "createDocumentFromSource", start, createCmisException(e));
         }
     }
 
@@ -745,10 +825,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkProperty(properties, PropertyIds.OBJECT_TYPE_ID, String.class);
         checkId("Folder Id", folderId);
 
+        long start = System.nanoTime();
         try {
-            return service.createFolder(repositoryId, properties, folderId, policies, addAces, removeAces, extension);
+            String result = service.createFolder(repositoryId, properties, folderId, policies, addAces, removeAces,
+                    extension);
+            recordCall(repositoryId, "createFolder", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "createFolder", start, createCmisException(e));
         }
     }
 
@@ -758,10 +842,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkProperties(properties);
         checkProperty(properties, PropertyIds.OBJECT_TYPE_ID, String.class);
 
+        long start = System.nanoTime();
         try {
-            return service.createPolicy(repositoryId, properties, folderId, policies, addAces, removeAces, extension);
+            String result = service.createPolicy(repositoryId, properties, folderId, policies, addAces, removeAces,
+                    extension);
+            recordCall(repositoryId, "createPolicy", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "createPolicy", start, createCmisException(e));
         }
     }
 
@@ -771,10 +859,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkProperties(properties);
         checkProperty(properties, PropertyIds.OBJECT_TYPE_ID, String.class);
 
+        long start = System.nanoTime();
         try {
-            return service.createItem(repositoryId, properties, folderId, policies, addAces, removeAces, extension);
+            String result = service.createItem(repositoryId, properties, folderId, policies, addAces, removeAces,
+                    extension);
+            recordCall(repositoryId, "createItem", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "createItem", start, createCmisException(e));
         }
     }
 
@@ -786,10 +878,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         // checkProperty(properties, PropertyIds.SOURCE_ID, String.class);
         // checkProperty(properties, PropertyIds.TARGET_ID, String.class);
 
+        long start = System.nanoTime();
         try {
-            return service.createRelationship(repositoryId, properties, policies, addAces, removeAces, extension);
+            String result = service.createRelationship(repositoryId, properties, policies, addAces, removeAces,
+                    extension);
+            recordCall(repositoryId, "createRelationship", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "createRelationship", start, createCmisException(e));
         }
     }
 
@@ -798,10 +894,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkHolderId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
             service.deleteContentStream(repositoryId, objectId, changeToken, extension);
+            recordCall(repositoryId, "deleteContentStream", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "deleteContentStream", start, createCmisException(e));
         }
     }
 
@@ -810,10 +908,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Object Id", objectId);
         allVersions = getDefaultTrue(allVersions);
 
+        long start = System.nanoTime();
         try {
             service.deleteObject(repositoryId, objectId, allVersions, extension);
+            recordCall(repositoryId, "deleteObject", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "deleteObject", start, createCmisException(e));
         }
     }
 
@@ -823,10 +923,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Object Id", objectId);
         allVersions = getDefaultTrue(allVersions);
 
+        long start = System.nanoTime();
         try {
             service.deleteObjectOrCancelCheckOut(repositoryId, objectId, allVersions, extension);
+            recordCall(repositoryId, "deleteObjectOrCancelCheckOut", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "deleteObjectOrCancelCheckOut", start, createCmisException(e));
         }
     }
 
@@ -838,10 +940,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         unfileObjects = getDefault(unfileObjects);
         continueOnFailure = getDefaultFalse(continueOnFailure);
 
+        long start = System.nanoTime();
         try {
-            return service.deleteTree(repositoryId, folderId, allVersions, unfileObjects, continueOnFailure, extension);
+            FailedToDeleteData result = service.deleteTree(repositoryId, folderId, allVersions, unfileObjects,
+                    continueOnFailure, extension);
+            recordCall(repositoryId, "deleteTree", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "deleteTree", start, createCmisException(e));
         }
     }
 
@@ -849,10 +955,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
-            return service.getAllowableActions(repositoryId, objectId, extension);
+            AllowableActions result = service.getAllowableActions(repositoryId, objectId, extension);
+            recordCall(repositoryId, "getAllowableActions", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getAllowableActions", start, createCmisException(e));
         }
     }
 
@@ -863,10 +972,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkNullOrPositive("Offset", offset);
         checkNullOrPositive("Length", length);
 
+        long start = System.nanoTime();
         try {
-            return service.getContentStream(repositoryId, objectId, streamId, offset, length, extension);
+            ContentStream result = service.getContentStream(repositoryId, objectId, streamId, offset, length,
+                    extension);
+            recordCall(repositoryId, "getContentStream", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getContentStream", start, createCmisException(e));
         }
     }
 
@@ -881,11 +994,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         includePolicyIds = getDefaultFalse(includePolicyIds);
         includeAcl = getDefaultFalse(includeAcl);
 
+        long start = System.nanoTime();
         try {
-            return service.getObject(repositoryId, objectId, filter, includeAllowableActions, includeRelationships,
-                    renditionFilter, includePolicyIds, includeAcl, extension);
+            ObjectData result = service.getObject(repositoryId, objectId, filter, includeAllowableActions,
+                    includeRelationships, renditionFilter, includePolicyIds, includeAcl, extension);
+            recordCall(repositoryId, "getObject", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getObject", start, createCmisException(e));
         }
     }
 
@@ -900,11 +1016,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         includePolicyIds = getDefaultFalse(includePolicyIds);
         includeAcl = getDefaultFalse(includeAcl);
 
+        long start = System.nanoTime();
         try {
-            return service.getObjectByPath(repositoryId, path, filter, includeAllowableActions, includeRelationships,
-                    renditionFilter, includePolicyIds, includeAcl, extension);
+            ObjectData result = service.getObjectByPath(repositoryId, path, filter, includeAllowableActions,
+                    includeRelationships, renditionFilter, includePolicyIds, includeAcl, extension);
+            recordCall(repositoryId, "getObjectByPath", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getObjectByPath", start, createCmisException(e));
         }
     }
 
@@ -912,10 +1031,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
-            return service.getProperties(repositoryId, objectId, filter, extension);
+            Properties result = service.getProperties(repositoryId, objectId, filter, extension);
+            recordCall(repositoryId, "getProperties", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getProperties", start, createCmisException(e));
         }
     }
 
@@ -927,10 +1049,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         maxItems = getMaxItems(maxItems);
         skipCount = getSkipCount(skipCount);
 
+        long start = System.nanoTime();
         try {
-            return service.getRenditions(repositoryId, objectId, renditionFilter, maxItems, skipCount, extension);
+            List<RenditionData> result = service.getRenditions(repositoryId, objectId, renditionFilter, maxItems,
+                    skipCount, extension);
+            recordCall(repositoryId, "getRenditions", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getRenditions", start, createCmisException(e));
         }
     }
 
@@ -940,10 +1066,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkHolderId("Object Id", objectId);
         checkId("Target Folder Id", targetFolderId);
 
+        long start = System.nanoTime();
         try {
             service.moveObject(repositoryId, objectId, targetFolderId, sourceFolderId, extension);
+            recordCall(repositoryId, "moveObject", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "moveObject", start, createCmisException(e));
         }
     }
 
@@ -954,10 +1082,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         overwriteFlag = getDefaultTrue(overwriteFlag);
         checkContentStream(contentStream);
 
+        long start = System.nanoTime();
         try {
             service.setContentStream(repositoryId, objectId, overwriteFlag, changeToken, contentStream, extension);
+            recordCall(repositoryId, "setContentStream", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "setContentStream", start, createCmisException(e));
         }
     }
 
@@ -967,10 +1097,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkHolderId("Object Id", objectId);
         checkContentStream(contentStream);
 
+        long start = System.nanoTime();
         try {
             service.appendContentStream(repositoryId, objectId, changeToken, contentStream, isLastChunk, extension);
+            recordCall(repositoryId, "appendContentStream", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "appendContentStream", start, createCmisException(e));
         }
     }
 
@@ -980,10 +1112,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkHolderId("Object Id", objectId);
         checkProperties(properties);
 
+        long start = System.nanoTime();
         try {
             service.updateProperties(repositoryId, objectId, changeToken, properties, extension);
+            recordCall(repositoryId, "updateProperties", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "updateProperties", start, createCmisException(e));
         }
     }
 
@@ -994,11 +1128,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkList("Object Id list", objectIdAndChangeToken);
         checkProperties(properties);
 
+        long start = System.nanoTime();
         try {
-            return service.bulkUpdateProperties(repositoryId, objectIdAndChangeToken, properties, addSecondaryTypeIds,
-                    removeSecondaryTypeIds, extension);
+            List<BulkUpdateObjectIdAndChangeToken> result = service.bulkUpdateProperties(repositoryId,
+                    objectIdAndChangeToken, properties, addSecondaryTypeIds, removeSecondaryTypeIds, extension);
+            recordCall(repositoryId, "bulkUpdateProperties", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "bulkUpdateProperties", start, createCmisException(e));
         }
     }
 
@@ -1008,10 +1145,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
             service.cancelCheckOut(repositoryId, objectId, extension);
+            recordCall(repositoryId, "cancelCheckOut", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "cancelCheckOut", start, createCmisException(e));
         }
     }
 
@@ -1022,11 +1161,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkHolderId("Object Id", objectId);
         major = getDefaultTrue(major);
 
+        long start = System.nanoTime();
         try {
             service.checkIn(repositoryId, objectId, major, properties, contentStream, checkinComment, policies,
                     addAces, removeAces, extension);
+            recordCall(repositoryId, "checkIn", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "checkIn", start, createCmisException(e));
         }
     }
 
@@ -1035,10 +1176,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkHolderId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
             service.checkOut(repositoryId, objectId, extension, contentCopied);
+            recordCall(repositoryId, "checkOut", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "checkOut", start, createCmisException(e));
         }
     }
 
@@ -1054,12 +1197,15 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         includePolicyIds = getDefaultFalse(includePolicyIds);
         includeAcl = getDefaultFalse(includeAcl);
 
+        long start = System.nanoTime();
         try {
-            return service.getObjectOfLatestVersion(repositoryId, objectId, versionSeriesId, major, filter,
+            ObjectData result = service.getObjectOfLatestVersion(repositoryId, objectId, versionSeriesId, major, filter,
                     includeAllowableActions, includeRelationships, renditionFilter, includePolicyIds, includeAcl,
                     extension);
+            recordCall(repositoryId, "getObjectOfLatestVersion", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getObjectOfLatestVersion", start, createCmisException(e));
         }
     }
 
@@ -1069,11 +1215,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkIds("Version Series Id", objectId, versionSeriesId);
         major = getDefaultFalse(major);
 
+        long start = System.nanoTime();
         try {
-            return service.getPropertiesOfLatestVersion(repositoryId, objectId, versionSeriesId, major, filter,
-                    extension);
+            Properties result = service.getPropertiesOfLatestVersion(repositoryId, objectId, versionSeriesId, major,
+                    filter, extension);
+            recordCall(repositoryId, "getPropertiesOfLatestVersion", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getPropertiesOfLatestVersion", start, createCmisException(e));
         }
     }
 
@@ -1083,11 +1232,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkIds("Version Series Id", objectId, versionSeriesId);
         includeAllowableActions = getDefaultFalse(includeAllowableActions);
 
+        long start = System.nanoTime();
         try {
-            return service.getAllVersions(repositoryId, objectId, versionSeriesId, filter, includeAllowableActions,
-                    extension);
+            List<ObjectData> result = service.getAllVersions(repositoryId, objectId, versionSeriesId, filter,
+                    includeAllowableActions, extension);
+            recordCall(repositoryId, "getAllVersions", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getAllVersions", start, createCmisException(e));
         }
     }
 
@@ -1101,11 +1253,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         includeAcl = getDefaultFalse(includeAcl);
         maxItems = getMaxItems(maxItems);
 
+        long start = System.nanoTime();
         try {
-            return service.getContentChanges(repositoryId, changeLogToken, includeProperties, filter, includePolicyIds,
-                    includeAcl, maxItems, extension);
+            ObjectList result = service.getContentChanges(repositoryId, changeLogToken, includeProperties, filter,
+                    includePolicyIds, includeAcl, maxItems, extension);
+            recordCall(repositoryId, "getContentChanges", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getContentChanges", start, createCmisException(e));
         }
     }
 
@@ -1121,11 +1276,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         maxItems = getMaxItems(maxItems);
         skipCount = getSkipCount(skipCount);
 
+        long start = System.nanoTime();
         try {
-            return service.query(repositoryId, statement, searchAllVersions, includeAllowableActions,
+            ObjectList result = service.query(repositoryId, statement, searchAllVersions, includeAllowableActions,
                     includeRelationships, renditionFilter, maxItems, skipCount, extension);
+            recordCall(repositoryId, "query", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "query", start, createCmisException(e));
         }
     }
 
@@ -1138,10 +1296,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Folder Id", folderId);
         allVersions = getDefaultTrue(allVersions);
 
+        long start = System.nanoTime();
         try {
             service.addObjectToFolder(repositoryId, objectId, folderId, allVersions, extension);
+            recordCall(repositoryId, "addObjectToFolder", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "addObjectToFolder", start, createCmisException(e));
         }
     }
 
@@ -1149,10 +1309,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
             service.removeObjectFromFolder(repositoryId, objectId, folderId, extension);
+            recordCall(repositoryId, "removeObjectFromFolder", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "removeObjectFromFolder", start, createCmisException(e));
         }
     }
 
@@ -1169,11 +1331,14 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         maxItems = getMaxItems(maxItems);
         skipCount = getSkipCount(skipCount);
 
+        long start = System.nanoTime();
         try {
-            return service.getObjectRelationships(repositoryId, objectId, includeSubRelationshipTypes,
+            ObjectList result = service.getObjectRelationships(repositoryId, objectId, includeSubRelationshipTypes,
                     relationshipDirection, typeId, filter, includeAllowableActions, maxItems, skipCount, extension);
+            recordCall(repositoryId, "getObjectRelationships", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getObjectRelationships", start, createCmisException(e));
         }
     }
 
@@ -1184,10 +1349,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Object Id", objectId);
         aclPropagation = getDefault(aclPropagation);
 
+        long start = System.nanoTime();
         try {
-            return service.applyAcl(repositoryId, objectId, aces, aclPropagation);
+            Acl result = service.applyAcl(repositoryId, objectId, aces, aclPropagation);
+            recordCall(repositoryId, "applyAcl", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "applyAcl", start, createCmisException(e));
         }
     }
 
@@ -1197,10 +1365,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Object Id", objectId);
         aclPropagation = getDefault(aclPropagation);
 
+        long start = System.nanoTime();
         try {
-            return service.applyAcl(repositoryId, objectId, addAces, removeAces, aclPropagation, extension);
+            Acl result = service.applyAcl(repositoryId, objectId, addAces, removeAces, aclPropagation, extension);
+            recordCall(repositoryId, "applyAcl", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "applyAcl", start, createCmisException(e));
         }
     }
 
@@ -1209,10 +1380,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Object Id", objectId);
         onlyBasicPermissions = getDefaultTrue(onlyBasicPermissions);
 
+        long start = System.nanoTime();
         try {
-            return service.getAcl(repositoryId, objectId, onlyBasicPermissions, extension);
+            Acl result = service.getAcl(repositoryId, objectId, onlyBasicPermissions, extension);
+            recordCall(repositoryId, "getAcl", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getAcl", start, createCmisException(e));
         }
     }
 
@@ -1223,10 +1397,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Policy Id", policyId);
         checkId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
             service.applyPolicy(repositoryId, policyId, objectId, extension);
+            recordCall(repositoryId, "applyPolicy", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "applyPolicy", start, createCmisException(e));
         }
     }
 
@@ -1235,10 +1411,13 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkRepositoryId(repositoryId);
         checkId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
-            return service.getAppliedPolicies(repositoryId, objectId, filter, extension);
+            List<ObjectData> result = service.getAppliedPolicies(repositoryId, objectId, filter, extension);
+            recordCall(repositoryId, "getAppliedPolicies", start, result);
+            return result;
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "getAppliedPolicies", start, createCmisException(e));
         }
     }
 
@@ -1247,10 +1426,12 @@ public class CmisServiceWrapper<T extends CmisService> implements CmisService {
         checkId("Policy Id", policyId);
         checkId("Object Id", objectId);
 
+        long start = System.nanoTime();
         try {
             service.removePolicy(repositoryId, policyId, objectId, extension);
+            recordCall(repositoryId, "removePolicy", start, null);
         } catch (Exception e) {
-            throw createCmisException(e);
+            throw recordError(repositoryId, "removePolicy", start, createCmisException(e));
         }
     }
 }
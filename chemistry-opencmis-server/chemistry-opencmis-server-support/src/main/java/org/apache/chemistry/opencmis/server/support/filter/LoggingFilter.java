@@ -18,11 +18,13 @@
  */
 package org.apache.chemistry.opencmis.server.support.filter;
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringReader;
@@ -31,9 +33,13 @@ import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
@@ -59,15 +65,45 @@ import org.apache.chemistry.opencmis.commons.impl.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Servlet filter that logs requests and responses.
+ * <p>
+ * By default each request and response is written to its own file on the
+ * request thread. With the init parameter <code>Async</code> set to
+ * <code>true</code> the captured requests are put into a queue and a background
+ * thread appends them to rolling segment files. The queue is bounded by the
+ * number of captures (<code>QueueSize</code>) and by their size in memory
+ * (<code>MaxQueueBytes</code>). If the queue is full, the oldest captures are
+ * dropped.
+ * <p>
+ * <code>SamplingRate</code> (0.0 - 1.0) controls the share of requests that
+ * are captured and <code>MaxBodySize</code> limits the number of bytes that
+ * are kept per request and response body.
+ */
 public class LoggingFilter implements Filter {
 
     private static final Logger LOG = LoggerFactory.getLogger(LoggingFilter.class);
-    private static int requestNo = 0;
-    private static final SimpleDateFormat FORMAT = new SimpleDateFormat("EEE MMM dd hh:mm:ss a z yyyy", Locale.US);
+    private static final AtomicInteger REQUEST_NO = new AtomicInteger(0);
+    private static final ThreadLocal<SimpleDateFormat> FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("EEE MMM dd hh:mm:ss a z yyyy", Locale.US);
+        }
+    };
+
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final long DEFAULT_MAX_QUEUE_BYTES = 32 * 1024 * 1024;
+    private static final long DEFAULT_SEGMENT_SIZE = 10 * 1024 * 1024;
+    private static final int DEFAULT_MAX_SEGMENTS = 10;
+
     private String logDir;
     private boolean prettyPrint = true;
     private boolean logHeaders = true;
     private int indent = -1;
+    private double samplingRate = 1.0;
+    private int maxBodySize = -1;
+    private final AtomicLong sampleCounter = new AtomicLong(0);
+    private CaptureWriter writer;
 
     public void init(FilterConfig cfg) throws ServletException {
 
@@ -101,61 +137,167 @@ public class LoggingFilter implements Filter {
         if (null != val) {
             logHeaders = Boolean.parseBoolean(val);
         }
+
+        val = cfg.getInitParameter("SamplingRate");
+        if (null != val) {
+            samplingRate = Double.parseDouble(val);
+            if (samplingRate < 0.0 || samplingRate > 1.0) {
+                throw new ServletException("SamplingRate must be between 0.0 and 1.0!");
+            }
+        }
+
+        val = cfg.getInitParameter("MaxBodySize");
+        if (null != val) {
+            maxBodySize = Integer.parseInt(val);
+        }
+
+        if (Boolean.parseBoolean(cfg.getInitParameter("Async"))) {
+            int queueSize = DEFAULT_QUEUE_SIZE;
+            long maxQueueBytes = DEFAULT_MAX_QUEUE_BYTES;
+            long segmentSize = DEFAULT_SEGMENT_SIZE;
+            int maxSegments = DEFAULT_MAX_SEGMENTS;
+
+            val = cfg.getInitParameter("QueueSize");
+            if (null != val) {
+                queueSize = Integer.parseInt(val);
+            }
+
+            val = cfg.getInitParameter("MaxQueueBytes");
+            if (null != val) {
+                maxQueueBytes = Long.parseLong(val);
+            }
+
+            val = cfg.getInitParameter("SegmentSize");
+            if (null != val) {
+                segmentSize = Long.parseLong(val);
+            }
+
+            val = cfg.getInitParameter("MaxSegments");
+            if (null != val) {
+                maxSegments = Integer.parseInt(val);
+            }
+
+            writer = new CaptureWriter(new CaptureQueue(queueSize, maxQueueBytes), segmentSize, maxSegments);
+            writer.start();
+        }
     }
 
     public void destroy() {
+        if (writer != null) {
+            writer.shutdown();
+            writer = null;
+        }
+    }
+
+    /**
+     * Decides whether the next request is captured. The captured requests are
+     * spread evenly according to the sampling rate.
+     */
+    private boolean isSampled() {
+        if (samplingRate >= 1.0) {
+            return true;
+        }
+        if (samplingRate <= 0.0) {
+            return false;
+        }
+
+        long n = sampleCounter.getAndIncrement();
+        return (long) ((n + 1) * samplingRate) > (long) (n * samplingRate);
     }
 
     public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain) throws IOException,
             ServletException {
         LOG.debug("Logging filter doFilter");
 
-        if (resp instanceof HttpServletResponse && req instanceof HttpServletRequest) {
-            LoggingRequestWrapper logReq = new LoggingRequestWrapper((HttpServletRequest) req);
-            LoggingResponseWrapper logResponse = new LoggingResponseWrapper((HttpServletResponse) resp);
+        if (resp instanceof HttpServletResponse && req instanceof HttpServletRequest && isSampled()) {
+            LoggingRequestWrapper logReq = new LoggingRequestWrapper((HttpServletRequest) req, maxBodySize);
+            LoggingResponseWrapper logResponse = new LoggingResponseWrapper((HttpServletResponse) resp, maxBodySize);
 
-            chain.doFilter(logReq, logResponse);
-
-            int reqNo = getNextRequestNumber();
-            String requestFileName = getRequestFileName(reqNo);
-            String cType = logReq.getContentType();
-            String xmlRequest = logReq.getPayload();
-            StringBuffer sb = new StringBuffer();
+            long startTime = System.currentTimeMillis();
+            long start = System.nanoTime();
+            try {
+                chain.doFilter(logReq, logResponse);
+            } finally {
+                Capture capture = new Capture();
+                capture.number = getNextRequestNumber();
+                capture.timestamp = startTime;
+                capture.duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                StringBuffer sb = new StringBuffer();
+                if (logHeaders) {
+                    logHeaders(logReq, sb);
+                }
+                capture.requestHeaders = sb.toString();
+                capture.requestContentType = logReq.getContentType();
+                capture.requestBody = logReq.getPayload();
+                capture.requestTruncated = logReq.isTruncated();
+
+                sb = new StringBuffer();
+                if (logHeaders) {
+                    logHeaders(logResponse, req.getProtocol(), sb);
+                }
+                capture.responseHeaders = sb.toString();
+                capture.responseContentType = logResponse.getContentType();
+                capture.responseBody = logResponse.getPayload();
+                capture.responseTruncated = logResponse.isTruncated();
 
-            if (logHeaders) {
-                logHeaders(logReq, sb);
+                if (writer != null) {
+                    writer.add(capture);
+                } else {
+                    writeCapture(capture);
+                }
             }
+        } else {
+            chain.doFilter(req, resp);
+        }
+    }
 
-            if (xmlRequest == null || xmlRequest.length() == 0) {
-                xmlRequest = "";
-            }
+    /**
+     * Writes a capture to a request and a response file.
+     */
+    private void writeCapture(Capture capture) {
+        String requestFileName = getRequestFileName(capture.number);
+        String xmlRequest = formatRequest(capture);
+        LOG.debug("Found request: " + requestFileName + ": " + xmlRequest);
+        writeTextToFile(requestFileName, xmlRequest);
+
+        String responseFileName = getResponseFileName(capture.number);
+        String xmlResponse = "Duration: " + capture.duration + " ms\n\n" + formatResponse(capture);
+        LOG.debug("Found response: " + responseFileName + ": " + xmlResponse);
+        writeTextToFile(responseFileName, xmlResponse);
+    }
+
+    private String formatRequest(Capture capture) {
+        String xmlRequest = capture.requestBody;
+        if (xmlRequest == null || xmlRequest.length() == 0) {
+            xmlRequest = "";
+        }
 
-            if (prettyPrint && cType != null) {
+        String cType = capture.requestContentType;
+        if (prettyPrint && cType != null && !capture.requestTruncated) {
+            try {
                 if (cType.startsWith("multipart")) {
                     xmlRequest = processMultipart(cType, xmlRequest);
                 } else if (cType.contains("xml")) {
                     xmlRequest = prettyPrintXml(xmlRequest, indent);
                 }
+            } catch (Exception e) {
+                LOG.debug("Request body could not be formatted: " + e, e);
             }
+        }
 
-            xmlRequest = sb.toString() + xmlRequest;
-            LOG.debug("Found request: " + requestFileName + ": " + xmlRequest);
-            writeTextToFile(requestFileName, xmlRequest);
-
-            sb = new StringBuffer();
-            cType = logResponse.getContentType();
-            String xmlResponse = logResponse.getPayload();
-            String responseFileName = getResponseFileName(reqNo);
-
-            if (logHeaders) {
-                logHeaders(logResponse, req.getProtocol(), sb);
-            }
+        return capture.requestHeaders + xmlRequest + (capture.requestTruncated ? "\n[truncated]" : "");
+    }
 
-            if (xmlResponse == null || xmlResponse.length() == 0) {
-                xmlResponse = "";
-            }
+    private String formatResponse(Capture capture) {
+        String xmlResponse = capture.responseBody;
+        if (xmlResponse == null || xmlResponse.length() == 0) {
+            xmlResponse = "";
+        }
 
-            if (prettyPrint && cType != null) {
+        String cType = capture.responseContentType;
+        if (prettyPrint && cType != null && !capture.responseTruncated) {
+            try {
                 if (cType.startsWith("multipart")) {
                     xmlResponse = processMultipart(cType, xmlResponse);
                 } else if (cType.contains("xml")) {
@@ -163,14 +305,12 @@ public class LoggingFilter implements Filter {
                 } else if (cType.contains("json")) {
                     xmlResponse = prettyPrintJson(xmlResponse, indent);
                 }
+            } catch (Exception e) {
+                LOG.debug("Response body could not be formatted: " + e, e);
             }
-
-            xmlResponse = sb.toString() + xmlResponse;
-            LOG.debug("Found response: " + responseFileName + ": " + xmlResponse);
-            writeTextToFile(responseFileName, xmlResponse);
-        } else {
-            chain.doFilter(req, resp);
         }
+
+        return capture.responseHeaders + xmlResponse + (capture.responseTruncated ? "\n[truncated]" : "");
     }
 
     private void writeTextToFile(String filename, String content) {
@@ -330,37 +470,287 @@ public class LoggingFilter implements Filter {
         return logDir + String.format("%05d-response.log", no);
     }
 
-    private static synchronized int getNextRequestNumber() {
-        return requestNo++;
+    private static int getNextRequestNumber() {
+        return REQUEST_NO.getAndIncrement();
+    }
+
+    /**
+     * Data captured from one request and its response.
+     */
+    static class Capture {
+        int number;
+        long timestamp;
+        long duration;
+        String requestHeaders;
+        String requestContentType;
+        String requestBody;
+        boolean requestTruncated;
+        String responseHeaders;
+        String responseContentType;
+        String responseBody;
+        boolean responseTruncated;
+
+        /**
+         * Returns the approximate memory used by the captured text.
+         */
+        long getSize() {
+            return 2L * (length(requestHeaders) + length(requestContentType) + length(requestBody)
+                    + length(responseHeaders) + length(responseContentType) + length(responseBody));
+        }
+
+        private static int length(String s) {
+            return s == null ? 0 : s.length();
+        }
+    }
+
+    /**
+     * Queue of captures that is bounded by the number of captures and by their
+     * size in memory. Adding never blocks, the oldest captures are dropped to
+     * make room for a new one. A single capture is always accepted.
+     */
+    static class CaptureQueue {
+
+        private final LinkedList<Capture> captures = new LinkedList<Capture>();
+        private final int maxCaptures;
+        private final long maxBytes;
+        private long bytes = 0;
+        private long dropped = 0;
+
+        public CaptureQueue(int maxCaptures, long maxBytes) {
+            this.maxCaptures = maxCaptures;
+            this.maxBytes = maxBytes;
+        }
+
+        public synchronized void add(Capture capture) {
+            long size = capture.getSize();
+            while (!captures.isEmpty() && (captures.size() >= maxCaptures || bytes + size > maxBytes)) {
+                bytes -= captures.removeFirst().getSize();
+                dropped++;
+            }
+
+            captures.addLast(capture);
+            bytes += size;
+            notifyAll();
+        }
+
+        /**
+         * Removes the oldest capture, waiting up to the given time if the
+         * queue is empty.
+         *
+         * @return the capture or <code>null</code> if the queue is empty
+         */
+        public synchronized Capture poll(long timeoutMillis) throws InterruptedException {
+            if (captures.isEmpty() && timeoutMillis > 0) {
+                wait(timeoutMillis);
+            }
+            return poll();
+        }
+
+        /**
+         * Removes the oldest capture.
+         *
+         * @return the capture or <code>null</code> if the queue is empty
+         */
+        public synchronized Capture poll() {
+            if (captures.isEmpty()) {
+                return null;
+            }
+
+            Capture capture = captures.removeFirst();
+            bytes -= capture.getSize();
+            return capture;
+        }
+
+        public synchronized boolean isEmpty() {
+            return captures.isEmpty();
+        }
+
+        public synchronized int size() {
+            return captures.size();
+        }
+
+        public synchronized long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * Returns the number of captures dropped since the last call.
+         */
+        public synchronized long takeDropped() {
+            long result = dropped;
+            dropped = 0;
+            return result;
+        }
+    }
+
+    /**
+     * Background thread that appends captures to rolling segment files.
+     */
+    private class CaptureWriter extends Thread {
+
+        private final CaptureQueue queue;
+        private final long segmentSize;
+        private final int maxSegments;
+        private final long startTime = System.currentTimeMillis();
+        private final LinkedList<File> segments = new LinkedList<File>();
+        private volatile boolean running = true;
+
+        private int segmentNo = 0;
+        private long segmentBytes = 0;
+        private OutputStream out;
+
+        public CaptureWriter(CaptureQueue queue, long segmentSize, int maxSegments) {
+            super("opencmis-logging-filter");
+            setDaemon(true);
+            this.queue = queue;
+            this.segmentSize = segmentSize;
+            this.maxSegments = maxSegments;
+        }
+
+        /**
+         * Adds a capture to the queue. If the queue is full, the oldest
+         * captures are dropped. This method never blocks.
+         */
+        public void add(Capture capture) {
+            queue.add(capture);
+        }
+
+        public void shutdown() {
+            running = false;
+            interrupt();
+            try {
+                join(10 * 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    Capture capture;
+                    try {
+                        capture = queue.poll(1000);
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+
+                    if (capture != null) {
+                        write(capture);
+                    }
+
+                    if (queue.isEmpty()) {
+                        flush();
+                    }
+                }
+
+                // write what's left
+                Capture capture;
+                while ((capture = queue.poll()) != null) {
+                    write(capture);
+                }
+            } finally {
+                IOUtils.closeQuietly(out);
+                out = null;
+            }
+        }
+
+        private void write(Capture capture) {
+            try {
+                StringBuilder sb = new StringBuilder();
+
+                long lost = queue.takeDropped();
+                if (lost > 0) {
+                    sb.append("=== ").append(lost).append(" requests dropped ===\n\n");
+                }
+
+                sb.append("=== Request ").append(String.format("%05d", capture.number)).append(" - ");
+                sb.append(FORMAT.get().format(new Date(capture.timestamp))).append(" - ");
+                sb.append(capture.duration).append(" ms ===\n");
+                sb.append(formatRequest(capture)).append("\n\n");
+                sb.append("=== Response ").append(String.format("%05d", capture.number)).append(" ===\n");
+                sb.append(formatResponse(capture)).append("\n\n");
+
+                byte[] bytes = sb.toString().getBytes("UTF-8");
+
+                if (out == null || segmentBytes >= segmentSize) {
+                    nextSegment();
+                }
+
+                out.write(bytes);
+                segmentBytes += bytes.length;
+            } catch (Exception e) {
+                LOG.error("Could not write capture: " + e.getMessage(), e);
+                IOUtils.closeQuietly(out);
+                out = null;
+            }
+        }
+
+        private void nextSegment() throws IOException {
+            IOUtils.closeQuietly(out);
+            out = null;
+
+            File segment = new File(logDir + String.format("%d-%05d-capture.log", startTime, segmentNo++));
+            segments.addLast(segment);
+            while (segments.size() > maxSegments) {
+                File oldest = segments.removeFirst();
+                if (!oldest.delete()) {
+                    LOG.warn("Could not delete capture segment: " + oldest);
+                }
+            }
+
+            out = new BufferedOutputStream(new FileOutputStream(segment), 64 * 1024);
+            segmentBytes = 0;
+        }
+
+        private void flush() {
+            if (out == null) {
+                return;
+            }
+
+            try {
+                out.flush();
+            } catch (IOException e) {
+                LOG.error("Could not flush capture segment: " + e.getMessage(), e);
+            }
+        }
     }
 
     private static class LoggingRequestWrapper extends HttpServletRequestWrapper {
 
         private LoggingInputStream is;
+        private final int maxBodySize;
 
-        public LoggingRequestWrapper(HttpServletRequest request) throws IOException {
+        public LoggingRequestWrapper(HttpServletRequest request, int maxBodySize) throws IOException {
             super(request);
+            this.maxBodySize = maxBodySize;
         }
 
         @Override
         public ServletInputStream getInputStream() throws IOException {
-            this.is = new LoggingInputStream(super.getInputStream());
+            this.is = new LoggingInputStream(super.getInputStream(), maxBodySize);
             return is;
         }
 
         public String getPayload() {
             return null == is ? "" : is.getPayload();
         }
+
+        public boolean isTruncated() {
+            return null != is && is.isTruncated();
+        }
     }
 
     private static class LoggingInputStream extends ServletInputStream {
 
-        private ByteArrayOutputStream baous = new ByteArrayOutputStream();
+        private PayloadBuffer baous;
         private ServletInputStream is;
 
-        public LoggingInputStream(ServletInputStream is) {
+        public LoggingInputStream(ServletInputStream is, int maxBodySize) {
             super();
             this.is = is;
+            this.baous = new PayloadBuffer(maxBodySize);
         }
 
         // Since we are not sure which method is used just overwrite all 4 of
@@ -404,6 +794,44 @@ public class LoggingFilter implements Filter {
         public String getPayload() {
             return baous.toString();
         }
+
+        public boolean isTruncated() {
+            return baous.isTruncated();
+        }
+    }
+
+    /**
+     * Buffer that keeps only the first bytes of a body.
+     */
+    private static class PayloadBuffer extends ByteArrayOutputStream {
+        private final int max;
+        private boolean truncated = false;
+
+        public PayloadBuffer(int max) {
+            this.max = max;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (max > -1 && count >= max) {
+                truncated = true;
+                return;
+            }
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (max > -1 && count + len > max) {
+                truncated = true;
+                len = Math.max(0, max - count);
+            }
+            super.write(b, off, len);
+        }
+
+        public boolean isTruncated() {
+            return truncated;
+        }
     }
 
     private static class LoggingResponseWrapper extends HttpServletResponseWrapper {
@@ -414,9 +842,9 @@ public class LoggingFilter implements Filter {
         private Map<String, String> headers = new HashMap<String, String>();
         private String encoding;
 
-        public LoggingResponseWrapper(HttpServletResponse response) throws IOException {
+        public LoggingResponseWrapper(HttpServletResponse response, int maxBodySize) throws IOException {
             super(response);
-            this.os = new LoggingOutputStream(response.getOutputStream());
+            this.os = new LoggingOutputStream(response.getOutputStream(), maxBodySize);
         }
 
         @Override
@@ -441,6 +869,10 @@ public class LoggingFilter implements Filter {
             return os.getPayload();
         }
 
+        public boolean isTruncated() {
+            return os.isTruncated();
+        }
+
         @Override
         public void addCookie(Cookie cookie) {
             super.addCookie(cookie);
@@ -491,7 +923,7 @@ public class LoggingFilter implements Filter {
         }
 
         private String getDateString(long date) {
-            return FORMAT.format(new Date(date));
+            return FORMAT.get().format(new Date(date));
         }
 
         @Override
@@ -576,18 +1008,23 @@ public class LoggingFilter implements Filter {
     }
 
     private static class LoggingOutputStream extends ServletOutputStream {
-        private ByteArrayOutputStream baous = new ByteArrayOutputStream();
+        private PayloadBuffer baous;
         private ServletOutputStream os;
 
-        public LoggingOutputStream(ServletOutputStream os) {
+        public LoggingOutputStream(ServletOutputStream os, int maxBodySize) {
             super();
             this.os = os;
+            this.baous = new PayloadBuffer(maxBodySize);
         }
 
         public String getPayload() {
             return new String(baous.toByteArray());
         }
 
+        public boolean isTruncated() {
+            return baous.isTruncated();
+        }
+
         @Override
         public void write(byte[] b, int off, int len) {
             try {
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support.query;
+
+/**
+ * A WHERE clause compiled by the {@link PredicateCompiler}.
+ * <p>
+ * Literals, column references and LIKE patterns are resolved when the
+ * predicate is compiled. A compiled predicate is immutable and can be
+ * evaluated concurrently for any number of objects.
+ *
+ * @param <T>
+ *            the type of the repository objects
+ */
+public abstract class CompiledPredicate<T> {
+
+    /**
+     * Checks if an object matches this predicate.
+     *
+     * @param object
+     *            the object to check
+     * @param context
+     *            repository specific access to the object
+     * @return <code>true</code> if the object matches, <code>false</code>
+     *         otherwise
+     */
+    public abstract boolean evaluate(T object, PredicateContext<T> context);
+}
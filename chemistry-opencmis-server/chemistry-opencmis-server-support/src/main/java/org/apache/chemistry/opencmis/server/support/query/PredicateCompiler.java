@@ -0,0 +1,772 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support.query;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.antlr.runtime.tree.Tree;
+import org.apache.chemistry.opencmis.commons.definitions.PropertyDefinition;
+import org.apache.chemistry.opencmis.commons.enums.Cardinality;
+import org.apache.chemistry.opencmis.commons.enums.PropertyType;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisInvalidArgumentException;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisRuntimeException;
+
+/**
+ * Compiles the WHERE clause of a query into a tree of
+ * {@link CompiledPredicate} objects.
+ * <p>
+ * The ANTLR tree is walked only once per query. Column references are resolved,
+ * literals are converted to the type of the property they are compared with
+ * and LIKE patterns are compiled up front, so that evaluating the predicate for
+ * an object only reads the property values of that object. Errors in the WHERE
+ * clause (incompatible types, operators not allowed for the cardinality of a
+ * property, etc.) are reported by {@link #compile(Tree)}.
+ *
+ * @param <T>
+ *            the type of the repository objects
+ */
+public class PredicateCompiler<T> {
+
+    private static final String REGEX_SPECIAL_CHARS = "\\.[]{}()*+?^$|_";
+
+    private final QueryObject queryObj;
+    private final AbstractPredicateWalker literalWalker = new AbstractPredicateWalker() {
+    };
+
+    public PredicateCompiler(QueryObject queryObj) {
+        this.queryObj = queryObj;
+    }
+
+    /**
+     * Compiles a WHERE clause.
+     *
+     * @param node
+     *            the root node of the WHERE clause
+     * @return the compiled predicate
+     */
+    public CompiledPredicate<T> compile(Tree node) {
+        switch (node.getType()) {
+        case CmisQlStrictLexer.NOT:
+            return new Not<T>(compile(node.getChild(0)));
+        case CmisQlStrictLexer.AND:
+            return new And<T>(compile(node.getChild(0)), compile(node.getChild(1)));
+        case CmisQlStrictLexer.OR:
+            return new Or<T>(compile(node.getChild(0)), compile(node.getChild(1)));
+        case CmisQlStrictLexer.EQ:
+        case CmisQlStrictLexer.NEQ:
+        case CmisQlStrictLexer.GT:
+        case CmisQlStrictLexer.GTEQ:
+        case CmisQlStrictLexer.LT:
+        case CmisQlStrictLexer.LTEQ:
+            return compileComparison(node.getType(), node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IN:
+            return compileIn(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_IN:
+            return compileIn(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.IN_ANY:
+            return compileInAny(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_IN_ANY:
+            return compileInAny(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.EQ_ANY:
+            return compileEqAny(node.getChild(0), node.getChild(1));
+        case CmisQlStrictLexer.IS_NULL:
+            return new IsNull<T>(getColumnReference(node.getChild(0)), false);
+        case CmisQlStrictLexer.IS_NOT_NULL:
+            return new IsNull<T>(getColumnReference(node.getChild(0)), true);
+        case CmisQlStrictLexer.LIKE:
+            return compileLike(node.getChild(0), node.getChild(1), false);
+        case CmisQlStrictLexer.NOT_LIKE:
+            return compileLike(node.getChild(0), node.getChild(1), true);
+        case CmisQlStrictLexer.CONTAINS:
+            return new Contains<T>(compileSearchExpr(node.getChild(node.getChildCount() - 1)));
+        case CmisQlStrictLexer.IN_FOLDER:
+            return new InFolder<T>(getFolderId(node), false);
+        case CmisQlStrictLexer.IN_TREE:
+            return new InFolder<T>(getFolderId(node), true);
+        case CmisQlStrictLexer.BOOL_LIT:
+        case CmisQlStrictLexer.NUM_LIT:
+        case CmisQlStrictLexer.STRING_LIT:
+        case CmisQlStrictLexer.TIME_LIT:
+        case CmisQlStrictLexer.IN_LIST:
+        case CmisQlStrictLexer.COL:
+        case CmisQlStrictLexer.ID:
+        case CmisQlStrictLexer.SCORE:
+            return new False<T>();
+        default:
+            throw new CmisRuntimeException("Unknown node type: " + node.getType() + " (" + node.getText() + ")");
+        }
+    }
+
+    private CompiledPredicate<T> compileComparison(int op, Tree colNode, Tree literalNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (colRef.getPropertyDefinition().getCardinality() != Cardinality.SINGLE) {
+            throw new IllegalStateException(
+                    "You can't query operators <, <=, ==, !=, >=, > on multi-value properties ");
+        }
+        return new Comparison<T>(colRef, op, createLiteral(colRef, literalWalker.walkExpr(literalNode)));
+    }
+
+    private CompiledPredicate<T> compileIn(Tree colNode, Tree listNode, boolean negate) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (colRef.getPropertyDefinition().getCardinality() != Cardinality.SINGLE) {
+            throw new IllegalStateException("Operator IN only is allowed on single-value properties ");
+        }
+        return new In<T>(colRef, createLiteralList(colRef, listNode), negate);
+    }
+
+    private CompiledPredicate<T> compileInAny(Tree colNode, Tree listNode, boolean negate) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (colRef.getPropertyDefinition().getCardinality() != Cardinality.MULTI) {
+            throw new IllegalStateException("Operator ANY...IN only is allowed on multi-value properties ");
+        }
+        return new InAny<T>(colRef, createLiteralList(colRef, listNode), negate);
+    }
+
+    private CompiledPredicate<T> compileEqAny(Tree literalNode, Tree colNode) {
+        ColumnReference colRef = getColumnReference(colNode);
+        if (colRef.getPropertyDefinition().getCardinality() != Cardinality.MULTI) {
+            throw new IllegalStateException("Operator = ANY only is allowed on multi-value properties ");
+        }
+        Literal literal = createLiteral(colRef, literalWalker.walkExpr(literalNode));
+        return new InAny<T>(colRef, new LiteralList(new Literal[] { literal }), false);
+    }
+
+    private CompiledPredicate<T> compileLike(Tree colNode, Tree stringNode, boolean negate) {
+        Object rVal = literalWalker.walkExpr(stringNode);
+        if (!(rVal instanceof String)) {
+            throw new IllegalStateException("LIKE operator requires String literal on right hand side.");
+        }
+
+        ColumnReference colRef = getColumnReference(colNode);
+        PropertyDefinition<?> pd = colRef.getPropertyDefinition();
+        PropertyType propType = pd.getPropertyType();
+        if (propType != PropertyType.STRING && propType != PropertyType.HTML && propType != PropertyType.ID
+                && propType != PropertyType.URI) {
+            throw new IllegalStateException("Property type " + propType.value() + " is not allowed FOR LIKE");
+        }
+        if (pd.getCardinality() != Cardinality.SINGLE) {
+            throw new IllegalStateException("LIKE is not allowed for multi-value properties ");
+        }
+
+        return new Like<T>(colRef, createLikeMatcher((String) rVal), negate);
+    }
+
+    private CompiledPredicate<T> compileSearchExpr(Tree node) {
+        switch (node.getType()) {
+        case TextSearchLexer.TEXT_AND:
+            return new TextAnd<T>(compileSearchTerms(node));
+        case TextSearchLexer.TEXT_OR:
+            return new TextOr<T>(compileSearchTerms(node));
+        case TextSearchLexer.TEXT_MINUS:
+            return new Not<T>(new TextWord<T>(unescapeSearchText(node.getChild(0).getText())));
+        case TextSearchLexer.TEXT_SEARCH_WORD_LIT:
+            return new TextWord<T>(unescapeSearchText(node.getText()));
+        case TextSearchLexer.TEXT_SEARCH_PHRASE_STRING_LIT:
+            String phrase = node.getText();
+            return new TextWord<T>(unescapeSearchText(phrase.substring(1, phrase.length() - 1)));
+        default:
+            throw new CmisRuntimeException("Unknown node type: " + node.getType() + " (" + node.getText() + ")");
+        }
+    }
+
+    private List<CompiledPredicate<T>> compileSearchTerms(Tree node) {
+        List<CompiledPredicate<T>> terms = new ArrayList<CompiledPredicate<T>>(node.getChildCount());
+        for (int i = 0; i < node.getChildCount(); i++) {
+            terms.add(compileSearchExpr(node.getChild(i)));
+        }
+        return terms;
+    }
+
+    private static String unescapeSearchText(String text) {
+        String unescaped = StringUtil.unescape(text, "\\'-");
+        if (null == unescaped) {
+            throw new CmisInvalidArgumentException("Illegal Escape sequence in text search expression " + text);
+        }
+        return unescaped;
+    }
+
+    private String getFolderId(Tree node) {
+        if (node.getChildCount() > 1) {
+            // only checked for errors, there is only one type without join
+            // support
+            getTableReference(node.getChild(0));
+        }
+        Object lit = literalWalker.walkExpr(node.getChild(node.getChildCount() - 1));
+        if (!(lit instanceof String)) {
+            throw new IllegalStateException("Folder id in IN_FOLDER must be of type String");
+        }
+        return (String) lit;
+    }
+
+    private ColumnReference getColumnReference(Tree columnNode) {
+        CmisSelector sel = queryObj.getColumnReference(columnNode.getTokenStartIndex());
+        if (null == sel) {
+            throw new IllegalStateException("Unknown property query name " + columnNode.getChild(0));
+        } else if (sel instanceof ColumnReference) {
+            return (ColumnReference) sel;
+        } else {
+            throw new IllegalStateException("Unexpected numerical value function in where clause");
+        }
+    }
+
+    private String getTableReference(Tree tableNode) {
+        String typeQueryName = queryObj.getTypeQueryName(tableNode.getText());
+        if (null == typeQueryName) {
+            throw new IllegalStateException("Inavlid type in IN_FOLDER() or IN_TREE(), must be in FROM list: "
+                    + tableNode.getText());
+        }
+        return typeQueryName;
+    }
+
+    private LiteralList createLiteralList(ColumnReference colRef, Tree listNode) {
+        List<?> values = (List<?>) literalWalker.walkExpr(listNode);
+        Literal[] literals = new Literal[values.size()];
+        for (int i = 0; i < literals.length; i++) {
+            literals[i] = createLiteral(colRef, values.get(i));
+        }
+        return new LiteralList(literals);
+    }
+
+    /**
+     * Converts a literal into the representation used to compare it with the
+     * values of a property.
+     */
+    private static Literal createLiteral(ColumnReference colRef, Object literal) {
+        switch (colRef.getPropertyDefinition().getPropertyType()) {
+        case BOOLEAN:
+            if (literal instanceof Boolean) {
+                return new BooleanLiteral((Boolean) literal);
+            }
+            break;
+        case INTEGER:
+            if (literal instanceof Long) {
+                return new LongLiteral((Long) literal);
+            } else if (literal instanceof Double) {
+                return new DoubleLiteral((Double) literal);
+            }
+            break;
+        case DATETIME:
+            if (literal instanceof GregorianCalendar) {
+                return new DateTimeLiteral(((GregorianCalendar) literal).getTimeInMillis());
+            }
+            break;
+        case DECIMAL:
+            if (literal instanceof Double) {
+                return new DoubleLiteral((Double) literal);
+            } else if (literal instanceof Long) {
+                return new DoubleLiteral(((Long) literal).doubleValue());
+            }
+            break;
+        case HTML:
+        case STRING:
+        case URI:
+        case ID:
+            if (literal instanceof String) {
+                return new StringLiteral((String) literal);
+            }
+            break;
+        default:
+            break;
+        }
+        throw new CmisInvalidArgumentException("Incompatible Types to compare: " + colRef.getPropertyQueryName()
+                + " and " + literal);
+    }
+
+    /**
+     * Creates a matcher for a LIKE pattern. Patterns that only use
+     * <code>%</code> at the start or the end are matched with plain string
+     * operations, all others are translated to a regular expression.
+     */
+    private static StringMatcher createLikeMatcher(String likePattern) {
+        boolean plain = true;
+        for (int i = 0; i < likePattern.length() && plain; i++) {
+            plain = REGEX_SPECIAL_CHARS.indexOf(likePattern.charAt(i)) < 0;
+        }
+
+        if (plain) {
+            boolean leading = likePattern.startsWith("%");
+            boolean trailing = likePattern.length() > (leading ? 1 : 0) && likePattern.endsWith("%");
+            String text = likePattern.substring(leading ? 1 : 0, likePattern.length() - (trailing ? 1 : 0));
+            if (text.indexOf('%') < 0) {
+                return new PlainMatcher(text, leading, trailing);
+            }
+        }
+
+        return new RegexMatcher(Pattern.compile(translateLikePattern(likePattern)));
+    }
+
+    /**
+     * Translates the SQL wildcards <code>%</code> and <code>_</code> of a LIKE
+     * pattern to Java regular expression syntax.
+     */
+    public static String translateLikePattern(String wildcardString) {
+        int index = 0;
+        int start = 0;
+        String wildcard = wildcardString;
+
+        StringBuilder res = new StringBuilder();
+
+        while (index >= 0) {
+            index = wildcard.indexOf('%', start);
+            if (index < 0) {
+                res.append(wildcard.substring(start));
+            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
+                res.append(wildcard.substring(start, index));
+                res.append(".*");
+            } else {
+                res.append(wildcard.substring(start, index + 1));
+            }
+            start = index + 1;
+        }
+        wildcard = res.toString();
+
+        index = 0;
+        start = 0;
+        res = new StringBuilder();
+
+        while (index >= 0) {
+            index = wildcard.indexOf('_', start);
+            if (index < 0) {
+                res.append(wildcard.substring(start));
+            } else if (index == 0 || index > 0 && wildcard.charAt(index - 1) != '\\') {
+                res.append(wildcard.substring(start, index));
+                res.append(".");
+            } else {
+                res.append(wildcard.substring(start, index + 1));
+            }
+            start = index + 1;
+        }
+        return res.toString();
+    }
+
+    // --- predicates ---
+
+    private static final class False<T> extends CompiledPredicate<T> {
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return false;
+        }
+    }
+
+    private static final class Not<T> extends CompiledPredicate<T> {
+        private final CompiledPredicate<T> predicate;
+
+        Not(CompiledPredicate<T> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return !predicate.evaluate(object, context);
+        }
+    }
+
+    private static final class And<T> extends CompiledPredicate<T> {
+        private final CompiledPredicate<T> left;
+        private final CompiledPredicate<T> right;
+
+        And(CompiledPredicate<T> left, CompiledPredicate<T> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return left.evaluate(object, context) && right.evaluate(object, context);
+        }
+    }
+
+    private static final class Or<T> extends CompiledPredicate<T> {
+        private final CompiledPredicate<T> left;
+        private final CompiledPredicate<T> right;
+
+        Or(CompiledPredicate<T> left, CompiledPredicate<T> right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return left.evaluate(object, context) || right.evaluate(object, context);
+        }
+    }
+
+    private static final class Comparison<T> extends CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final int op;
+        private final Literal literal;
+
+        Comparison(ColumnReference colRef, int op, Literal literal) {
+            this.colRef = colRef;
+            this.op = op;
+            this.literal = literal;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            Object value = context.getPropertyValue(object, colRef);
+            if (value == null) {
+                return false;
+            }
+
+            int cmp = literal.compareTo(value);
+            switch (op) {
+            case CmisQlStrictLexer.EQ:
+                return cmp == 0;
+            case CmisQlStrictLexer.NEQ:
+                return cmp != 0;
+            case CmisQlStrictLexer.GT:
+                return cmp > 0;
+            case CmisQlStrictLexer.GTEQ:
+                return cmp >= 0;
+            case CmisQlStrictLexer.LT:
+                return cmp < 0;
+            default:
+                return cmp <= 0;
+            }
+        }
+    }
+
+    private static final class In<T> extends CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final LiteralList literals;
+        private final boolean negate;
+
+        In(ColumnReference colRef, LiteralList literals, boolean negate) {
+            this.colRef = colRef;
+            this.literals = literals;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            // a property that is not set matches neither IN nor NOT IN
+            Object value = context.getPropertyValue(object, colRef);
+            return value != null && literals.contains(value) != negate;
+        }
+    }
+
+    private static final class InAny<T> extends CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final LiteralList literals;
+        private final boolean negate;
+
+        InAny(ColumnReference colRef, LiteralList literals, boolean negate) {
+            this.colRef = colRef;
+            this.literals = literals;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            List<?> values = (List<?>) context.getPropertyValue(object, colRef);
+            if (values == null) {
+                return false;
+            }
+            for (int i = 0; i < values.size(); i++) {
+                if (literals.contains(values.get(i))) {
+                    return !negate;
+                }
+            }
+            return negate;
+        }
+    }
+
+    private static final class IsNull<T> extends CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final boolean negate;
+
+        IsNull(ColumnReference colRef, boolean negate) {
+            this.colRef = colRef;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return (context.getPropertyValue(object, colRef) == null) != negate;
+        }
+    }
+
+    private static final class Like<T> extends CompiledPredicate<T> {
+        private final ColumnReference colRef;
+        private final StringMatcher matcher;
+        private final boolean negate;
+
+        Like(ColumnReference colRef, StringMatcher matcher, boolean negate) {
+            this.colRef = colRef;
+            this.matcher = matcher;
+            this.negate = negate;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            String value = (String) context.getPropertyValue(object, colRef);
+            boolean matches = value != null && matcher.matches(value);
+            return matches != negate;
+        }
+    }
+
+    private static final class InFolder<T> extends CompiledPredicate<T> {
+        private final String folderId;
+        private final boolean inTree;
+
+        InFolder(String folderId, boolean inTree) {
+            this.folderId = folderId;
+            this.inTree = inTree;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return inTree ? context.isInTree(object, folderId) : context.isInFolder(object, folderId);
+        }
+    }
+
+    private static final class Contains<T> extends CompiledPredicate<T> {
+        private final CompiledPredicate<T> searchExpr;
+
+        Contains(CompiledPredicate<T> searchExpr) {
+            this.searchExpr = searchExpr;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return searchExpr.evaluate(object, context);
+        }
+    }
+
+    private static final class TextAnd<T> extends CompiledPredicate<T> {
+        private final List<CompiledPredicate<T>> terms;
+
+        TextAnd(List<CompiledPredicate<T>> terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            for (int i = 0; i < terms.size(); i++) {
+                if (!terms.get(i).evaluate(object, context)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class TextOr<T> extends CompiledPredicate<T> {
+        private final List<CompiledPredicate<T>> terms;
+
+        TextOr(List<CompiledPredicate<T>> terms) {
+            this.terms = terms;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            for (int i = 0; i < terms.size(); i++) {
+                if (terms.get(i).evaluate(object, context)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static final class TextWord<T> extends CompiledPredicate<T> {
+        private final String text;
+
+        TextWord(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public boolean evaluate(T object, PredicateContext<T> context) {
+            return context.containsText(object, text);
+        }
+    }
+
+    // --- literals ---
+
+    /**
+     * A literal converted for comparing it with the values of a property.
+     */
+    private abstract static class Literal {
+        /**
+         * Returns a negative number, zero or a positive number if the property
+         * value is less than, equal to or greater than this literal.
+         */
+        abstract int compareTo(Object value);
+    }
+
+    private static final class BooleanLiteral extends Literal {
+        private final boolean literal;
+
+        BooleanLiteral(boolean literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compareTo(Object value) {
+            boolean b = ((Boolean) value).booleanValue();
+            return b == literal ? 0 : (b ? 1 : -1);
+        }
+    }
+
+    private static final class LongLiteral extends Literal {
+        private final long literal;
+
+        LongLiteral(long literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compareTo(Object value) {
+            if (value instanceof BigInteger && ((BigInteger) value).bitLength() > 63) {
+                // longValue() would wrap around, compare the big values
+                return ((BigInteger) value).compareTo(BigInteger.valueOf(literal));
+            }
+            long l = ((Number) value).longValue();
+            return l < literal ? -1 : (l == literal ? 0 : 1);
+        }
+    }
+
+    private static final class DoubleLiteral extends Literal {
+        private final double literal;
+
+        DoubleLiteral(double literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compareTo(Object value) {
+            return Double.compare(((Number) value).doubleValue(), literal);
+        }
+    }
+
+    private static final class DateTimeLiteral extends Literal {
+        private final long millis;
+
+        DateTimeLiteral(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        int compareTo(Object value) {
+            long l = ((Calendar) value).getTimeInMillis();
+            return l < millis ? -1 : (l == millis ? 0 : 1);
+        }
+    }
+
+    private static final class StringLiteral extends Literal {
+        private final String literal;
+
+        StringLiteral(String literal) {
+            this.literal = literal;
+        }
+
+        @Override
+        int compareTo(Object value) {
+            return ((String) value).compareTo(literal);
+        }
+    }
+
+    /**
+     * The literals of an IN list. String literals are looked up in a hash set,
+     * all others are compared one after the other.
+     */
+    private static final class LiteralList {
+        private final Literal[] literals;
+        private final Set<String> strings;
+
+        LiteralList(Literal[] literals) {
+            this.literals = literals;
+
+            Set<String> stringSet = new HashSet<String>();
+            for (Literal literal : literals) {
+                if (!(literal instanceof StringLiteral)) {
+                    stringSet = null;
+                    break;
+                }
+                stringSet.add(((StringLiteral) literal).literal);
+            }
+            this.strings = stringSet;
+        }
+
+        boolean contains(Object value) {
+            if (strings != null) {
+                return strings.contains(value);
+            }
+            for (int i = 0; i < literals.length; i++) {
+                if (literals[i].compareTo(value) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    // --- LIKE matchers ---
+
+    private abstract static class StringMatcher {
+        abstract boolean matches(String value);
+    }
+
+    private static final class PlainMatcher extends StringMatcher {
+        private final String text;
+        private final boolean leadingWildcard;
+        private final boolean trailingWildcard;
+
+        PlainMatcher(String text, boolean leadingWildcard, boolean trailingWildcard) {
+            this.text = text;
+            this.leadingWildcard = leadingWildcard;
+            this.trailingWildcard = trailingWildcard;
+        }
+
+        @Override
+        boolean matches(String value) {
+            if (leadingWildcard && trailingWildcard) {
+                return value.indexOf(text) >= 0;
+            } else if (leadingWildcard) {
+                return value.endsWith(text);
+            } else if (trailingWildcard) {
+                return value.startsWith(text);
+            } else {
+                return value.equals(text);
+            }
+        }
+    }
+
+    private static final class RegexMatcher extends StringMatcher {
+        private final Pattern pattern;
+
+        RegexMatcher(Pattern pattern) {
+            this.pattern = pattern;
+        }
+
+        @Override
+        boolean matches(String value) {
+            return pattern.matcher(value).matches();
+        }
+    }
+}
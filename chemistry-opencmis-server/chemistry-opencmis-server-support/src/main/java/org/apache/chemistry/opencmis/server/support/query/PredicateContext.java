@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support.query;
+
+/**
+ * Repository specific access to the objects a {@link CompiledPredicate} is
+ * evaluated against.
+ *
+ * @param <T>
+ *            the type of the repository objects
+ */
+public interface PredicateContext<T> {
+
+    /**
+     * Returns the value of a property of an object.
+     *
+     * @param object
+     *            the object
+     * @param colRef
+     *            the resolved column reference of the property
+     * @return the value for single-value properties, a <code>List</code> of
+     *         values for multi-value properties or <code>null</code> if the
+     *         property is not set
+     */
+    Object getPropertyValue(T object, ColumnReference colRef);
+
+    /**
+     * Returns if an object is a direct child of a folder.
+     */
+    boolean isInFolder(T object, String folderId);
+
+    /**
+     * Returns if an object is a descendant of a folder.
+     */
+    boolean isInTree(T object, String folderId);
+
+    /**
+     * Returns if the full text of an object contains the given text.
+     */
+    boolean containsText(T object, String text);
+}
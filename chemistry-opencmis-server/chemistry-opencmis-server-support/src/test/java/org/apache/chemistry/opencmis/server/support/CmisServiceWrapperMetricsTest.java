@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.chemistry.opencmis.commons.data.ObjectData;
+import org.apache.chemistry.opencmis.commons.exceptions.CmisObjectNotFoundException;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectDataImpl;
+import org.apache.chemistry.opencmis.commons.impl.dataobjects.ObjectListImpl;
+import org.apache.chemistry.opencmis.commons.impl.server.metrics.OperationMetrics;
+import org.apache.chemistry.opencmis.commons.impl.server.metrics.ServerMetrics;
+import org.apache.chemistry.opencmis.commons.server.CmisService;
+import org.junit.After;
+import org.junit.Test;
+
+public class CmisServiceWrapperMetricsTest {
+
+    @After
+    public void tearDown() {
+        ServerMetrics.getInstance().shutdown();
+    }
+
+    @Test
+    public void testServiceWrapper() {
+        ServerMetrics metrics = ServerMetrics.getInstance();
+        metrics.setJmxEnabled(false);
+        metrics.setEnabled(true);
+
+        CmisService service = (CmisService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { CmisService.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getName().equals("getObject")) {
+                            throw new CmisObjectNotFoundException("not found");
+                        }
+                        if (method.getName().equals("getCheckedOutDocs")) {
+                            List<ObjectData> objects = new ArrayList<ObjectData>();
+                            objects.add(new ObjectDataImpl());
+                            objects.add(new ObjectDataImpl());
+                            ObjectListImpl list = new ObjectListImpl();
+                            list.setObjects(objects);
+                            return list;
+                        }
+                        return null;
+                    }
+                });
+
+        CmisServiceWrapper<CmisService> wrapper = new CmisServiceWrapper<CmisService>(service, null,
+                BigInteger.ONE, null, BigInteger.ONE);
+
+        wrapper.getCheckedOutDocs("repo", null, null, null, null, null, null, null, null, null);
+        wrapper.getCheckedOutDocs("repo", null, null, null, null, null, null, null, null, null);
+        try {
+            wrapper.getObject("repo", "id", null, null, null, null, null, null, null);
+            fail("Exception expected!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        OperationMetrics checkedOut = metrics.getOperationMetrics(ServerMetrics.SCOPE_SERVICE, "repo",
+                "getCheckedOutDocs");
+        assertEquals(2, checkedOut.getCount());
+        assertEquals(0, checkedOut.getErrorCount());
+        assertEquals(2, checkedOut.getMaxResultSize());
+
+        OperationMetrics getObject = metrics.getOperationMetrics(ServerMetrics.SCOPE_SERVICE, "repo", "getObject");
+        assertNotNull(getObject);
+        assertEquals(1, getObject.getCount());
+        assertEquals(Long.valueOf(1), getObject.getErrorCounts().get("CmisObjectNotFoundException"));
+        assertEquals(0, getObject.getResultCount());
+
+        // a failed call for an unknown repository doesn't create new metrics
+        try {
+            wrapper.getObject("bogus", "id", null, null, null, null, null, null, null);
+            fail("Exception expected!");
+        } catch (CmisObjectNotFoundException e) {
+            // expected
+        }
+
+        assertEquals(1, metrics.getOperationMetrics(ServerMetrics.SCOPE_SERVICE, ServerMetrics.UNKNOWN_REPOSITORY,
+                "getObject").getCount());
+        assertEquals(3, metrics.getMetrics().size());
+    }
+}
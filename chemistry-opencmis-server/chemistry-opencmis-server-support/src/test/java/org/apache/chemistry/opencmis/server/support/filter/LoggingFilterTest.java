@@ -0,0 +1,295 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.chemistry.opencmis.server.support.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.chemistry.opencmis.commons.impl.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoggingFilterTest {
+
+    private File logDir;
+
+    @Before
+    public void setUp() throws IOException {
+        logDir = File.createTempFile("loggingfilter", "");
+        logDir.delete();
+        logDir.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = logDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        logDir.delete();
+    }
+
+    @Test
+    public void testAsyncSampledCapture() throws Exception {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("LogDir", logDir.getAbsolutePath());
+        params.put("Async", "true");
+        params.put("SamplingRate", "0.5");
+        params.put("MaxBodySize", "20");
+        params.put("LogHeaders", "false");
+
+        LoggingFilter filter = new LoggingFilter();
+        filter.init(createConfig(params));
+
+        final int[] calls = new int[1];
+        FilterChain chain = new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException,
+                    ServletException {
+                calls[0]++;
+                IOUtils.consumeAndClose(request.getInputStream());
+                ServletOutputStream out = response.getOutputStream();
+                for (int i = 0; i < 100; i++) {
+                    out.write('x');
+                }
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            filter.doFilter(createRequest("request body " + i), createResponse(out), chain);
+            assertEquals(100, out.size());
+        }
+
+        filter.destroy();
+
+        assertEquals(10, calls[0]);
+
+        File[] files = logDir.listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        assertTrue(files[0].getName().endsWith("-capture.log"));
+
+        String log = read(files[0]);
+        assertEquals(5, count(log, "=== Request "));
+        assertEquals(5, count(log, "=== Response "));
+        assertEquals(5, count(log, "xxxxxxxxxxxxxxxxxxxx\n[truncated]"));
+        assertTrue(log.contains(" ms ===\n"));
+    }
+
+    @Test
+    public void testSegmentRolling() throws Exception {
+        Map<String, String> params = new HashMap<String, String>();
+        params.put("LogDir", logDir.getAbsolutePath());
+        params.put("Async", "true");
+        params.put("LogHeaders", "false");
+        // every capture starts a new segment, only the last three are kept
+        params.put("SegmentSize", "1");
+        params.put("MaxSegments", "3");
+
+        LoggingFilter filter = new LoggingFilter();
+        filter.init(createConfig(params));
+
+        FilterChain chain = new FilterChain() {
+            public void doFilter(ServletRequest request, ServletResponse response) throws IOException,
+                    ServletException {
+                IOUtils.consumeAndClose(request.getInputStream());
+                response.getOutputStream().write('x');
+            }
+        };
+
+        for (int i = 0; i < 10; i++) {
+            filter.doFilter(createRequest("request " + i), createResponse(new ByteArrayOutputStream()), chain);
+        }
+
+        filter.destroy();
+
+        File[] files = logDir.listFiles();
+        assertNotNull(files);
+        assertEquals(3, files.length);
+        Arrays.sort(files);
+
+        for (int i = 0; i < files.length; i++) {
+            String log = read(files[i]);
+            assertEquals(1, count(log, "=== Request "));
+            assertTrue(log.contains("request " + (7 + i)));
+        }
+    }
+
+    @Test
+    public void testQueueDropsOldest() {
+        LoggingFilter.CaptureQueue queue = new LoggingFilter.CaptureQueue(3, 1000);
+
+        // bounded by the number of captures
+        for (int i = 0; i < 5; i++) {
+            queue.add(createCapture(i, 10));
+        }
+        assertEquals(3, queue.size());
+        assertEquals(2, queue.takeDropped());
+        assertEquals(0, queue.takeDropped());
+        assertEquals(2, queue.poll().number);
+
+        // bounded by the size, each capture uses 2 bytes per character
+        queue.add(createCapture(5, 490));
+        assertEquals(2, queue.size());
+        assertEquals(1, queue.takeDropped());
+        assertEquals(1000, queue.getBytes());
+        assertEquals(4, queue.poll().number);
+        assertEquals(5, queue.poll().number);
+        assertNull(queue.poll());
+        assertEquals(0, queue.getBytes());
+
+        // a single capture larger than the limit is kept
+        queue.add(createCapture(6, 300));
+        queue.add(createCapture(7, 1000));
+        assertEquals(1, queue.size());
+        assertEquals(1, queue.takeDropped());
+        assertEquals(7, queue.poll().number);
+    }
+
+    private static LoggingFilter.Capture createCapture(int number, int bodyLength) {
+        LoggingFilter.Capture capture = new LoggingFilter.Capture();
+        capture.number = number;
+        capture.requestBody = new String(new char[bodyLength]);
+        return capture;
+    }
+
+    private static int count(String s, String part) {
+        int result = 0;
+        int pos = s.indexOf(part);
+        while (pos > -1) {
+            result++;
+            pos = s.indexOf(part, pos + part.length());
+        }
+        return result;
+    }
+
+    private static String read(File file) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int b;
+            while ((b = in.read(buffer)) > -1) {
+                out.write(buffer, 0, b);
+            }
+            return out.toString("UTF-8");
+        } finally {
+            in.close();
+        }
+    }
+
+    private static FilterConfig createConfig(final Map<String, String> params) {
+        return (FilterConfig) Proxy.newProxyInstance(LoggingFilterTest.class.getClassLoader(),
+                new Class<?>[] { FilterConfig.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getInitParameter".equals(method.getName())) {
+                            return params.get(args[0]);
+                        }
+                        if ("getInitParameterNames".equals(method.getName())) {
+                            return Collections.enumeration(params.keySet());
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static HttpServletRequest createRequest(String body) {
+        final InputStream in = new ByteArrayInputStream(body.getBytes());
+        final ServletInputStream stream = new ServletInputStream() {
+            @Override
+            public int read() throws IOException {
+                return in.read();
+            }
+        };
+
+        return (HttpServletRequest) Proxy.newProxyInstance(LoggingFilterTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if ("getInputStream".equals(name)) {
+                            return stream;
+                        }
+                        if ("getContentType".equals(name)) {
+                            return "text/plain";
+                        }
+                        if ("getProtocol".equals(name)) {
+                            return "HTTP/1.1";
+                        }
+                        if ("getMethod".equals(name)) {
+                            return "POST";
+                        }
+                        if ("getHeaderNames".equals(name)) {
+                            return Collections.enumeration(Collections.emptyList());
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    private static HttpServletResponse createResponse(final ByteArrayOutputStream out) {
+        final ServletOutputStream stream = new ServletOutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+        };
+
+        return (HttpServletResponse) Proxy.newProxyInstance(LoggingFilterTest.class.getClassLoader(),
+                new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getOutputStream".equals(method.getName())) {
+                            return stream;
+                        }
+                        if ("getContentType".equals(method.getName())) {
+                            return "text/plain";
+                        }
+                        return null;
+                    }
+                });
+    }
+}